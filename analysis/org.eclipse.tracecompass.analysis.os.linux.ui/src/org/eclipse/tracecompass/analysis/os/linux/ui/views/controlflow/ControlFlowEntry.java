@@ -15,12 +15,12 @@ package org.eclipse.tracecompass.analysis.os.linux.ui.views.controlflow;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
-import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model.TimeGraphEntry;
+import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model.CompactTimeGraphEntry;
 
 /**
  * An entry in the Control Flow view
  */
-public class ControlFlowEntry extends TimeGraphEntry {
+public class ControlFlowEntry extends CompactTimeGraphEntry {
 
     private final @NonNull ITmfTrace fTrace;
     private final int fThreadId;
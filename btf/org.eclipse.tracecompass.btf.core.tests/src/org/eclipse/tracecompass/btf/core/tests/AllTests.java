@@ -20,7 +20,8 @@ import org.junit.runners.Suite;
  */
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
-    org.eclipse.tracecompass.btf.core.tests.trace.BtfTraceTest.class
+    org.eclipse.tracecompass.btf.core.tests.trace.BtfTraceTest.class,
+    org.eclipse.tracecompass.btf.core.tests.trace.BtfCheckpointScanTest.class
 })
 public class AllTests {
 
@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.btf.core.tests.trace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.tracecompass.btf.core.tests.utils.BtfTestTrace;
+import org.eclipse.tracecompass.btf.core.trace.BtfTrace;
+import org.eclipse.tracecompass.tmf.core.exceptions.TmfTraceException;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimestamp;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.ITmfTraceIndexer;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.checkpoint.ITmfCheckpoint;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.checkpoint.ITmfCheckpointIndex;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.checkpoint.TmfCheckpointIndexer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Compare the checkpoints scanned by the BTF trace with the ones of the
+ * indexer reading all the events with a request
+ */
+public class BtfCheckpointScanTest {
+
+    /* Small enough to have checkpoints in every chunk of the scan */
+    private static final int INTERVAL = 100;
+
+    private IndexedBtfTrace fScannedTrace;
+    private IndexedBtfTrace fRequestTrace;
+
+    /**
+     * Open the test trace twice, and index it both ways
+     *
+     * @throws TmfTraceException
+     *             If the trace could not be opened
+     */
+    @Before
+    public void setup() throws TmfTraceException {
+        String path = BtfTestTrace.BTF_TEST.getTrace().getPath();
+        BtfTestTrace.BTF_TEST.dispose();
+
+        fScannedTrace = new IndexedBtfTrace(true);
+        fScannedTrace.initTrace(null, path, null);
+        fScannedTrace.indexTrace(true);
+
+        fRequestTrace = new IndexedBtfTrace(false);
+        fRequestTrace.initTrace(null, path, null);
+        fRequestTrace.indexTrace(true);
+    }
+
+    /**
+     * Cleanup
+     */
+    @After
+    public void cleanup() {
+        fScannedTrace.dispose();
+        fRequestTrace.dispose();
+    }
+
+    /**
+     * Test the checkpoints returned by the trace itself
+     */
+    @Test
+    public void testScanCheckpoints() {
+        List<ITmfCheckpoint> scanned = fScannedTrace.scanCheckpoints(INTERVAL, new NullProgressMonitor());
+        assertNotNull(scanned);
+        assertCheckpoints(fRequestTrace.getCheckpoints(), scanned);
+    }
+
+    /**
+     * Test the index built from the scanned checkpoints, and the attributes
+     * of the trace once indexed
+     */
+    @Test
+    public void testScanIndex() {
+        List<ITmfCheckpoint> expected = fRequestTrace.getCheckpoints();
+        assertTrue(expected.size() > 1);
+        assertCheckpoints(expected, fScannedTrace.getCheckpoints());
+
+        assertEquals(fRequestTrace.getNbEvents(), fScannedTrace.getNbEvents());
+        assertEquals(fRequestTrace.getStartTime(), fScannedTrace.getStartTime());
+        assertEquals(fRequestTrace.getEndTime(), fScannedTrace.getEndTime());
+    }
+
+    private static void assertCheckpoints(List<ITmfCheckpoint> expected, List<ITmfCheckpoint> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getTimestamp(), actual.get(i).getTimestamp());
+            assertEquals(expected.get(i).getLocation(), actual.get(i).getLocation());
+            assertEquals(i, actual.get(i).getCheckpointRank());
+        }
+    }
+
+    /**
+     * BTF trace with an in-memory index. The index is built either from the
+     * scanned checkpoints, or by reading all the events with a request.
+     */
+    private static class IndexedBtfTrace extends BtfTrace {
+
+        private final boolean fScan;
+
+        public IndexedBtfTrace(boolean scan) {
+            fScan = scan;
+        }
+
+        @Override
+        protected ITmfTraceIndexer createIndexer(int interval) {
+            return new TestIndexer(this, fScan);
+        }
+
+        public List<ITmfCheckpoint> getCheckpoints() {
+            return ((TestIndexer) getIndexer()).getCheckpoints();
+        }
+    }
+
+    private static class TestIndexer extends TmfCheckpointIndexer {
+
+        private final boolean fScan;
+
+        public TestIndexer(ITmfTrace trace, boolean scan) {
+            super(trace, INTERVAL);
+            fScan = scan;
+        }
+
+        @Override
+        public void buildIndex(long offset, TmfTimeRange range, boolean waitForCompletion) {
+            if (fScan) {
+                super.buildIndex(offset, range, waitForCompletion);
+            } else {
+                /* The trace is only scanned for the eternity range */
+                super.buildIndex(offset, new TmfTimeRange(TmfTimestamp.ZERO, TmfTimestamp.BIG_CRUNCH), waitForCompletion);
+            }
+        }
+
+        public List<ITmfCheckpoint> getCheckpoints() {
+            ITmfCheckpointIndex index = getTraceIndex();
+            List<ITmfCheckpoint> checkpoints = new ArrayList<>();
+            for (int i = 0; i < index.size(); i++) {
+                checkpoints.add(index.get(i));
+            }
+            return checkpoints;
+        }
+    }
+}
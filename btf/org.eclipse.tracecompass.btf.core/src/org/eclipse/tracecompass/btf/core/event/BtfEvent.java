@@ -32,6 +32,12 @@ public class BtfEvent extends TmfEvent {
     private final String fSource;
     private final String fTarget;
 
+    /* Raw content of the events whose content is generated when needed */
+    private final String fEvent;
+    private final long fSourceInstance;
+    private final long fTargetInstance;
+    private volatile ITmfEventField fGeneratedContent;
+
     /**
      * Standard constructor.
      *
@@ -64,6 +70,65 @@ public class BtfEvent extends TmfEvent {
         fDescription = description;
         fSource = source;
         fTarget = target;
+        fEvent = null;
+        fSourceInstance = -1;
+        fTargetInstance = -1;
+    }
+
+    /**
+     * Constructor for an event whose content is generated from the event type
+     * only when it is needed, so that reading or indexing the events does not
+     * create their fields.
+     *
+     * @param trace
+     *            the parent trace
+     * @param rank
+     *            the event rank
+     * @param timestamp
+     *            the event timestamp
+     * @param source
+     *            the event source
+     * @param type
+     *            the event type, which also gives the event description
+     * @param event
+     *            the "event" column of the event
+     * @param sourceInstance
+     *            the source instance, or -1 if there is none
+     * @param targetInstance
+     *            the target instance, or -1 if there is none
+     * @param target
+     *            the event reference
+     * @since 1.1
+     */
+    public BtfEvent(final ITmfTrace trace,
+            final long rank,
+            final ITmfTimestamp timestamp,
+            final String source,
+            final BtfEventType type,
+            final String event,
+            final long sourceInstance,
+            final long targetInstance,
+            final String target) {
+        super(trace, rank, timestamp, type, null);
+        fDescription = type.getDescription();
+        fSource = source;
+        fTarget = target;
+        fEvent = event;
+        fSourceInstance = sourceInstance;
+        fTargetInstance = targetInstance;
+    }
+
+    @Override
+    public ITmfEventField getContent() {
+        if (fEvent == null) {
+            return super.getContent();
+        }
+        ITmfEventField content = fGeneratedContent;
+        if (content == null) {
+            content = ((BtfEventType) getType()).generateContent(fEvent, fSourceInstance, fTargetInstance);
+            fGeneratedContent = content;
+        }
+        return content;
     }
 
     /**
@@ -82,6 +147,23 @@ public class BtfEvent extends TmfEvent {
         return adapterType.cast(adatper);
     }
 
+    @Override
+    public int hashCode() {
+        ITmfEventField content = getContent();
+        return 31 * super.hashCode() + ((content == null) ? 0 : content.hashCode());
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!super.equals(obj)) {
+            return false;
+        }
+        /* The content of the other event may not be generated yet */
+        ITmfEventField content = getContent();
+        ITmfEventField otherContent = ((TmfEvent) obj).getContent();
+        return (content == null) ? (otherContent == null) : content.equals(otherContent);
+    }
+
     /**
      * Returns the source of this event.
      *
@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.btf.core.trace;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Table of the names read in a BTF trace: entities, event types and events.
+ * The names are looked up directly from the bytes of the file, so a name that
+ * was already read does not create a new string. The bytes are decoded as
+ * ISO-8859-1, like {@link java.io.RandomAccessFile#readLine} does.
+ *
+ * The table stops growing after {@link #MAX_SIZE} names, the names that are
+ * not in it are then simply decoded.
+ */
+final class BtfNameTable {
+
+    private static final int MAX_SIZE = 1 << 16;
+    private static final int INITIAL_CAPACITY = 256;
+
+    /* Open addressing, the capacity is a power of 2 and the table at most half full */
+    private String[] fNames = new String[INITIAL_CAPACITY];
+    private int fSize = 0;
+
+    /**
+     * Add a name to the table, for example one read in the trace header
+     *
+     * @param name
+     *            The name
+     * @return The instance of the name in the table
+     */
+    public synchronized String add(String name) {
+        int hash = name.hashCode();
+        int mask = fNames.length - 1;
+        int i = hash & mask;
+        while (fNames[i] != null) {
+            if (fNames[i].equals(name)) {
+                return fNames[i];
+            }
+            i = (i + 1) & mask;
+        }
+        if (fSize < MAX_SIZE) {
+            insert(i, name);
+        }
+        return name;
+    }
+
+    /**
+     * Get the name made of some bytes of a buffer
+     *
+     * @param buffer
+     *            The buffer
+     * @param from
+     *            The index of the first byte of the name, inclusive
+     * @param to
+     *            The index of the end of the name, exclusive
+     * @return The name, from the table if it is in it
+     */
+    public synchronized String intern(ByteBuffer buffer, int from, int to) {
+        /* Same hash as String.hashCode() of the decoded name */
+        int hash = 0;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + (buffer.get(i) & 0xff);
+        }
+        int mask = fNames.length - 1;
+        int i = hash & mask;
+        while (fNames[i] != null) {
+            String name = fNames[i];
+            if (name.hashCode() == hash && matches(name, buffer, from, to)) {
+                return name;
+            }
+            i = (i + 1) & mask;
+        }
+        String name = decode(buffer, from, to);
+        if (fSize < MAX_SIZE) {
+            insert(i, name);
+        }
+        return name;
+    }
+
+    /**
+     * Decode some bytes of a buffer as ISO-8859-1
+     *
+     * @param buffer
+     *            The buffer
+     * @param from
+     *            The index of the first byte, inclusive
+     * @param to
+     *            The index of the last byte, exclusive
+     * @return The decoded string
+     */
+    public static String decode(ByteBuffer buffer, int from, int to) {
+        char[] chars = new char[to - from];
+        for (int i = from; i < to; i++) {
+            chars[i - from] = (char) (buffer.get(i) & 0xff);
+        }
+        return new String(chars);
+    }
+
+    private static boolean matches(String name, ByteBuffer buffer, int from, int to) {
+        if (name.length() != to - from) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            if (name.charAt(i - from) != (char) (buffer.get(i) & 0xff)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void insert(int index, String name) {
+        fNames[index] = name;
+        fSize++;
+        if (fSize * 2 > fNames.length) {
+            String[] names = fNames;
+            fNames = new String[names.length * 2];
+            int mask = fNames.length - 1;
+            for (String n : names) {
+                if (n != null) {
+                    int i = n.hashCode() & mask;
+                    while (fNames[i] != null) {
+                        i = (i + 1) & mask;
+                    }
+                    fNames[i] = n;
+                }
+            }
+        }
+    }
+}
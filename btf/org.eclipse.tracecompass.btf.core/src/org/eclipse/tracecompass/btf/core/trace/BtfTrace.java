@@ -14,36 +14,48 @@
 package org.eclipse.tracecompass.btf.core.trace;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.tracecompass.btf.core.Activator;
 import org.eclipse.tracecompass.btf.core.event.BtfEvent;
 import org.eclipse.tracecompass.btf.core.event.BtfEventType;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
-import org.eclipse.tracecompass.tmf.core.event.ITmfEventField;
 import org.eclipse.tracecompass.tmf.core.event.aspect.ITmfEventAspect;
 import org.eclipse.tracecompass.tmf.core.exceptions.TmfTraceException;
 import org.eclipse.tracecompass.tmf.core.io.BufferedRandomAccessFile;
-import org.eclipse.tracecompass.tmf.core.parsers.custom.CustomTxtTraceContext;
+import org.eclipse.tracecompass.tmf.core.timestamp.ITmfTimestamp;
 import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimestamp;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfTraceProperties;
 import org.eclipse.tracecompass.tmf.core.trace.TmfContext;
 import org.eclipse.tracecompass.tmf.core.trace.TmfTrace;
 import org.eclipse.tracecompass.tmf.core.trace.TraceValidationStatus;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.ITmfCheckpointScanner;
 import org.eclipse.tracecompass.tmf.core.trace.indexer.ITmfPersistentlyIndexable;
 import org.eclipse.tracecompass.tmf.core.trace.indexer.ITmfTraceIndexer;
 import org.eclipse.tracecompass.tmf.core.trace.indexer.TmfBTreeTraceIndexer;
@@ -57,12 +69,20 @@ import com.google.common.collect.ImmutableMap;
 /**
  * BTF reader. Reads Best Trace Format traces.
  *
+ * The file is memory-mapped and the events are parsed directly from its
+ * bytes, without creating a string for each line. The names of the entities,
+ * types and events are shared through a {@link BtfNameTable}. The checkpoints
+ * of the index are found by scanning chunks of the file in parallel.
+ *
  * @author Matthew Khouzam
  */
-public class BtfTrace extends TmfTrace implements ITmfPersistentlyIndexable, ITmfTraceProperties, AutoCloseable {
+public class BtfTrace extends TmfTrace implements ITmfPersistentlyIndexable, ITmfCheckpointScanner, ITmfTraceProperties, AutoCloseable {
 
     private static final int MAX_FIELDS = 7;
 
+    /** Size of the regions of the file that are mapped in memory */
+    private static final int MAPPING_SIZE = 64 * 1024 * 1024;
+
     private static final long MICROSECONDS_IN_A_SECOND = 1000000L;
 
     private static final String VERSION = "#version"; //$NON-NLS-1$
@@ -103,11 +123,19 @@ public class BtfTrace extends TmfTrace implements ITmfPersistentlyIndexable, ITm
     // default unit is ns
     private BtfTimestampFormat fTsFormat = BtfTimestampFormat.NS;
 
+    private final BtfNameTable fNames = new BtfNameTable();
+
     private File fFile;
-    private RandomAccessFile fFileInput;
+    private FileChannel fFileChannel;
+    private long fFileSize;
     private long fDataOffset;
     private long fTsOffset = 0;
 
+    /** Offset in the file of the next line to read */
+    private long fPosition;
+    private MappedByteBuffer fMappedRegion;
+    private long fMappedRegionStart;
+
     /**
      * Default constructor
      */
@@ -117,8 +145,9 @@ public class BtfTrace extends TmfTrace implements ITmfPersistentlyIndexable, ITm
         fProperties.put(TIMESCALE, fTsFormat.toString());
     }
 
-    private void parseHeader(RandomAccessFile input) throws IOException {
-        String line = input.readLine();
+    private void parseHeader() throws IOException {
+        fPosition = 0;
+        String line = readLine();
         long pos = 0;
         while (line != null && line.startsWith("#")) { //$NON-NLS-1$
             String[] tokens = line.split(" ", 2); //$NON-NLS-1$
@@ -157,51 +186,54 @@ public class BtfTrace extends TmfTrace implements ITmfPersistentlyIndexable, ITm
                 fProperties.put(TIMESCALE, fTsFormat.toString());
                 break;
             case lENTITYTYPE:
-                pos = fFileInput.getFilePointer();
-                line = fFileInput.readLine();
-                while (line.startsWith("#-")) { //$NON-NLS-1$
+                pos = fPosition;
+                line = readLine();
+                while (line != null && line.startsWith("#-")) { //$NON-NLS-1$
                     String tempLine = line.substring(1);
                     String[] elements = tempLine.split(" ", 2); //$NON-NLS-1$
                     fEntityTypes.put(Integer.parseInt(elements[0]), BtfEventTypeFactory.parse(elements[1]));
-                    pos = fFileInput.getFilePointer();
-                    line = fFileInput.readLine();
+                    pos = fPosition;
+                    line = readLine();
                 }
-                fFileInput.seek(pos);
+                fPosition = pos;
                 fProperties.put(ENTITYTYPE, fEntityTypes.toString());
                 break;
             case lENTITYTABLE:
-                pos = fFileInput.getFilePointer();
-                line = fFileInput.readLine();
-                while (line.startsWith("#-")) { //$NON-NLS-1$
+                pos = fPosition;
+                line = readLine();
+                while (line != null && line.startsWith("#-")) { //$NON-NLS-1$
                     String tempLine = line.substring(1);
                     String[] elements = tempLine.split(" ", 2); //$NON-NLS-1$
                     fEntityTable.put(Integer.parseInt(elements[0]), elements[1]);
-                    pos = fFileInput.getFilePointer();
-                    line = fFileInput.readLine();
+                    pos = fPosition;
+                    line = readLine();
                 }
                 fProperties.put(ENTITYTABLE, fEntityTable.toString());
-                fFileInput.seek(pos);
+                fPosition = pos;
                 break;
             case lENTITYTYPETABLE:
-                pos = fFileInput.getFilePointer();
-                line = fFileInput.readLine();
-                while (line.startsWith("#-")) { //$NON-NLS-1$
+                pos = fPosition;
+                line = readLine();
+                while (line != null && line.startsWith("#-")) { //$NON-NLS-1$
                     String tempLine = line.substring(1);
                     String[] elements = tempLine.split(" ", 2); //$NON-NLS-1$
                     fEntityTypeTable.put(BtfEventTypeFactory.parse(elements[0]), elements[1]);
-                    pos = fFileInput.getFilePointer();
-                    line = fFileInput.readLine();
+                    pos = fPosition;
+                    line = readLine();
                 }
-                fFileInput.seek(pos);
+                fPosition = pos;
                 fProperties.put(ENTITYTYPETABLE, fEntityTypeTable.toString());
                 break;
             default:
                 break;
             }
-            fDataOffset = input.getFilePointer();
-            line = input.readLine();
+            fDataOffset = fPosition;
+            line = readLine();
         }
         fTsOffset = (long) (fTsOffset * fTsFormat.getScaleFactor());
+        for (String name : fEntityTable.values()) {
+            fNames.add(name);
+        }
     }
 
     @Override
@@ -209,8 +241,9 @@ public class BtfTrace extends TmfTrace implements ITmfPersistentlyIndexable, ITm
         super.initTrace(resource, path, type);
         fFile = new File(path);
         try {
-            fFileInput = new RandomAccessFile(fFile, "r"); //$NON-NLS-1$
-            parseHeader(fFileInput);
+            fFileChannel = FileChannel.open(fFile.toPath(), StandardOpenOption.READ);
+            fFileSize = fFileChannel.size();
+            parseHeader();
         } catch (IOException e) {
             throw new TmfTraceException(e.getMessage(), e);
         }
@@ -256,60 +289,41 @@ public class BtfTrace extends TmfTrace implements ITmfPersistentlyIndexable, ITm
     }
 
     @Override
-    public ITmfLocation getCurrentLocation() {
-        long temp = -1;
-        try {
-            temp = fFileInput.getFilePointer();
-        } catch (IOException e) {
-        }
-        return new TmfLongLocation(temp);
+    public synchronized ITmfLocation getCurrentLocation() {
+        return new TmfLongLocation(fFileChannel == null ? -1L : fPosition);
     }
 
     @Override
-    public double getLocationRatio(ITmfLocation location) {
-        long size = fFile.length() - fDataOffset;
-        long pos;
-        try {
-            pos = fFileInput.getFilePointer() - fDataOffset;
-        } catch (IOException e) {
-            pos = 0;
-        }
+    public synchronized double getLocationRatio(ITmfLocation location) {
+        long size = fFileSize - fDataOffset;
+        long pos = fPosition - fDataOffset;
         return 1.0 / size * pos;
     }
 
     @Override
-    public ITmfContext seekEvent(ITmfLocation location) {
+    public synchronized ITmfContext seekEvent(ITmfLocation location) {
         final TmfContext context = new TmfContext(NULL_LOCATION, ITmfContext.UNKNOWN_RANK);
         if (NULL_LOCATION.equals(location) || fFile == null) {
             return context;
         }
-        try {
-            if (location == null) {
-                fFileInput.seek(fDataOffset);
-            } else if (location.getLocationInfo() instanceof Long) {
-                fFileInput.seek((Long) location.getLocationInfo());
-            }
-            context.setLocation(new TmfLongLocation(fFileInput.getFilePointer()));
-            return context;
-        } catch (final FileNotFoundException e) {
-            Activator.logError("Error seeking event. File not found: " + getPath(), e); //$NON-NLS-1$
-            return context;
-        } catch (final IOException e) {
-            Activator.logError("Error seeking event. File: " + getPath(), e); //$NON-NLS-1$
-            return context;
+        if (location == null) {
+            fPosition = fDataOffset;
+        } else if (location.getLocationInfo() instanceof Long) {
+            fPosition = (Long) location.getLocationInfo();
         }
+        context.setLocation(new TmfLongLocation(fPosition));
+        return context;
     }
 
     @Override
-    public ITmfContext seekEvent(double ratio) {
+    public synchronized ITmfContext seekEvent(double ratio) {
         if (fFile == null) {
             return new TmfContext(NULL_LOCATION, ITmfContext.UNKNOWN_RANK);
         }
         try {
-            long pos = Math.round(ratio * fFile.length()) - fDataOffset;
+            long pos = Math.round(ratio * fFileSize) - fDataOffset;
             while (pos > 0) {
-                fFileInput.seek(pos - 1);
-                if (fFileInput.read() == '\n') {
+                if (readByte(pos - 1) == '\n') {
                     break;
                 }
                 pos--;
@@ -320,7 +334,7 @@ public class BtfTrace extends TmfTrace implements ITmfPersistentlyIndexable, ITm
             return context;
         } catch (final IOException e) {
             Activator.logError("Error seeking event. File: " + getPath(), e); //$NON-NLS-1$
-            return new CustomTxtTraceContext(NULL_LOCATION, ITmfContext.UNKNOWN_RANK);
+            return new TmfContext(NULL_LOCATION, ITmfContext.UNKNOWN_RANK);
         }
     }
 
@@ -348,20 +362,21 @@ public class BtfTrace extends TmfTrace implements ITmfPersistentlyIndexable, ITm
      *            the context, has a location
      * @return the event from a given line
      */
-    private ITmfEvent parseLine(TmfContext context) {
-        try {
-            if (!context.getLocation().getLocationInfo().equals(fFileInput.getFilePointer())) {
-                seekEvent(context.getLocation());
-            }
-        } catch (IOException e1) {
+    private synchronized ITmfEvent parseLine(TmfContext context) {
+        if ((Long) context.getLocation().getLocationInfo() != fPosition) {
             seekEvent(context.getLocation());
         }
-        String line;
         try {
-            line = fFileInput.readLine();
-            return parseLine(context.getRank(), line);
-
+            int end = mapLine();
+            if (end < 0) {
+                return null;
+            }
+            ByteBuffer region = fMappedRegion;
+            int start = (int) (fPosition - fMappedRegionStart);
+            fPosition = fMappedRegionStart + Math.min(end + 1, region.limit());
+            return parseLine(context.getRank(), region, start, end);
         } catch (IOException e) {
+            Activator.logError("Error reading event. File: " + getPath(), e); //$NON-NLS-1$
         }
 
         return null;
@@ -380,38 +395,373 @@ public class BtfTrace extends TmfTrace implements ITmfPersistentlyIndexable, ITm
         if (line == null) {
             return null;
         }
-        String[] tokens = line.split(",", MAX_FIELDS); //$NON-NLS-1$
-        if (tokens.length < MAX_FIELDS) {
+        byte[] bytes = line.getBytes(StandardCharsets.ISO_8859_1);
+        return parseLine(rank, ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+
+    /**
+     * Parse a line from the bytes of a buffer and make an event using it. The
+     * fields are read directly from the buffer, only the names that are not
+     * known yet create new strings.
+     *
+     * @param rank
+     *            the rank of the event
+     * @param buffer
+     *            the buffer containing the line
+     * @param start
+     *            the index of the start of the line in the buffer
+     * @param end
+     *            the index of the end of the line in the buffer, before the
+     *            line terminator
+     * @return the event, or null if the line does not have all the fields
+     */
+    private ITmfEvent parseLine(long rank, ByteBuffer buffer, int start, int end) {
+        int lineEnd = (end > start && buffer.get(end - 1) == '\r') ? end - 1 : end;
+        /* The last field, the event, can contain commas */
+        int sourceStart = indexOf(buffer, ',', start, lineEnd) + 1;
+        int sourceInstanceStart = indexOf(buffer, ',', sourceStart, lineEnd) + 1;
+        int typeStart = indexOf(buffer, ',', sourceInstanceStart, lineEnd) + 1;
+        int targetStart = indexOf(buffer, ',', typeStart, lineEnd) + 1;
+        int targetInstanceStart = indexOf(buffer, ',', targetStart, lineEnd) + 1;
+        int eventStart = indexOf(buffer, ',', targetInstanceStart, lineEnd) + 1;
+        if (sourceStart == 0 || sourceInstanceStart == 0 || typeStart == 0 ||
+                targetStart == 0 || targetInstanceStart == 0 || eventStart == 0) {
             return null;
         }
-        int i = 0;
-        long timestamp = Long.parseLong(tokens[i++]);
-        String source = tokens[i++];
-        long sourceInstance = -1;
+
+        long timestamp = parseLong(buffer, start, sourceStart - 1);
+        String source = fNames.intern(buffer, sourceStart, sourceInstanceStart - 1);
+        long sourceInstance = parseInstance(buffer, sourceInstanceStart, typeStart - 1);
+        BtfEventType type = BtfEventTypeFactory.parse(fNames.intern(buffer, typeStart, targetStart - 1));
+        String target = fNames.intern(buffer, targetStart, targetInstanceStart - 1);
+        long targetInstance = parseInstance(buffer, targetInstanceStart, eventStart - 1);
+        /* The notes of the events that have some are not worth keeping */
+        String event = type.hasNotes() ?
+                BtfNameTable.decode(buffer, eventStart, lineEnd) :
+                fNames.intern(buffer, eventStart, lineEnd);
+
+        return new BtfEvent(this, rank,
+                toTimestamp(timestamp),
+                source,
+                type,
+                event,
+                sourceInstance,
+                targetInstance,
+                target);
+    }
+
+    private ITmfTimestamp toTimestamp(long timestamp) {
+        return getTimestampTransform().transform(fTsFormat.createTimestamp(timestamp + fTsOffset));
+    }
+
+    // ------------------------------------------------------------------------
+    // Memory-mapped file access
+    // ------------------------------------------------------------------------
+
+    /**
+     * Read the line at the current position as a string, and move the
+     * position to the next line. Only used for the header.
+     *
+     * @return the line, without its terminator, or null at the end of the file
+     */
+    private String readLine() throws IOException {
+        int end = mapLine();
+        if (end < 0) {
+            return null;
+        }
+        ByteBuffer region = fMappedRegion;
+        int start = (int) (fPosition - fMappedRegionStart);
+        fPosition = fMappedRegionStart + Math.min(end + 1, region.limit());
+        if (end > start && region.get(end - 1) == '\r') {
+            end--;
+        }
+        return BtfNameTable.decode(region, start, end);
+    }
+
+    /**
+     * Make sure the whole line at the current position is in the mapped
+     * region of the file.
+     *
+     * @return the index of the end of the line in the mapped region, that is
+     *         of its '\n' or of the end of the file, or -1 if the position is
+     *         at the end of the file
+     */
+    private int mapLine() throws IOException {
+        if (fPosition >= fFileSize) {
+            return -1;
+        }
+        MappedByteBuffer region = fMappedRegion;
+        if (region == null || fPosition < fMappedRegionStart || fPosition >= fMappedRegionStart + region.limit()) {
+            region = map(fPosition, MAPPING_SIZE);
+        }
+        int end = indexOf(region, '\n', (int) (fPosition - fMappedRegionStart), region.limit());
+        while (end < 0 && fMappedRegionStart + region.limit() < fFileSize) {
+            /* The line goes past the mapped region, map it again from the line */
+            long size = (fMappedRegionStart == fPosition) ? 2L * region.limit() : MAPPING_SIZE;
+            region = map(fPosition, size);
+            end = indexOf(region, '\n', 0, region.limit());
+        }
+        return (end < 0) ? region.limit() : end;
+    }
+
+    private byte readByte(long position) throws IOException {
+        MappedByteBuffer region = fMappedRegion;
+        if (region == null || position < fMappedRegionStart || position >= fMappedRegionStart + region.limit()) {
+            region = map(Math.max(0, position - MAPPING_SIZE / 2), MAPPING_SIZE);
+        }
+        return region.get((int) (position - fMappedRegionStart));
+    }
+
+    private MappedByteBuffer map(long position, long size) throws IOException {
+        long length = Math.min(Math.min(size, Integer.MAX_VALUE), fFileSize - position);
+        MappedByteBuffer region = fFileChannel.map(MapMode.READ_ONLY, position, length);
+        fMappedRegion = region;
+        fMappedRegionStart = position;
+        return region;
+    }
+
+    private static int indexOf(ByteBuffer buffer, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Parse a decimal number from the bytes of a buffer, like
+     * {@link Long#parseLong(String)} does
+     */
+    private static long parseLong(ByteBuffer buffer, int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            negative = (buffer.get(i) == '-');
+            i++;
+        }
+        if (i == to) {
+            throw new NumberFormatException("For input string: \"" + BtfNameTable.decode(buffer, from, to) + '"'); //$NON-NLS-1$
+        }
+        /* Accumulate negatively, Long.MIN_VALUE has no positive counterpart */
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long result = 0;
+        for (; i < to; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9 || result < limit / 10 || result * 10 < limit + digit) {
+                throw new NumberFormatException("For input string: \"" + BtfNameTable.decode(buffer, from, to) + '"'); //$NON-NLS-1$
+            }
+            result = result * 10 - digit;
+        }
+        return negative ? result : -result;
+    }
+
+    private static long parseInstance(ByteBuffer buffer, int from, int to) {
+        /* This field can be empty */
+        if (from == to) {
+            return -1;
+        }
         try {
-            sourceInstance = Long.parseLong(tokens[i++]);
+            return parseLong(buffer, from, to);
         } catch (NumberFormatException e) {
-            // this field can be empty
+            return -1;
         }
-        BtfEventType type = BtfEventTypeFactory.parse(tokens[i++]);
-        String target = tokens[i++];
-        long targetInstance = -1;
+    }
+
+    // ------------------------------------------------------------------------
+    // ITmfCheckpointScanner
+    // ------------------------------------------------------------------------
+
+    /**
+     * The file is cut in one chunk per processor, at line boundaries. The
+     * chunks are scanned in parallel twice: once to count their events, then
+     * once more, knowing the rank of their first event, to find the lines of
+     * the checkpoints. Only the lines of the checkpoints are parsed.
+     */
+    @Override
+    public List<ITmfCheckpoint> scanCheckpoints(int interval, IProgressMonitor monitor) {
+        if (fFileChannel == null) {
+            return null;
+        }
+        int nbChunks = Runtime.getRuntime().availableProcessors();
+        long[] bounds = new long[nbChunks + 1];
+        bounds[0] = fDataOffset;
+        bounds[nbChunks] = fFileSize;
+        long chunkSize = (fFileSize - fDataOffset) / nbChunks;
+        ExecutorService executor = Executors.newFixedThreadPool(nbChunks);
         try {
-            targetInstance = Long.parseLong(tokens[i++]);
-        } catch (NumberFormatException e) {
-            // this field can be empty
+            for (int i = 1; i < nbChunks; i++) {
+                bounds[i] = findLineStart(Math.max(bounds[i - 1], fDataOffset + i * chunkSize));
+            }
+
+            /* Count the events of each chunk */
+            List<ChunkScanner> scanners = new ArrayList<>();
+            for (int i = 0; i < nbChunks; i++) {
+                scanners.add(new ChunkScanner(bounds[i], bounds[i + 1], 0, 0, monitor));
+            }
+            List<ChunkScanner> counted = runScanners(executor, scanners, monitor);
+            if (counted == null) {
+                return null;
+            }
+
+            /* Find the lines of the checkpoints, up to the first invalid line */
+            scanners.clear();
+            long rank = 0;
+            for (ChunkScanner scanner : counted) {
+                scanners.add(new ChunkScanner(scanner.fStart, scanner.fEnd, rank, interval, monitor));
+                rank += scanner.fNbEvents;
+                if (scanner.fInvalidLine) {
+                    break;
+                }
+            }
+            List<ChunkScanner> scanned = runScanners(executor, scanners, monitor);
+            if (scanned == null) {
+                return null;
+            }
+
+            List<ITmfCheckpoint> checkpoints = new ArrayList<>();
+            for (ChunkScanner scanner : scanned) {
+                for (int i = 0; i < scanner.fNbCheckpoints; i++) {
+                    ITmfTimestamp timestamp = readTimestamp(scanner.fCheckpoints[i]);
+                    if (timestamp == null) {
+                        return null;
+                    }
+                    checkpoints.add(new TmfCheckpoint(timestamp, new TmfLongLocation(scanner.fCheckpoints[i]), checkpoints.size()));
+                }
+            }
+            return checkpoints;
+        } catch (IOException | NumberFormatException e) {
+            Activator.logError("Error scanning file: " + getPath(), e); //$NON-NLS-1$
+            return null;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<ChunkScanner> runScanners(ExecutorService executor, List<ChunkScanner> scanners, IProgressMonitor monitor) throws IOException {
+        List<ChunkScanner> results = new ArrayList<>();
+        try {
+            for (Future<ChunkScanner> future : executor.invokeAll(scanners)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
         }
-        String event = tokens[i++];
+        return (monitor.isCanceled() ? null : results);
+    }
 
-        ITmfEventField content = type.generateContent(event, sourceInstance, targetInstance);
+    /**
+     * Find the start of the first line that starts at or after a position
+     */
+    private synchronized long findLineStart(long position) throws IOException {
+        long pos = position;
+        while (pos > 0 && pos < fFileSize && readByte(pos - 1) != '\n') {
+            pos++;
+        }
+        return pos;
+    }
 
-        return new BtfEvent(this, rank,
-                getTimestampTransform().transform(fTsFormat.createTimestamp(timestamp + fTsOffset)),
-                source,
-                type,
-                type.getDescription(),
-                content,
-                target);
+    /**
+     * Read the timestamp of the line at a position
+     */
+    private synchronized ITmfTimestamp readTimestamp(long position) throws IOException {
+        long previousPosition = fPosition;
+        try {
+            fPosition = position;
+            int end = mapLine();
+            if (end < 0) {
+                return null;
+            }
+            int start = (int) (fPosition - fMappedRegionStart);
+            int separator = indexOf(fMappedRegion, ',', start, end);
+            if (separator < 0) {
+                return null;
+            }
+            return toTimestamp(parseLong(fMappedRegion, start, separator));
+        } finally {
+            fPosition = previousPosition;
+        }
+    }
+
+    /**
+     * Scanner of a chunk of the file. It maps its own regions of the file, so
+     * it can run in parallel to the other scanners and to the trace reading.
+     * The lines of the events are recognized by their number of fields, like
+     * {@link BtfTrace#parseLine} does, and the scan stops at the first line that
+     * is not an event, since the trace ends there.
+     */
+    private final class ChunkScanner implements Callable<ChunkScanner> {
+
+        private final long fStart;
+        private final long fEnd;
+        private final long fFirstRank;
+        /* The interval between checkpoints, or 0 to only count the events */
+        private final int fInterval;
+        private final IProgressMonitor fMonitor;
+
+        private long fNbEvents = 0;
+        private boolean fInvalidLine = false;
+        private long[] fCheckpoints = new long[16];
+        private int fNbCheckpoints = 0;
+
+        public ChunkScanner(long start, long end, long firstRank, int interval, IProgressMonitor monitor) {
+            fStart = start;
+            fEnd = end;
+            fFirstRank = firstRank;
+            fInterval = interval;
+            fMonitor = monitor;
+        }
+
+        @Override
+        public ChunkScanner call() throws IOException {
+            long lineStart = fStart;
+            int nbSeparators = 0;
+            for (long regionStart = fStart; regionStart < fEnd; regionStart += MAPPING_SIZE) {
+                if (fMonitor.isCanceled()) {
+                    return this;
+                }
+                int size = (int) Math.min(MAPPING_SIZE, fEnd - regionStart);
+                MappedByteBuffer region = fFileChannel.map(MapMode.READ_ONLY, regionStart, size);
+                for (int i = 0; i < size; i++) {
+                    byte b = region.get(i);
+                    if (b == ',') {
+                        nbSeparators++;
+                    } else if (b == '\n') {
+                        if (!addLine(lineStart, nbSeparators)) {
+                            return this;
+                        }
+                        lineStart = regionStart + i + 1;
+                        nbSeparators = 0;
+                    }
+                }
+            }
+            /* The last line of the file may not be terminated */
+            if (lineStart < fEnd) {
+                addLine(lineStart, nbSeparators);
+            }
+            return this;
+        }
+
+        private boolean addLine(long lineStart, int nbSeparators) {
+            if (nbSeparators < MAX_FIELDS - 1) {
+                fInvalidLine = true;
+                return false;
+            }
+            if (fInterval > 0 && (fFirstRank + fNbEvents) % fInterval == 0) {
+                if (fNbCheckpoints == fCheckpoints.length) {
+                    fCheckpoints = Arrays.copyOf(fCheckpoints, fNbCheckpoints * 2);
+                }
+                fCheckpoints[fNbCheckpoints++] = lineStart;
+            }
+            fNbEvents++;
+            return true;
+        }
     }
 
     @Override
@@ -450,9 +800,10 @@ public class BtfTrace extends TmfTrace implements ITmfPersistentlyIndexable, ITm
     }
 
     @Override
-    public void close() throws IOException {
-        if (fFileInput != null) {
-            fFileInput.close();
+    public synchronized void close() throws IOException {
+        fMappedRegion = null;
+        if (fFileChannel != null) {
+            fFileChannel.close();
         }
     }
 
@@ -13,10 +13,14 @@ package org.eclipse.tracecompass.ctf.core.tests.trace;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assume.assumeTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 import org.eclipse.tracecompass.ctf.core.CTFException;
@@ -35,6 +39,7 @@ import org.eclipse.tracecompass.ctf.core.trace.CTFStreamInput;
 import org.eclipse.tracecompass.ctf.core.trace.CTFStreamInputReader;
 import org.eclipse.tracecompass.ctf.core.trace.CTFTrace;
 import org.eclipse.tracecompass.internal.ctf.core.event.EventDeclaration;
+import org.eclipse.tracecompass.internal.ctf.core.event.types.composite.EventHeaderDefinition;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -196,6 +201,34 @@ public class CTFStreamInputReaderTest {
         assertEquals(CTFResponse.OK, fixture.readNextEvent());
     }
 
+    /**
+     * Test the event headers of events read before other events. The compact
+     * headers of the kernel trace are only created when they are asked for,
+     * since the fields of its events do not refer to them.
+     *
+     * @throws CTFException
+     *             error
+     */
+    @Test
+    public void testEventHeaders() throws CTFException {
+        List<EventDefinition> events = new ArrayList<>();
+        for (int i = 0; i < 100 && fixture.readNextEvent().equals(CTFResponse.OK); i++) {
+            events.add(fixture.getCurrentEvent());
+        }
+        assertEquals(100, events.size());
+        for (EventDefinition event : events) {
+            ICompositeDefinition header = event.getEventHeader();
+            assertTrue(header instanceof EventHeaderDefinition);
+            EventHeaderDefinition eventHeader = (EventHeaderDefinition) header;
+            assertEquals(event.getDeclaration().getId().longValue(), eventHeader.getId());
+            int length = eventHeader.getTimestampLength();
+            long mask = (length == Long.SIZE) ? -1L : (1L << length) - 1;
+            assertEquals(event.getTimestamp() & mask, eventHeader.getTimestamp());
+            /* The header is created once */
+            assertSame(header, event.getEventHeader());
+        }
+    }
+
     /**
      * Run the void seek(long) method test. Seek by direct timestamp
      *
@@ -324,6 +324,76 @@ public class CTFTraceReaderTest {
         assertTrue(result);
     }
 
+    /**
+     * Test that a reader decoding the events ahead returns the same events,
+     * in the same order, as a regular reader.
+     *
+     * @throws CTFException
+     *             error
+     */
+    @Test
+    public void testLookAhead() throws CTFException {
+        try (CTFTraceReader lookAhead = new CTFTraceReader(testTrace.getTrace(), 4);) {
+            assertEquals(4, lookAhead.getLookAhead());
+            assertEquals(0, fixture.getLookAhead());
+            assertEquals(fixture.getStartTime(), lookAhead.getStartTime());
+            assertSameEvents(fixture, lookAhead);
+        }
+    }
+
+    /**
+     * Test seeking a reader decoding the events ahead, while it is decoding.
+     *
+     * @throws CTFException
+     *             error
+     */
+    @Test
+    public void testLookAheadSeek() throws CTFException {
+        try (CTFTraceReader lookAhead = new CTFTraceReader(testTrace.getTrace(), 16);) {
+            for (int i = 0; i < 1000; i++) {
+                fixture.advance();
+                lookAhead.advance();
+            }
+            long timestamp = fixture.getCurrentEventDef().getTimestamp();
+            fixture.seek(0);
+            lookAhead.seek(0);
+            assertSameEvents(fixture, lookAhead);
+            fixture.seek(timestamp);
+            lookAhead.seek(timestamp);
+            assertSameEvents(fixture, lookAhead);
+            fixture.goToLastEvent();
+            lookAhead.goToLastEvent();
+            assertSameEvents(fixture, lookAhead);
+        }
+    }
+
+    /**
+     * Test that a negative look-ahead is rejected.
+     *
+     * @throws CTFException
+     *             error
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testLookAheadNegative() throws CTFException {
+        try (CTFTraceReader result = new CTFTraceReader(testTrace.getTrace(), -1);) {
+            assertNotNull(result);
+        }
+    }
+
+    private static void assertSameEvents(CTFTraceReader expected, CTFTraceReader actual) throws CTFException {
+        boolean hasMore = expected.hasMoreEvents();
+        assertEquals(hasMore, actual.hasMoreEvents());
+        while (hasMore) {
+            EventDefinition expectedEvent = expected.getCurrentEventDef();
+            EventDefinition actualEvent = actual.getCurrentEventDef();
+            assertEquals(expectedEvent.getTimestamp(), actualEvent.getTimestamp());
+            assertEquals(expectedEvent.getCPU(), actualEvent.getCPU());
+            assertEquals(expectedEvent.getDeclaration().getName(), actualEvent.getDeclaration().getName());
+            hasMore = expected.advance();
+            assertEquals(hasMore, actual.advance());
+        }
+    }
+
     /**
      * @return
      */
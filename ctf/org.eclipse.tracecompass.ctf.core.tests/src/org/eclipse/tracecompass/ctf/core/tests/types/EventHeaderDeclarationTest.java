@@ -12,6 +12,8 @@ package org.eclipse.tracecompass.ctf.core.tests.types;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
@@ -19,6 +21,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.eclipse.tracecompass.ctf.core.CTFException;
+import org.eclipse.tracecompass.ctf.core.event.EventDefinition;
 import org.eclipse.tracecompass.ctf.core.event.io.BitBuffer;
 import org.eclipse.tracecompass.ctf.core.event.types.Encoding;
 import org.eclipse.tracecompass.ctf.core.event.types.EnumDeclaration;
@@ -28,7 +31,9 @@ import org.eclipse.tracecompass.ctf.core.event.types.IntegerDefinition;
 import org.eclipse.tracecompass.ctf.core.event.types.StringDeclaration;
 import org.eclipse.tracecompass.ctf.core.event.types.StructDeclaration;
 import org.eclipse.tracecompass.ctf.core.event.types.VariantDeclaration;
+import org.eclipse.tracecompass.internal.ctf.core.event.EventDeclaration;
 import org.eclipse.tracecompass.internal.ctf.core.event.types.composite.EventHeaderCompactDeclaration;
+import org.eclipse.tracecompass.internal.ctf.core.event.types.composite.EventHeaderDecoder;
 import org.eclipse.tracecompass.internal.ctf.core.event.types.composite.EventHeaderDefinition;
 import org.eclipse.tracecompass.internal.ctf.core.event.types.composite.EventHeaderLargeDeclaration;
 import org.junit.Before;
@@ -414,6 +419,67 @@ public class EventHeaderDeclarationTest {
         assertEquals(TIMESTAMP, ((IntegerDefinition) def.getDefinition("timestamp")).getValue());
     }
 
+    /**
+     * Test reading consecutive compact headers with the same decoder
+     *
+     * @throws CTFException
+     *             if {@link BitBuffer} is null
+     */
+    @Test
+    public void testDecoderReuse() throws CTFException {
+        ByteBuffer buffer = ByteBuffer.allocate(32);
+        buffer.putInt(0x80000042);
+        buffer.put((byte) 0xFF);
+        buffer.putInt(ID);
+        buffer.putLong(TIMESTAMP);
+        buffer.putInt(0x08000001);
+        final ByteBuffer input = ByteBuffer.wrap(buffer.array());
+        assertNotNull(input);
+        BitBuffer bitBuffer = new BitBuffer(input);
+
+        EventHeaderDecoder decoder = EventHeaderDecoder.create(EventHeaderCompactDeclaration.getEventHeader(ByteOrder.BIG_ENDIAN));
+        assertNotNull(decoder);
+        decoder.read(bitBuffer);
+        assertEquals(16, decoder.getId());
+        assertEquals(0x42, decoder.getTimestamp());
+        assertEquals(27, decoder.getTimestampLength());
+
+        decoder.read(bitBuffer);
+        assertEquals(ID, decoder.getId());
+        assertEquals(TIMESTAMP, decoder.getTimestamp());
+        assertEquals(64, decoder.getTimestampLength());
+        EventHeaderDefinition def = decoder.createDefinition();
+        assertEquals(ID, def.getId());
+        assertEquals(TIMESTAMP, def.getTimestamp());
+        /* An event only keeps the values of its decoded header */
+        EventDefinition event = new EventDefinition(new EventDeclaration(), null, TIMESTAMP, null,
+                decoder.getDeclaration(), decoder.getId(), decoder.getTimestamp(), decoder.getTimestampLength(),
+                null, null, null, null);
+
+        decoder.read(bitBuffer);
+        assertEquals(1, decoder.getId());
+        assertEquals(1, decoder.getTimestamp());
+        assertEquals(ID, def.getId());
+
+        /* The header of the event has the values read before the next one */
+        EventHeaderDefinition eventHeader = (EventHeaderDefinition) event.getEventHeader();
+        assertEquals(ID, eventHeader.getId());
+        assertEquals(TIMESTAMP, eventHeader.getTimestamp());
+        assertEquals(64, eventHeader.getTimestampLength());
+        assertSame(eventHeader, event.getEventHeader());
+    }
+
+    /**
+     * Test that no decoder is created for other header declarations
+     */
+    @Test
+    public void testDecoderOtherHeader() {
+        for (StructDeclaration declaration : declarations) {
+            assertNull(EventHeaderDecoder.create(declaration));
+        }
+        assertNotNull(EventHeaderDecoder.create(EventHeaderLargeDeclaration.getEventHeader(ByteOrder.LITTLE_ENDIAN)));
+    }
+
     /**
      * Test maximum sizes, make sure they don't change unannounced
      */
@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.ctf.core.tests.types;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.eclipse.tracecompass.ctf.core.CTFException;
+import org.eclipse.tracecompass.ctf.core.event.io.BitBuffer;
+import org.eclipse.tracecompass.ctf.core.event.scope.ILexicalScope;
+import org.eclipse.tracecompass.ctf.core.event.types.AbstractArrayDefinition;
+import org.eclipse.tracecompass.ctf.core.event.types.Encoding;
+import org.eclipse.tracecompass.ctf.core.event.types.EnumDeclaration;
+import org.eclipse.tracecompass.ctf.core.event.types.FloatDeclaration;
+import org.eclipse.tracecompass.ctf.core.event.types.IDefinition;
+import org.eclipse.tracecompass.ctf.core.event.types.IntegerDeclaration;
+import org.eclipse.tracecompass.ctf.core.event.types.StringDeclaration;
+import org.eclipse.tracecompass.ctf.core.event.types.StructDeclaration;
+import org.eclipse.tracecompass.ctf.core.event.types.StructDefinition;
+import org.eclipse.tracecompass.internal.ctf.core.event.types.ArrayDeclaration;
+import org.eclipse.tracecompass.internal.ctf.core.event.types.FixedSizeLayout;
+import org.eclipse.tracecompass.internal.ctf.core.event.types.LazyStructDefinition;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link FixedSizeLayout} and {@link LazyStructDefinition}
+ * classes, comparing them to a regular struct read.
+ */
+public class LazyStructDefinitionTest {
+
+    private static final int BUFFER_SIZE = 128;
+    /* Start in the middle of a byte to exercise the alignment */
+    private static final long START = 3;
+
+    private StructDeclaration fDeclaration;
+    private ByteBuffer fBuffer;
+
+    /**
+     * Build a struct with fields of various sizes and alignments, and a
+     * buffer with arbitrary content
+     */
+    @Before
+    public void setUp() {
+        IntegerDeclaration bits5 = IntegerDeclaration.createDeclaration(5, false, 10, ByteOrder.BIG_ENDIAN, Encoding.NONE, "", 1);
+        IntegerDeclaration int32 = IntegerDeclaration.createDeclaration(32, true, 10, ByteOrder.BIG_ENDIAN, Encoding.NONE, "", 32);
+        IntegerDeclaration uint8 = IntegerDeclaration.createDeclaration(8, false, 10, ByteOrder.BIG_ENDIAN, Encoding.NONE, "", 8);
+        EnumDeclaration enumDecl = new EnumDeclaration(uint8);
+        enumDecl.add(0, 255, "all");
+
+        StructDeclaration inner = new StructDeclaration(16);
+        inner.addField("a", bits5);
+        inner.addField("b", IntegerDeclaration.INT_32B_DECL);
+
+        fDeclaration = new StructDeclaration(8);
+        fDeclaration.addField("first", bits5);
+        fDeclaration.addField("second", int32);
+        fDeclaration.addField("third", bits5);
+        fDeclaration.addField("flt", new FloatDeclaration(11, 53, ByteOrder.BIG_ENDIAN, 64));
+        fDeclaration.addField("bytes", new ArrayDeclaration(3, uint8));
+        fDeclaration.addField("bits", new ArrayDeclaration(3, bits5));
+        fDeclaration.addField("en", enumDecl);
+        fDeclaration.addField("inner", inner);
+        fDeclaration.addField("last", bits5);
+
+        fBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+        for (int i = 0; i < BUFFER_SIZE; i++) {
+            fBuffer.put(i, (byte) (i * 37 + 11));
+        }
+    }
+
+    /**
+     * Test that the end of the struct found by the layout is where a regular
+     * read ends
+     *
+     * @throws CTFException
+     *             won't happen
+     */
+    @Test
+    public void testSkip() throws CTFException {
+        FixedSizeLayout layout = FixedSizeLayout.create(fDeclaration);
+        assertNotNull(layout);
+        for (long start = 0; start < 64; start++) {
+            BitBuffer input = new BitBuffer(fBuffer);
+            input.position(start);
+            fDeclaration.createDefinition(null, ILexicalScope.FIELDS, input);
+            assertEquals(input.position(), layout.skip(start));
+        }
+    }
+
+    /**
+     * Test that every field read lazily is the same as the one of a regular
+     * read
+     *
+     * @throws CTFException
+     *             won't happen
+     */
+    @Test
+    public void testFields() throws CTFException {
+        FixedSizeLayout layout = FixedSizeLayout.create(fDeclaration);
+        assertNotNull(layout);
+        BitBuffer input = new BitBuffer(fBuffer);
+        input.position(START);
+        StructDefinition expected = fDeclaration.createDefinition(null, ILexicalScope.FIELDS, input);
+
+        LazyStructDefinition lazy = new LazyStructDefinition(fDeclaration, null, ILexicalScope.FIELDS, layout, fBuffer, START);
+        assertEquals(expected.getFieldNames(), lazy.getFieldNames());
+        /* Read the fields in reverse order, they do not depend on each other */
+        for (int i = expected.getFieldNames().size() - 1; i >= 0; i--) {
+            String name = expected.getFieldNames().get(i);
+            assertEquals(name, describe(expected.getDefinition(name)), describe(lazy.getDefinition(name)));
+        }
+        assertNull(lazy.getDefinition("unknown"));
+        assertEquals(lazy.getDefinition("first"), lazy.lookupDefinition("first"));
+    }
+
+    /**
+     * Test that the fields read lazily from a copy of the struct are the same
+     * as the ones of a regular read, whatever the position of the struct
+     *
+     * @throws CTFException
+     *             won't happen
+     */
+    @Test
+    public void testCopiedFields() throws CTFException {
+        FixedSizeLayout layout = FixedSizeLayout.create(fDeclaration);
+        assertNotNull(layout);
+        assertEquals(64, layout.getMaxAlignment());
+        for (long start = 0; start < 80; start++) {
+            BitBuffer input = new BitBuffer(fBuffer);
+            input.position(start);
+            StructDefinition expected = fDeclaration.createDefinition(null, ILexicalScope.FIELDS, input);
+
+            BitBuffer lazyInput = new BitBuffer(fBuffer);
+            lazyInput.position(start);
+            LazyStructDefinition lazy = LazyStructDefinition.createFromCopy(fDeclaration, null, ILexicalScope.FIELDS, layout, lazyInput);
+            assertEquals(input.position(), lazyInput.position());
+            for (String name : expected.getFieldNames()) {
+                assertEquals(name, describe(expected.getDefinition(name)), describe(lazy.getDefinition(name)));
+            }
+        }
+    }
+
+    /**
+     * Describe a definition, with the elements of arrays since byte arrays do
+     * not print their content
+     */
+    private static String describe(IDefinition definition) {
+        if (definition instanceof AbstractArrayDefinition) {
+            StringBuilder builder = new StringBuilder();
+            for (IDefinition element : ((AbstractArrayDefinition) definition).getDefinitions()) {
+                builder.append(element.toString()).append(' ');
+            }
+            return builder.toString();
+        }
+        return definition.toString();
+    }
+
+    /**
+     * Test that declarations which are not of fixed size have no layout
+     */
+    @Test
+    public void testNotFixedSize() {
+        assertNull(FixedSizeLayout.create(StringDeclaration.getStringDeclaration(Encoding.UTF8)));
+        fDeclaration.addField("str", StringDeclaration.getStringDeclaration(Encoding.UTF8));
+        assertNull(FixedSizeLayout.create(fDeclaration));
+    }
+}
@@ -36,6 +36,7 @@ import org.junit.runners.Suite;
     IntegerDeclarationTest.class,
     IntegerDefinitionTest.class,
     IntegerEndiannessTest.class,
+    LazyStructDefinitionTest.class,
     SequenceDeclaration2Test.class,
     SequenceDefinition2Test.class,
     StringDeclarationTest.class,
@@ -19,6 +19,7 @@ import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.tracecompass.ctf.core.event.scope.IDefinitionScope;
 import org.eclipse.tracecompass.ctf.core.event.scope.ILexicalScope;
 import org.eclipse.tracecompass.ctf.core.event.scope.LexicalScope;
+import org.eclipse.tracecompass.ctf.core.event.types.Declaration;
 import org.eclipse.tracecompass.ctf.core.event.types.Definition;
 import org.eclipse.tracecompass.ctf.core.event.types.ICompositeDefinition;
 import org.eclipse.tracecompass.ctf.core.event.types.IDefinition;
@@ -26,6 +27,7 @@ import org.eclipse.tracecompass.ctf.core.event.types.StructDeclaration;
 import org.eclipse.tracecompass.ctf.core.event.types.StructDefinition;
 import org.eclipse.tracecompass.ctf.core.trace.CTFStreamInputReader;
 import org.eclipse.tracecompass.internal.ctf.core.event.EventDeclaration;
+import org.eclipse.tracecompass.internal.ctf.core.event.types.composite.EventHeaderDefinition;
 
 /**
  * Representation of a particular instance of an event.
@@ -52,7 +54,17 @@ public final class EventDefinition implements IDefinitionScope {
      */
     private final long fTimestamp;
 
-    private final ICompositeDefinition fEventHeaderDefinition;
+    /* Guarded by 'this' when the header is created from its decoded values */
+    private ICompositeDefinition fEventHeaderDefinition;
+
+    /**
+     * Declaration and values of the decoded event header, if its definition
+     * is only created when it is first asked for
+     */
+    private Declaration fEventHeaderDeclaration;
+    private final int fEventHeaderId;
+    private final long fEventHeaderTimestamp;
+    private final int fEventHeaderTimestampLength;
 
     /**
      * The event context structure definition.
@@ -73,6 +85,12 @@ public final class EventDefinition implements IDefinitionScope {
      */
     private final CTFStreamInputReader fStreamInputReader;
 
+    /**
+     * The CPU of the packet of this event, taken when the event is read since
+     * the stream input reader may be reading ahead.
+     */
+    private final int fCpu;
+
     // ------------------------------------------------------------------------
     // Constructors
     // ------------------------------------------------------------------------
@@ -136,9 +154,62 @@ public final class EventDefinition implements IDefinitionScope {
             ICompositeDefinition eventContext,
             ICompositeDefinition packetContext,
             ICompositeDefinition fields) {
+        this(declaration, streamInputReader, timestamp, eventHeaderDefinition,
+                null, 0, 0, 0, streamContext, eventContext, packetContext, fields);
+    }
+
+    /**
+     * Constructs an event definition whose event header definition may be
+     * created later, the first time it is asked for.
+     *
+     * @param declaration
+     *            The corresponding event declaration
+     * @param streamInputReader
+     *            The SIR from where this EventDef was read
+     * @param timestamp
+     *            event timestamp
+     * @param eventHeaderDefinition
+     *            the event header definition, can be null
+     * @param eventHeaderDeclaration
+     *            the declaration of the decoded event header, whose
+     *            definition is created from the following values if
+     *            eventHeaderDefinition is null. Can be null.
+     * @param eventHeaderId
+     *            the id read in the event header
+     * @param eventHeaderTimestamp
+     *            the timestamp read in the event header
+     * @param eventHeaderTimestampLength
+     *            the number of bits valid in the header timestamp
+     * @param eventContext
+     *            The event context
+     * @param packetContext
+     *            the packet context
+     * @param streamContext
+     *            the stream context
+     * @param fields
+     *            The event fields
+     * @since 1.1
+     */
+    public EventDefinition(IEventDeclaration declaration,
+            CTFStreamInputReader streamInputReader,
+            long timestamp,
+            ICompositeDefinition eventHeaderDefinition,
+            Declaration eventHeaderDeclaration,
+            int eventHeaderId,
+            long eventHeaderTimestamp,
+            int eventHeaderTimestampLength,
+            ICompositeDefinition streamContext,
+            ICompositeDefinition eventContext,
+            ICompositeDefinition packetContext,
+            ICompositeDefinition fields) {
         fDeclaration = declaration;
         fEventHeaderDefinition = eventHeaderDefinition;
+        fEventHeaderDeclaration = (eventHeaderDefinition == null) ? eventHeaderDeclaration : null;
+        fEventHeaderId = eventHeaderId;
+        fEventHeaderTimestamp = eventHeaderTimestamp;
+        fEventHeaderTimestampLength = eventHeaderTimestampLength;
         fStreamInputReader = streamInputReader;
+        fCpu = (streamInputReader != null) ? streamInputReader.getCPU() : -1;
         fTimestamp = timestamp;
         fFields = fields;
         fEventContext = eventContext;
@@ -181,7 +252,13 @@ public final class EventDefinition implements IDefinitionScope {
      * @return the event header
      * @since 1.1
      */
-    public ICompositeDefinition getEventHeader() {
+    public synchronized ICompositeDefinition getEventHeader() {
+        Declaration headerDeclaration = fEventHeaderDeclaration;
+        if (headerDeclaration != null) {
+            fEventHeaderDefinition = new EventHeaderDefinition(headerDeclaration,
+                    fEventHeaderId, fEventHeaderTimestamp, fEventHeaderTimestampLength);
+            fEventHeaderDeclaration = null;
+        }
         return fEventHeaderDefinition;
     }
 
@@ -280,7 +357,7 @@ public final class EventDefinition implements IDefinitionScope {
      * @return The CPU the event was generated by
      */
     public int getCPU() {
-        return fStreamInputReader.getCPU();
+        return fCpu;
     }
 
     /**
@@ -41,6 +41,7 @@ import org.eclipse.tracecompass.ctf.core.event.types.StructDefinition;
 import org.eclipse.tracecompass.ctf.core.event.types.VariantDefinition;
 import org.eclipse.tracecompass.internal.ctf.core.SafeMappedByteBuffer;
 import org.eclipse.tracecompass.internal.ctf.core.event.EventDeclaration;
+import org.eclipse.tracecompass.internal.ctf.core.event.types.composite.EventHeaderDecoder;
 import org.eclipse.tracecompass.internal.ctf.core.event.types.composite.EventHeaderDefinition;
 
 /**
@@ -86,11 +87,23 @@ public class CTFStreamInputPacketReader implements IDefinitionScope, AutoCloseab
     /** Stream event header definition. */
     private final IDeclaration fStreamEventHeaderDecl;
 
+    /**
+     * Decoder of the stream event header, if it is a compact or large event
+     * header
+     */
+    private final @Nullable EventHeaderDecoder fEventHeaderDecoder;
+
     /** Stream event context definition. */
     private final StructDeclaration fStreamEventContextDecl;
 
     private ICompositeDefinition fCurrentTracePacketHeaderDef;
     private ICompositeDefinition fCurrentStreamEventHeaderDef;
+
+    /**
+     * If the header of the current event was decoded, but its definition not
+     * created yet
+     */
+    private boolean fEventHeaderDecoded = false;
     private ICompositeDefinition fCurrentStreamPacketContextDef;
     /** Reference to the index entry of the current packet. */
     private ICTFPacketDescriptor fCurrentPacket = null;
@@ -134,6 +147,7 @@ public class CTFStreamInputPacketReader implements IDefinitionScope, AutoCloseab
         fTracePacketHeaderDecl = currentStream.getTrace().getPacketHeader();
         fStreamPacketContextDecl = currentStream.getPacketContextDecl();
         fStreamEventHeaderDecl = currentStream.getEventHeaderDeclaration();
+        fEventHeaderDecoder = EventHeaderDecoder.create(fStreamEventHeaderDecl);
         fStreamEventContextDecl = currentStream.getEventContextDecl();
     }
 
@@ -356,7 +370,18 @@ public class CTFStreamInputPacketReader implements IDefinitionScope, AutoCloseab
         }
 
         /* Read the stream event header. */
-        if (fStreamEventHeaderDecl != null) {
+        final EventHeaderDecoder eventHeaderDecoder = fEventHeaderDecoder;
+        if (eventHeaderDecoder != null) {
+            /*
+             * Compact or large header, read its values without creating a
+             * definition, it will be created if someone asks for it.
+             */
+            eventHeaderDecoder.read(currentBitBuffer);
+            fCurrentStreamEventHeaderDef = null;
+            fEventHeaderDecoded = true;
+            eventID = eventHeaderDecoder.getId();
+            timestamp = calculateTimestamp(eventHeaderDecoder.getTimestamp(), eventHeaderDecoder.getTimestampLength());
+        } else if (fStreamEventHeaderDecl != null) {
             if (fStreamEventHeaderDecl instanceof IEventHeaderDeclaration) {
                 fCurrentStreamEventHeaderDef = (ICompositeDefinition) fStreamEventHeaderDecl.createDefinition(EVENT_HEADER_SCOPE, "", currentBitBuffer); //$NON-NLS-1$
                 EventHeaderDefinition ehd = (EventHeaderDefinition) fCurrentStreamEventHeaderDef;
@@ -416,7 +441,21 @@ public class CTFStreamInputPacketReader implements IDefinitionScope, AutoCloseab
         if (eventDeclaration == null) {
             throw new CTFIOException("Incorrect event id : " + eventID); //$NON-NLS-1$
         }
-        EventDefinition eventDef = eventDeclaration.createDefinition(fStreamInputReader, fCurrentStreamEventHeaderDef, currentBitBuffer, timestamp);
+        /*
+         * The definition of a decoded header is only created now if the event
+         * payload refers to it. Otherwise the event keeps the decoded values,
+         * and creates it the first time it is asked for.
+         */
+        ICompositeDefinition eventHeaderDef = fCurrentStreamEventHeaderDef;
+        EventHeaderDecoder decodedHeader = null;
+        if (fEventHeaderDecoded && eventHeaderDecoder != null) {
+            if (eventDeclaration.referencesEventHeader()) {
+                eventHeaderDef = getStreamEventHeaderDefinition();
+            } else {
+                decodedHeader = eventHeaderDecoder;
+            }
+        }
+        EventDefinition eventDef = eventDeclaration.createDefinition(fStreamInputReader, eventHeaderDef, decodedHeader, currentBitBuffer, timestamp);
 
         /*
          * Set the event timestamp using the timestamp calculated by
@@ -497,6 +536,11 @@ public class CTFStreamInputPacketReader implements IDefinitionScope, AutoCloseab
      * @return the stream event header
      */
     public ICompositeDefinition getStreamEventHeaderDefinition() {
+        final EventHeaderDecoder eventHeaderDecoder = fEventHeaderDecoder;
+        if (fEventHeaderDecoded && eventHeaderDecoder != null) {
+            fCurrentStreamEventHeaderDef = eventHeaderDecoder.createDefinition();
+            fEventHeaderDecoded = false;
+        }
         return fCurrentStreamEventHeaderDef;
     }
 
@@ -0,0 +1,222 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.ctf.core.trace;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.tracecompass.ctf.core.CTFException;
+import org.eclipse.tracecompass.ctf.core.event.EventDefinition;
+
+/**
+ * Decodes the events of a {@link CTFStreamInputReader} ahead of time, on a
+ * pool of worker threads shared by all the readers.
+ *
+ * The decoded events are kept in a bounded ring buffer. A decoding task runs
+ * until the buffer is full and then leaves its worker thread, so a worker is
+ * never blocked by a slow consumer. Another task is scheduled once the
+ * consumer has taken half of the buffer. Each stream is decoded by at most one
+ * task at a time, so the events come out in the order of the stream.
+ *
+ * While a task is running, it is the only one to use the stream input reader's
+ * packet reader. Anything else that needs the packet reader must call
+ * {@link #reset()} first.
+ */
+final class CTFStreamInputReadAhead implements Runnable {
+
+    /** Lazily created pool of worker threads */
+    private static final class WorkerPool {
+        private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors(),
+                new ThreadFactory() {
+                    private final AtomicInteger fCount = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "CTF read-ahead " + fCount.incrementAndGet()); //$NON-NLS-1$
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
+
+    private final CTFStreamInputReader fReader;
+    private final EventDefinition[] fBuffer;
+    private final Object fLock = new Object();
+
+    /* All the fields below are guarded by fLock */
+
+    /** Position in the buffer of the next event to return */
+    private int fHead = 0;
+    /** Number of events in the buffer */
+    private int fCount = 0;
+    /** If the end of the stream comes after the events of the buffer */
+    private boolean fEnd = false;
+    /** Error that comes after the events of the buffer */
+    private Exception fError = null;
+    /** If a decoding task is scheduled or running */
+    private boolean fRunning = false;
+    /** If the running task should stop and discard what it decodes */
+    private boolean fCancelled = false;
+
+    /**
+     * Constructor
+     *
+     * @param reader
+     *            the stream input reader to decode
+     * @param depth
+     *            the maximum number of events to decode ahead
+     */
+    public CTFStreamInputReadAhead(CTFStreamInputReader reader, int depth) {
+        if (depth <= 0) {
+            throw new IllegalArgumentException("Read-ahead depth must be positive"); //$NON-NLS-1$
+        }
+        fReader = reader;
+        fBuffer = new EventDefinition[depth];
+    }
+
+    /**
+     * Start decoding in the background, if it is not already the case
+     */
+    public void start() {
+        synchronized (fLock) {
+            if (!fRunning && !fEnd && fError == null && fCount < fBuffer.length) {
+                fRunning = true;
+                WorkerPool.EXECUTOR.execute(this);
+            }
+        }
+    }
+
+    /**
+     * Get the next event of the stream, waiting for it to be decoded if needed
+     *
+     * @return the next event, or null if there are no more events for now
+     * @throws CTFException
+     *             if the event could not be read, or the wait was interrupted
+     */
+    public EventDefinition next() throws CTFException {
+        synchronized (fLock) {
+            while (true) {
+                if (fCount > 0) {
+                    EventDefinition event = fBuffer[fHead];
+                    fBuffer[fHead] = null;
+                    fHead = (fHead + 1) % fBuffer.length;
+                    fCount--;
+                    if (fCount <= fBuffer.length / 2) {
+                        start();
+                    }
+                    return event;
+                }
+                Exception error = fError;
+                if (error != null) {
+                    fError = null;
+                    if (error instanceof CTFException) {
+                        throw (CTFException) error;
+                    }
+                    throw (RuntimeException) error;
+                }
+                if (fEnd) {
+                    /* The next call will try again, for live traces */
+                    fEnd = false;
+                    return null;
+                }
+                start();
+                try {
+                    fLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CTFException(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stop decoding and discard the events decoded so far. When this returns,
+     * no task is using the stream input reader anymore. Its position is
+     * somewhere after the last event returned by {@link #next()}, so it should
+     * be moved before decoding again.
+     */
+    public void reset() {
+        boolean interrupted = false;
+        synchronized (fLock) {
+            fCancelled = true;
+            while (fRunning) {
+                try {
+                    fLock.wait();
+                } catch (InterruptedException e) {
+                    /* The reader would be left in use, finish waiting */
+                    interrupted = true;
+                }
+            }
+            fCancelled = false;
+            Arrays.fill(fBuffer, null);
+            fHead = 0;
+            fCount = 0;
+            fEnd = false;
+            fError = null;
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Decoding task, decodes events until the buffer is full
+     */
+    @Override
+    public void run() {
+        while (true) {
+            synchronized (fLock) {
+                if (fCancelled || fCount == fBuffer.length) {
+                    stopRunning();
+                    return;
+                }
+            }
+            EventDefinition event = null;
+            Exception error = null;
+            try {
+                event = fReader.decodeNextEvent();
+            } catch (CTFException | RuntimeException e) {
+                error = e;
+            }
+            synchronized (fLock) {
+                if (fCancelled) {
+                    stopRunning();
+                    return;
+                }
+                if (event != null) {
+                    fBuffer[(fHead + fCount) % fBuffer.length] = event;
+                    fCount++;
+                    if (fCount == 1) {
+                        /* The consumer may be waiting for it */
+                        fLock.notifyAll();
+                    }
+                } else {
+                    if (error != null) {
+                        fError = error;
+                    } else {
+                        fEnd = true;
+                    }
+                    stopRunning();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void stopRunning() {
+        fRunning = false;
+        fLock.notifyAll();
+    }
+}
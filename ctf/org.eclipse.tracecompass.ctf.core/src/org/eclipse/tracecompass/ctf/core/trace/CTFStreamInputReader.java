@@ -71,7 +71,13 @@ public class CTFStreamInputReader implements AutoCloseable {
     /**
      * Live trace reading
      */
-    private boolean fLive = false;
+    private volatile boolean fLive = false;
+
+    /**
+     * Decoder of the next events on worker threads, null if the events are
+     * decoded when they are read
+     */
+    private CTFStreamInputReadAhead fReadAhead = null;
 
     // ------------------------------------------------------------------------
     // Constructors
@@ -124,6 +130,10 @@ public class CTFStreamInputReader implements AutoCloseable {
      */
     @Override
     public void close() throws IOException {
+        CTFStreamInputReadAhead readAhead = fReadAhead;
+        if (readAhead != null) {
+            readAhead.reset();
+        }
         if (fFileChannel != null) {
             fFileChannel.close();
         }
@@ -228,6 +238,32 @@ public class CTFStreamInputReader implements AutoCloseable {
         return fLive;
     }
 
+    /**
+     * Decode the next events of this stream ahead of time, on worker threads.
+     * The events can only be decoded ahead of the current event, so the
+     * current packet of the packet reader, and the CPU of this reader, can be
+     * ahead too.
+     *
+     * @param lookAhead
+     *            the maximum number of events to decode ahead, or 0 to decode
+     *            the events when they are read
+     */
+    void setLookAhead(int lookAhead) {
+        CTFStreamInputReadAhead readAhead = fReadAhead;
+        if (readAhead != null) {
+            /*
+             * The stream position is past the current event, this can only be
+             * done before the first event is read.
+             */
+            throw new IllegalStateException("Look-ahead already set"); //$NON-NLS-1$
+        }
+        if (lookAhead > 0) {
+            readAhead = new CTFStreamInputReadAhead(this, lookAhead);
+            fReadAhead = readAhead;
+            readAhead.start();
+        }
+    }
+
     /**
      * Get the event context of the stream
      *
@@ -248,6 +284,24 @@ public class CTFStreamInputReader implements AutoCloseable {
      *             if an error occurs
      */
     public CTFResponse readNextEvent() throws CTFException {
+        CTFStreamInputReadAhead readAhead = fReadAhead;
+        EventDefinition event = (readAhead != null) ? readAhead.next() : decodeNextEvent();
+        setCurrentEvent(event);
+        if (event != null) {
+            return CTFResponse.OK;
+        }
+        return fLive ? CTFResponse.WAIT : CTFResponse.FINISH;
+    }
+
+    /**
+     * Reads the next event of the stream, without making it the current event.
+     * This is called by the read-ahead decoding task, if there is one.
+     *
+     * @return the next event, or null if there are no more events for now
+     * @throws CTFException
+     *             if an error occurs
+     */
+    EventDefinition decodeNextEvent() throws CTFException {
 
         /*
          * Change packet if needed
@@ -265,11 +319,9 @@ public class CTFStreamInputReader implements AutoCloseable {
          * If an event is available, read it.
          */
         if (fPacketReader.hasMoreEvents()) {
-            setCurrentEvent(fPacketReader.readNextEvent());
-            return CTFResponse.OK;
+            return fPacketReader.readNextEvent();
         }
-        this.setCurrentEvent(null);
-        return fLive ? CTFResponse.WAIT : CTFResponse.FINISH;
+        return null;
     }
 
     /**
@@ -315,6 +367,15 @@ public class CTFStreamInputReader implements AutoCloseable {
     public long seek(long timestamp) throws CTFException {
         long offset = 0;
 
+        /*
+         * Events decoded ahead are from the old position. The events read
+         * below will be decoded ahead from the new one.
+         */
+        CTFStreamInputReadAhead readAhead = fReadAhead;
+        if (readAhead != null) {
+            readAhead.reset();
+        }
+
         gotoPacket(timestamp);
 
         /*
@@ -375,6 +436,24 @@ public class CTFStreamInputReader implements AutoCloseable {
      *             if an error occurs
      */
     public void goToLastEvent() throws CTFException {
+        /*
+         * This moves the packet reader around, read the events on this thread
+         */
+        CTFStreamInputReadAhead readAhead = fReadAhead;
+        if (readAhead == null) {
+            goToLastEventDirect();
+            return;
+        }
+        readAhead.reset();
+        fReadAhead = null;
+        try {
+            goToLastEventDirect();
+        } finally {
+            fReadAhead = readAhead;
+        }
+    }
+
+    private void goToLastEventDirect() throws CTFException {
 
         /*
          * Go to the beginning of the trace
@@ -148,6 +148,9 @@ public class CTFTrace implements IDefinitionScope {
 
     private final DeclarationScope fScope = new DeclarationScope(null, MetadataStrings.TRACE);
 
+    /** Read the fields of the events only when they are asked for */
+    private volatile boolean fLazyFieldDecoding = false;
+
     // ------------------------------------------------------------------------
     // Constructors
     // ------------------------------------------------------------------------
@@ -308,6 +311,31 @@ public class CTFTrace implements IDefinitionScope {
         fPacketHeaderDecl = packetHeader;
     }
 
+    /**
+     * Set whether the fields of the events are read lazily. In this mode, the
+     * fixed-size payloads are skipped when reading an event, and each field is
+     * only read when it is asked for, from a copy of the bytes of the payload.
+     * Payloads containing sequences, variants or strings are always read
+     * entirely.
+     *
+     * @param lazy
+     *            true to read the fields of the events lazily
+     * @since 1.1
+     */
+    public void setLazyFieldDecoding(boolean lazy) {
+        fLazyFieldDecoding = lazy;
+    }
+
+    /**
+     * Are the fields of the events read lazily?
+     *
+     * @return true if the fields are read lazily
+     * @since 1.1
+     */
+    public boolean isLazyFieldDecoding() {
+        return fLazyFieldDecoding;
+    }
+
     /**
      * Method majorIsSet is the major version number set?
      *
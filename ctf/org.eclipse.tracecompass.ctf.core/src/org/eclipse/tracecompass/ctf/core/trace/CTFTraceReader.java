@@ -78,6 +78,12 @@ public class CTFTraceReader implements AutoCloseable {
      */
     private long fEndTime;
 
+    /**
+     * Number of events decoded ahead for each stream, 0 if the events are
+     * decoded when they are read
+     */
+    private final int fLookAhead;
+
     // ------------------------------------------------------------------------
     // Constructors
     // ------------------------------------------------------------------------
@@ -91,7 +97,35 @@ public class CTFTraceReader implements AutoCloseable {
      *             if an error occurs
      */
     public CTFTraceReader(CTFTrace trace) throws CTFException {
+        this(trace, 0);
+    }
+
+    /**
+     * Constructs a TraceReader to read a trace, decoding the events of each
+     * stream ahead of time.
+     *
+     * Each stream is decoded by a task of a shared pool of worker threads,
+     * which keeps up to lookAhead events in advance, and waits for the reader
+     * to catch up when it is that far ahead. The reader itself only merges the
+     * streams by timestamp, so the order of the events is the same as without
+     * look-ahead.
+     *
+     * @param trace
+     *            The trace to read from.
+     * @param lookAhead
+     *            The maximum number of events to decode ahead for each
+     *            stream, 0 to decode the events on the calling thread when
+     *            they are read
+     * @throws CTFException
+     *             if an error occurs
+     * @since 1.1
+     */
+    public CTFTraceReader(CTFTrace trace, int lookAhead) throws CTFException {
+        if (lookAhead < 0) {
+            throw new IllegalArgumentException("Look-ahead cannot be negative"); //$NON-NLS-1$
+        }
         fTrace = trace;
+        fLookAhead = lookAhead;
         fStreamInputReaders.clear();
 
         /**
@@ -125,7 +159,7 @@ public class CTFTraceReader implements AutoCloseable {
     public CTFTraceReader copyFrom() throws CTFException {
         CTFTraceReader newReader = null;
 
-        newReader = new CTFTraceReader(fTrace);
+        newReader = new CTFTraceReader(fTrace, fLookAhead);
         newReader.fStartTime = fStartTime;
         newReader.setEndTime(fEndTime);
         return newReader;
@@ -154,6 +188,16 @@ public class CTFTraceReader implements AutoCloseable {
     // Getters/Setters/Predicates
     // ------------------------------------------------------------------------
 
+    /**
+     * Get the number of events decoded ahead for each stream
+     *
+     * @return the look-ahead, 0 if the events are decoded when they are read
+     * @since 1.1
+     */
+    public int getLookAhead() {
+        return fLookAhead;
+    }
+
     /**
      * Return the start time of this trace (== timestamp of the first event)
      *
@@ -207,7 +251,9 @@ public class CTFTraceReader implements AutoCloseable {
                 /*
                  * Create a reader and add it to the group.
                  */
-                fStreamInputReaders.add(new CTFStreamInputReader(streamInput));
+                CTFStreamInputReader streamInputReader = new CTFStreamInputReader(streamInput);
+                streamInputReader.setLookAhead(fLookAhead);
+                fStreamInputReaders.add(streamInputReader);
             }
         }
 
@@ -238,6 +284,7 @@ public class CTFTraceReader implements AutoCloseable {
                  * Add it to the group.
                  */
                 if (!fStreamInputReaders.contains(streamInputReader)) {
+                    streamInputReader.setLookAhead(fLookAhead);
                     streamInputReader.readNextEvent();
                     fStreamInputReaders.add(streamInputReader);
                     readers.add(streamInputReader);
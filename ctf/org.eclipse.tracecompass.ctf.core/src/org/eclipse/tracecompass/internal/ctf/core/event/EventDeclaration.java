@@ -22,11 +22,19 @@ import org.eclipse.tracecompass.ctf.core.event.EventDefinition;
 import org.eclipse.tracecompass.ctf.core.event.IEventDeclaration;
 import org.eclipse.tracecompass.ctf.core.event.io.BitBuffer;
 import org.eclipse.tracecompass.ctf.core.event.scope.ILexicalScope;
+import org.eclipse.tracecompass.ctf.core.event.types.CompoundDeclaration;
 import org.eclipse.tracecompass.ctf.core.event.types.ICompositeDefinition;
+import org.eclipse.tracecompass.ctf.core.event.types.IDeclaration;
 import org.eclipse.tracecompass.ctf.core.event.types.StructDeclaration;
 import org.eclipse.tracecompass.ctf.core.event.types.StructDefinition;
+import org.eclipse.tracecompass.ctf.core.event.types.VariantDeclaration;
 import org.eclipse.tracecompass.ctf.core.trace.CTFStream;
+import org.eclipse.tracecompass.ctf.core.trace.CTFTrace;
 import org.eclipse.tracecompass.ctf.core.trace.CTFStreamInputReader;
+import org.eclipse.tracecompass.internal.ctf.core.event.types.FixedSizeLayout;
+import org.eclipse.tracecompass.internal.ctf.core.event.types.LazyStructDefinition;
+import org.eclipse.tracecompass.internal.ctf.core.event.types.SequenceDeclaration;
+import org.eclipse.tracecompass.internal.ctf.core.event.types.composite.EventHeaderDecoder;
 
 /**
  * Representation of one type of event. A bit like "int" or "long" but for trace
@@ -38,6 +46,8 @@ public class EventDeclaration implements IEventDeclaration {
     // Attributes
     // ------------------------------------------------------------------------
 
+    private static final String EVENT_HEADER_PREFIX = ILexicalScope.EVENT_HEADER.getPath() + '.';
+
     /**
      * Name of the event
      */
@@ -68,6 +78,18 @@ public class EventDeclaration implements IEventDeclaration {
 
     private int fId = (int) UNSET_EVENT_ID;
 
+    /**
+     * Whether the context or the fields look up the event header, computed
+     * on first use
+     */
+    private Boolean fReferencesEventHeader = null;
+
+    /**
+     * Layout of the fields, if they are of fixed size, computed on first use
+     */
+    private FixedSizeLayout fFieldsLayout = null;
+    private boolean fFieldsLayoutComputed = false;
+
     // ------------------------------------------------------------------------
     // Constructors
     // ------------------------------------------------------------------------
@@ -96,11 +118,41 @@ public class EventDeclaration implements IEventDeclaration {
      *             IOExceptions.
      */
     public EventDefinition createDefinition(CTFStreamInputReader streamInputReader, ICompositeDefinition eventHeaderDef, @NonNull BitBuffer input, long timestamp) throws CTFException {
+        return createDefinition(streamInputReader, eventHeaderDef, null, input, timestamp);
+    }
+
+    /**
+     * Creates an instance of EventDefinition corresponding to this
+     * declaration, whose event header definition may be created later.
+     *
+     * @param streamInputReader
+     *            The StreamInputReader for which this definition is created.
+     * @param eventHeaderDef
+     *            The event header definition, must not be null if the event
+     *            context or fields refer to it
+     * @param eventHeaderDecoder
+     *            The decoder of the event header, whose last read values are
+     *            used to create the header definition when it is asked for,
+     *            if eventHeaderDef is null. Can be null.
+     * @param input
+     *            the bitbuffer input source
+     * @param timestamp
+     *            The timestamp when the event was taken
+     * @return A new EventDefinition.
+     * @throws CTFException
+     *             As a bitbuffer is used to read, it could have wrapped
+     *             IOExceptions.
+     */
+    public EventDefinition createDefinition(CTFStreamInputReader streamInputReader, ICompositeDefinition eventHeaderDef,
+            EventHeaderDecoder eventHeaderDecoder, @NonNull BitBuffer input, long timestamp) throws CTFException {
         StructDeclaration streamEventContextDecl = streamInputReader.getStreamEventContextDecl();
         StructDefinition streamEventContext = streamEventContextDecl != null ? streamEventContextDecl.createDefinition(fStream.getTrace(), ILexicalScope.STREAM_EVENT_CONTEXT, input) : null;
         ICompositeDefinition packetContext = streamInputReader.getPacketReader().getCurrentPacketEventHeader();
         StructDefinition eventContext = fContext != null ? fContext.createFieldDefinition(eventHeaderDef, fStream.getTrace(), ILexicalScope.CONTEXT, input) : null;
-        StructDefinition eventPayload = fFields != null ? fFields.createFieldDefinition(eventHeaderDef, fStream.getTrace(), ILexicalScope.FIELDS, input) : null;
+        ICompositeDefinition eventPayload = fFields != null ? createFieldsDefinition(eventHeaderDef, input) : null;
+
+        /* Only the values are kept, the decoder reads the next headers */
+        EventHeaderDecoder decodedHeader = (eventHeaderDef == null) ? eventHeaderDecoder : null;
 
         // a bit lttng specific
         // CTF doesn't require a timestamp,
@@ -110,6 +162,10 @@ public class EventDeclaration implements IEventDeclaration {
                 streamInputReader,
                 timestamp,
                 eventHeaderDef,
+                decodedHeader != null ? decodedHeader.getDeclaration() : null,
+                decodedHeader != null ? decodedHeader.getId() : 0,
+                decodedHeader != null ? decodedHeader.getTimestamp() : 0,
+                decodedHeader != null ? decodedHeader.getTimestampLength() : 0,
                 streamEventContext,
                 eventContext,
                 packetContext,
@@ -122,7 +178,7 @@ public class EventDeclaration implements IEventDeclaration {
         StructDefinition streamEventContext = streamEventContextDecl != null ? streamEventContextDecl.createDefinition(fStream.getTrace(), ILexicalScope.STREAM_EVENT_CONTEXT, input) : null;
         ICompositeDefinition packetContext = streamInputReader.getPacketReader().getCurrentPacketEventHeader();
         StructDefinition eventContext = fContext != null ? fContext.createDefinition(fStream.getTrace(), ILexicalScope.CONTEXT, input) : null;
-        StructDefinition eventPayload = fFields != null ? fFields.createDefinition(fStream.getTrace(), ILexicalScope.FIELDS, input) : null;
+        ICompositeDefinition eventPayload = fFields != null ? createFieldsDefinition(null, input) : null;
 
         // a bit lttng specific
         // CTF doesn't require a timestamp,
@@ -137,6 +193,29 @@ public class EventDeclaration implements IEventDeclaration {
                 eventPayload);
     }
 
+    /**
+     * Read the fields of an event, or skip them if they are read lazily
+     */
+    private ICompositeDefinition createFieldsDefinition(ICompositeDefinition eventHeaderDef, @NonNull BitBuffer input) throws CTFException {
+        CTFTrace trace = fStream.getTrace();
+        if (trace.isLazyFieldDecoding()) {
+            FixedSizeLayout layout = getFieldsLayout();
+            if (layout != null) {
+                /* Copied, so that the event does not keep the packet buffer */
+                return LazyStructDefinition.createFromCopy(fFields, trace, ILexicalScope.FIELDS, layout, input);
+            }
+        }
+        return fFields.createFieldDefinition(eventHeaderDef, trace, ILexicalScope.FIELDS, input);
+    }
+
+    private FixedSizeLayout getFieldsLayout() {
+        if (!fFieldsLayoutComputed) {
+            fFieldsLayout = FixedSizeLayout.create(fFields);
+            fFieldsLayoutComputed = true;
+        }
+        return fFieldsLayout;
+    }
+
     // ------------------------------------------------------------------------
     // Getters/Setters/Predicates
     // ------------------------------------------------------------------------
@@ -164,6 +243,7 @@ public class EventDeclaration implements IEventDeclaration {
      */
     public void setContext(StructDeclaration context) {
         fContext = context;
+        fReferencesEventHeader = null;
     }
 
     /**
@@ -174,6 +254,54 @@ public class EventDeclaration implements IEventDeclaration {
      */
     public void setFields(StructDeclaration fields) {
         fFields = fields;
+        fReferencesEventHeader = null;
+        fFieldsLayoutComputed = false;
+    }
+
+    /**
+     * Check if the context or the fields of this event declaration have a
+     * sequence length or a variant tag read from the event header. If not,
+     * the event header definition is not needed to read the event.
+     *
+     * @return true if the event header is looked up while reading the event
+     */
+    public boolean referencesEventHeader() {
+        Boolean references = fReferencesEventHeader;
+        if (references == null) {
+            references = referencesEventHeader(fContext) || referencesEventHeader(fFields);
+            fReferencesEventHeader = references;
+        }
+        return references;
+    }
+
+    private static boolean referencesEventHeader(IDeclaration declaration) {
+        if (declaration instanceof StructDeclaration) {
+            for (IDeclaration field : ((StructDeclaration) declaration).getFields().values()) {
+                if (referencesEventHeader(field)) {
+                    return true;
+                }
+            }
+        } else if (declaration instanceof VariantDeclaration) {
+            VariantDeclaration variant = (VariantDeclaration) declaration;
+            if (isEventHeaderPath(variant.getTag())) {
+                return true;
+            }
+            for (IDeclaration field : variant.getFields().values()) {
+                if (referencesEventHeader(field)) {
+                    return true;
+                }
+            }
+        } else if (declaration instanceof SequenceDeclaration) {
+            SequenceDeclaration sequence = (SequenceDeclaration) declaration;
+            return isEventHeaderPath(sequence.getLengthName()) || referencesEventHeader(sequence.getElementType());
+        } else if (declaration instanceof CompoundDeclaration) {
+            return referencesEventHeader(((CompoundDeclaration) declaration).getElementType());
+        }
+        return false;
+    }
+
+    private static boolean isEventHeaderPath(String path) {
+        return path != null && path.contains(EVENT_HEADER_PREFIX);
     }
 
     @Override
@@ -0,0 +1,215 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.ctf.core.event.types;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.ctf.core.event.types.EnumDeclaration;
+import org.eclipse.tracecompass.ctf.core.event.types.FloatDeclaration;
+import org.eclipse.tracecompass.ctf.core.event.types.IDeclaration;
+import org.eclipse.tracecompass.ctf.core.event.types.IntegerDeclaration;
+import org.eclipse.tracecompass.ctf.core.event.types.StructDeclaration;
+
+/**
+ * Binary layout of a fixed-size declaration, which means one without
+ * sequences, variants or strings.
+ *
+ * The layout is a list of steps, each one aligning the position then moving it
+ * by a number of bits. Consecutive fields whose alignment is already
+ * guaranteed are merged in a single step. This allows to find where a
+ * definition ends without reading it, and where the fields of a struct start.
+ */
+@NonNullByDefault
+public final class FixedSizeLayout {
+
+    private static final int MAX_INTEGER_SIZE = 64;
+
+    private final long[] fAlignments;
+    private final long[] fSizes;
+    private final long fAlignment;
+    /* Layouts of the fields if this is the layout of a struct */
+    private final FixedSizeLayout @Nullable [] fFieldLayouts;
+
+    private FixedSizeLayout(long alignment, long[] alignments, long[] sizes, FixedSizeLayout @Nullable [] fieldLayouts) {
+        fAlignment = alignment;
+        fAlignments = alignments;
+        fSizes = sizes;
+        fFieldLayouts = fieldLayouts;
+    }
+
+    /**
+     * Compute the layout of a declaration
+     *
+     * @param declaration
+     *            the declaration
+     * @return the layout, or null if the declaration is not of fixed size
+     */
+    public static @Nullable FixedSizeLayout create(IDeclaration declaration) {
+        Builder builder = new Builder();
+        if (!builder.add(declaration)) {
+            return null;
+        }
+        FixedSizeLayout[] fieldLayouts = null;
+        if (declaration instanceof StructDeclaration) {
+            StructDeclaration struct = (StructDeclaration) declaration;
+            List<FixedSizeLayout> layouts = new ArrayList<>();
+            for (IDeclaration field : struct.getFields().values()) {
+                FixedSizeLayout layout = create(field);
+                if (layout == null) {
+                    return null;
+                }
+                layouts.add(layout);
+            }
+            fieldLayouts = layouts.toArray(new FixedSizeLayout[layouts.size()]);
+        }
+        return builder.build(declaration.getAlignment(), fieldLayouts);
+    }
+
+    /**
+     * Get the largest alignment of this layout. A definition keeps the same
+     * layout when it is moved by a multiple of this alignment.
+     *
+     * @return the alignment, in bits
+     */
+    public long getMaxAlignment() {
+        long alignment = fAlignment;
+        for (long stepAlignment : fAlignments) {
+            alignment = Math.max(alignment, stepAlignment);
+        }
+        return alignment;
+    }
+
+    /**
+     * Get the position after a definition of this layout
+     *
+     * @param position
+     *            the position of the definition, before its alignment
+     * @return the position after the definition
+     */
+    public long skip(long position) {
+        long pos = position;
+        for (int i = 0; i < fAlignments.length; i++) {
+            pos = align(pos, fAlignments[i]) + fSizes[i];
+        }
+        return pos;
+    }
+
+    /**
+     * Get the positions of the fields of a struct
+     *
+     * @param position
+     *            the position of the struct, before its alignment
+     * @return the position of each field, before its alignment
+     * @throws IllegalStateException
+     *             if this is not the layout of a struct
+     */
+    public long[] getFieldPositions(long position) {
+        FixedSizeLayout[] fieldLayouts = fFieldLayouts;
+        if (fieldLayouts == null) {
+            throw new IllegalStateException("Not the layout of a struct"); //$NON-NLS-1$
+        }
+        long[] positions = new long[fieldLayouts.length];
+        long pos = align(position, fAlignment);
+        for (int i = 0; i < fieldLayouts.length; i++) {
+            positions[i] = pos;
+            pos = fieldLayouts[i].skip(pos);
+        }
+        return positions;
+    }
+
+    private static long align(long position, long alignment) {
+        long mask = alignment - 1;
+        return (position + mask) & ~mask;
+    }
+
+    private static final class Builder {
+
+        private final List<Long> fStepAlignments = new ArrayList<>();
+        private final List<Long> fStepSizes = new ArrayList<>();
+        /* Alignment guaranteed at the end of the last step */
+        private long fGuaranteed = Long.MAX_VALUE;
+
+        public boolean add(IDeclaration declaration) {
+            if (declaration instanceof IntegerDeclaration) {
+                int length = ((IntegerDeclaration) declaration).getLength();
+                if (length > MAX_INTEGER_SIZE) {
+                    return false;
+                }
+                addStep(declaration.getAlignment(), length);
+                return true;
+            }
+            if (declaration instanceof EnumDeclaration) {
+                return add(((EnumDeclaration) declaration).getContainerType());
+            }
+            if (declaration instanceof FloatDeclaration) {
+                FloatDeclaration floatDecl = (FloatDeclaration) declaration;
+                int length = floatDecl.getExponent() + floatDecl.getMantissa();
+                /* Other sizes are not read, see FloatDeclaration */
+                addStep(declaration.getAlignment(), (length == Integer.SIZE || length == Long.SIZE) ? length : 0);
+                return true;
+            }
+            if (declaration instanceof ArrayDeclaration) {
+                ArrayDeclaration array = (ArrayDeclaration) declaration;
+                addStep(array.getAlignment(), 0);
+                if (array.isAlignedBytes()) {
+                    addStep(Byte.SIZE, (long) array.getLength() * Byte.SIZE);
+                    return true;
+                }
+                for (int i = 0; i < array.getLength(); i++) {
+                    if (!add(array.getElementType())) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            if (declaration instanceof StructDeclaration) {
+                addStep(declaration.getAlignment(), 0);
+                for (IDeclaration field : ((StructDeclaration) declaration).getFields().values()) {
+                    if (!add(field)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            return false;
+        }
+
+        private void addStep(long alignment, long size) {
+            int last = fStepSizes.size() - 1;
+            if (last >= 0 && alignment <= fGuaranteed) {
+                /* Already aligned, extend the previous step */
+                long newSize = fStepSizes.get(last) + size;
+                fStepSizes.set(last, newSize);
+                fGuaranteed = guaranteedAlignment(fStepAlignments.get(last), newSize);
+                return;
+            }
+            fStepAlignments.add(alignment);
+            fStepSizes.add(size);
+            fGuaranteed = guaranteedAlignment(alignment, size);
+        }
+
+        private static long guaranteedAlignment(long alignment, long size) {
+            return (size == 0) ? alignment : Math.min(alignment, Long.lowestOneBit(size));
+        }
+
+        public FixedSizeLayout build(long alignment, FixedSizeLayout @Nullable [] fieldLayouts) {
+            long[] alignments = new long[fStepAlignments.size()];
+            long[] sizes = new long[fStepSizes.size()];
+            for (int i = 0; i < alignments.length; i++) {
+                alignments[i] = fStepAlignments.get(i);
+                sizes[i] = fStepSizes.get(i);
+            }
+            return new FixedSizeLayout(alignment, alignments, sizes, fieldLayouts);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.ctf.core.event.types;
+
+import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.tracecompass.ctf.core.CTFException;
+import org.eclipse.tracecompass.ctf.core.event.io.BitBuffer;
+import org.eclipse.tracecompass.ctf.core.event.scope.IDefinitionScope;
+import org.eclipse.tracecompass.ctf.core.event.scope.ILexicalScope;
+import org.eclipse.tracecompass.ctf.core.event.types.Definition;
+import org.eclipse.tracecompass.ctf.core.event.types.ICompositeDefinition;
+import org.eclipse.tracecompass.ctf.core.event.types.IDeclaration;
+import org.eclipse.tracecompass.ctf.core.event.types.ScopedDefinition;
+import org.eclipse.tracecompass.ctf.core.event.types.StructDeclaration;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A struct definition of a fixed-size struct, whose fields are only read from
+ * the packet when they are asked for.
+ *
+ * The definition keeps a reference to a buffer containing the struct, usually
+ * a copy of its bytes, and to the position of the struct in it. Since the struct is of fixed size, the
+ * position of each field can be computed from its {@link FixedSizeLayout}
+ * without reading the fields before it. Each field is then read on its own
+ * the first time it is looked up.
+ */
+public final class LazyStructDefinition extends ScopedDefinition implements ICompositeDefinition {
+
+    private final @NonNull FixedSizeLayout fLayout;
+    private final @NonNull ByteBuffer fBuffer;
+    private final long fPosition;
+
+    /* Computed on first access */
+    private List<String> fFieldNames = null;
+    private IDeclaration[] fFieldDeclarations = null;
+    private long[] fFieldPositions = null;
+    private Definition[] fDefinitions = null;
+
+    /**
+     * Constructor
+     *
+     * @param declaration
+     *            the struct declaration, which must be of fixed size
+     * @param definitionScope
+     *            the parent scope
+     * @param scope
+     *            the scope of this struct
+     * @param layout
+     *            the layout of the declaration
+     * @param buffer
+     *            the buffer of the packet containing the struct
+     * @param position
+     *            the position of the struct in the buffer, in bits
+     */
+    public LazyStructDefinition(@NonNull StructDeclaration declaration,
+            IDefinitionScope definitionScope, @NonNull ILexicalScope scope,
+            @NonNull FixedSizeLayout layout, @NonNull ByteBuffer buffer, long position) {
+        super(declaration, definitionScope, scope.getName(), scope);
+        fLayout = layout;
+        fBuffer = buffer;
+        fPosition = position;
+    }
+
+    /**
+     * Create the lazy definition of a struct from a copy of its bytes, so
+     * that it does not keep a reference to the buffer it is read from. The
+     * copy starts at a multiple of the alignment of the fields, to keep their
+     * positions.
+     *
+     * @param declaration
+     *            the declaration of the struct
+     * @param definitionScope
+     *            the scope of the definition
+     * @param scope
+     *            the lexical scope of the struct
+     * @param layout
+     *            the layout of the struct
+     * @param input
+     *            the bit buffer positioned at the start of the struct, it is
+     *            moved after the struct
+     * @return the lazy definition
+     * @throws CTFException
+     *             if the struct is past the end of the buffer
+     */
+    public static LazyStructDefinition createFromCopy(@NonNull StructDeclaration declaration,
+            IDefinitionScope definitionScope, @NonNull ILexicalScope scope,
+            @NonNull FixedSizeLayout layout, @NonNull BitBuffer input) throws CTFException {
+        long position = input.position();
+        long end = layout.skip(position);
+        input.position(end);
+
+        long alignment = Math.max(layout.getMaxAlignment() / Byte.SIZE, 1);
+        int start = (int) ((position / Byte.SIZE) / alignment * alignment);
+        ByteBuffer source = input.getByteBuffer().duplicate();
+        source.limit((int) ((end + Byte.SIZE - 1) / Byte.SIZE));
+        source.position(start);
+        ByteBuffer copy = ByteBuffer.allocate(source.remaining());
+        copy.put(source);
+        copy.clear();
+        return new LazyStructDefinition(declaration, definitionScope, scope, layout,
+                checkNotNull(copy), position - (long) start * Byte.SIZE);
+    }
+
+    @Override
+    public StructDeclaration getDeclaration() {
+        return (StructDeclaration) super.getDeclaration();
+    }
+
+    @Override
+    public synchronized List<String> getFieldNames() {
+        List<String> fieldNames = fFieldNames;
+        if (fieldNames == null) {
+            fieldNames = ImmutableList.copyOf(getDeclaration().getFieldsList());
+            fFieldNames = fieldNames;
+        }
+        return fieldNames;
+    }
+
+    @Override
+    public Definition getDefinition(String fieldName) {
+        int index = getFieldNames().indexOf(fieldName);
+        if (index == -1) {
+            return null;
+        }
+        return getDefinition(index);
+    }
+
+    @Override
+    public Definition lookupDefinition(String lookupPath) {
+        List<String> fieldNames = getFieldNames();
+        int index = fieldNames.indexOf(lookupPath);
+        if (index == -1) {
+            index = fieldNames.indexOf('_' + lookupPath);
+        }
+        if (index != -1) {
+            return getDefinition(index);
+        }
+        IDefinitionScope parent = getDefinitionScope();
+        if (parent == null) {
+            return null;
+        }
+        return (Definition) parent.lookupDefinition(lookupPath);
+    }
+
+    /**
+     * Read a field, or get it if it was already read
+     */
+    private synchronized Definition getDefinition(int index) {
+        if (fDefinitions == null) {
+            fFieldDeclarations = getDeclaration().getFields().values().toArray(new IDeclaration[0]);
+            fFieldPositions = fLayout.getFieldPositions(fPosition);
+            fDefinitions = new Definition[fFieldDeclarations.length];
+        }
+        Definition definition = fDefinitions[index];
+        if (definition == null) {
+            long position = fFieldPositions[index];
+            /* Use our own view of the buffer, the reader is still using it */
+            ByteBuffer buffer = fBuffer.duplicate();
+            buffer.position((int) (position / Byte.SIZE));
+            BitBuffer input = new BitBuffer(buffer);
+            try {
+                input.position(position);
+                definition = fFieldDeclarations[index].createDefinition(this, getFieldNames().get(index), input);
+            } catch (CTFException e) {
+                /* The bounds of the struct were checked when it was skipped */
+                throw new IllegalStateException("Could not read field " + getFieldNames().get(index), e); //$NON-NLS-1$
+            }
+            fDefinitions[index] = definition;
+        }
+        return definition;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("{ "); //$NON-NLS-1$
+        List<String> fields = new ArrayList<>();
+        for (String field : getFieldNames()) {
+            fields.add(field + " = " + getDefinition(field).toString()); //$NON-NLS-1$
+        }
+        builder.append(Joiner.on(", ").skipNulls().join(fields)); //$NON-NLS-1$
+        builder.append(" }"); //$NON-NLS-1$
+        return builder.toString();
+    }
+}
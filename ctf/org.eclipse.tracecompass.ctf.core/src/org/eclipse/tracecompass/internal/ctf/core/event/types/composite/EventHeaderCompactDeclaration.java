@@ -150,6 +150,22 @@ public final class EventHeaderCompactDeclaration extends Declaration implements
 
     @Override
     public EventHeaderDefinition createDefinition(@Nullable IDefinitionScope definitionScope, String fieldName, BitBuffer input) throws CTFException {
+        EventHeaderDecoder decoder = new EventHeaderDecoder(this);
+        read(input, decoder);
+        return decoder.createDefinition();
+    }
+
+    /**
+     * Read a header into a decoder, without creating a definition
+     *
+     * @param input
+     *            the bit buffer to read from
+     * @param decoder
+     *            the decoder receiving the id and timestamp
+     * @throws CTFException
+     *             if the id is too large or the buffer could not be read
+     */
+    void read(BitBuffer input, EventHeaderDecoder decoder) throws CTFException {
         alignRead(input);
         ByteOrder bo = input.getByteOrder();
         input.setByteOrder(fByteOrder);
@@ -157,7 +173,8 @@ public final class EventHeaderCompactDeclaration extends Declaration implements
         if (enumId != EXTENDED_VALUE) {
             long timestamp2 = input.get(COMPACT_TS, false);
             input.setByteOrder(bo);
-            return new EventHeaderDefinition(this, enumId, timestamp2, COMPACT_TS);
+            decoder.set(enumId, timestamp2, COMPACT_TS);
+            return;
         }
         // needed since we read 5 bits
         input.position(input.position() + 3);
@@ -167,8 +184,7 @@ public final class EventHeaderCompactDeclaration extends Declaration implements
         }
         long timestampLong = input.get(FULL_TS, false);
         input.setByteOrder(bo);
-        return new EventHeaderDefinition(this, (int) id, timestampLong, FULL_TS);
-
+        decoder.set((int) id, timestampLong, FULL_TS);
     }
 
     @Override
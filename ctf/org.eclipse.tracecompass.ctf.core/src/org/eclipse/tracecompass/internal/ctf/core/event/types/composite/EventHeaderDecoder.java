@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.ctf.core.event.types.composite;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.ctf.core.CTFException;
+import org.eclipse.tracecompass.ctf.core.event.io.BitBuffer;
+import org.eclipse.tracecompass.ctf.core.event.types.Declaration;
+import org.eclipse.tracecompass.ctf.core.event.types.IDeclaration;
+
+/**
+ * Decoder of the compact and large event headers used by LTTng.
+ *
+ * The id and the timestamp of the header are read directly from the bit
+ * buffer into primitive fields, which are overwritten by each read. This means
+ * a single decoder can be reused for all the events of a stream, without
+ * creating any definition. The {@link EventHeaderDefinition} of the last
+ * header read is only created if it is asked for.
+ *
+ * This class is not thread-safe, it is meant to be used by one packet reader.
+ */
+@NonNullByDefault
+public final class EventHeaderDecoder {
+
+    private final @Nullable EventHeaderCompactDeclaration fCompactDeclaration;
+    private final @Nullable EventHeaderLargeDeclaration fLargeDeclaration;
+
+    private int fId;
+    private long fTimestamp;
+    private int fTimestampLength;
+
+    /**
+     * Constructor for a compact event header
+     *
+     * @param declaration
+     *            the compact event header declaration
+     */
+    EventHeaderDecoder(EventHeaderCompactDeclaration declaration) {
+        fCompactDeclaration = declaration;
+        fLargeDeclaration = null;
+    }
+
+    /**
+     * Constructor for a large event header
+     *
+     * @param declaration
+     *            the large event header declaration
+     */
+    EventHeaderDecoder(EventHeaderLargeDeclaration declaration) {
+        fCompactDeclaration = null;
+        fLargeDeclaration = declaration;
+    }
+
+    /**
+     * Get a decoder for an event header declaration
+     *
+     * @param declaration
+     *            The event header declaration of a stream
+     * @return A new decoder, or null if the declaration is not a compact or a
+     *         large event header
+     */
+    public static @Nullable EventHeaderDecoder create(@Nullable IDeclaration declaration) {
+        if (declaration instanceof EventHeaderCompactDeclaration) {
+            return new EventHeaderDecoder((EventHeaderCompactDeclaration) declaration);
+        }
+        if (declaration instanceof EventHeaderLargeDeclaration) {
+            return new EventHeaderDecoder((EventHeaderLargeDeclaration) declaration);
+        }
+        return null;
+    }
+
+    /**
+     * Read the next event header from a bit buffer
+     *
+     * @param input
+     *            The bit buffer, positioned at the start of the header
+     * @throws CTFException
+     *             If the header could not be read
+     */
+    public void read(BitBuffer input) throws CTFException {
+        EventHeaderCompactDeclaration compact = fCompactDeclaration;
+        if (compact != null) {
+            compact.read(input, this);
+            return;
+        }
+        EventHeaderLargeDeclaration large = fLargeDeclaration;
+        if (large != null) {
+            large.read(input, this);
+        }
+    }
+
+    void set(int id, long timestamp, int timestampLength) {
+        fId = id;
+        fTimestamp = timestamp;
+        fTimestampLength = timestampLength;
+    }
+
+    /**
+     * Get the event id of the last header read
+     *
+     * @return the event id
+     */
+    public int getId() {
+        return fId;
+    }
+
+    /**
+     * Get the timestamp of the last header read, as written in the trace
+     *
+     * @return the timestamp
+     */
+    public long getTimestamp() {
+        return fTimestamp;
+    }
+
+    /**
+     * Get the number of bits valid in the timestamp of the last header read
+     *
+     * @return the timestamp length
+     */
+    public int getTimestampLength() {
+        return fTimestampLength;
+    }
+
+    /**
+     * Create the definition of the last header read
+     *
+     * @return a new event header definition
+     */
+    public EventHeaderDefinition createDefinition() {
+        return new EventHeaderDefinition(getDeclaration(), fId, fTimestamp, fTimestampLength);
+    }
+
+    /**
+     * Get the declaration of the decoded event headers
+     *
+     * @return the compact or large event header declaration
+     */
+    public Declaration getDeclaration() {
+        Declaration declaration = fCompactDeclaration;
+        if (declaration == null) {
+            declaration = fLargeDeclaration;
+        }
+        if (declaration == null) {
+            throw new IllegalStateException("No event header declaration"); //$NON-NLS-1$
+        }
+        return declaration;
+    }
+}
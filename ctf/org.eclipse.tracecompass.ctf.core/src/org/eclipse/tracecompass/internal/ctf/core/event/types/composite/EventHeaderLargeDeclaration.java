@@ -177,6 +177,22 @@ public final class EventHeaderLargeDeclaration extends Declaration implements IE
 
     @Override
     public EventHeaderDefinition createDefinition(@Nullable IDefinitionScope definitionScope, String fieldName, BitBuffer input) throws CTFException {
+        EventHeaderDecoder decoder = new EventHeaderDecoder(this);
+        read(input, decoder);
+        return decoder.createDefinition();
+    }
+
+    /**
+     * Read a header into a decoder, without creating a definition
+     *
+     * @param input
+     *            the bit buffer to read from
+     * @param decoder
+     *            the decoder receiving the id and timestamp
+     * @throws CTFException
+     *             if the id is too large or the buffer could not be read
+     */
+    void read(BitBuffer input, EventHeaderDecoder decoder) throws CTFException {
         alignRead(input);
         ByteOrder bo = input.getByteOrder();
         input.setByteOrder(fByteOrder);
@@ -184,14 +200,15 @@ public final class EventHeaderLargeDeclaration extends Declaration implements IE
         long second = input.get(COMPACT_TS, false);
         if (first != EXTENDED_VALUE) {
             input.setByteOrder(bo);
-            return new EventHeaderDefinition(this, first, second, COMPACT_TS);
+            decoder.set(first, second, COMPACT_TS);
+            return;
         }
         long timestampLong = input.get(FULL_TS, false);
         input.setByteOrder(bo);
         if (second > Integer.MAX_VALUE) {
             throw new CTFException("ID " + second + " larger than " + Integer.MAX_VALUE + " is currently unsupported by the parser"); //$NON-NLS-1$//$NON-NLS-2$ //$NON-NLS-3$
         }
-        return new EventHeaderDefinition(this, (int) second, timestampLong, FULL_TS);
+        decoder.set((int) second, timestampLong, FULL_TS);
     }
 
     @Override
@@ -21,6 +21,7 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
     TmfEventsStatisticsTest.class,
-    TmfStateStatisticsTest.class
+    TmfStateStatisticsTest.class,
+    TmfStatisticsModuleTest.class
 })
 public class AllTests {}
@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.ctf.core.tests.temp.statistics;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+import org.eclipse.tracecompass.tmf.core.exceptions.TmfAnalysisException;
+import org.eclipse.tracecompass.tmf.core.statistics.TmfStatisticsModule;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+
+/**
+ * Run the statistics tests on the statistics of a {@link TmfStatisticsModule},
+ * which read the totals from the event count index of the totals module. The
+ * expected counts are exact, including inside the buckets of the index.
+ */
+public class TmfStatisticsModuleTest extends TmfStatisticsTest {
+
+    private ITmfTrace fTrace;
+    private TmfStatisticsModule fModule;
+
+    /**
+     * Class setup
+     */
+    @BeforeClass
+    public static void setUpClass() {
+        assumeTrue(testTrace.exists());
+    }
+
+    /**
+     * Test setup
+     */
+    @Before
+    public void setUp() {
+        ITmfTrace trace = testTrace.getTrace();
+        fTrace = trace;
+
+        fModule = new TmfStatisticsModule();
+        try {
+            fModule.setTrace(trace);
+        } catch (TmfAnalysisException e) {
+            fail();
+        }
+        fModule.schedule();
+        assertTrue(fModule.waitForCompletion());
+
+        backend = fModule.getStatistics();
+        assertNotNull(backend);
+    }
+
+    /**
+     * Test cleanup
+     */
+    @After
+    public void tearDown() {
+        fModule.dispose();
+        fTrace.dispose();
+    }
+}
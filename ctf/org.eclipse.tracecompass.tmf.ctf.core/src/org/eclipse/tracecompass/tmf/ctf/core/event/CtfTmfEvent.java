@@ -13,18 +13,12 @@
 
 package org.eclipse.tracecompass.tmf.ctf.core.event;
 
-import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
-
-import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.tracecompass.ctf.core.event.EventDefinition;
 import org.eclipse.tracecompass.ctf.core.event.IEventDeclaration;
-import org.eclipse.tracecompass.ctf.core.event.types.ICompositeDefinition;
-import org.eclipse.tracecompass.ctf.core.event.types.IDefinition;
 import org.eclipse.tracecompass.tmf.core.event.ITmfCustomAttributes;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEventField;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEventType;
@@ -240,42 +234,17 @@ public class CtfTmfEvent extends TmfEvent
         return getCustomAttribute(CtfConstants.MODEL_URI_KEY);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * The fields of the content are only parsed when they are asked for.
+     */
     @Override
     public synchronized ITmfEventField getContent() {
         if (fContent == null) {
-            fContent = new TmfEventField(
-                    ITmfEventField.ROOT_FIELD_ID, null, parseFields(fEvent));
+            fContent = new CtfTmfEventContent(fEvent);
         }
         return fContent;
     }
 
-    /**
-     * Extract the field information from the structDefinition haze-inducing
-     * mess, and put them into something ITmfEventField can cope with.
-     */
-    private static CtfTmfEventField[] parseFields(@NonNull EventDefinition eventDef) {
-        List<CtfTmfEventField> fields = new ArrayList<>();
-
-        ICompositeDefinition structFields = eventDef.getFields();
-        if (structFields != null) {
-            if (structFields.getFieldNames() != null) {
-                for (String curFieldName : structFields.getFieldNames()) {
-                    String fn = checkNotNull(curFieldName);
-                    fields.add(CtfTmfEventField.parseField((IDefinition) structFields.getDefinition(fn), fn));
-                }
-            }
-        }
-        /* Add context information as CtfTmfEventField */
-        ICompositeDefinition structContext = eventDef.getContext();
-        if (structContext != null) {
-            for (String contextName : structContext.getFieldNames()) {
-                /* Prefix field name */
-                String curContextName = CtfConstants.CONTEXT_FIELD_PREFIX + contextName;
-                fields.add(CtfTmfEventField.parseField((IDefinition) structContext.getDefinition(contextName), curContextName));
-            }
-        }
-
-        return fields.toArray(new CtfTmfEventField[fields.size()]);
-    }
-
 }
@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.ctf.core.event;
+
+import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
+import static org.eclipse.tracecompass.common.core.NonNullUtils.equalsNullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.tracecompass.ctf.core.event.EventDefinition;
+import org.eclipse.tracecompass.ctf.core.event.types.ICompositeDefinition;
+import org.eclipse.tracecompass.ctf.core.event.types.IDefinition;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEventField;
+import org.eclipse.tracecompass.tmf.core.event.TmfEventField;
+import org.eclipse.tracecompass.tmf.ctf.core.CtfConstants;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Root field of the content of a {@link CtfTmfEvent}.
+ *
+ * The fields are only converted to {@link CtfTmfEventField} when they are
+ * asked for, one at a time. If the CTF trace reads its fields lazily, this
+ * means the fields that are never looked at are not even read from the trace.
+ * The names of the fields are known without reading them.
+ */
+final class CtfTmfEventContent extends TmfEventField {
+
+    private final @NonNull EventDefinition fEventDef;
+    private final ICompositeDefinition fFields;
+    private final ICompositeDefinition fContext;
+    private final @NonNull List<String> fFieldNames;
+
+    /* Fields converted so far, guarded by 'this' */
+    private final Map<String, ITmfEventField> fConvertedFields = new HashMap<>();
+
+    /**
+     * Constructor
+     *
+     * @param eventDef
+     *            the definition of the event
+     */
+    public CtfTmfEventContent(@NonNull EventDefinition eventDef) {
+        super(ITmfEventField.ROOT_FIELD_ID, null, null);
+        fEventDef = eventDef;
+        fFields = eventDef.getFields();
+        fContext = eventDef.getContext();
+
+        ImmutableList.Builder<String> names = new ImmutableList.Builder<>();
+        if (fFields != null && fFields.getFieldNames() != null) {
+            names.addAll(fFields.getFieldNames());
+        }
+        if (fContext != null) {
+            for (String contextName : fContext.getFieldNames()) {
+                names.add(CtfConstants.CONTEXT_FIELD_PREFIX + contextName);
+            }
+        }
+        fFieldNames = checkNotNull(names.build());
+    }
+
+    @Override
+    public Collection<String> getFieldNames() {
+        return fFieldNames;
+    }
+
+    @Override
+    public Collection<ITmfEventField> getFields() {
+        List<ITmfEventField> fields = new ArrayList<>(fFieldNames.size());
+        for (String name : fFieldNames) {
+            fields.add(getField(name));
+        }
+        return fields;
+    }
+
+    @Override
+    public ITmfEventField getField(final String... path) {
+        if (path.length == 1) {
+            return getSubField(checkNotNull(path[0]));
+        }
+        ITmfEventField field = this;
+        for (String name : path) {
+            field = field.getField(name);
+            if (field == null) {
+                return null;
+            }
+        }
+        return field;
+    }
+
+    private synchronized ITmfEventField getSubField(@NonNull String name) {
+        ITmfEventField field = fConvertedFields.get(name);
+        if (field != null || fConvertedFields.containsKey(name)) {
+            return field;
+        }
+        IDefinition definition = null;
+        if (fFields != null) {
+            definition = fFields.getDefinition(name);
+        }
+        if (definition == null && fContext != null && name.startsWith(CtfConstants.CONTEXT_FIELD_PREFIX)) {
+            definition = fContext.getDefinition(name.substring(CtfConstants.CONTEXT_FIELD_PREFIX.length()));
+        }
+        if (definition != null) {
+            field = CtfTmfEventField.parseField(definition, name);
+        }
+        fConvertedFields.put(name, field);
+        return field;
+    }
+
+    @Override
+    public int hashCode() {
+        /* Only the names, to not read the fields. Equal contents have the same names. */
+        return fFieldNames.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        /*
+         * Only compared with the contents of other CTF events, so that the
+         * comparison is symmetric: a regular field does not see the fields of
+         * this one, which are converted only when they are asked for.
+         */
+        if (!(obj instanceof CtfTmfEventContent)) {
+            return false;
+        }
+        CtfTmfEventContent other = (CtfTmfEventContent) obj;
+        if (fEventDef == other.fEventDef) {
+            return true;
+        }
+        if (!fFieldNames.equals(other.fFieldNames)) {
+            return false;
+        }
+        /* Stop reading the fields at the first difference */
+        for (String name : fFieldNames) {
+            if (!equalsNullable(getField(name), other.getField(name))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        /* Same as a root field, without copying the fields into one */
+        StringBuilder builder = new StringBuilder();
+        for (ITmfEventField field : getFields()) {
+            if (field != null) {
+                if (builder.length() > 0) {
+                    builder.append(", "); //$NON-NLS-1$
+                }
+                builder.append(field);
+            }
+        }
+        return builder.toString();
+    }
+}
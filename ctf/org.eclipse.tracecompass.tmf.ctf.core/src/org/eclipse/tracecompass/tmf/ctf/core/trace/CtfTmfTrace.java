@@ -155,6 +155,11 @@ public class CtfTmfTrace extends TmfTrace
 
         try {
             this.fTrace = new CTFTrace(path);
+            /*
+             * The event contents are parsed on demand, only read the fields
+             * that are asked for.
+             */
+            fTrace.setLazyFieldDecoding(true);
             CtfTmfContext ctx;
             /* Set the start and (current) end times for this trace */
             ctx = (CtfTmfContext) seekEvent(0L);
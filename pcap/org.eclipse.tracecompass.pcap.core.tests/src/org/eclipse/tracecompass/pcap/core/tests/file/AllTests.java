@@ -23,7 +23,9 @@ import org.junit.runners.Suite;
         PcapFileOpenTest.class,
         PcapFileOpenFailTest.class,
         PcapFileReadTest.class,
-        PcapFileEndiannessTest.class
+        PcapFileEndiannessTest.class,
+        PcapFileSeekTest.class,
+        PcapFileMappingTest.class
 })
 public class AllTests {
 
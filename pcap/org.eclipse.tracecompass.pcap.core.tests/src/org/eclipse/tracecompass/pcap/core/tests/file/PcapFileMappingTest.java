@@ -0,0 +1,216 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.pcap.core.tests.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.tracecompass.internal.pcap.core.packet.BadPacketException;
+import org.eclipse.tracecompass.internal.pcap.core.protocol.pcap.PcapPacket;
+import org.eclipse.tracecompass.internal.pcap.core.trace.BadPcapFileException;
+import org.eclipse.tracecompass.internal.pcap.core.trace.PcapFile;
+import org.eclipse.tracecompass.internal.pcap.core.trace.PcapFileValues;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test reading a pcap file that is much larger than the regions of the file
+ * that are mapped in memory, so that packets headers and data straddle the
+ * boundaries of the regions.
+ */
+public class PcapFileMappingTest {
+
+    private static final int NB_PACKETS = 2000;
+    /* Not a multiple of the packet header size */
+    private static final int MAPPING_SIZE = 1000;
+    /* Size above which the packets are mapped rather than copied */
+    private static final int MAX_COPIED_LENGTH = 64 * 1024;
+    private static final int LARGE_PACKET_SIZE = 100 * 1024;
+    /* A link type without a decoded protocol */
+    private static final int LINK_TYPE = 147;
+
+    private static File fFile;
+    private static List<byte[]> fData;
+
+    /**
+     * Write the file, with packets of all sizes up to a few times the size of
+     * the mapped regions, and some packets that are too big to be copied
+     *
+     * @throws IOException
+     *             If the file could not be written
+     */
+    @BeforeClass
+    public static void init() throws IOException {
+        fFile = File.createTempFile("mapping", ".pcap");
+        fData = new ArrayList<>();
+        Random random = new Random(11);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fFile)))) {
+            out.writeInt(PcapFileValues.MAGIC_LITTLE_ENDIAN_NANO);
+            out.writeShort(Short.reverseBytes((short) 2));
+            out.writeShort(Short.reverseBytes((short) 4));
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeInt(Integer.reverseBytes(LARGE_PACKET_SIZE));
+            out.writeInt(Integer.reverseBytes(LINK_TYPE));
+            for (int i = 0; i < NB_PACKETS; i++) {
+                int size;
+                if (i % 500 == 250) {
+                    size = LARGE_PACKET_SIZE;
+                } else if (i % 10 == 0) {
+                    size = 1 + random.nextInt(3 * MAPPING_SIZE);
+                } else {
+                    size = 1 + random.nextInt(MAPPING_SIZE / 4);
+                }
+                byte[] data = new byte[size];
+                random.nextBytes(data);
+                fData.add(data);
+                out.writeInt(Integer.reverseBytes(i));
+                out.writeInt(Integer.reverseBytes(i * 1000));
+                out.writeInt(Integer.reverseBytes(size));
+                out.writeInt(Integer.reverseBytes(size));
+                out.write(data);
+            }
+        }
+        assertTrue(fFile.length() > 10 * MAPPING_SIZE);
+    }
+
+    /**
+     * Delete the file
+     */
+    @AfterClass
+    public static void cleanup() {
+        fFile.delete();
+    }
+
+    /**
+     * Test that all the packets read with small mapped regions are the ones
+     * that were written, and that the small packets do not keep the mapped
+     * region in memory
+     *
+     * @throws IOException
+     *             If the file could not be read
+     * @throws BadPcapFileException
+     *             If the file is invalid
+     * @throws BadPacketException
+     *             If a packet is invalid
+     */
+    @Test
+    public void testReadPackets() throws IOException, BadPcapFileException, BadPacketException {
+        List<PcapPacket> packets = new ArrayList<>();
+        try (PcapFile file = new PcapFile(fFile.toPath(), MAPPING_SIZE)) {
+            PcapPacket packet = file.parseNextPacket();
+            while (packet != null) {
+                packets.add(packet);
+                packet = file.parseNextPacket();
+            }
+            assertEquals(NB_PACKETS, file.getTotalNbPackets());
+        }
+        /* The packets are checked once all the others were read */
+        assertEquals(NB_PACKETS, packets.size());
+        for (int i = 0; i < NB_PACKETS; i++) {
+            PcapPacket packet = packets.get(i);
+            assertPacket(i, packet);
+            ByteBuffer payload = packet.getPayload();
+            assertNotNull(payload);
+            assertEquals(fData.get(i).length > MAX_COPIED_LENGTH, payload.isDirect());
+        }
+    }
+
+    /**
+     * Test seeking back to packets that are in regions that were unmapped
+     * since they were read
+     *
+     * @throws IOException
+     *             If the file could not be read
+     * @throws BadPcapFileException
+     *             If the file is invalid
+     * @throws BadPacketException
+     *             If a packet is invalid
+     */
+    @Test
+    public void testSeekPackets() throws IOException, BadPcapFileException, BadPacketException {
+        try (PcapFile file = new PcapFile(fFile.toPath(), MAPPING_SIZE)) {
+            for (int rank : new int[] { 1999, 250, 251, 1000, 999, 0, 1750, 1500 }) {
+                file.seekPacket(rank);
+                PcapPacket packet = file.parseNextPacket();
+                assertNotNull(packet);
+                assertPacket(rank, packet);
+            }
+            file.seekPacket(NB_PACKETS);
+            assertNull(file.parseNextPacket());
+        }
+    }
+
+    /**
+     * Test that the default mapped regions, larger than the file, give the
+     * same packets
+     *
+     * @throws IOException
+     *             If the file could not be read
+     * @throws BadPcapFileException
+     *             If the file is invalid
+     * @throws BadPacketException
+     *             If a packet is invalid
+     */
+    @Test
+    public void testDefaultMapping() throws IOException, BadPcapFileException, BadPacketException {
+        try (PcapFile file = new PcapFile(fFile.toPath())) {
+            for (int i = 0; i < NB_PACKETS; i++) {
+                PcapPacket packet = file.parseNextPacket();
+                assertNotNull(packet);
+                assertPacket(i, packet);
+            }
+            assertFalse(file.hasNextPacket());
+        }
+    }
+
+    /**
+     * Test an invalid size of the mapped regions
+     *
+     * @throws IOException
+     *             If the file could not be read
+     * @throws BadPcapFileException
+     *             If the file is invalid
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMappingSize() throws IOException, BadPcapFileException {
+        new PcapFile(fFile.toPath(), 0).close();
+    }
+
+    private static void assertPacket(int rank, PcapPacket packet) {
+        byte[] expected = fData.get(rank);
+        assertEquals(rank, packet.getIndex());
+        assertEquals(rank * 1000000000L + rank * 1000, packet.getTimestamp());
+        assertEquals(expected.length, packet.getIncludedLength());
+        assertEquals(expected.length, packet.getOriginalLength());
+        ByteBuffer payload = packet.getPayload();
+        assertNotNull(payload);
+        ByteBuffer duplicate = payload.duplicate();
+        duplicate.position(0);
+        byte[] data = new byte[duplicate.limit()];
+        duplicate.get(data);
+        assertArrayEquals(expected, data);
+    }
+}
@@ -0,0 +1,221 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.pcap.core.tests.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.tracecompass.internal.pcap.core.packet.BadPacketException;
+import org.eclipse.tracecompass.internal.pcap.core.protocol.pcap.PcapPacket;
+import org.eclipse.tracecompass.internal.pcap.core.trace.BadPcapFileException;
+import org.eclipse.tracecompass.internal.pcap.core.trace.PcapFile;
+import org.eclipse.tracecompass.internal.pcap.core.trace.PcapFileValues;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Compare the packets read after seeking in a pcap file with the ones read
+ * sequentially, at ranks around the checkpoints of the file index.
+ */
+public class PcapFileSeekTest {
+
+    private static final int NB_PACKETS = 3500;
+    /* The number of packets between two checkpoints of the file */
+    private static final int INTERVAL = 1000;
+    /* A link type without a decoded protocol */
+    private static final int LINK_TYPE = 147;
+
+    private static File fFile;
+    private static List<String> fPackets;
+
+    /**
+     * Write the file, and read all its packets in order
+     *
+     * @throws IOException
+     *             If the file could not be written or read
+     * @throws BadPcapFileException
+     *             If the file is invalid
+     * @throws BadPacketException
+     *             If a packet is invalid
+     */
+    @BeforeClass
+    public static void init() throws IOException, BadPcapFileException, BadPacketException {
+        fFile = File.createTempFile("seek", ".pcap");
+        Random random = new Random(3);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fFile)))) {
+            out.writeInt(PcapFileValues.MAGIC_BIG_ENDIAN_MICRO);
+            out.writeShort(2);
+            out.writeShort(4);
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeInt(65535);
+            out.writeInt(LINK_TYPE);
+            for (int i = 0; i < NB_PACKETS; i++) {
+                byte[] data = new byte[1 + random.nextInt(200)];
+                random.nextBytes(data);
+                out.writeInt(i);
+                out.writeInt(random.nextInt(1000000));
+                out.writeInt(data.length);
+                out.writeInt(data.length);
+                out.write(data);
+            }
+        }
+
+        fPackets = new ArrayList<>();
+        try (PcapFile file = new PcapFile(fFile.toPath())) {
+            PcapPacket packet = file.parseNextPacket();
+            while (packet != null) {
+                fPackets.add(toString(packet));
+                packet = file.parseNextPacket();
+            }
+        }
+        assertEquals(NB_PACKETS, fPackets.size());
+    }
+
+    /**
+     * Delete the file
+     */
+    @AfterClass
+    public static void cleanup() {
+        fFile.delete();
+    }
+
+    /**
+     * Test seeking forward around each checkpoint, in a file whose
+     * checkpoints are added as it is read
+     *
+     * @throws IOException
+     *             If the file could not be read
+     * @throws BadPcapFileException
+     *             If the file is invalid
+     * @throws BadPacketException
+     *             If a packet is invalid
+     */
+    @Test
+    public void testSeekForward() throws IOException, BadPcapFileException, BadPacketException {
+        try (PcapFile file = new PcapFile(fFile.toPath())) {
+            for (int checkpoint = 0; checkpoint < NB_PACKETS; checkpoint += INTERVAL) {
+                for (long rank : new long[] { checkpoint - 1, checkpoint, checkpoint + 1, checkpoint + INTERVAL / 2 }) {
+                    if (rank >= 0 && rank < NB_PACKETS) {
+                        assertPacketAt(file, rank);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Test seeking backward, to checkpoints that are already in the index,
+     * and to the ranks just before and after them
+     *
+     * @throws IOException
+     *             If the file could not be read
+     * @throws BadPcapFileException
+     *             If the file is invalid
+     * @throws BadPacketException
+     *             If a packet is invalid
+     */
+    @Test
+    public void testSeekBackward() throws IOException, BadPcapFileException, BadPacketException {
+        try (PcapFile file = new PcapFile(fFile.toPath())) {
+            assertPacketAt(file, NB_PACKETS - 1);
+            for (long rank : new long[] { 3001, 3000, 2999, 2001, 2000, 1999, 1001, 1000, 999, 1, 0 }) {
+                assertPacketAt(file, rank);
+            }
+            /* Back and forth across checkpoints */
+            for (long rank : new long[] { 2500, 500, 3499, 1000, 2999, 0, 2000 }) {
+                assertPacketAt(file, rank);
+            }
+        }
+    }
+
+    /**
+     * Test seeking past the last checkpoint of the index, which is found by
+     * skipping the packets from that checkpoint
+     *
+     * @throws IOException
+     *             If the file could not be read
+     * @throws BadPcapFileException
+     *             If the file is invalid
+     * @throws BadPacketException
+     *             If a packet is invalid
+     */
+    @Test
+    public void testSeekPastLastCheckpoint() throws IOException, BadPcapFileException, BadPacketException {
+        for (long rank : new long[] { 999, 1000, 1001, 2500, 3000, NB_PACKETS - 1 }) {
+            try (PcapFile file = new PcapFile(fFile.toPath())) {
+                assertPacketAt(file, rank);
+            }
+        }
+        try (PcapFile file = new PcapFile(fFile.toPath())) {
+            assertPacketAt(file, 1500);
+            /* Only the checkpoints up to 1000 are known */
+            assertPacketAt(file, 3200);
+            assertPacketAt(file, 2000);
+        }
+    }
+
+    /**
+     * Test seeking at and after the end of the file
+     *
+     * @throws IOException
+     *             If the file could not be read
+     * @throws BadPcapFileException
+     *             If the file is invalid
+     * @throws BadPacketException
+     *             If a packet is invalid
+     */
+    @Test
+    public void testSeekEnd() throws IOException, BadPcapFileException, BadPacketException {
+        try (PcapFile file = new PcapFile(fFile.toPath())) {
+            file.seekPacket(NB_PACKETS + 1000);
+            assertEquals(NB_PACKETS, file.getCurrentRank());
+            assertNull(file.parseNextPacket());
+            assertEquals(NB_PACKETS, file.getTotalNbPackets());
+
+            file.seekPacket(NB_PACKETS);
+            assertNull(file.parseNextPacket());
+            assertPacketAt(file, INTERVAL);
+        }
+    }
+
+    private static void assertPacketAt(PcapFile file, long rank) throws IOException, BadPcapFileException, BadPacketException {
+        file.seekPacket(rank);
+        assertEquals(rank, file.getCurrentRank());
+        PcapPacket packet = file.parseNextPacket();
+        assertNotNull(packet);
+        assertEquals(rank, packet.getIndex());
+        assertEquals(fPackets.get((int) rank), toString(packet));
+        assertEquals(rank + 1, file.getCurrentRank());
+    }
+
+    private static String toString(PcapPacket packet) {
+        ByteBuffer payload = packet.getPayload();
+        assertNotNull(payload);
+        ByteBuffer duplicate = payload.duplicate();
+        duplicate.position(0);
+        byte[] data = new byte[duplicate.limit()];
+        duplicate.get(data);
+        return packet.getIndex() + " " + packet.getTimestamp() + " " + packet.getIncludedLength() + " " + Arrays.toString(data);
+    }
+}
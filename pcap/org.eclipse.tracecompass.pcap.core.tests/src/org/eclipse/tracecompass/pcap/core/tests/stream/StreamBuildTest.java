@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2014 Ericsson
+ * Copyright (c) 2014, 2015 Ericsson
  *
  * All rights reserved. This program and the accompanying materials are
  * made available under the terms of the Eclipse Public License v1.0 which
@@ -13,15 +13,28 @@
 package org.eclipse.tracecompass.pcap.core.tests.stream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.fail;
 import static org.junit.Assume.assumeTrue;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 
+import org.eclipse.tracecompass.internal.pcap.core.packet.BadPacketException;
 import org.eclipse.tracecompass.internal.pcap.core.protocol.PcapProtocol;
+import org.eclipse.tracecompass.internal.pcap.core.protocol.pcap.PcapPacket;
 import org.eclipse.tracecompass.internal.pcap.core.stream.PacketStream;
 import org.eclipse.tracecompass.internal.pcap.core.stream.PacketStreamBuilder;
 import org.eclipse.tracecompass.internal.pcap.core.trace.BadPcapFileException;
+import org.eclipse.tracecompass.internal.pcap.core.trace.PcapFile;
 import org.eclipse.tracecompass.pcap.core.tests.shared.PcapTestTrace;
 import org.junit.Test;
 
@@ -115,4 +128,169 @@ public class StreamBuildTest {
         }
 
     }
+
+    /**
+     * Test that the streams built by parsing a file in parallel have the same
+     * IDs and contents as the ones built by adding its packets one by one, on
+     * a generated file with many batches of packets.
+     *
+     * @throws IOException
+     *             If the file could not be written or read
+     * @throws BadPcapFileException
+     *             If the file is not valid
+     */
+    @Test
+    public void testParallelBuilding() throws IOException, BadPcapFileException {
+        Path path = Files.createTempFile("streams", ".pcap"); //$NON-NLS-1$ //$NON-NLS-2$
+        try {
+            writePcapFile(path, 20000);
+            compareWithSequentialBuilding(path);
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    /**
+     * Test the parallel building of the streams on the test traces
+     *
+     * @throws IOException
+     *             If the trace could not be read
+     * @throws BadPcapFileException
+     *             If the trace is not valid
+     */
+    @Test
+    public void testParallelBuildingTraces() throws IOException, BadPcapFileException {
+        PcapTestTrace[] traces = { PcapTestTrace.MOSTLY_TCP, PcapTestTrace.MOSTLY_UDP, PcapTestTrace.BENCHMARK_TRACE };
+        boolean tested = false;
+        for (PcapTestTrace trace : traces) {
+            if (trace.exists()) {
+                compareWithSequentialBuilding(trace.getPath());
+                tested = true;
+            }
+        }
+        assumeTrue(tested);
+    }
+
+    private static void compareWithSequentialBuilding(Path path) throws IOException, BadPcapFileException {
+        PcapProtocol[] protocols = { PcapProtocol.ETHERNET_II, PcapProtocol.IPV4, PcapProtocol.TCP, PcapProtocol.UDP };
+        List<PacketStreamBuilder> parallelBuilders = new ArrayList<>();
+        List<PacketStreamBuilder> sequentialBuilders = new ArrayList<>();
+        for (PcapProtocol protocol : protocols) {
+            parallelBuilders.add(new PacketStreamBuilder(protocol));
+            sequentialBuilders.add(new PacketStreamBuilder(protocol));
+        }
+
+        PacketStreamBuilder.parsePcapFile(path, parallelBuilders, null);
+
+        try (PcapFile file = new PcapFile(path)) {
+            while (file.hasNextPacket()) {
+                PcapPacket packet;
+                try {
+                    packet = file.parseNextPacket();
+                } catch (BadPacketException e) {
+                    continue;
+                }
+                if (packet == null) {
+                    break;
+                }
+                for (PacketStreamBuilder builder : sequentialBuilders) {
+                    builder.addPacketToStream(packet);
+                }
+            }
+        }
+
+        for (int i = 0; i < protocols.length; i++) {
+            PacketStreamBuilder expected = sequentialBuilders.get(i);
+            PacketStreamBuilder actual = parallelBuilders.get(i);
+            assertEquals(expected.getNbStreams(), actual.getNbStreams());
+            for (int id = 0; id < expected.getNbStreams(); id++) {
+                PacketStream expectedStream = expected.getStream(id);
+                PacketStream actualStream = actual.getStream(id);
+                assertNotNull(expectedStream);
+                assertNotNull(actualStream);
+                assertEquals(expectedStream.getUniqueID(), actualStream.getUniqueID());
+                assertEquals(expectedStream.getEndpointPair(), actualStream.getEndpointPair());
+                assertEquals(expectedStream.getNbPacketsAtoB(), actualStream.getNbPacketsAtoB());
+                assertEquals(expectedStream.getNbPacketsBtoA(), actualStream.getNbPacketsBtoA());
+                assertEquals(expectedStream.getNbBytesAtoB(), actualStream.getNbBytesAtoB());
+                assertEquals(expectedStream.getNbBytesBtoA(), actualStream.getNbBytesBtoA());
+                assertEquals(expectedStream.getStartTime(), actualStream.getStartTime());
+                assertEquals(expectedStream.getStopTime(), actualStream.getStopTime());
+            }
+        }
+    }
+
+    /**
+     * Write a pcap file of Ethernet II, IPv4 and TCP or UDP packets, between
+     * a few hosts and ports, so that the streams span several batches of the
+     * parallel parsing.
+     */
+    private static void writePcapFile(Path path, int nbPackets) throws IOException {
+        Random random = new Random(17);
+        ByteBuffer header = ByteBuffer.allocate(24).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(0xa1b2c3d4); /* Magic number, microseconds */
+        header.putShort((short) 2);
+        header.putShort((short) 4);
+        header.putInt(0); /* Time zone */
+        header.putInt(0); /* Accuracy */
+        header.putInt(65535); /* Snap length */
+        header.putInt(1); /* Ethernet */
+        header.flip();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(header);
+            for (int i = 0; i < nbPackets; i++) {
+                boolean tcp = random.nextBoolean();
+                int payload = random.nextInt(100);
+                int ipLength = 20 + (tcp ? 20 : 8) + payload;
+                int hostA = random.nextInt(6);
+                int hostB = random.nextInt(6);
+                int portA = 1000 + random.nextInt(4);
+                int portB = 80 + random.nextInt(3);
+
+                ByteBuffer packet = ByteBuffer.allocate(16 + 14 + ipLength);
+                packet.order(ByteOrder.LITTLE_ENDIAN);
+                packet.putInt(1000 + i / 1000);
+                packet.putInt((i % 1000) * 1000);
+                packet.putInt(14 + ipLength);
+                packet.putInt(14 + ipLength);
+
+                packet.order(ByteOrder.BIG_ENDIAN);
+                /* Ethernet II */
+                packet.put(new byte[] { 0, 1, 2, 3, 4, (byte) hostB });
+                packet.put(new byte[] { 0, 1, 2, 3, 4, (byte) hostA });
+                packet.putShort((short) 0x0800);
+                /* IPv4 */
+                packet.put((byte) 0x45);
+                packet.put((byte) 0);
+                packet.putShort((short) ipLength);
+                packet.putShort((short) i);
+                packet.putShort((short) 0);
+                packet.put((byte) 64);
+                packet.put((byte) (tcp ? 6 : 17));
+                packet.putShort((short) 0);
+                packet.put(new byte[] { 10, 0, 0, (byte) hostA });
+                packet.put(new byte[] { 10, 0, 0, (byte) hostB });
+                if (tcp) {
+                    packet.putShort((short) portA);
+                    packet.putShort((short) portB);
+                    packet.putInt(i);
+                    packet.putInt(0);
+                    packet.put((byte) 0x50);
+                    packet.put((byte) 0x18);
+                    packet.putShort((short) 1024);
+                    packet.putShort((short) 0);
+                    packet.putShort((short) 0);
+                } else {
+                    packet.putShort((short) portA);
+                    packet.putShort((short) portB);
+                    packet.putShort((short) (8 + payload));
+                    packet.putShort((short) 0);
+                }
+                packet.put(new byte[payload]);
+                packet.flip();
+                channel.write(packet);
+            }
+        }
+    }
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2014 Ericsson
+ * Copyright (c) 2014, 2015 Ericsson
  *
  * All rights reserved. This program and the accompanying materials are
  * made available under the terms of the Eclipse Public License v1.0 which
@@ -71,7 +71,7 @@ public class EthernetIIPacket extends Packet {
     public EthernetIIPacket(PcapFile file, @Nullable Packet parent, ByteBuffer packet) throws BadPacketException {
         super(file, parent, PcapProtocol.ETHERNET_II);
 
-        if (packet.array().length <= EthernetIIValues.ETHERNET_II_MIN_SIZE) {
+        if (packet.limit() <= EthernetIIValues.ETHERNET_II_MIN_SIZE) {
             throw new BadPacketException("An Ethernet II packet can't be smaller than 14 bytes."); //$NON-NLS-1$
         }
 
@@ -91,14 +91,10 @@ public class EthernetIIPacket extends Packet {
         fType = ConversionHelper.unsignedShortToInt(packet.getShort());
 
         // Get payload if it exists.
-        if (packet.array().length - packet.position() > 0) {
-            byte[] array = new byte[packet.array().length - packet.position()];
-            packet.get(array);
-            ByteBuffer payload = ByteBuffer.wrap(array);
-            if (payload != null) {
-                payload.order(ByteOrder.BIG_ENDIAN);
-                payload.position(0);
-            }
+        if (packet.remaining() > 0) {
+            ByteBuffer payload = packet.slice();
+            payload.order(ByteOrder.BIG_ENDIAN);
+            packet.position(packet.limit());
             fPayload = payload;
 
         } else {
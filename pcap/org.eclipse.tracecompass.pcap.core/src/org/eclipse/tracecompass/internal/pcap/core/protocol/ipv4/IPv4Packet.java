@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2014 Ericsson
+ * Copyright (c) 2014, 2015 Ericsson
  *
  * All rights reserved. This program and the accompanying materials are
  * made available under the terms of the Eclipse Public License v1.0 which
@@ -141,12 +141,10 @@ public class IPv4Packet extends Packet {
         }
 
         // Get payload if any.
-        if (packet.array().length - packet.position() > 0) {
-            byte[] array = new byte[packet.array().length - packet.position()];
-            packet.get(array);
-            ByteBuffer payload = ByteBuffer.wrap(array);
+        if (packet.remaining() > 0) {
+            ByteBuffer payload = packet.slice();
             payload.order(ByteOrder.BIG_ENDIAN);
-            payload.position(0);
+            packet.position(packet.limit());
             fPayload = payload;
         } else {
             fPayload = null;
@@ -488,7 +486,7 @@ public class IPv4Packet extends Packet {
         final ByteBuffer payload = fPayload;
         if (payload != null) {
             sb.append(" Len=") //$NON-NLS-1$
-            .append(payload.array().length);
+            .append(payload.limit());
         } else {
             sb.append(" Len=0"); //$NON-NLS-1$
         }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2014 Ericsson
+ * Copyright (c) 2014, 2015 Ericsson
  *
  * All rights reserved. This program and the accompanying materials are
  * made available under the terms of the Eclipse Public License v1.0 which
@@ -74,7 +74,7 @@ public class PcapPacket extends Packet {
     public PcapPacket(PcapFile file, @Nullable Packet parent, ByteBuffer header, @Nullable ByteBuffer payload, long index) throws BadPacketException {
         super(file, parent, PcapProtocol.PCAP);
 
-        if (header.array().length < PcapFileValues.PACKET_HEADER_SIZE) {
+        if (header.limit() < PcapFileValues.PACKET_HEADER_SIZE) {
             fChildPacket = null;
             throw new BadPacketException("The Pcap packet header is too small."); //$NON-NLS-1$
         }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2014 Ericsson
+ * Copyright (c) 2014, 2015 Ericsson
  *
  * All rights reserved. This program and the accompanying materials are
  * made available under the terms of the Eclipse Public License v1.0 which
@@ -124,12 +124,10 @@ public class TCPPacket extends Packet {
         }
 
         // Get payload if any.
-        if (packet.array().length - packet.position() > 0) {
-            byte[] array = new byte[packet.array().length - packet.position()];
-            packet.get(array);
-            ByteBuffer payload = ByteBuffer.wrap(array);
+        if (packet.remaining() > 0) {
+            ByteBuffer payload = packet.slice();
             payload.order(ByteOrder.BIG_ENDIAN);
-            payload.position(0);
+            packet.position(packet.limit());
             fPayload = payload;
         } else {
             fPayload = null;
@@ -173,7 +171,7 @@ public class TCPPacket extends Packet {
         final ByteBuffer payload = fPayload;
         int length = 0;
         if (payload != null) {
-            length = payload.array().length;
+            length = payload.limit();
         }
 
         String flagString = ""; // TODO Finish it. Im just too lazy. //$NON-NLS-1$
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2014 Ericsson
+ * Copyright (c) 2014, 2015 Ericsson
  *
  * All rights reserved. This program and the accompanying materials are
  * made available under the terms of the Eclipse Public License v1.0 which
@@ -77,13 +77,10 @@ public class UDPPacket extends Packet {
         fTotalLength = ConversionHelper.unsignedShortToInt(packet.getShort());
         fChecksum = ConversionHelper.unsignedShortToInt(packet.getShort());
 
-        if (packet.array().length - packet.position() > 0) {
-            byte[] array = new byte[packet.array().length - packet.position()];
-            packet.get(array);
-
-            ByteBuffer payload = ByteBuffer.wrap(array);
+        if (packet.remaining() > 0) {
+            ByteBuffer payload = packet.slice();
             payload.order(ByteOrder.BIG_ENDIAN);
-            payload.position(0);
+            packet.position(packet.limit());
             fPayload = payload;
         } else {
             fPayload = null;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2014 Ericsson
+ * Copyright (c) 2014, 2015 Ericsson
  *
  * All rights reserved. This program and the accompanying materials are
  * made available under the terms of the Eclipse Public License v1.0 which
@@ -87,9 +87,21 @@ public class UnknownPacket extends Packet {
         return null;
     }
 
+    /**
+     * Copy the bytes of the payload. The payload can be a read-only slice of
+     * the file, which is not backed by an accessible array.
+     */
+    private byte[] getPayloadBytes() {
+        ByteBuffer payload = fPayload.duplicate();
+        payload.position(0);
+        byte[] array = new byte[payload.limit()];
+        payload.get(array);
+        return array;
+    }
+
     @Override
     public String toString() {
-        byte[] array = checkNotNull(fPayload.array());
+        byte[] array = getPayloadBytes();
         String string = "Payload: " + ConversionHelper.bytesToHex(array, true); //$NON-NLS-1$
         final Packet child = fChildPacket;
         if (child != null) {
@@ -132,7 +144,7 @@ public class UnknownPacket extends Packet {
     public Map<String, String> getFields() {
         Map<String, String> map = fFields;
         if (map == null) {
-            byte[] array = checkNotNull(fPayload.array());
+            byte[] array = getPayloadBytes();
 
             Builder<String, String> builder = ImmutableMap.<String, String> builder()
                     .put("Binary", ConversionHelper.bytesToHex(array, true)); //$NON-NLS-1$
@@ -150,12 +162,12 @@ public class UnknownPacket extends Packet {
 
     @Override
     public String getLocalSummaryString() {
-        return "Len: " + fPayload.array().length + " bytes"; //$NON-NLS-1$ //$NON-NLS-2$
+        return "Len: " + fPayload.limit() + " bytes"; //$NON-NLS-1$ //$NON-NLS-2$
     }
 
     @Override
     protected String getSignificationString() {
-        return "Data: " + fPayload.array().length + " bytes"; //$NON-NLS-1$ //$NON-NLS-2$
+        return "Data: " + fPayload.limit() + " bytes"; //$NON-NLS-1$ //$NON-NLS-2$
     }
 
     @Override
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2014 Ericsson
+ * Copyright (c) 2014, 2015 Ericsson
  *
  * All rights reserved. This program and the accompanying materials are
  * made available under the terms of the Eclipse Public License v1.0 which
@@ -114,6 +114,31 @@ public class PacketStream {
         fEndTime = Math.max(fEndTime, timestamp);
     }
 
+    /**
+     * Add the packets of another stream between the same endpoints. The other
+     * stream can see the endpoints in the other order.
+     *
+     * @param other
+     *            The stream to merge into this one.
+     */
+    synchronized void merge(PacketStream other) {
+        synchronized (other) {
+            if (fEndpointPair.getFirstEndpoint().equals(other.fEndpointPair.getFirstEndpoint())) {
+                fNbPacketsAtoB += other.fNbPacketsAtoB;
+                fNbPacketsBtoA += other.fNbPacketsBtoA;
+                fNbBytesAtoB += other.fNbBytesAtoB;
+                fNbBytesBtoA += other.fNbBytesBtoA;
+            } else {
+                fNbPacketsAtoB += other.fNbPacketsBtoA;
+                fNbPacketsBtoA += other.fNbPacketsAtoB;
+                fNbBytesAtoB += other.fNbBytesBtoA;
+                fNbBytesBtoA += other.fNbBytesAtoB;
+            }
+            fStartTime = Math.min(fStartTime, other.fStartTime);
+            fEndTime = Math.max(fEndTime, other.fEndTime);
+        }
+    }
+
     /**
      * Get the Protocol of this stream.
      *
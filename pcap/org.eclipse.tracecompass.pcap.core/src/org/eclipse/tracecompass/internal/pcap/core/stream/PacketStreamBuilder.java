@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2014 Ericsson
+ * Copyright (c) 2014, 2015 Ericsson
  *
  * All rights reserved. This program and the accompanying materials are
  * made available under the terms of the Eclipse Public License v1.0 which
@@ -14,10 +14,23 @@ package org.eclipse.tracecompass.internal.pcap.core.stream;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.internal.pcap.core.endpoint.ProtocolEndpoint;
 import org.eclipse.tracecompass.internal.pcap.core.endpoint.ProtocolEndpointPair;
@@ -29,14 +42,23 @@ import org.eclipse.tracecompass.internal.pcap.core.protocol.PcapProtocol;
 import org.eclipse.tracecompass.internal.pcap.core.protocol.pcap.PcapPacket;
 import org.eclipse.tracecompass.internal.pcap.core.trace.BadPcapFileException;
 import org.eclipse.tracecompass.internal.pcap.core.trace.PcapFile;
+import org.eclipse.tracecompass.internal.pcap.core.trace.PcapFile.RawPacket;
 
 /**
  * Class that parse an entire pcap file to build the different streams.
  *
+ * A file is parsed in parallel: batches of consecutive packets are decoded and
+ * grouped into streams by worker threads, and the streams of each batch are
+ * merged into the builder in file order. The streams therefore get the same
+ * IDs as if the packets were added one by one.
+ *
  * @author Vincent Perot
  */
 public class PacketStreamBuilder {
 
+    /** Number of packets decoded by a worker at a time */
+    private static final int BATCH_SIZE = 4096;
+
     private final IPacketFilter fPacketFilter;
     private final PcapProtocol fProtocol;
 
@@ -44,6 +66,8 @@ public class PacketStreamBuilder {
     private final Map<ProtocolEndpointPair, Integer> fIDs;
     private int fCurrentId;
 
+    private double fThroughput;
+
     /**
      * Main constructor.
      *
@@ -136,7 +160,7 @@ public class PacketStreamBuilder {
     /**
      * Method that clears the builder.
      */
-    public void clear() {
+    public synchronized void clear() {
         fStreams.clear();
         fIDs.clear();
         fCurrentId = 0;
@@ -151,6 +175,17 @@ public class PacketStreamBuilder {
         return fStreams.size();
     }
 
+    /**
+     * Method that returns the throughput of the last file parsed by this
+     * builder.
+     *
+     * @return The number of packets parsed per second, or 0 if no file was
+     *         parsed.
+     */
+    public synchronized double getThroughput() {
+        return fThroughput;
+    }
+
     /**
      * Method that parse an entire file and build the streams contained in the
      * file.
@@ -162,21 +197,154 @@ public class PacketStreamBuilder {
      * @throws BadPcapFileException
      *             When the PcapFile is not valid.
      */
-    public synchronized void parsePcapFile(Path filePath) throws IOException, BadPcapFileException {
+    public void parsePcapFile(Path filePath) throws IOException, BadPcapFileException {
+        parsePcapFile(filePath, Collections.singleton(this), null);
+    }
+
+    /**
+     * Method that parse an entire file and build the streams of several
+     * builders at once. Each packet is read and decoded only once, by one of
+     * as many worker threads as there are processors.
+     *
+     * @param filePath
+     *            The file path.
+     * @param builders
+     *            The builders to which the packets are added.
+     * @param monitor
+     *            The progress monitor used to cancel the parsing, can be null
+     * @return The number of packets parsed.
+     * @throws IOException
+     *             When an IO error occurs.
+     * @throws BadPcapFileException
+     *             When the PcapFile is not valid.
+     */
+    public static long parsePcapFile(Path filePath, Collection<PacketStreamBuilder> builders, @Nullable IProgressMonitor monitor) throws IOException, BadPcapFileException {
+        final List<PacketStreamBuilder> builderList = new ArrayList<>(builders);
+        int nbThreads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+        Deque<Future<List<Map<ProtocolEndpointPair, PacketStream>>>> pending = new ArrayDeque<>();
+        long startTime = System.nanoTime();
+        long nbPackets = 0;
+
         try (PcapFile pcapFile = new PcapFile(filePath);) {
             while (pcapFile.hasNextPacket()) { // not eof
-                PcapPacket packet;
-                try {
-                    packet = pcapFile.parseNextPacket();
-                    if (packet == null) {
-                        return;
+                if (monitor != null && monitor.isCanceled()) {
+                    return nbPackets;
+                }
+                final List<RawPacket> batch = new ArrayList<>(BATCH_SIZE);
+                while (batch.size() < BATCH_SIZE && pcapFile.hasNextPacket()) {
+                    try {
+                        RawPacket packet = pcapFile.readNextPacket();
+                        if (packet == null) {
+                            break;
+                        }
+                        batch.add(packet);
+                    } catch (BadPacketException e) {
+                        // Ignore packet. Do nothing.
                     }
-                    addPacketToStream(packet);
-                } catch (BadPacketException e) {
-                    // Ignore packet. Do nothing.
                 }
+                nbPackets += batch.size();
+                pending.add(executor.submit(new Callable<List<Map<ProtocolEndpointPair, PacketStream>>>() {
+                    @Override
+                    public List<Map<ProtocolEndpointPair, PacketStream>> call() {
+                        return buildStreams(batch, builderList);
+                    }
+                }));
+
+                /* Bound the number of decoded batches waiting to be merged */
+                while (pending.size() > 2 * nbThreads) {
+                    mergeStreams(pending.removeFirst(), builderList);
+                }
+            }
+            while (!pending.isEmpty()) {
+                mergeStreams(pending.removeFirst(), builderList);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long duration = System.nanoTime() - startTime;
+        double throughput = (duration > 0 ? nbPackets * 1e9 / duration : 0);
+        for (PacketStreamBuilder builder : builderList) {
+            synchronized (builder) {
+                builder.fThroughput = throughput;
             }
         }
+        return nbPackets;
+    }
+
+    /**
+     * Decode a batch of packets and group them in streams, for each builder.
+     * This runs in a worker thread, the streams have temporary IDs.
+     */
+    private static List<Map<ProtocolEndpointPair, PacketStream>> buildStreams(List<RawPacket> batch, List<PacketStreamBuilder> builders) {
+        List<Map<ProtocolEndpointPair, PacketStream>> streams = new ArrayList<>(builders.size());
+        for (int i = 0; i < builders.size(); i++) {
+            streams.add(new LinkedHashMap<ProtocolEndpointPair, PacketStream>());
+        }
+        for (RawPacket rawPacket : batch) {
+            PcapPacket packet;
+            try {
+                packet = rawPacket.decode();
+            } catch (BadPacketException e) {
+                // Ignore packet. Do nothing.
+                continue;
+            }
+            for (int i = 0; i < builders.size(); i++) {
+                builders.get(i).addPacketToStream(packet, streams.get(i));
+            }
+        }
+        return streams;
+    }
+
+    private void addPacketToStream(PcapPacket packet, Map<ProtocolEndpointPair, PacketStream> streams) {
+        if (fPacketFilter.accepts(packet)) {
+            @Nullable Packet newPacket = packet.getPacket(fProtocol);
+            if (newPacket == null) {
+                return;
+            }
+            ProtocolEndpointPair endpointSet = new ProtocolEndpointPair(newPacket);
+            PacketStream stream = streams.get(endpointSet);
+            if (stream == null) {
+                stream = new PacketStream(fProtocol, streams.size(), endpointSet);
+                streams.put(endpointSet, stream);
+            }
+            stream.add(packet);
+        }
+    }
+
+    private static void mergeStreams(Future<List<Map<ProtocolEndpointPair, PacketStream>>> future, List<PacketStreamBuilder> builders) throws InterruptedException {
+        List<Map<ProtocolEndpointPair, PacketStream>> streams;
+        try {
+            streams = future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+        for (int i = 0; i < builders.size(); i++) {
+            builders.get(i).mergeStreams(streams.get(i).values());
+        }
+    }
 
+    /**
+     * Merge streams built from the next packets of the file. The new streams
+     * get the next IDs, in the order of their first packet.
+     */
+    private synchronized void mergeStreams(Collection<PacketStream> streams) {
+        for (PacketStream stream : streams) {
+            ProtocolEndpointPair endpointSet = stream.getEndpointPair();
+            Integer id = fIDs.get(endpointSet);
+            if (id == null) {
+                id = fCurrentId++;
+                fIDs.put(endpointSet, id);
+                fStreams.put(id, new PacketStream(fProtocol, id, endpointSet));
+            }
+            fStreams.get(id).merge(stream);
+        }
     }
 }
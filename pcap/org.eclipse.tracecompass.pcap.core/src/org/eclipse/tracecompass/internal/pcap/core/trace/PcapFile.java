@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2014 Ericsson
+ * Copyright (c) 2014, 2015 Ericsson
  *
  * All rights reserved. This program and the accompanying materials are
  * made available under the terms of the Eclipse Public License v1.0 which
@@ -18,10 +18,13 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.nio.channels.SeekableByteChannel;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.TreeMap;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.internal.pcap.core.packet.BadPacketException;
@@ -32,17 +35,36 @@ import org.eclipse.tracecompass.internal.pcap.core.util.PcapTimestampScale;
 /**
  * Class that allows the interaction with a pcap file.
  *
+ * The packets are read from a read-only memory mapping of the file, which is
+ * mapped one region at a time. The packets are copied out of that region, so
+ * a packet kept in memory does not also keep the whole region. The packets
+ * that are too big to be copied cheaply are mapped on their own instead.
+ *
  * @author Vincent Perot
  */
 public class PcapFile implements Closeable {
 
     // TODO add pcapng support.
-    // TODO Make parsing faster by buffering the data.
+
+    /**
+     * Number of packets between two checkpoints of the file index. Seeking to
+     * a packet skips at most this many packets from the nearest checkpoint.
+     */
+    private static final int CHECKPOINT_INTERVAL = 1000;
+    private static final int INITIAL_INDEX_SIZE = 64;
+
+    /** Default size of the regions of the file that are mapped in memory */
+    private static final int MAPPING_SIZE = 64 * 1024 * 1024;
+
+    /** Size above which the packets are mapped rather than copied */
+    private static final int MAX_COPIED_LENGTH = 64 * 1024;
 
     private final Path fPcapFilePath;
     private final ByteOrder fByteOrder;
-    private final SeekableByteChannel fFileChannel;
+    private final FileChannel fFileChannel;
+    private final long fFileSize;
     private final PcapTimestampScale fTimestampPrecision;
+    private final int fMappingSize;
 
     private final int fMajorVersion;
     private final int fMinorVersion;
@@ -51,11 +73,22 @@ public class PcapFile implements Closeable {
     private final long fSnapshotLength;
     private final long fDataLinkType;
 
-    private final TreeMap<Long, Long> fFileIndex;
+    /*
+     * File offset of every CHECKPOINT_INTERVAL-th packet, the offset of packet
+     * (i * CHECKPOINT_INTERVAL) being at index i. The checkpoints are added in
+     * order while reading the file, so they are always contiguous.
+     */
+    private long[] fFileIndex;
+    private int fNbCheckpoints;
 
     private long fCurrentRank;
     private long fTotalNumberPackets;
 
+    /* Position of the next packet in the file */
+    private long fPosition;
+    private @Nullable MappedByteBuffer fMappedRegion;
+    private long fMappedRegionStart;
+
     /**
      * Constructor of the PcapFile Class.
      *
@@ -68,8 +101,32 @@ public class PcapFile implements Closeable {
      *             Thrown if there is an IO error while reading the file.
      */
     public PcapFile(Path filePath) throws BadPcapFileException, IOException {
+        this(filePath, MAPPING_SIZE);
+    }
 
-        fFileIndex = new TreeMap<>();
+    /**
+     * Constructor of the PcapFile Class, with a given size of the regions of
+     * the file that are mapped in memory.
+     *
+     * @param filePath
+     *            The path to the pcap file.
+     * @param mappingSize
+     *            The size of the mapped regions, in bytes. It must be
+     *            positive.
+     *
+     * @throws BadPcapFileException
+     *             Thrown if the Pcap File is not valid.
+     * @throws IOException
+     *             Thrown if there is an IO error while reading the file.
+     */
+    public PcapFile(Path filePath, int mappingSize) throws BadPcapFileException, IOException {
+
+        if (mappingSize <= 0) {
+            throw new IllegalArgumentException("Invalid mapping size: " + mappingSize); //$NON-NLS-1$
+        }
+        fMappingSize = mappingSize;
+        fFileIndex = new long[INITIAL_INDEX_SIZE];
+        fNbCheckpoints = 0;
         fCurrentRank = 0;
         fTotalNumberPackets = -1;
         fPcapFilePath = filePath;
@@ -85,7 +142,8 @@ public class PcapFile implements Closeable {
         }
 
         // File is not empty. Try to open.
-        fFileChannel = checkNotNull(Files.newByteChannel(fPcapFilePath));
+        fFileChannel = checkNotNull(FileChannel.open(fPcapFilePath, StandardOpenOption.READ));
+        fFileSize = fFileChannel.size();
 
         // Parse the global header.
         // Read the magic number (4 bytes) from the input stream
@@ -129,10 +187,50 @@ public class PcapFile implements Closeable {
         fSnapshotLength = ConversionHelper.unsignedIntToLong(globalHeader.getInt());
         fDataLinkType = ConversionHelper.unsignedIntToLong(globalHeader.getInt());
 
-        fFileIndex.put(fCurrentRank, fFileChannel.position());
+        fPosition = PcapFileValues.GLOBAL_HEADER_SIZE;
+        addCheckpoint();
 
     }
 
+    /**
+     * A packet read from the file, but not decoded yet. Decoding it does not
+     * access the file, so it can be done by any thread.
+     */
+    public static final class RawPacket {
+
+        private final PcapFile fFile;
+        private final ByteBuffer fHeader;
+        private final ByteBuffer fData;
+        private final long fIndex;
+
+        private RawPacket(PcapFile file, ByteBuffer header, ByteBuffer data, long index) {
+            fFile = file;
+            fHeader = header;
+            fData = data;
+            fIndex = index;
+        }
+
+        /**
+         * Decode this packet
+         *
+         * @return The decoded Pcap Packet
+         * @throws BadPacketException
+         *             Thrown when the packet is erroneous.
+         */
+        public PcapPacket decode() throws BadPacketException {
+            return new PcapPacket(fFile, null, fHeader, fData, fIndex);
+        }
+
+        /**
+         * Getter method that returns the index of the packet.
+         *
+         * @return The index of the packet.
+         */
+        public long getIndex() {
+            return fIndex;
+        }
+    }
+
     /**
      * Method that allows the parsing of a packet at the current position.
      *
@@ -145,26 +243,35 @@ public class PcapFile implements Closeable {
      *             Thrown when the packet is erroneous.
      */
     public synchronized @Nullable PcapPacket parseNextPacket() throws IOException, BadPcapFileException, BadPacketException {
-
-        // Parse the packet header
-        if (fFileChannel.size() - fFileChannel.position() == 0) {
+        RawPacket packet = readNextPacket();
+        if (packet == null) {
             return null;
         }
-        if (fFileChannel.size() - fFileChannel.position() < PcapFileValues.PACKET_HEADER_SIZE) {
-            throw new BadPcapFileException("A pcap header is invalid."); //$NON-NLS-1$
-        }
-
-        ByteBuffer pcapPacketHeader = ByteBuffer.allocate(PcapFileValues.PACKET_HEADER_SIZE);
-        pcapPacketHeader.clear();
-        pcapPacketHeader.order(fByteOrder);
+        return packet.decode();
+    }
 
-        fFileChannel.read(pcapPacketHeader);
+    /**
+     * Method that reads the packet at the current position, without decoding
+     * it.
+     *
+     * @return The packet, or null at the end of the file.
+     * @throws IOException
+     *             Thrown when there is an error while reading the file.
+     * @throws BadPcapFileException
+     *             Thrown when a packet header is invalid.
+     * @throws BadPacketException
+     *             Thrown when the packet is too big to be read.
+     */
+    public synchronized @Nullable RawPacket readNextPacket() throws IOException, BadPcapFileException, BadPacketException {
 
-        pcapPacketHeader.flip();
-        pcapPacketHeader.position(PcapFileValues.INCLUDED_LENGTH_POSITION);
-        long includedPacketLength = ConversionHelper.unsignedIntToLong(pcapPacketHeader.getInt());
+        // Parse the packet header
+        ByteBuffer pcapPacketHeader = readPacketHeader();
+        if (pcapPacketHeader == null) {
+            return null;
+        }
+        long includedPacketLength = ConversionHelper.unsignedIntToLong(pcapPacketHeader.getInt(PcapFileValues.INCLUDED_LENGTH_POSITION));
 
-        if (fFileChannel.size() - fFileChannel.position() < includedPacketLength) {
+        if (fFileSize - fPosition < includedPacketLength) {
             throw new BadPcapFileException("A packet header is invalid."); //$NON-NLS-1$
         }
 
@@ -172,16 +279,12 @@ public class PcapFile implements Closeable {
             throw new BadPacketException("Packets that are bigger than 2^31-1 bytes are not supported."); //$NON-NLS-1$
         }
 
-        ByteBuffer pcapPacketData = ByteBuffer.allocate((int) includedPacketLength);
-        pcapPacketData.clear();
-        pcapPacketHeader.order(ByteOrder.BIG_ENDIAN); // Not really needed.
-        fFileChannel.read(pcapPacketData);
+        ByteBuffer pcapPacketData = read((int) includedPacketLength);
 
-        pcapPacketData.flip();
+        fCurrentRank++;
+        addCheckpoint();
 
-        fFileIndex.put(++fCurrentRank, fFileChannel.position());
-
-        return new PcapPacket(this, null, pcapPacketHeader, pcapPacketData, fCurrentRank - 1);
+        return new RawPacket(this, pcapPacketHeader, pcapPacketData, fCurrentRank - 1);
 
     }
 
@@ -196,30 +299,20 @@ public class PcapFile implements Closeable {
     public synchronized void skipNextPacket() throws IOException, BadPcapFileException {
 
         // Parse the packet header
-        if (fFileChannel.size() - fFileChannel.position() == 0) {
+        ByteBuffer pcapPacketHeader = readPacketHeader();
+        if (pcapPacketHeader == null) {
             return;
         }
-        if (fFileChannel.size() - fFileChannel.position() < PcapFileValues.PACKET_HEADER_SIZE) {
-            throw new BadPcapFileException("A pcap header is invalid."); //$NON-NLS-1$
-        }
-
-        ByteBuffer pcapPacketHeader = ByteBuffer.allocate(PcapFileValues.PACKET_HEADER_SIZE);
-        pcapPacketHeader.clear();
-        pcapPacketHeader.order(fByteOrder);
-
-        fFileChannel.read(pcapPacketHeader);
+        long includedPacketLength = ConversionHelper.unsignedIntToLong(pcapPacketHeader.getInt(PcapFileValues.INCLUDED_LENGTH_POSITION));
 
-        pcapPacketHeader.flip();
-        pcapPacketHeader.position(PcapFileValues.INCLUDED_LENGTH_POSITION);
-        long includedPacketLength = ConversionHelper.unsignedIntToLong(pcapPacketHeader.getInt());
-
-        if (fFileChannel.size() - fFileChannel.position() < includedPacketLength) {
+        if (fFileSize - fPosition < includedPacketLength) {
             throw new BadPcapFileException("A packet header is invalid."); //$NON-NLS-1$
         }
 
-        fFileChannel.position(fFileChannel.position() + includedPacketLength);
+        fPosition += includedPacketLength;
 
-        fFileIndex.put(++fCurrentRank, fFileChannel.position());
+        fCurrentRank++;
+        addCheckpoint();
 
     }
 
@@ -241,20 +334,21 @@ public class PcapFile implements Closeable {
             throw new IllegalArgumentException();
         }
 
-        Long positionInBytes = fFileIndex.get(rank);
-
-        if (positionInBytes != null) {
-            // Index is known. Move to position.
-            fFileChannel.position(positionInBytes.longValue());
-            fCurrentRank = rank;
-        } else {
-            // Index is unknown. Find the corresponding position.
-            // Find closest index
-            fCurrentRank = fFileIndex.floorKey(rank);
-            // skip until wanted packet is found
-            do {
-                skipNextPacket();
-            } while (fCurrentRank != rank && hasNextPacket());
+        if (rank == fCurrentRank) {
+            // Already there, as when reading the packets in order.
+            return;
+        }
+
+        if (rank < fCurrentRank || rank / CHECKPOINT_INTERVAL != fCurrentRank / CHECKPOINT_INTERVAL) {
+            // Move to the closest checkpoint.
+            int checkpoint = (int) Math.min(rank / CHECKPOINT_INTERVAL, fNbCheckpoints - 1);
+            fPosition = fFileIndex[checkpoint];
+            fCurrentRank = (long) checkpoint * CHECKPOINT_INTERVAL;
+        }
+
+        // skip until wanted packet is found
+        while (fCurrentRank != rank && hasNextPacket()) {
+            skipNextPacket();
         }
     }
 
@@ -267,7 +361,7 @@ public class PcapFile implements Closeable {
      *             If some IO error occurs.
      */
     public synchronized boolean hasNextPacket() throws IOException {
-        return ((fFileChannel.size() - fFileChannel.position()) > 0);
+        return ((fFileSize - fPosition) > 0);
     }
 
     /**
@@ -355,14 +449,12 @@ public class PcapFile implements Closeable {
     public synchronized long getTotalNbPackets() throws IOException, BadPcapFileException {
         if (fTotalNumberPackets == -1) {
             long rank = fCurrentRank;
-            fCurrentRank = fFileIndex.floorKey(rank);
 
             // skip until end of file.
             while (hasNextPacket()) {
                 skipNextPacket();
             }
             fTotalNumberPackets = fCurrentRank;
-            fCurrentRank = rank;
             seekPacket(rank);
         }
         return fTotalNumberPackets;
@@ -387,8 +479,77 @@ public class PcapFile implements Closeable {
         return fTimestampPrecision;
     }
 
+    /**
+     * Add the current position to the file index, if the current packet is
+     * the next checkpoint.
+     */
+    private void addCheckpoint() throws IOException {
+        if (fCurrentRank % CHECKPOINT_INTERVAL != 0 || fCurrentRank / CHECKPOINT_INTERVAL != fNbCheckpoints) {
+            return;
+        }
+        if (fNbCheckpoints == fFileIndex.length) {
+            fFileIndex = Arrays.copyOf(fFileIndex, fNbCheckpoints * 2);
+        }
+        fFileIndex[fNbCheckpoints++] = fPosition;
+    }
+
+    /**
+     * Read the header of the next packet, in the file endianness.
+     *
+     * @return The header, or null at the end of the file
+     */
+    private @Nullable ByteBuffer readPacketHeader() throws IOException, BadPcapFileException {
+        if (fFileSize - fPosition == 0) {
+            return null;
+        }
+        if (fFileSize - fPosition < PcapFileValues.PACKET_HEADER_SIZE) {
+            throw new BadPcapFileException("A pcap header is invalid."); //$NON-NLS-1$
+        }
+        ByteBuffer header = read(PcapFileValues.PACKET_HEADER_SIZE);
+        header.order(fByteOrder);
+        return header;
+    }
+
+    /**
+     * Read the bytes of the file at the current position, and move the
+     * position after them. They are copied from the mapped region of the
+     * file, which is moved if they are not entirely in it. Above
+     * {@link #MAX_COPIED_LENGTH}, they are mapped on their own instead, so the
+     * memory they keep is never much more than their own size.
+     *
+     * @param length
+     *            The number of bytes, which must not go past the end of the
+     *            file
+     * @return The bytes, in big endian
+     */
+    private ByteBuffer read(int length) throws IOException {
+        if (length > MAX_COPIED_LENGTH) {
+            ByteBuffer buffer = checkNotNull(fFileChannel.map(MapMode.READ_ONLY, fPosition, length));
+            fPosition += length;
+            return buffer;
+        }
+        MappedByteBuffer region = fMappedRegion;
+        if (region == null || fPosition < fMappedRegionStart ||
+                fPosition + length > fMappedRegionStart + region.limit()) {
+            long size = Math.min(Math.max(fMappingSize, length), fFileSize - fPosition);
+            region = checkNotNull(fFileChannel.map(MapMode.READ_ONLY, fPosition, size));
+            fMappedRegion = region;
+            fMappedRegionStart = fPosition;
+        }
+        int offset = (int) (fPosition - fMappedRegionStart);
+        ByteBuffer slice = region.duplicate();
+        slice.limit(offset + length);
+        slice.position(offset);
+        ByteBuffer buffer = checkNotNull(ByteBuffer.allocate(length));
+        buffer.put(slice);
+        buffer.flip();
+        fPosition += length;
+        return buffer;
+    }
+
     @Override
-    public void close() throws IOException {
+    public synchronized void close() throws IOException {
+        fMappedRegion = null;
         fFileChannel.close();
     }
 
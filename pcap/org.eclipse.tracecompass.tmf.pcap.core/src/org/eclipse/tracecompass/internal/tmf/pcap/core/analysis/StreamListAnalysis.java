@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2014 Ericsson
+ * Copyright (c) 2014, 2015 Ericsson
  *
  * All rights reserved. This program and the accompanying materials are
  * made available under the terms of the Eclipse Public License v1.0 which
@@ -12,6 +12,8 @@
 
 package org.eclipse.tracecompass.internal.tmf.pcap.core.analysis;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -19,6 +21,8 @@ import java.util.Map;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.internal.pcap.core.trace.BadPcapFileException;
+import org.eclipse.tracecompass.internal.tmf.pcap.core.Activator;
 import org.eclipse.tracecompass.internal.tmf.pcap.core.event.PcapEvent;
 import org.eclipse.tracecompass.internal.tmf.pcap.core.event.TmfPacketStreamBuilder;
 import org.eclipse.tracecompass.internal.tmf.pcap.core.protocol.TmfPcapProtocol;
@@ -35,6 +39,10 @@ import org.eclipse.tracecompass.tmf.core.trace.experiment.TmfExperiment;
 /**
  * A pcap-specific analysis that parse an entire trace to find all the streams.
  *
+ * The file of a single pcap trace is parsed directly, by several threads. The
+ * traces of an experiment, or a file that could not be parsed, are read with
+ * an event request.
+ *
  * @author Vincent Perot
  */
 public class StreamListAnalysis extends TmfAbstractAnalysisModule {
@@ -45,6 +53,7 @@ public class StreamListAnalysis extends TmfAbstractAnalysisModule {
     public static final String ID = "org.eclipse.linuxtools.tmf.pcap.core.analysis.stream"; //$NON-NLS-1$
 
     private @Nullable ITmfEventRequest fRequest;
+    private volatile boolean fFileParsed = false;
     private final Map<TmfPcapProtocol, TmfPacketStreamBuilder> fBuilders;
 
     /**
@@ -100,6 +109,19 @@ public class StreamListAnalysis extends TmfAbstractAnalysisModule {
             request.cancel();
         }
 
+        if (trace instanceof PcapTrace) {
+            if (parseFile((PcapTrace) trace, mon)) {
+                return true;
+            }
+            if (mon.isCanceled()) {
+                return false;
+            }
+            /* Read the events of the trace instead */
+            for (TmfPacketStreamBuilder builder : fBuilders.values()) {
+                builder.clear();
+            }
+        }
+
         request = new TmfEventRequest(PcapEvent.class,
                 TmfTimeRange.ETERNITY, 0L, ITmfEventRequest.ALL_DATA,
                 ITmfEventRequest.ExecutionType.BACKGROUND) {
@@ -131,6 +153,40 @@ public class StreamListAnalysis extends TmfAbstractAnalysisModule {
 
     }
 
+    /**
+     * Parse the file of a pcap trace directly.
+     *
+     * @return True if the whole file was parsed, false if the parsing was
+     *         cancelled or failed
+     */
+    private boolean parseFile(PcapTrace trace, IProgressMonitor monitor) {
+        String path = trace.getPath();
+        if (path == null) {
+            return false;
+        }
+        long nbPackets;
+        try {
+            nbPackets = TmfPacketStreamBuilder.parsePcapFile(Paths.get(path), fBuilders.values(), monitor);
+        } catch (IOException | BadPcapFileException e) {
+            String message = e.getMessage();
+            if (message == null) {
+                message = ""; //$NON-NLS-1$
+            }
+            Activator.logError(message, e);
+            return false;
+        }
+        if (monitor.isCanceled()) {
+            return false;
+        }
+        if (!fBuilders.isEmpty()) {
+            double throughput = fBuilders.values().iterator().next().getThroughput();
+            Activator.logInfo(String.format("Stream list of %s: %d packets parsed, %.0f packets/s", //$NON-NLS-1$
+                    trace.getName(), nbPackets, throughput));
+        }
+        fFileParsed = true;
+        return true;
+    }
+
     @Override
     protected void canceling() {
         ITmfEventRequest req = fRequest;
@@ -157,6 +213,9 @@ public class StreamListAnalysis extends TmfAbstractAnalysisModule {
      * @return Whether the analysis is finished or not.
      */
     public boolean isFinished() {
+        if (fFileParsed) {
+            return true;
+        }
         ITmfEventRequest req = fRequest;
         if (req == null) {
             return false;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2014 Ericsson
+ * Copyright (c) 2014, 2015 Ericsson
  *
  * All rights reserved. This program and the accompanying materials are
  * made available under the terms of the Eclipse Public License v1.0 which
@@ -12,14 +12,20 @@
 
 package org.eclipse.tracecompass.internal.tmf.pcap.core.event;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.internal.pcap.core.packet.Packet;
 import org.eclipse.tracecompass.internal.pcap.core.protocol.PcapProtocol;
 import org.eclipse.tracecompass.internal.pcap.core.protocol.pcap.PcapPacket;
 import org.eclipse.tracecompass.internal.pcap.core.stream.PacketStream;
 import org.eclipse.tracecompass.internal.pcap.core.stream.PacketStreamBuilder;
+import org.eclipse.tracecompass.internal.pcap.core.trace.BadPcapFileException;
 import org.eclipse.tracecompass.internal.tmf.pcap.core.protocol.TmfPcapProtocol;
 import org.eclipse.tracecompass.internal.tmf.pcap.core.util.ProtocolConversion;
 
@@ -57,6 +63,47 @@ public class TmfPacketStreamBuilder {
         fBuilder.addPacketToStream(pcapPacket);
     }
 
+    /**
+     * Method that parses a whole pcap file and adds its packets to several
+     * builders at once. The packets are decoded by several threads.
+     *
+     * @param filePath
+     *            The path of the pcap file.
+     * @param builders
+     *            The builders to which the packets are added.
+     * @param monitor
+     *            The progress monitor used to cancel the parsing, can be null
+     * @return The number of packets parsed.
+     * @throws IOException
+     *             When an IO error occurs.
+     * @throws BadPcapFileException
+     *             When the pcap file is not valid.
+     */
+    public static long parsePcapFile(Path filePath, Collection<TmfPacketStreamBuilder> builders, @Nullable IProgressMonitor monitor) throws IOException, BadPcapFileException {
+        List<PacketStreamBuilder> list = new ArrayList<>();
+        for (TmfPacketStreamBuilder builder : builders) {
+            list.add(builder.fBuilder);
+        }
+        return PacketStreamBuilder.parsePcapFile(filePath, list, monitor);
+    }
+
+    /**
+     * Method that returns the throughput of the last file parsed by this
+     * builder.
+     *
+     * @return The number of packets parsed per second.
+     */
+    public synchronized double getThroughput() {
+        return fBuilder.getThroughput();
+    }
+
+    /**
+     * Method that clears the builder.
+     */
+    public synchronized void clear() {
+        fBuilder.clear();
+    }
+
     /**
      * Method that returns the number of streams built.
      *
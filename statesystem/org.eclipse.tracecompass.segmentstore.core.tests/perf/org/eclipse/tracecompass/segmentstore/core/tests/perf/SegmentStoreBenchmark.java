@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.segmentstore.core.tests.perf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.eclipse.test.performance.Dimension;
+import org.eclipse.test.performance.Performance;
+import org.eclipse.test.performance.PerformanceMeter;
+import org.eclipse.tracecompass.segmentstore.core.ISegment;
+import org.eclipse.tracecompass.segmentstore.core.ISegmentStore;
+import org.eclipse.tracecompass.segmentstore.core.intervaltree.IntervalTreeStore;
+import org.eclipse.tracecompass.segmentstore.core.ondisk.OnDiskSegmentStore;
+import org.eclipse.tracecompass.segmentstore.core.treemap.TreeMapStore;
+import org.junit.Test;
+
+/**
+ * Benchmark of the segment stores, comparing the time to fill them with
+ * segments and the time to run intersection queries on them, like the
+ * latency views do when scrolling. The first query of the on-disk store
+ * includes the merge of its sorted runs.
+ */
+public class SegmentStoreBenchmark {
+
+    private static final String TEST_SUITE_NAME = "Segment Store Benchmark";
+    private static final String TEST_ID = "org.eclipse.linuxtools#" + TEST_SUITE_NAME;
+
+    private static final int LOOP_COUNT = 10;
+    private static final int NB_SEGMENTS = 100000;
+    private static final int NB_QUERIES = 1000;
+    private static final long RANGE = 1000000000L;
+    private static final long QUERY_LENGTH = 100000;
+
+    /**
+     * Segment used for the benchmark
+     */
+    private static final class BenchmarkSegment implements ISegment {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long fStart;
+        private final long fEnd;
+
+        public BenchmarkSegment(long start, long end) {
+            fStart = start;
+            fEnd = end;
+        }
+
+        @Override
+        public long getStart() {
+            return fStart;
+        }
+
+        @Override
+        public long getEnd() {
+            return fEnd;
+        }
+
+        @Override
+        public long getLength() {
+            return fEnd - fStart;
+        }
+    }
+
+    /**
+     * Run the benchmark with the tree map store
+     */
+    @Test
+    public void testTreeMapStore() {
+        runTest(new StoreFactory() {
+            @Override
+            public ISegmentStore<BenchmarkSegment> create() {
+                return new TreeMapStore<>();
+            }
+        }, "TreeMapStore");
+    }
+
+    /**
+     * Run the benchmark with the interval tree store
+     */
+    @Test
+    public void testIntervalTreeStore() {
+        runTest(new StoreFactory() {
+            @Override
+            public ISegmentStore<BenchmarkSegment> create() {
+                return new IntervalTreeStore<>();
+            }
+        }, "IntervalTreeStore");
+    }
+
+    /**
+     * Run the benchmark with the on-disk store
+     */
+    @Test
+    public void testOnDiskSegmentStore() {
+        runTest(new StoreFactory() {
+            @Override
+            public ISegmentStore<BenchmarkSegment> create() {
+                try {
+                    File file = File.createTempFile("benchmark", ".dat");
+                    return new OnDiskSegmentStore<>(file);
+                } catch (IOException e) {
+                    fail(e.getMessage());
+                    throw new IllegalStateException(e);
+                }
+            }
+        }, "OnDiskSegmentStore");
+    }
+
+    private interface StoreFactory {
+        ISegmentStore<BenchmarkSegment> create();
+    }
+
+    private static void runTest(StoreFactory factory, String testName) {
+        Performance perf = Performance.getDefault();
+        PerformanceMeter fillPm = perf.createPerformanceMeter(TEST_ID + "#Fill " + testName);
+        PerformanceMeter queryPm = perf.createPerformanceMeter(TEST_ID + "#Query " + testName);
+        perf.tagAsSummary(fillPm, TEST_SUITE_NAME + ": Fill " + testName, Dimension.CPU_TIME);
+        perf.tagAsSummary(queryPm, TEST_SUITE_NAME + ": Query " + testName, Dimension.CPU_TIME);
+
+        for (int i = 0; i < LOOP_COUNT; i++) {
+            Random rnd = new Random(1000);
+
+            fillPm.start();
+            ISegmentStore<BenchmarkSegment> store = factory.create();
+            for (int j = 0; j < NB_SEGMENTS; j++) {
+                /* Mostly short segments, with a few long outliers */
+                long start = (long) (rnd.nextDouble() * RANGE);
+                long length = (j % 1000 == 0 ? (long) (rnd.nextDouble() * RANGE / 10) : rnd.nextInt(10000));
+                store.addElement(new BenchmarkSegment(start, start + length));
+            }
+            fillPm.stop();
+            assertEquals(NB_SEGMENTS, store.getNbElements());
+
+            queryPm.start();
+            long count = 0;
+            for (int j = 0; j < NB_QUERIES; j++) {
+                long start = (long) (rnd.nextDouble() * RANGE);
+                for (BenchmarkSegment segment : store.getIntersectingElements(start, start + QUERY_LENGTH)) {
+                    count += segment.getLength();
+                }
+            }
+            queryPm.stop();
+            assertTrue(count > 0);
+
+            store.dispose();
+        }
+        fillPm.commit();
+        queryPm.commit();
+    }
+}
@@ -12,6 +12,8 @@
 
 package org.eclipse.tracecompass.segmentstore.core.tests;
 
+import org.eclipse.tracecompass.segmentstore.core.tests.intervaltree.IntervalTreeStoreTest;
+import org.eclipse.tracecompass.segmentstore.core.tests.ondisk.OnDiskSegmentStoreTest;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
@@ -20,7 +22,8 @@ import org.junit.runners.Suite;
  */
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
-        // No tests at the moment!
+        IntervalTreeStoreTest.class,
+        OnDiskSegmentStoreTest.class
 })
 public class AllTests {
 
@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.segmentstore.core.tests.intervaltree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.tracecompass.segmentstore.core.ISegment;
+import org.eclipse.tracecompass.segmentstore.core.intervaltree.IntervalTreeStore;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Unit tests for the interval tree segment store, comparing its results with
+ * a linear search in the list of segments.
+ */
+public class IntervalTreeStoreTest {
+
+    private static final int NB_SEGMENTS = 5000;
+    private static final long RANGE = 100000;
+
+    private IntervalTreeStore<TestSegment> fStore;
+    private List<TestSegment> fSegments;
+
+    /**
+     * Test segment, which is only equal to itself
+     */
+    private static final class TestSegment implements ISegment {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long fStart;
+        private final long fEnd;
+
+        public TestSegment(long start, long end) {
+            fStart = start;
+            fEnd = end;
+        }
+
+        @Override
+        public long getStart() {
+            return fStart;
+        }
+
+        @Override
+        public long getEnd() {
+            return fEnd;
+        }
+
+        @Override
+        public long getLength() {
+            return fEnd - fStart;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + fStart + ", " + fEnd + "]";
+        }
+    }
+
+    /**
+     * Fill a store with random segments, mostly short, some very long
+     */
+    @Before
+    public void setup() {
+        fStore = new IntervalTreeStore<>();
+        fSegments = new ArrayList<>();
+        Random rnd = new Random(42);
+        for (int i = 0; i < NB_SEGMENTS; i++) {
+            long start = (long) (rnd.nextDouble() * RANGE);
+            long length = (i % 100 == 0 ? (long) (rnd.nextDouble() * RANGE) : rnd.nextInt(100));
+            TestSegment segment = new TestSegment(start, start + length);
+            fSegments.add(segment);
+            fStore.addElement(segment);
+        }
+    }
+
+    private List<TestSegment> linearSearch(long start, long end) {
+        List<TestSegment> matches = new ArrayList<>();
+        for (TestSegment segment : fSegments) {
+            if (segment.getStart() <= end && segment.getEnd() >= start) {
+                matches.add(segment);
+            }
+        }
+        return matches;
+    }
+
+    private static void assertSameElements(List<TestSegment> expected, Iterable<TestSegment> actual) {
+        List<TestSegment> actualList = Lists.newArrayList(actual);
+        assertEquals(expected.size(), actualList.size());
+        assertTrue(actualList.containsAll(expected));
+        for (int i = 1; i < actualList.size(); i++) {
+            assertTrue(actualList.get(i - 1).getStart() <= actualList.get(i).getStart());
+        }
+    }
+
+    /**
+     * Test the number of elements and their order
+     */
+    @Test
+    public void testElementAtIndex() {
+        assertEquals(NB_SEGMENTS, fStore.getNbElements());
+        for (int i = 1; i < NB_SEGMENTS; i++) {
+            assertTrue(fStore.getElementAtIndex(i - 1).getStart() <= fStore.getElementAtIndex(i).getStart());
+        }
+        assertSameElements(fSegments, fStore);
+    }
+
+    /**
+     * Test intersection queries at single positions
+     */
+    @Test
+    public void testIntersectingPosition() {
+        for (long position = -10; position < RANGE * 2; position += 997) {
+            assertSameElements(linearSearch(position, position), fStore.getIntersectingElements(position));
+        }
+    }
+
+    /**
+     * Test intersection queries on ranges
+     */
+    @Test
+    public void testIntersectingRange() {
+        Random rnd = new Random(7);
+        for (int i = 0; i < 200; i++) {
+            long start = (long) (rnd.nextDouble() * RANGE);
+            long end = start + rnd.nextInt(5000);
+            assertSameElements(linearSearch(start, end), fStore.getIntersectingElements(start, end));
+        }
+        assertSameElements(fSegments, fStore.getIntersectingElements(Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+
+    /**
+     * Test adding elements after queries were done, the iterables obtained
+     * before should not see them
+     */
+    @Test
+    public void testAddAfterQuery() {
+        /* The random segments all end before 2 * RANGE */
+        long position = 3 * RANGE;
+        Iterable<TestSegment> before = fStore.getIntersectingElements(position);
+        assertFalse(before.iterator().hasNext());
+
+        TestSegment segment = new TestSegment(position - 5, position + 5);
+        fSegments.add(segment);
+        fStore.addElement(segment);
+
+        assertEquals(NB_SEGMENTS + 1, fStore.getNbElements());
+        assertFalse(before.iterator().hasNext());
+        assertSameElements(linearSearch(position, position), fStore.getIntersectingElements(position));
+        assertEquals(segment, fStore.getElementAtIndex(NB_SEGMENTS));
+    }
+
+    /**
+     * Test an empty store
+     */
+    @Test
+    public void testEmpty() {
+        IntervalTreeStore<TestSegment> store = new IntervalTreeStore<>();
+        assertEquals(0, store.getNbElements());
+        assertFalse(store.iterator().hasNext());
+        assertFalse(store.getIntersectingElements(0, RANGE).iterator().hasNext());
+        fStore.dispose();
+        assertEquals(0, fStore.getNbElements());
+    }
+}
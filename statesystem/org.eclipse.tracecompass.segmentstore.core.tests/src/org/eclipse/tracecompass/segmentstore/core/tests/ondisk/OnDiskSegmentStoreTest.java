@@ -0,0 +1,226 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.segmentstore.core.tests.ondisk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.segmentstore.core.ISegment;
+import org.eclipse.tracecompass.segmentstore.core.ondisk.OnDiskSegmentStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Unit tests for the on-disk segment store, with enough segments to be
+ * spilled in many runs and blocks.
+ */
+public class OnDiskSegmentStoreTest {
+
+    private static final int NB_SEGMENTS = 150000;
+    private static final long RANGE = 10000000;
+
+    private File fFile;
+    private OnDiskSegmentStore<TestSegment> fStore;
+    private List<TestSegment> fSegments;
+
+    /**
+     * Test segment, compared by value since the store returns copies
+     */
+    private static final class TestSegment implements ISegment {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long fStart;
+        private final long fEnd;
+        private final int fId;
+
+        public TestSegment(long start, long end, int id) {
+            fStart = start;
+            fEnd = end;
+            fId = id;
+        }
+
+        @Override
+        public long getStart() {
+            return fStart;
+        }
+
+        @Override
+        public long getEnd() {
+            return fEnd;
+        }
+
+        @Override
+        public long getLength() {
+            return fEnd - fStart;
+        }
+
+        @Override
+        public int hashCode() {
+            return fId;
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            if (!(obj instanceof TestSegment)) {
+                return false;
+            }
+            TestSegment other = (TestSegment) obj;
+            return fStart == other.fStart && fEnd == other.fEnd && fId == other.fId;
+        }
+
+        @Override
+        public String toString() {
+            return fId + ": [" + fStart + ", " + fEnd + "]";
+        }
+    }
+
+    /**
+     * Fill a store with random segments
+     *
+     * @throws IOException
+     *             If the store file cannot be created
+     */
+    @Before
+    public void setup() throws IOException {
+        fFile = File.createTempFile("segments", ".dat");
+        fStore = new OnDiskSegmentStore<>(fFile, 8);
+        fSegments = new ArrayList<>();
+        Random rnd = new Random(42);
+        for (int i = 0; i < NB_SEGMENTS; i++) {
+            long start = (long) (rnd.nextDouble() * RANGE);
+            long length = (i % 1000 == 0 ? (long) (rnd.nextDouble() * RANGE) : rnd.nextInt(1000));
+            TestSegment segment = new TestSegment(start, start + length, i);
+            fSegments.add(segment);
+            fStore.addElement(segment);
+        }
+        /* Stable sort, like the store */
+        Collections.sort(fSegments, new Comparator<TestSegment>() {
+            @Override
+            public int compare(TestSegment o1, TestSegment o2) {
+                return Long.compare(o1.getStart(), o2.getStart());
+            }
+        });
+    }
+
+    /**
+     * Delete the store file
+     */
+    @After
+    public void cleanup() {
+        fStore.dispose();
+        assertFalse(fFile.exists());
+    }
+
+    private List<TestSegment> linearSearch(long start, long end) {
+        List<TestSegment> matches = new ArrayList<>();
+        for (TestSegment segment : fSegments) {
+            if (segment.getStart() <= end && segment.getEnd() >= start) {
+                matches.add(segment);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Test the number of elements and their order
+     */
+    @Test
+    public void testElementAtIndex() {
+        assertEquals(NB_SEGMENTS, fStore.getNbElements());
+        for (int i = 0; i < NB_SEGMENTS; i += 37) {
+            assertEquals(fSegments.get(i), fStore.getElementAtIndex(i));
+        }
+        assertEquals(fSegments.get(NB_SEGMENTS - 1), fStore.getElementAtIndex(NB_SEGMENTS - 1));
+        assertEquals(fSegments, Lists.newArrayList(fStore));
+    }
+
+    /**
+     * Test intersection queries on positions and ranges
+     */
+    @Test
+    public void testIntersecting() {
+        Random rnd = new Random(7);
+        for (int i = 0; i < 50; i++) {
+            long start = (long) (rnd.nextDouble() * RANGE);
+            long end = start + rnd.nextInt(100000);
+            assertEquals(linearSearch(start, start), Lists.newArrayList(fStore.getIntersectingElements(start)));
+            assertEquals(linearSearch(start, end), Lists.newArrayList(fStore.getIntersectingElements(start, end)));
+        }
+    }
+
+    /**
+     * Test intersection queries before, after and around the segments, where
+     * the first block to read is at either end of the file
+     */
+    @Test
+    public void testIntersectingBounds() {
+        long lastEnd = Long.MIN_VALUE;
+        for (TestSegment segment : fSegments) {
+            lastEnd = Math.max(lastEnd, segment.getEnd());
+        }
+        long[][] ranges = {
+                { Long.MIN_VALUE, -1 },
+                { Long.MIN_VALUE, 0 },
+                { 0, 1000 },
+                { RANGE - 1000, RANGE },
+                { lastEnd, lastEnd },
+                { lastEnd + 1, Long.MAX_VALUE },
+                { Long.MIN_VALUE, Long.MAX_VALUE }
+        };
+        for (long[] range : ranges) {
+            assertEquals(linearSearch(range[0], range[1]), Lists.newArrayList(fStore.getIntersectingElements(range[0], range[1])));
+        }
+        assertTrue(Lists.newArrayList(fStore.getIntersectingElements(lastEnd + 1, Long.MAX_VALUE)).isEmpty());
+    }
+
+    /**
+     * Test adding elements after a first merge
+     */
+    @Test
+    public void testAddAfterMerge() {
+        assertEquals(fSegments.get(0), fStore.getElementAtIndex(0));
+        Iterator<TestSegment> iter = fStore.iterator();
+        assertTrue(iter.hasNext());
+
+        TestSegment segment = new TestSegment(-10, 5, NB_SEGMENTS);
+        fSegments.add(0, segment);
+        fStore.addElement(segment);
+
+        assertEquals(NB_SEGMENTS + 1, fStore.getNbElements());
+        assertEquals(segment, fStore.getElementAtIndex(0));
+        assertEquals(linearSearch(0, 100), Lists.newArrayList(fStore.getIntersectingElements(0, 100)));
+
+        /* The first iterator was on the previous version of the file */
+        try {
+            while (iter.hasNext()) {
+                iter.next();
+            }
+            assertTrue("Expected ConcurrentModificationException", false);
+        } catch (ConcurrentModificationException e) {
+            /* Expected */
+        }
+    }
+}
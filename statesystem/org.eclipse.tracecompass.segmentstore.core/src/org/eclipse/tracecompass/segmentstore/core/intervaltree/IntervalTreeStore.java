@@ -0,0 +1,274 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.segmentstore.core.intervaltree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.segmentstore.core.ISegment;
+import org.eclipse.tracecompass.segmentstore.core.ISegmentStore;
+
+import com.google.common.collect.AbstractIterator;
+
+/**
+ * Implementation of a {@link ISegmentStore} using an augmented interval tree,
+ * laid out implicitly over an array of the segments sorted by start time.
+ *
+ * The sub-tree of a range [lo, hi) of the array has the middle element of the
+ * range as root, and the ranges on each side of it as children. For each
+ * sub-tree, the largest end time of its segments is kept in a primitive array,
+ * which allows queries to skip the sub-trees that end before the target
+ * range. Intersection queries thus run in O(log n + k), and their results are
+ * computed lazily while iterating. Apart from the segments themselves, this
+ * store only uses one reference and one long per segment.
+ *
+ * The new elements are first buffered, then merged into the sorted array on
+ * the next read. Each merge creates a new array, so that the iterators
+ * obtained before keep on reading a consistent snapshot of the store. This
+ * means adding elements and querying the store in alternance is costly, this
+ * store is meant to be filled first, then queried.
+ *
+ * @param <T>
+ *            The type of time range held
+ * @since 1.1
+ */
+public class IntervalTreeStore<T extends ISegment> implements ISegmentStore<T> {
+
+    private static final Comparator<ISegment> START_COMPARATOR = new Comparator<ISegment>() {
+        @Override
+        public int compare(@Nullable ISegment o1, @Nullable ISegment o2) {
+            if (o1 == null || o2 == null) {
+                throw new IllegalArgumentException();
+            }
+            return Long.compare(o1.getStart(), o2.getStart());
+        }
+    };
+
+    /* Elements added since the last merge, guarded by 'this' */
+    private List<T> fPending = new ArrayList<>();
+
+    private volatile Snapshot fSnapshot = new Snapshot(new ISegment[0]);
+
+    /**
+     * Constructor
+     */
+    public IntervalTreeStore() {
+    }
+
+    @Override
+    public synchronized void addElement(T elem) {
+        fPending.add(elem);
+    }
+
+    @Override
+    public synchronized long getNbElements() {
+        return fSnapshot.fElements.length + fPending.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Elements with the same start time are kept in their insertion order.
+     */
+    @Override
+    public T getElementAtIndex(long index) {
+        Snapshot snapshot = getSnapshot();
+        if (index < 0 || index >= snapshot.fElements.length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + snapshot.fElements.length); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        return snapshot.get((int) index);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        final Snapshot snapshot = getSnapshot();
+        return new AbstractIterator<T>() {
+            private int fIndex = 0;
+
+            @Override
+            protected @Nullable T computeNext() {
+                if (fIndex >= snapshot.fElements.length) {
+                    return endOfData();
+                }
+                return snapshot.get(fIndex++);
+            }
+        };
+    }
+
+    @Override
+    public Iterable<T> getIntersectingElements(long position) {
+        return getIntersectingElements(position, position);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The elements are returned in the ascending order of their start times.
+     */
+    @Override
+    public Iterable<T> getIntersectingElements(final long start, final long end) {
+        final Snapshot snapshot = getSnapshot();
+        return new Iterable<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                return snapshot.new IntersectionIterator(start, end);
+            }
+        };
+    }
+
+    @Override
+    public synchronized void dispose() {
+        fPending = new ArrayList<>();
+        fSnapshot = new Snapshot(new ISegment[0]);
+    }
+
+    /**
+     * Get the current snapshot of the store, merging the pending elements in
+     * it first if needed.
+     */
+    private Snapshot getSnapshot() {
+        synchronized (this) {
+            if (fPending.isEmpty()) {
+                return fSnapshot;
+            }
+            /* Stable sort, elements with the same start keep their order */
+            Collections.sort(fPending, START_COMPARATOR);
+
+            ISegment[] current = fSnapshot.fElements;
+            ISegment[] merged = new ISegment[current.length + fPending.size()];
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (i < current.length && j < fPending.size()) {
+                if (current[i].getStart() <= fPending.get(j).getStart()) {
+                    merged[k++] = current[i++];
+                } else {
+                    merged[k++] = fPending.get(j++);
+                }
+            }
+            while (i < current.length) {
+                merged[k++] = current[i++];
+            }
+            while (j < fPending.size()) {
+                merged[k++] = fPending.get(j++);
+            }
+            fPending = new ArrayList<>();
+            fSnapshot = new Snapshot(merged);
+            return fSnapshot;
+        }
+    }
+
+    /**
+     * Immutable state of the store: the sorted elements and the max end
+     * times of the implicit tree.
+     */
+    private final class Snapshot {
+
+        private final ISegment[] fElements;
+
+        /* Max end time of the sub-tree whose root is at the same index */
+        private final long[] fMaxEnds;
+
+        public Snapshot(ISegment[] elements) {
+            fElements = elements;
+            fMaxEnds = new long[elements.length];
+            computeMaxEnd(0, elements.length);
+        }
+
+        private long computeMaxEnd(int lo, int hi) {
+            if (lo >= hi) {
+                return Long.MIN_VALUE;
+            }
+            int mid = (lo + hi) >>> 1;
+            long maxEnd = Math.max(fElements[mid].getEnd(),
+                    Math.max(computeMaxEnd(lo, mid), computeMaxEnd(mid + 1, hi)));
+            fMaxEnds[mid] = maxEnd;
+            return maxEnd;
+        }
+
+        @SuppressWarnings("unchecked")
+        public T get(int index) {
+            return (T) fElements[index];
+        }
+
+        /**
+         * In-order traversal of the implicit tree, skipping the sub-trees
+         * ending before the start of the range, and stopping at the first
+         * element starting after its end.
+         */
+        private final class IntersectionIterator extends AbstractIterator<T> {
+
+            private final long fStart;
+            private final long fEnd;
+
+            /* Stack of the sub-tree roots to visit, with their range end */
+            private int[] fRoots = new int[32];
+            private int[] fRangeEnds = new int[32];
+            private int fDepth = 0;
+
+            /* Range of the sub-tree to descend into next */
+            private int fLo = 0;
+            private int fHi = fElements.length;
+
+            public IntersectionIterator(long start, long end) {
+                fStart = start;
+                fEnd = end;
+            }
+
+            @Override
+            protected @Nullable T computeNext() {
+                while (true) {
+                    /* Go down the left-most branch of the current sub-tree */
+                    while (fLo < fHi) {
+                        int mid = (fLo + fHi) >>> 1;
+                        if (fMaxEnds[mid] < fStart) {
+                            /* Nothing in this sub-tree reaches the range */
+                            break;
+                        }
+                        push(mid, fHi);
+                        fHi = mid;
+                    }
+                    if (fDepth == 0) {
+                        return endOfData();
+                    }
+                    fDepth--;
+                    int mid = fRoots[fDepth];
+                    ISegment elem = fElements[mid];
+                    if (elem.getStart() > fEnd) {
+                        /* All the following elements start later */
+                        fDepth = 0;
+                        return endOfData();
+                    }
+                    /* Then visit the right sub-tree */
+                    fLo = mid + 1;
+                    fHi = fRangeEnds[fDepth];
+                    if (elem.getEnd() >= fStart) {
+                        return get(mid);
+                    }
+                }
+            }
+
+            private void push(int root, int rangeEnd) {
+                if (fDepth == fRoots.length) {
+                    fRoots = Arrays.copyOf(fRoots, fDepth * 2);
+                    fRangeEnds = Arrays.copyOf(fRangeEnds, fDepth * 2);
+                }
+                fRoots[fDepth] = root;
+                fRangeEnds[fDepth] = rangeEnd;
+                fDepth++;
+            }
+        }
+    }
+}
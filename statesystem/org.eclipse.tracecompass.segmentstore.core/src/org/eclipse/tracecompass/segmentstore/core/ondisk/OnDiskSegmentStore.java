@@ -0,0 +1,658 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.segmentstore.core.ondisk;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.segmentstore.core.ISegment;
+import org.eclipse.tracecompass.segmentstore.core.ISegmentStore;
+
+import com.google.common.collect.AbstractIterator;
+
+/**
+ * Implementation of a {@link ISegmentStore} keeping its segments in a file,
+ * for traces with too many segments to hold in memory.
+ *
+ * The segments are stored in blocks of a fixed number of segments, sorted by
+ * start time, each block being serialized independently. Only the index of
+ * the blocks (their position in the file, first start time and largest end
+ * time) and a small LRU cache of deserialized blocks are kept in memory.
+ *
+ * New segments are buffered in memory, and the buffer is spilled as a sorted
+ * run of blocks in a second file when it is full. The first read after some
+ * segments were added merges the runs with the existing blocks into a new
+ * file. This means adding elements and querying the store in alternance is
+ * very costly, this store is meant to be filled first, then queried. The
+ * iterators obtained before a merge throw a
+ * {@link ConcurrentModificationException} if they are used afterwards.
+ *
+ * Since the segments are stored using Java serialization, their class (and
+ * the classes of their fields) must be correctly serializable.
+ *
+ * @param <T>
+ *            The type of time range held
+ * @since 1.1
+ */
+public class OnDiskSegmentStore<T extends ISegment> implements ISegmentStore<T> {
+
+    private static final int BLOCK_SIZE = 1024;
+    private static final int BLOCKS_PER_RUN = 64;
+    private static final int DEFAULT_CACHE_SIZE = 64;
+
+    private static final Comparator<ISegment> START_COMPARATOR = new Comparator<ISegment>() {
+        @Override
+        public int compare(@Nullable ISegment o1, @Nullable ISegment o2) {
+            if (o1 == null || o2 == null) {
+                throw new IllegalArgumentException();
+            }
+            return Long.compare(o1.getStart(), o2.getStart());
+        }
+    };
+
+    private final File fFile;
+    private final File fRunsFile;
+    private final File fMergeFile;
+    private final int fCacheSize;
+
+    /* The following fields are guarded by 'this' */
+    private List<T> fBuffer = new ArrayList<>();
+    private final List<List<BlockInfo>> fRuns = new ArrayList<>();
+    private @Nullable FileChannel fRunsChannel = null;
+    private long fRunsFileEnd = 0;
+    private long fNbPending = 0;
+    private @Nullable ClassLoader fClassLoader = null;
+
+    private volatile Generation fGeneration;
+
+    /**
+     * Constructor
+     *
+     * @param file
+     *            The file in which to store the segments. It will be
+     *            overwritten if it already exists. Temporary files will be
+     *            created next to it while the store is being filled.
+     * @throws IOException
+     *             If the file cannot be created
+     */
+    public OnDiskSegmentStore(File file) throws IOException {
+        this(file, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param file
+     *            The file in which to store the segments. It will be
+     *            overwritten if it already exists. Temporary files will be
+     *            created next to it while the store is being filled.
+     * @param cacheSize
+     *            The number of blocks (of 1024 segments) to keep in memory
+     * @throws IOException
+     *             If the file cannot be created
+     */
+    public OnDiskSegmentStore(File file, int cacheSize) throws IOException {
+        if (cacheSize <= 0) {
+            throw new IllegalArgumentException("Invalid cache size: " + cacheSize); //$NON-NLS-1$
+        }
+        fFile = file;
+        fRunsFile = new File(file.getPath() + ".runs"); //$NON-NLS-1$
+        fMergeFile = new File(file.getPath() + ".merge"); //$NON-NLS-1$
+        fCacheSize = cacheSize;
+        Files.deleteIfExists(fFile.toPath());
+        Files.createFile(fFile.toPath());
+        fGeneration = new Generation(null, new ArrayList<BlockInfo>(), 0);
+    }
+
+    // ------------------------------------------------------------------------
+    // ISegmentStore
+    // ------------------------------------------------------------------------
+
+    @Override
+    public synchronized void addElement(T elem) {
+        if (fClassLoader == null) {
+            fClassLoader = elem.getClass().getClassLoader();
+        }
+        fBuffer.add(elem);
+        fNbPending++;
+        if (fBuffer.size() >= BLOCK_SIZE * BLOCKS_PER_RUN) {
+            try {
+                spillBuffer();
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot write the segments to " + fRunsFile, e); //$NON-NLS-1$
+            }
+        }
+    }
+
+    @Override
+    public synchronized long getNbElements() {
+        return fGeneration.fNbElements + fNbPending;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Elements with the same start time are kept in their insertion order.
+     */
+    @Override
+    public T getElementAtIndex(long index) {
+        Generation generation = getGeneration();
+        if (index < 0 || index >= generation.fNbElements) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + generation.fNbElements); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        Object[] block = generation.getBlock((int) (index / BLOCK_SIZE));
+        return generation.cast(block[(int) (index % BLOCK_SIZE)]);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return getGeneration().new BlockIterator(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    @Override
+    public Iterable<T> getIntersectingElements(long position) {
+        return getIntersectingElements(position, position);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The elements are returned in the ascending order of their start times.
+     * Only the blocks which can contain intersecting elements, according to
+     * the block index, are read.
+     */
+    @Override
+    public Iterable<T> getIntersectingElements(final long start, final long end) {
+        final Generation generation = getGeneration();
+        return new Iterable<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                return generation.new BlockIterator(start, end);
+            }
+        };
+    }
+
+    @Override
+    public synchronized void dispose() {
+        fGeneration.close();
+        fGeneration = new Generation(null, new ArrayList<BlockInfo>(), 0);
+        clearRuns();
+        try {
+            Files.deleteIfExists(fFile.toPath());
+        } catch (IOException e) {
+            /* Nothing more we can do */
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Writing and merging the runs
+    // ------------------------------------------------------------------------
+
+    /**
+     * Get the current generation of the file, merging the pending elements in
+     * it first if needed.
+     */
+    private synchronized Generation getGeneration() {
+        if (fNbPending == 0) {
+            return fGeneration;
+        }
+        try {
+            merge();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot write the segments to " + fFile, e); //$NON-NLS-1$
+        }
+        return fGeneration;
+    }
+
+    private void spillBuffer() throws IOException {
+        FileChannel channel = fRunsChannel;
+        if (channel == null) {
+            channel = FileChannel.open(fRunsFile.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            fRunsChannel = channel;
+            fRunsFileEnd = 0;
+        }
+        Collections.sort(fBuffer, START_COMPARATOR);
+        List<BlockInfo> run = new ArrayList<>();
+        for (int i = 0; i < fBuffer.size(); i += BLOCK_SIZE) {
+            List<T> segments = fBuffer.subList(i, Math.min(i + BLOCK_SIZE, fBuffer.size()));
+            BlockInfo block = writeBlock(channel, fRunsFileEnd, segments);
+            fRunsFileEnd += block.fLength;
+            run.add(block);
+        }
+        fRuns.add(run);
+        fBuffer = new ArrayList<>();
+    }
+
+    /**
+     * Merge the current generation, the spilled runs and the buffer in a new
+     * generation. This is a k-way merge reading one block of each source at a
+     * time. Sources are ordered by age, so that elements with the same start
+     * time keep their insertion order.
+     */
+    private void merge() throws IOException {
+        Generation previous = fGeneration;
+        Collections.sort(fBuffer, START_COMPARATOR);
+
+        List<Cursor> sources = new ArrayList<>();
+        FileChannel previousChannel = previous.fChannel;
+        if (previousChannel != null) {
+            sources.add(new DiskCursor(previousChannel, previous.fBlocks));
+        }
+        FileChannel runsChannel = fRunsChannel;
+        if (runsChannel != null) {
+            for (List<BlockInfo> run : fRuns) {
+                sources.add(new DiskCursor(runsChannel, run));
+            }
+        }
+        if (!fBuffer.isEmpty()) {
+            sources.add(new BufferCursor(fBuffer));
+        }
+
+        PriorityQueue<Cursor> queue = new PriorityQueue<>(sources.size());
+        for (int i = 0; i < sources.size(); i++) {
+            Cursor cursor = sources.get(i);
+            cursor.fOrder = i;
+            if (cursor.advance()) {
+                queue.add(cursor);
+            }
+        }
+
+        List<BlockInfo> blocks = new ArrayList<>();
+        long nbElements = 0;
+        try (FileChannel out = FileChannel.open(fMergeFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            List<ISegment> segments = new ArrayList<>(BLOCK_SIZE);
+            long position = 0;
+            while (!queue.isEmpty()) {
+                Cursor cursor = queue.poll();
+                segments.add(cursor.current());
+                if (cursor.advance()) {
+                    queue.add(cursor);
+                }
+                if (segments.size() == BLOCK_SIZE || queue.isEmpty()) {
+                    BlockInfo block = writeBlock(out, position, segments);
+                    position += block.fLength;
+                    nbElements += segments.size();
+                    blocks.add(block);
+                    segments.clear();
+                }
+            }
+        }
+
+        previous.close();
+        clearRuns();
+        Files.move(fMergeFile.toPath(), fFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        FileChannel channel = FileChannel.open(fFile.toPath(), StandardOpenOption.READ);
+        fGeneration = new Generation(channel, blocks, nbElements);
+    }
+
+    private void clearRuns() {
+        FileChannel runsChannel = fRunsChannel;
+        if (runsChannel != null) {
+            try {
+                runsChannel.close();
+                Files.deleteIfExists(fRunsFile.toPath());
+            } catch (IOException e) {
+                /* Nothing more we can do */
+            }
+        }
+        fRunsChannel = null;
+        fRunsFileEnd = 0;
+        fRuns.clear();
+        fBuffer = new ArrayList<>();
+        fNbPending = 0;
+    }
+
+    // ------------------------------------------------------------------------
+    // Block serialization
+    // ------------------------------------------------------------------------
+
+    private static BlockInfo writeBlock(FileChannel channel, long position,
+            List<? extends ISegment> segments) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        long maxEnd = Long.MIN_VALUE;
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            for (ISegment segment : segments) {
+                oos.writeObject(segment);
+                maxEnd = Math.max(maxEnd, segment.getEnd());
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        long pos = position;
+        while (buffer.hasRemaining()) {
+            pos += channel.write(buffer, pos);
+        }
+        return new BlockInfo(position, buffer.capacity(), segments.size(),
+                segments.get(0).getStart(), maxEnd);
+    }
+
+    private Object[] readBlock(FileChannel channel, BlockInfo block) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(block.fLength);
+        long pos = block.fOffset;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, pos);
+            if (read < 0) {
+                throw new IOException("Unexpected end of file at " + pos); //$NON-NLS-1$
+            }
+            pos += read;
+        }
+        Object[] segments = new Object[block.fCount];
+        try (ObjectInputStream ois = new SegmentInputStream(new ByteArrayInputStream(buffer.array()), fClassLoader)) {
+            for (int i = 0; i < block.fCount; i++) {
+                segments[i] = ois.readObject();
+            }
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+        return segments;
+    }
+
+    /**
+     * Object input stream resolving the classes with the class loader of the
+     * segments, since this bundle can not see them.
+     */
+    private static final class SegmentInputStream extends ObjectInputStream {
+
+        private final @Nullable ClassLoader fLoader;
+
+        public SegmentInputStream(InputStream in, @Nullable ClassLoader loader) throws IOException {
+            super(in);
+            fLoader = loader;
+        }
+
+        @Override
+        protected Class<?> resolveClass(@Nullable ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            if (desc != null && fLoader != null) {
+                try {
+                    return Class.forName(desc.getName(), false, fLoader);
+                } catch (ClassNotFoundException e) {
+                    /* Try the default way */
+                }
+            }
+            return super.resolveClass(desc);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Inner classes
+    // ------------------------------------------------------------------------
+
+    /**
+     * Index entry of one block of the file
+     */
+    private static final class BlockInfo {
+
+        private final long fOffset;
+        private final int fLength;
+        private final int fCount;
+        private final long fMinStart;
+        private final long fMaxEnd;
+
+        public BlockInfo(long offset, int length, int count, long minStart, long maxEnd) {
+            fOffset = offset;
+            fLength = length;
+            fCount = count;
+            fMinStart = minStart;
+            fMaxEnd = maxEnd;
+        }
+    }
+
+    /**
+     * One merged, sorted, version of the file, with its block index and block
+     * cache. A new generation is created each time new elements are merged.
+     */
+    private final class Generation {
+
+        private final @Nullable FileChannel fChannel;
+        private final List<BlockInfo> fBlocks;
+        /* Largest end time of the elements of each block and all the blocks before it */
+        private final long[] fPrefixMaxEnds;
+        private final long fNbElements;
+        private volatile boolean fClosed = false;
+
+        /* LRU cache of the deserialized blocks, by block index */
+        private final Map<Integer, Object[]> fCache = new LinkedHashMap<Integer, Object[]>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(@Nullable Map.Entry<Integer, Object[]> eldest) {
+                return size() > fCacheSize;
+            }
+        };
+
+        public Generation(@Nullable FileChannel channel, List<BlockInfo> blocks, long nbElements) {
+            fChannel = channel;
+            fBlocks = blocks;
+            fNbElements = nbElements;
+            fPrefixMaxEnds = new long[blocks.size()];
+            long maxEnd = Long.MIN_VALUE;
+            for (int i = 0; i < blocks.size(); i++) {
+                maxEnd = Math.max(maxEnd, blocks.get(i).fMaxEnd);
+                fPrefixMaxEnds[i] = maxEnd;
+            }
+        }
+
+        /**
+         * Get the index of the first block containing an element that ends at
+         * or after a given time. All the elements of the previous blocks end
+         * before it.
+         */
+        public int getFirstBlock(long time) {
+            int lo = 0;
+            int hi = fPrefixMaxEnds.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (fPrefixMaxEnds[mid] < time) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        public Object[] getBlock(int index) {
+            synchronized (fCache) {
+                Object[] block = fCache.get(index);
+                if (block != null) {
+                    return block;
+                }
+            }
+            FileChannel channel = fChannel;
+            if (fClosed || channel == null) {
+                throw new ConcurrentModificationException();
+            }
+            Object[] block;
+            try {
+                block = readBlock(channel, fBlocks.get(index));
+            } catch (IOException e) {
+                if (fClosed) {
+                    throw new ConcurrentModificationException();
+                }
+                throw new IllegalStateException("Cannot read the segments from " + fFile, e); //$NON-NLS-1$
+            }
+            synchronized (fCache) {
+                fCache.put(index, block);
+            }
+            return block;
+        }
+
+        @SuppressWarnings("unchecked")
+        public T cast(Object segment) {
+            return (T) segment;
+        }
+
+        public void close() {
+            fClosed = true;
+            synchronized (fCache) {
+                fCache.clear();
+            }
+            FileChannel channel = fChannel;
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    /* Nothing more we can do */
+                }
+            }
+        }
+
+        /**
+         * Iterator over the elements intersecting a range, in start time
+         * order, skipping the blocks whose elements all end before the range.
+         * The blocks before the first one that can intersect the range are
+         * found with a binary search on the prefix maximum end times.
+         */
+        private final class BlockIterator extends AbstractIterator<T> {
+
+            private final long fStart;
+            private final long fEnd;
+            private int fBlockIndex;
+            private Object[] fBlock = new Object[0];
+            private int fIndexInBlock = 0;
+
+            public BlockIterator(long start, long end) {
+                fStart = start;
+                fEnd = end;
+                fBlockIndex = getFirstBlock(start) - 1;
+            }
+
+            @Override
+            protected @Nullable T computeNext() {
+                while (true) {
+                    if (fIndexInBlock >= fBlock.length) {
+                        if (!nextBlock()) {
+                            return endOfData();
+                        }
+                    }
+                    ISegment segment = (ISegment) fBlock[fIndexInBlock++];
+                    if (segment.getStart() > fEnd) {
+                        /* All the following elements start later */
+                        return endOfData();
+                    }
+                    if (segment.getEnd() >= fStart) {
+                        return cast(segment);
+                    }
+                }
+            }
+
+            private boolean nextBlock() {
+                do {
+                    fBlockIndex++;
+                    if (fBlockIndex >= fBlocks.size() || fBlocks.get(fBlockIndex).fMinStart > fEnd) {
+                        return false;
+                    }
+                } while (fBlocks.get(fBlockIndex).fMaxEnd < fStart);
+                fBlock = getBlock(fBlockIndex);
+                fIndexInBlock = 0;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Cursor over one sorted source of segments, used for the merge
+     */
+    private abstract static class Cursor implements Comparable<Cursor> {
+
+        protected int fOrder;
+
+        /* Move to the next segment, returns false if there is none */
+        public abstract boolean advance() throws IOException;
+
+        public abstract ISegment current();
+
+        @Override
+        public int compareTo(@Nullable Cursor o) {
+            if (o == null) {
+                throw new IllegalArgumentException();
+            }
+            int ret = Long.compare(current().getStart(), o.current().getStart());
+            return (ret != 0 ? ret : Integer.compare(fOrder, o.fOrder));
+        }
+    }
+
+    private static final class BufferCursor extends Cursor {
+
+        private final List<? extends ISegment> fSegments;
+        private int fIndex = -1;
+
+        public BufferCursor(List<? extends ISegment> segments) {
+            fSegments = segments;
+        }
+
+        @Override
+        public boolean advance() {
+            fIndex++;
+            return fIndex < fSegments.size();
+        }
+
+        @Override
+        public ISegment current() {
+            return fSegments.get(fIndex);
+        }
+    }
+
+    private final class DiskCursor extends Cursor {
+
+        private final FileChannel fChannel;
+        private final List<BlockInfo> fBlocks;
+        private int fBlockIndex = -1;
+        private Object[] fBlock = new Object[0];
+        private int fIndex = 0;
+
+        public DiskCursor(FileChannel channel, List<BlockInfo> blocks) {
+            fChannel = channel;
+            fBlocks = blocks;
+        }
+
+        @Override
+        public boolean advance() throws IOException {
+            fIndex++;
+            if (fIndex < fBlock.length) {
+                return true;
+            }
+            fBlockIndex++;
+            if (fBlockIndex >= fBlocks.size()) {
+                return false;
+            }
+            fBlock = readBlock(fChannel, fBlocks.get(fBlockIndex));
+            fIndex = 0;
+            return true;
+        }
+
+        @Override
+        public ISegment current() {
+            return (ISegment) fBlock[fIndex];
+        }
+    }
+}
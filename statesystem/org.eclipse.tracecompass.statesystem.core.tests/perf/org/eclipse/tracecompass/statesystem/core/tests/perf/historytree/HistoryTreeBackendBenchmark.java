@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.statesystem.core.tests.perf.historytree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.eclipse.test.performance.Dimension;
+import org.eclipse.test.performance.Performance;
+import org.eclipse.test.performance.PerformanceMeter;
+import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HTConfig;
+import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HistoryTreeBackend;
+import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
+import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
+import org.junit.Test;
+
+/**
+ * Benchmark of the history tree backend, comparing the compact,
+ * variable-length, interval format with the original fixed-size format.
+ *
+ * It measures separately the time to build a history of synthetic intervals,
+ * and the time to run random single queries on it. The sizes of the resulting
+ * files are compared at the end.
+ */
+public class HistoryTreeBackendBenchmark {
+
+    private static final String TEST_SUITE_NAME = "History Tree Backend Benchmark";
+    private static final String TEST_ID = "org.eclipse.linuxtools#" + TEST_SUITE_NAME;
+
+    private static final int LOOP_COUNT = 10;
+    private static final int NB_ATTRIBUTES = 200;
+    private static final int NB_STATE_CHANGES = 2000;
+    private static final int NB_QUERIES = 50000;
+    private static final long DURATION = 1000;
+
+    private static final int BLOCK_SIZE = 64 * 1024;
+    private static final int MAX_CHILDREN = 50;
+    private static final int NODE_CACHE_SIZE = 256;
+
+    /**
+     * Run the benchmark with the fixed-size interval format
+     */
+    @Test
+    public void testFixedIntervals() {
+        runTest(false, "Fixed intervals");
+    }
+
+    /**
+     * Run the benchmark with the compact interval format
+     */
+    @Test
+    public void testCompactIntervals() {
+        runTest(true, "Compact intervals");
+    }
+
+    /**
+     * Compare the sizes of the history files of both formats
+     */
+    @Test
+    public void testFileSizes() {
+        File fixedFile = buildHistory(false);
+        File compactFile = buildHistory(true);
+        long fixedSize = fixedFile.length();
+        long compactSize = compactFile.length();
+        fixedFile.delete();
+        compactFile.delete();
+        assertTrue("Fixed format: " + fixedSize + " bytes, compact format: " + compactSize + " bytes",
+                compactSize < fixedSize);
+    }
+
+    private static void runTest(boolean compact, String testName) {
+        Performance perf = Performance.getDefault();
+        PerformanceMeter buildPm = perf.createPerformanceMeter(TEST_ID + "#Build " + testName);
+        PerformanceMeter queryPm = perf.createPerformanceMeter(TEST_ID + "#Query " + testName);
+        perf.tagAsSummary(buildPm, TEST_SUITE_NAME + ": Build " + testName, Dimension.CPU_TIME);
+        perf.tagAsSummary(queryPm, TEST_SUITE_NAME + ": Query " + testName, Dimension.CPU_TIME);
+
+        for (int i = 0; i < LOOP_COUNT; i++) {
+            buildPm.start();
+            File file = buildHistory(compact);
+            buildPm.stop();
+
+            try {
+                HistoryTreeBackend backend = new HistoryTreeBackend("benchmark", file, 1);
+                Random rnd = new Random(1000);
+                long end = NB_STATE_CHANGES * DURATION;
+
+                queryPm.start();
+                for (int j = 0; j < NB_QUERIES; j++) {
+                    /* All the attributes have a state after NB_ATTRIBUTES */
+                    long t = NB_ATTRIBUTES + (long) (rnd.nextDouble() * (end - NB_ATTRIBUTES));
+                    int quark = rnd.nextInt(NB_ATTRIBUTES);
+                    ITmfStateInterval interval = backend.doSingularQuery(t, quark);
+                    assertEquals(quark, interval.getAttribute());
+                }
+                queryPm.stop();
+
+                backend.dispose();
+            } catch (IOException | StateSystemDisposedException e) {
+                fail(e.getMessage());
+            } finally {
+                file.delete();
+            }
+        }
+        buildPm.commit();
+        queryPm.commit();
+    }
+
+    /**
+     * Build a history in which every attribute changes state every DURATION
+     * units, with a mix of integer, long and string values.
+     */
+    private static File buildHistory(boolean compact) {
+        try {
+            File file = File.createTempFile("benchmark", ".ht");
+            HTConfig config = new HTConfig(file, BLOCK_SIZE, MAX_CHILDREN, 1, 0, NODE_CACHE_SIZE, compact);
+            HistoryTreeBackend backend = new HistoryTreeBackend("benchmark", config);
+            for (int i = 0; i < NB_STATE_CHANGES; i++) {
+                for (int quark = 0; quark < NB_ATTRIBUTES; quark++) {
+                    long start = i * DURATION + quark;
+                    long end = start + DURATION - 1;
+                    TmfStateValue value;
+                    switch (i % 3) {
+                    case 0:
+                        value = TmfStateValue.newValueInt(i);
+                        break;
+                    case 1:
+                        value = TmfStateValue.newValueLong(start * 1000);
+                        break;
+                    default:
+                        value = TmfStateValue.newValueString("state" + (i % 10));
+                        break;
+                    }
+                    backend.insertPastState(start, end, quark, value);
+                }
+            }
+            backend.finishedBuilding(NB_STATE_CHANGES * DURATION + NB_ATTRIBUTES);
+            backend.dispose();
+            return file;
+        } catch (IOException e) {
+            fail(e.getMessage());
+            throw new IllegalStateException(e);
+        }
+    }
+}
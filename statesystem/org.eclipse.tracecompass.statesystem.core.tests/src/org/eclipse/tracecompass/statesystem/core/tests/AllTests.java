@@ -22,8 +22,10 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
         StateSystemPushPopTest.class,
+        StateSystemQuery2DTest.class,
         StateSystemUtilsTest.class,
         org.eclipse.tracecompass.statesystem.core.tests.backend.AllTests.class,
+        org.eclipse.tracecompass.statesystem.core.tests.backend.historytree.AllTests.class,
         org.eclipse.tracecompass.statesystem.core.tests.statevalue.AllTests.class
 })
 public class AllTests {
@@ -0,0 +1,252 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.statesystem.core.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.tracecompass.internal.statesystem.core.StateSystem;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
+import org.eclipse.tracecompass.statesystem.core.backend.IStateHistoryBackend;
+import org.eclipse.tracecompass.statesystem.core.backend.StateHistoryBackendFactory;
+import org.eclipse.tracecompass.statesystem.core.exceptions.AttributeNotFoundException;
+import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
+import org.eclipse.tracecompass.statesystem.core.exceptions.StateValueTypeException;
+import org.eclipse.tracecompass.statesystem.core.exceptions.TimeRangeException;
+import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue;
+import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the range (2D) queries of the state system, comparing the results of a
+ * backend supporting bulk queries with the ones of a backend that only
+ * supports single queries.
+ */
+public class StateSystemQuery2DTest {
+
+    private static final int NB_ATTRIBUTES = 8;
+    private static final long END_TIME = 10000;
+
+    private ITmfStateSystemBuilder fBulkSs;
+    private ITmfStateSystemBuilder fSingleSs;
+    private final List<Integer> fQuarks = new ArrayList<>();
+
+    /**
+     * Build the same history in both state systems
+     *
+     * @throws AttributeNotFoundException
+     *             Fails the test
+     * @throws StateValueTypeException
+     *             Fails the test
+     */
+    @Before
+    public void setUp() throws AttributeNotFoundException, StateValueTypeException {
+        fBulkSs = new StateSystem(StateHistoryBackendFactory.createInMemoryBackend("bulk", 0));
+        fSingleSs = new StateSystem(new SingleQueryBackend(StateHistoryBackendFactory.createInMemoryBackend("single", 0)));
+        for (int i = 0; i < NB_ATTRIBUTES; i++) {
+            fQuarks.add(fBulkSs.getQuarkAbsoluteAndAdd("attribute" + i));
+            fSingleSs.getQuarkAbsoluteAndAdd("attribute" + i);
+        }
+
+        Random random = new Random(3);
+        for (long time = 1; time < END_TIME; time += 1 + random.nextInt(10)) {
+            int quark = fQuarks.get(random.nextInt(NB_ATTRIBUTES));
+            ITmfStateValue value = TmfStateValue.newValueInt(random.nextInt(5));
+            fBulkSs.modifyAttribute(time, value, quark);
+            fSingleSs.modifyAttribute(time, value, quark);
+        }
+        fBulkSs.closeHistory(END_TIME);
+        fSingleSs.closeHistory(END_TIME);
+    }
+
+    /**
+     * Compare the results of both state systems at different resolutions
+     *
+     * @throws StateSystemDisposedException
+     *             Fails the test
+     */
+    @Test
+    public void testResolutions() throws StateSystemDisposedException {
+        long[][] ranges = { { 0, END_TIME }, { 1234, 5678 }, { 500, 500 }, { 9000, END_TIME + 100 } };
+        for (long[] range : ranges) {
+            for (long resolution : new long[] { 1, 7, 100, 3000, Long.MAX_VALUE }) {
+                List<String> expected = toStrings(fBulkSs.query2D(fQuarks, range[0], range[1], resolution));
+                List<String> actual = toStrings(fSingleSs.query2D(fQuarks, range[0], range[1], resolution));
+                assertFalse(expected.isEmpty());
+                assertEquals(expected, actual);
+            }
+        }
+    }
+
+    /**
+     * Compare the results on a subset of the attributes
+     *
+     * @throws StateSystemDisposedException
+     *             Fails the test
+     */
+    @Test
+    public void testSomeAttributes() throws StateSystemDisposedException {
+        List<Integer> quarks = fQuarks.subList(2, 5);
+        List<String> expected = toStrings(fBulkSs.query2D(quarks, 100, 8000, 50));
+        List<String> actual = toStrings(fSingleSs.query2D(quarks, 100, 8000, 50));
+        assertEquals(expected, actual);
+    }
+
+    /**
+     * Compare the results on a history tree that is still being built, with
+     * ranges before, across and after its current end
+     *
+     * @throws IOException
+     *             If the history file could not be created
+     * @throws AttributeNotFoundException
+     *             Fails the test
+     * @throws StateValueTypeException
+     *             Fails the test
+     * @throws StateSystemDisposedException
+     *             Fails the test
+     */
+    @Test
+    public void testHistoryBeingBuilt() throws IOException, AttributeNotFoundException,
+            StateValueTypeException, StateSystemDisposedException {
+        File file = File.createTempFile("query2D", ".ht");
+        ITmfStateSystemBuilder treeSs = new StateSystem(StateHistoryBackendFactory.createHistoryTreeBackendNewFile("tree", file, 1, 0, 0));
+        ITmfStateSystemBuilder singleSs = new StateSystem(new SingleQueryBackend(StateHistoryBackendFactory.createInMemoryBackend("single", 0)));
+        try {
+            List<Integer> quarks = new ArrayList<>();
+            for (int i = 0; i < NB_ATTRIBUTES; i++) {
+                quarks.add(treeSs.getQuarkAbsoluteAndAdd("attribute" + i));
+                singleSs.getQuarkAbsoluteAndAdd("attribute" + i);
+            }
+            Random random = new Random(5);
+            for (long time = 1; time < END_TIME / 2; time += 1 + random.nextInt(10)) {
+                int quark = quarks.get(random.nextInt(NB_ATTRIBUTES));
+                ITmfStateValue value = TmfStateValue.newValueInt(random.nextInt(5));
+                treeSs.modifyAttribute(time, value, quark);
+                singleSs.modifyAttribute(time, value, quark);
+            }
+
+            long currentEnd = treeSs.getCurrentEndTime();
+            assertEquals(currentEnd, singleSs.getCurrentEndTime());
+            long[][] ranges = { { 0, currentEnd }, { 100, END_TIME }, { currentEnd, END_TIME },
+                    { currentEnd + 1, END_TIME }, { END_TIME, END_TIME } };
+            for (long[] range : ranges) {
+                for (long resolution : new long[] { 1, 100 }) {
+                    List<String> expected = toStrings(singleSs.query2D(quarks, range[0], range[1], resolution));
+                    List<String> actual = toStrings(treeSs.query2D(quarks, range[0], range[1], resolution));
+                    assertEquals(expected, actual);
+                    assertEquals(range[0] > currentEnd, actual.isEmpty());
+                }
+            }
+        } finally {
+            treeSs.dispose();
+            singleSs.dispose();
+            file.delete();
+        }
+    }
+
+    private static List<String> toStrings(Iterable<ITmfStateInterval> intervals) {
+        List<String> strings = new ArrayList<>();
+        for (ITmfStateInterval interval : intervals) {
+            strings.add(interval.getAttribute() + " [" + interval.getStartTime() + ", "
+                    + interval.getEndTime() + "] " + interval.getStateValue());
+        }
+        Collections.sort(strings);
+        return strings;
+    }
+
+    /**
+     * Backend delegating to another one, without its support of bulk queries
+     */
+    private static class SingleQueryBackend implements IStateHistoryBackend {
+
+        private final IStateHistoryBackend fBackend;
+
+        public SingleQueryBackend(IStateHistoryBackend backend) {
+            fBackend = backend;
+        }
+
+        @Override
+        public String getSSID() {
+            return fBackend.getSSID();
+        }
+
+        @Override
+        public long getStartTime() {
+            return fBackend.getStartTime();
+        }
+
+        @Override
+        public long getEndTime() {
+            return fBackend.getEndTime();
+        }
+
+        @Override
+        public void insertPastState(long stateStartTime, long stateEndTime, int quark, ITmfStateValue value) throws TimeRangeException {
+            fBackend.insertPastState(stateStartTime, stateEndTime, quark, value);
+        }
+
+        @Override
+        public void finishedBuilding(long endTime) throws TimeRangeException {
+            fBackend.finishedBuilding(endTime);
+        }
+
+        @Override
+        public FileInputStream supplyAttributeTreeReader() {
+            return fBackend.supplyAttributeTreeReader();
+        }
+
+        @Override
+        public File supplyAttributeTreeWriterFile() {
+            return fBackend.supplyAttributeTreeWriterFile();
+        }
+
+        @Override
+        public long supplyAttributeTreeWriterFilePosition() {
+            return fBackend.supplyAttributeTreeWriterFilePosition();
+        }
+
+        @Override
+        public void removeFiles() {
+            fBackend.removeFiles();
+        }
+
+        @Override
+        public void dispose() {
+            fBackend.dispose();
+        }
+
+        @Override
+        public void doQuery(@NonNull List<ITmfStateInterval> currentStateInfo, long t) throws TimeRangeException, StateSystemDisposedException {
+            fBackend.doQuery(currentStateInfo, t);
+        }
+
+        @Override
+        public ITmfStateInterval doSingularQuery(long t, int attributeQuark) throws TimeRangeException, AttributeNotFoundException, StateSystemDisposedException {
+            return fBackend.doSingularQuery(t, attributeQuark);
+        }
+
+        @Override
+        public void debugPrint(PrintWriter writer) {
+            fBackend.debugPrint(writer);
+        }
+    }
+}
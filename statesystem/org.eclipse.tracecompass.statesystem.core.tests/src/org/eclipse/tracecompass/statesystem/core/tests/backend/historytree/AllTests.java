@@ -0,0 +1,27 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+
+package org.eclipse.tracecompass.statesystem.core.tests.backend.historytree;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+
+/**
+ * Test suite for org.eclipse.tracecompass.internal.statesystem.core.backend.historytree
+ */
+@RunWith(Suite.class)
+@Suite.SuiteClasses({
+    HTIntervalCompactTest.class,
+    HTNodeCacheTest.class,
+    HistoryTreeBackendMappedTest.class,
+    HistoryTreeBackendQuery2DTest.class
+})
+public class AllTests {
+
+}
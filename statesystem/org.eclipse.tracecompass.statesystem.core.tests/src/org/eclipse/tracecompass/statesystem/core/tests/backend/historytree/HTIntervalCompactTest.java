@@ -0,0 +1,294 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.statesystem.core.tests.backend.historytree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HTConfig;
+import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HTInterval;
+import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HTNode;
+import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HistoryTreeBackend;
+import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.LeafNode;
+import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
+import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
+import org.junit.Test;
+
+/**
+ * Test the compact, variable-length, format of the history tree intervals
+ */
+public class HTIntervalCompactTest {
+
+    private static final int BLOCK_SIZE = 4096;
+
+    /**
+     * Write an interval in the compact format, check that its computed size
+     * matches the written bytes, and read it back.
+     */
+    private static HTInterval roundTrip(long nodeStart, HTInterval interval) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        interval.writeCompactInterval(buffer, nodeStart);
+        assertEquals(interval.getCompactIntervalSize(nodeStart), buffer.position());
+        int size = buffer.position();
+        buffer.flip();
+        HTInterval read = HTInterval.readCompactFrom(buffer, nodeStart);
+        assertEquals(size, buffer.position());
+        assertInterval(interval, read);
+        /* The read interval has the same sizes as the written one */
+        assertEquals(size, read.getCompactIntervalSize(nodeStart));
+        assertEquals(interval.getIntervalSize(), read.getIntervalSize());
+        return read;
+    }
+
+    private static void assertInterval(ITmfStateInterval expected, ITmfStateInterval actual) {
+        assertEquals(expected.getStartTime(), actual.getStartTime());
+        assertEquals(expected.getEndTime(), actual.getEndTime());
+        assertEquals(expected.getAttribute(), actual.getAttribute());
+        assertEquals(expected.getStateValue(), actual.getStateValue());
+    }
+
+    /**
+     * Test the integer and long values, including the extreme ones
+     *
+     * @throws IOException
+     *             Should not happen
+     */
+    @Test
+    public void testIntegerValues() throws IOException {
+        for (int value : new int[] { 0, 1, -1, 63, -64, 64, -65, Integer.MAX_VALUE, Integer.MIN_VALUE }) {
+            roundTrip(0, new HTInterval(10, 20, 3, TmfStateValue.newValueInt(value)));
+        }
+        for (long value : new long[] { 0, 1, -1, 1L << 35, -(1L << 35), Long.MAX_VALUE, Long.MIN_VALUE }) {
+            roundTrip(0, new HTInterval(10, 20, 3, TmfStateValue.newValueLong(value)));
+        }
+        /* Small values take a single byte */
+        HTInterval interval = new HTInterval(10, 20, 3, TmfStateValue.newValueInt(-1));
+        assertEquals(5, interval.getCompactIntervalSize(0));
+    }
+
+    /**
+     * Test the null, double and string values
+     *
+     * @throws IOException
+     *             Should not happen
+     */
+    @Test
+    public void testOtherValues() throws IOException {
+        roundTrip(0, new HTInterval(0, 0, 0, TmfStateValue.nullValue()));
+        for (double value : new double[] { 0.0, -0.0, 1.5, Double.MAX_VALUE, Double.NaN, Double.NEGATIVE_INFINITY }) {
+            roundTrip(0, new HTInterval(0, 5, 1, TmfStateValue.newValueDouble(value)));
+        }
+        char[] longString = new char[300];
+        Arrays.fill(longString, 'x');
+        for (String value : new String[] { "", "a", "state", new String(longString) }) { //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+            roundTrip(0, new HTInterval(0, 5, 1, TmfStateValue.newValueString(value)));
+        }
+    }
+
+    /**
+     * Test that string intervals that were read can be sized and written
+     * again, to the same bytes
+     *
+     * @throws IOException
+     *             Should not happen
+     */
+    @Test
+    public void testRewriteStrings() throws IOException {
+        for (String value : new String[] { "", "a", "state", new String(new char[200]).replace('\0', 's') }) { //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+            HTInterval interval = new HTInterval(100, 250, 4, TmfStateValue.newValueString(value));
+            HTInterval read = roundTrip(50, interval);
+            HTInterval reread = roundTrip(50, read);
+            assertEquals(interval.getCompactIntervalSize(50), reread.getCompactIntervalSize(50));
+
+            ByteBuffer expected = ByteBuffer.allocate(BLOCK_SIZE);
+            ByteBuffer actual = ByteBuffer.allocate(BLOCK_SIZE);
+            interval.writeCompactInterval(expected, 50);
+            read.writeCompactInterval(actual, 50);
+            expected.flip();
+            actual.flip();
+            assertEquals(expected, actual);
+        }
+    }
+
+    /**
+     * Test negative and large timestamps and attributes
+     *
+     * @throws IOException
+     *             Should not happen
+     */
+    @Test
+    public void testTimes() throws IOException {
+        TmfStateValue value = TmfStateValue.newValueInt(1);
+        roundTrip(-1000, new HTInterval(-1000, -1, 0, value));
+        roundTrip(Long.MIN_VALUE, new HTInterval(Long.MIN_VALUE, Long.MAX_VALUE, 0, value));
+        roundTrip(-5, new HTInterval(Long.MAX_VALUE - 1, Long.MAX_VALUE, Integer.MAX_VALUE, value));
+        roundTrip(1L << 60, new HTInterval((1L << 60) + (1L << 40), (1L << 61), 70000, value));
+    }
+
+    /**
+     * Fill a node up to its last byte, then write and read it back
+     *
+     * @throws IOException
+     *             Should not happen
+     */
+    @Test
+    public void testFullNode() throws IOException {
+        File file = File.createTempFile("compact", ".ht"); //$NON-NLS-1$ //$NON-NLS-2$
+        try {
+            HTConfig config = new HTConfig(file, BLOCK_SIZE, 10, 0, 0);
+            long nodeStart = 1000;
+            long nodeEnd = 100000;
+            HTNode node = new LeafNode(config, 0, -1, nodeStart);
+            List<HTInterval> intervals = new ArrayList<>();
+
+            /* Intervals with strings of growing sizes, until the node is almost full */
+            int attribute = 0;
+            for (int length = 0;; length += 7) {
+                char[] chars = new char[length];
+                Arrays.fill(chars, (char) ('a' + attribute % 26));
+                HTInterval interval = new HTInterval(nodeStart + attribute * 13, nodeEnd, attribute,
+                        TmfStateValue.newValueString(new String(chars)));
+                if (node.getIntervalSize(interval) + 10 > node.getNodeFreeSpace()) {
+                    break;
+                }
+                node.addInterval(interval);
+                intervals.add(interval);
+                attribute++;
+            }
+
+            /* Then one that takes exactly the remaining space */
+            HTInterval last = null;
+            for (int length = node.getNodeFreeSpace(); length >= 0 && last == null; length--) {
+                HTInterval interval = new HTInterval(nodeStart, nodeEnd, attribute,
+                        TmfStateValue.newValueString(new String(new char[length]).replace('\0', 'z')));
+                if (node.getIntervalSize(interval) == node.getNodeFreeSpace()) {
+                    last = interval;
+                }
+            }
+            assertNotNull(last);
+            node.addInterval(last);
+            intervals.add(last);
+            assertEquals(0, node.getNodeFreeSpace());
+            node.closeThisNode(nodeEnd);
+
+            try (FileOutputStream fos = new FileOutputStream(file);
+                    FileChannel fc = fos.getChannel()) {
+                node.writeSelf(fc);
+            }
+            assertEquals(BLOCK_SIZE, file.length());
+
+            HTNode readNode;
+            try (FileInputStream fis = new FileInputStream(file);
+                    FileChannel fc = fis.getChannel()) {
+                readNode = HTNode.readNode(config, fc, 0);
+            }
+            List<ITmfStateInterval> results = new ArrayList<>(Collections.<ITmfStateInterval> nCopies(intervals.size(), null));
+            readNode.writeInfoFromNode(results, nodeEnd);
+            for (HTInterval interval : intervals) {
+                assertInterval(interval, results.get(interval.getAttribute()));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Build a history in the fixed-size format (file format version 5), and
+     * check that it can be opened and queried.
+     *
+     * @throws IOException
+     *             Should not happen
+     * @throws StateSystemDisposedException
+     *             Should not happen
+     */
+    @Test
+    public void testReadFixedFormat() throws IOException, StateSystemDisposedException {
+        File file = File.createTempFile("fixed", ".ht"); //$NON-NLS-1$ //$NON-NLS-2$
+        try {
+            HTConfig config = new HTConfig(file, BLOCK_SIZE, 4, 2, 0, 64, false);
+            HistoryTreeBackend backend = new HistoryTreeBackend("test-ss", config); //$NON-NLS-1$
+            List<HTInterval> intervals = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                int quark = i % 4;
+                long start = (i / 4) * 10;
+                TmfStateValue value;
+                switch (quark) {
+                case 0:
+                    value = TmfStateValue.newValueInt(-i);
+                    break;
+                case 1:
+                    value = TmfStateValue.newValueLong(i * 100000000000L);
+                    break;
+                case 2:
+                    value = TmfStateValue.newValueDouble(i / 3.0);
+                    break;
+                default:
+                    value = TmfStateValue.newValueString("state" + i); //$NON-NLS-1$
+                    break;
+                }
+                HTInterval interval = new HTInterval(start, start + 9, quark, value);
+                backend.insertPastState(start, start + 9, quark, value);
+                intervals.add(interval);
+            }
+            backend.finishedBuilding(5000);
+            backend.dispose();
+
+            /* The header holds the file format version after the magic number */
+            try (FileInputStream fis = new FileInputStream(file);
+                    FileChannel fc = fis.getChannel()) {
+                ByteBuffer buffer = ByteBuffer.allocate(8);
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                fc.read(buffer, 0);
+                assertEquals(5, buffer.getInt(4));
+            }
+
+            backend = new HistoryTreeBackend("test-ss", file, 2); //$NON-NLS-1$
+            try {
+                for (HTInterval interval : intervals) {
+                    assertInterval(interval, backend.doSingularQuery(interval.getStartTime(), interval.getAttribute()));
+                }
+            } finally {
+                backend.dispose();
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Test that a compact entry with a varint longer than 64 bits is rejected
+     *
+     * @throws IOException
+     *             The expected exception
+     */
+    @Test(expected = IOException.class)
+    public void testInvalidEntry() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        for (int i = 0; i < 16; i++) {
+            buffer.put((byte) 0xFF);
+        }
+        buffer.flip();
+        HTInterval.readCompactFrom(buffer, 0);
+    }
+}
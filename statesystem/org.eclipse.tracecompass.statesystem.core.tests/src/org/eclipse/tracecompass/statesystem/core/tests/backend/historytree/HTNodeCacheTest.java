@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+
+package org.eclipse.tracecompass.statesystem.core.tests.backend.historytree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.util.Collections;
+
+import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HTConfig;
+import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HTNode;
+import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HTNodeCache;
+import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.LeafNode;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the {@link HTNodeCache} class
+ */
+public class HTNodeCacheTest {
+
+    private static final HTConfig CONFIG = new HTConfig(new File("test.ht"), 0, 0);
+
+    private HTNodeCache fCache;
+
+    /**
+     * Create a fresh cache for every test
+     */
+    @Before
+    public void setUp() {
+        fCache = new HTNodeCache(4);
+    }
+
+    private static HTNode createNode(int seqNumber) {
+        return new LeafNode(CONFIG, seqNumber, -1, 0);
+    }
+
+    /**
+     * Test that inserted nodes can be read back, and that hits and misses are
+     * counted.
+     */
+    @Test
+    public void testGetPut() {
+        HTNode node = createNode(3);
+        assertNull(fCache.get(3));
+        fCache.put(node);
+        assertSame(node, fCache.get(3));
+        assertEquals(1, fCache.getHits());
+        assertEquals(1, fCache.getMisses());
+        assertEquals(0.5, fCache.getHitRatio(), 0.0);
+    }
+
+    /**
+     * Test that the least recently used node is the one evicted
+     */
+    @Test
+    public void testLruEviction() {
+        for (int i = 0; i < 4; i++) {
+            fCache.put(createNode(i));
+        }
+        /* Touch node 0, node 1 becomes the least recently used */
+        fCache.get(0);
+        fCache.put(createNode(4));
+
+        assertEquals(4, fCache.size());
+        assertEquals(1, fCache.getEvictions());
+        assertNull(fCache.get(1));
+        assertEquals(0, fCache.get(0).getSequenceNumber());
+        assertEquals(4, fCache.get(4).getSequenceNumber());
+    }
+
+    /**
+     * Test that pinned nodes are never evicted
+     */
+    @Test
+    public void testPinnedNodes() {
+        HTNode root = createNode(100);
+        fCache.setPinnedNodes(Collections.singleton(root));
+        for (int i = 0; i < 10; i++) {
+            fCache.put(createNode(i));
+        }
+        assertSame(root, fCache.get(100));
+        assertEquals(5, fCache.size());
+    }
+
+    /**
+     * Test that shrinking the cache evicts nodes right away
+     */
+    @Test
+    public void testSetCapacity() {
+        for (int i = 0; i < 4; i++) {
+            fCache.put(createNode(i));
+        }
+        fCache.setCapacity(1);
+        assertEquals(1, fCache.size());
+        assertEquals(3, fCache.getEvictions());
+        assertEquals(3, fCache.get(3).getSequenceNumber());
+
+        fCache.setCapacity(0);
+        fCache.put(createNode(5));
+        assertEquals(0, fCache.size());
+    }
+}
@@ -0,0 +1,208 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.statesystem.core.tests.backend.historytree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HTConfig;
+import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HistoryTreeBackend;
+import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
+import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue;
+import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test the queries on a history tree file that is read through memory
+ * mappings, comparing their results with the ones of the file channel reads.
+ */
+public class HistoryTreeBackendMappedTest {
+
+    private static final int PROVIDER_VERSION = 7;
+    private static final int NB_ATTRIBUTES = 12;
+    private static final long END_TIME = 50000;
+
+    /* Small nodes, so that the history spans many of them */
+    private static final int BLOCK_SIZE = 4096;
+    private static final int MAX_CHILDREN = 4;
+
+    private static File fStateFile;
+
+    private HistoryTreeBackend fStreamBackend;
+    private HistoryTreeBackend fMappedBackend;
+
+    /**
+     * Build a history with values of every type
+     *
+     * @throws IOException
+     *             If the history file could not be created
+     */
+    @BeforeClass
+    public static void init() throws IOException {
+        fStateFile = File.createTempFile("mapped", ".ht");
+        HTConfig config = new HTConfig(fStateFile, BLOCK_SIZE, MAX_CHILDREN, PROVIDER_VERSION, 0);
+        HistoryTreeBackend backend = new HistoryTreeBackend("test-ss", config);
+
+        Random random = new Random(42);
+        long[] starts = new long[NB_ATTRIBUTES];
+        for (long time = 1; time <= END_TIME; time += 1 + random.nextInt(5)) {
+            int quark = random.nextInt(NB_ATTRIBUTES);
+            backend.insertPastState(starts[quark], time - 1, quark, randomValue(random));
+            starts[quark] = time;
+        }
+        for (int quark = 0; quark < NB_ATTRIBUTES; quark++) {
+            backend.insertPastState(starts[quark], END_TIME, quark, randomValue(random));
+        }
+        backend.finishedBuilding(END_TIME);
+        backend.dispose();
+    }
+
+    private static ITmfStateValue randomValue(Random random) {
+        switch (random.nextInt(5)) {
+        case 0:
+            return TmfStateValue.nullValue();
+        case 1:
+            return TmfStateValue.newValueInt(random.nextInt());
+        case 2:
+            return TmfStateValue.newValueLong(random.nextLong());
+        case 3:
+            return TmfStateValue.newValueDouble(random.nextDouble());
+        default:
+            return TmfStateValue.newValueString("value" + random.nextInt(100)); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Delete the history file
+     */
+    @AfterClass
+    public static void cleanup() {
+        fStateFile.delete();
+    }
+
+    /**
+     * Open the history file both ways
+     *
+     * @throws IOException
+     *             If the history file could not be opened
+     */
+    @Before
+    public void open() throws IOException {
+        fStreamBackend = new HistoryTreeBackend("test-ss", fStateFile, PROVIDER_VERSION, false);
+        fMappedBackend = new HistoryTreeBackend("test-ss", fStateFile, PROVIDER_VERSION, true);
+    }
+
+    /**
+     * Close the history file
+     */
+    @After
+    public void close() {
+        fStreamBackend.dispose();
+        fMappedBackend.dispose();
+    }
+
+    /**
+     * Test the time range of the mapped history
+     */
+    @Test
+    public void testRange() {
+        assertEquals(fStreamBackend.getStartTime(), fMappedBackend.getStartTime());
+        assertEquals(END_TIME, fMappedBackend.getEndTime());
+    }
+
+    /**
+     * Compare full queries at every timestamp
+     *
+     * @throws StateSystemDisposedException
+     *             Should not happen
+     */
+    @Test
+    public void testFullQueries() throws StateSystemDisposedException {
+        for (long time = 0; time <= END_TIME; time += 37) {
+            List<ITmfStateInterval> expected = new ArrayList<>(Collections.<ITmfStateInterval> nCopies(NB_ATTRIBUTES, null));
+            List<ITmfStateInterval> actual = new ArrayList<>(Collections.<ITmfStateInterval> nCopies(NB_ATTRIBUTES, null));
+            fStreamBackend.doQuery(expected, time);
+            fMappedBackend.doQuery(actual, time);
+            for (int quark = 0; quark < NB_ATTRIBUTES; quark++) {
+                assertInterval(expected.get(quark), actual.get(quark));
+            }
+        }
+    }
+
+    /**
+     * Compare single queries, in random order to read the nodes out of
+     * sequence
+     *
+     * @throws StateSystemDisposedException
+     *             Should not happen
+     */
+    @Test
+    public void testSingularQueries() throws StateSystemDisposedException {
+        Random random = new Random(7);
+        for (int i = 0; i < 5000; i++) {
+            long time = (long) (random.nextDouble() * END_TIME);
+            int quark = random.nextInt(NB_ATTRIBUTES);
+            assertInterval(fStreamBackend.doSingularQuery(time, quark), fMappedBackend.doSingularQuery(time, quark));
+        }
+    }
+
+    /**
+     * Test that a history file whose header start time does not match the
+     * root node is rejected, and that its mappings are released
+     *
+     * @throws IOException
+     *             If the corrupted copy could not be written
+     */
+    @Test
+    public void testInconsistentStartTime() throws IOException {
+        File corrupted = File.createTempFile("corrupted", ".ht");
+        try {
+            Files.copy(fStateFile.toPath(), corrupted.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            try (RandomAccessFile file = new RandomAccessFile(corrupted, "rw")) {
+                /* The start time follows seven integers in the header */
+                file.seek(7 * Integer.SIZE / Byte.SIZE);
+                file.writeLong(Long.reverseBytes(-1L << 20));
+            }
+            for (boolean memoryMapped : new boolean[] { false, true }) {
+                try {
+                    new HistoryTreeBackend("test-ss", corrupted, PROVIDER_VERSION, memoryMapped).dispose();
+                    fail();
+                } catch (IOException e) {
+                    /* Expected, the backend closed the file */
+                }
+            }
+        } finally {
+            assertTrue(corrupted.delete());
+        }
+    }
+
+    private static void assertInterval(ITmfStateInterval expected, ITmfStateInterval actual) {
+        assertEquals(expected.getStartTime(), actual.getStartTime());
+        assertEquals(expected.getEndTime(), actual.getEndTime());
+        assertEquals(expected.getAttribute(), actual.getAttribute());
+        assertEquals(expected.getStateValue(), actual.getStateValue());
+    }
+}
@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.statesystem.core.tests.backend.historytree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HTConfig;
+import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HistoryTreeBackend;
+import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
+import org.eclipse.tracecompass.statesystem.core.exceptions.TimeRangeException;
+import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.tracecompass.statesystem.core.interval.TmfStateInterval;
+import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test the bulk (2D) queries of the history tree backend, comparing their
+ * results with the ones of single queries.
+ */
+public class HistoryTreeBackendQuery2DTest {
+
+    private static final int NB_ATTRIBUTES = 8;
+    private static final long END_TIME = 20000;
+
+    /* Small nodes with few children, to get a tree with many levels */
+    private static final int BLOCK_SIZE = 4096;
+    private static final int MAX_CHILDREN = 3;
+
+    private static File fStateFile;
+    private static HistoryTreeBackend fBackend;
+    private static int fNbIntervals;
+
+    /**
+     * Build a history tree where each attribute changes state at its own pace
+     *
+     * @throws IOException
+     *             If the history file could not be created
+     */
+    @BeforeClass
+    public static void init() throws IOException {
+        fStateFile = File.createTempFile("query2d", ".ht");
+        HTConfig config = new HTConfig(fStateFile, BLOCK_SIZE, MAX_CHILDREN, 0, 0);
+        fBackend = new HistoryTreeBackend("test-ss", config);
+
+        List<ITmfStateInterval> intervals = new ArrayList<>();
+        for (int quark = 0; quark < NB_ATTRIBUTES; quark++) {
+            long duration = (quark + 1) * 7;
+            for (long start = 0; start <= END_TIME; start += duration) {
+                long end = Math.min(start + duration - 1, END_TIME);
+                intervals.add(new TmfStateInterval(start, end, quark, TmfStateValue.newValueLong(start)));
+            }
+        }
+        /* Intervals are inserted in the history when they end */
+        Collections.sort(intervals, new Comparator<ITmfStateInterval>() {
+            @Override
+            public int compare(ITmfStateInterval o1, ITmfStateInterval o2) {
+                return Long.compare(o1.getEndTime(), o2.getEndTime());
+            }
+        });
+        for (ITmfStateInterval interval : intervals) {
+            fBackend.insertPastState(interval.getStartTime(), interval.getEndTime(),
+                    interval.getAttribute(), interval.getStateValue());
+        }
+        fBackend.finishedBuilding(END_TIME);
+        fNbIntervals = intervals.size();
+    }
+
+    /**
+     * Delete the history file
+     */
+    @AfterClass
+    public static void cleanup() {
+        fBackend.dispose();
+        fStateFile.delete();
+    }
+
+    private static Set<String> toKeys(Iterable<ITmfStateInterval> intervals) {
+        Set<String> keys = new HashSet<>();
+        for (ITmfStateInterval interval : intervals) {
+            assertTrue("Duplicate interval " + interval, keys.add(interval.toString()));
+        }
+        return keys;
+    }
+
+    /*
+     * Same walk as StateSystemUtils.queryHistoryRange(), using single queries
+     */
+    private static Set<String> expected(Collection<Integer> quarks, long t1, long t2,
+            long resolution) throws StateSystemDisposedException {
+        List<ITmfStateInterval> intervals = new ArrayList<>();
+        for (int quark : quarks) {
+            ITmfStateInterval interval = null;
+            for (long ts = t1; ts <= t2; ts += ((interval.getEndTime() - ts) / resolution + 1) * resolution) {
+                interval = fBackend.doSingularQuery(ts, quark);
+                intervals.add(interval);
+            }
+            if (interval != null && interval.getEndTime() < t2) {
+                intervals.add(fBackend.doSingularQuery(t2, quark));
+            }
+        }
+        return toKeys(intervals);
+    }
+
+    /**
+     * Query every attribute over the whole history
+     *
+     * @throws StateSystemDisposedException
+     *             Should not happen
+     */
+    @Test
+    public void testFullRange() throws StateSystemDisposedException {
+        List<Integer> quarks = new ArrayList<>();
+        for (int quark = 0; quark < NB_ATTRIBUTES; quark++) {
+            quarks.add(quark);
+        }
+        Set<String> results = toKeys(fBackend.doQuery2D(quarks, 0, END_TIME, 1));
+        assertEquals(fNbIntervals, results.size());
+    }
+
+    /**
+     * Query some attributes over a part of the history
+     *
+     * @throws StateSystemDisposedException
+     *             Should not happen
+     */
+    @Test
+    public void testSubRange() throws StateSystemDisposedException {
+        List<Integer> quarks = Arrays.asList(1, 4, 7);
+        Set<String> results = toKeys(fBackend.doQuery2D(quarks, 1234, 5678, 1));
+        assertEquals(expected(quarks, 1234, 5678, 1), results);
+    }
+
+    /**
+     * Query with a resolution larger than most intervals
+     *
+     * @throws StateSystemDisposedException
+     *             Should not happen
+     */
+    @Test
+    public void testResolution() throws StateSystemDisposedException {
+        List<Integer> quarks = Arrays.asList(0, 2, 3, 6);
+        Set<String> results = toKeys(fBackend.doQuery2D(quarks, 17, 15003, 100));
+        assertEquals(expected(quarks, 17, 15003, 100), results);
+    }
+
+    /**
+     * Query a range going past the end of the history, which should be
+     * clamped to it
+     *
+     * @throws StateSystemDisposedException
+     *             Should not happen
+     */
+    @Test
+    public void testPastEnd() throws StateSystemDisposedException {
+        List<Integer> quarks = Arrays.asList(5);
+        Set<String> results = toKeys(fBackend.doQuery2D(quarks, 19000, END_TIME + 1000, 10));
+        assertEquals(expected(quarks, 19000, END_TIME, 10), results);
+    }
+
+    /**
+     * Query with an invalid resolution
+     *
+     * @throws StateSystemDisposedException
+     *             Should not happen
+     */
+    @Test(expected = TimeRangeException.class)
+    public void testInvalidResolution() throws StateSystemDisposedException {
+        fBackend.doQuery2D(Arrays.asList(0), 0, END_TIME, 0);
+    }
+}
@@ -19,14 +19,20 @@ import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.tracecompass.internal.statesystem.core.backend.SampledTimeRange;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
 import org.eclipse.tracecompass.statesystem.core.backend.IStateHistoryBackend;
+import org.eclipse.tracecompass.statesystem.core.backend.IStateHistoryQuery2DBackend;
 import org.eclipse.tracecompass.statesystem.core.exceptions.AttributeNotFoundException;
 import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
 import org.eclipse.tracecompass.statesystem.core.exceptions.StateValueTypeException;
@@ -36,6 +42,9 @@ import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue;
 import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue.Type;
 import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
 
+import com.google.common.base.Predicate;
+import com.google.common.collect.Iterables;
+
 /**
  * This is the core class of the Generic State System. It contains all the
  * methods to build and query a state history. It's exposed externally through
@@ -616,6 +625,107 @@ public class StateSystem implements ITmfStateSystemBuilder {
         return ret;
     }
 
+    @Override
+    public Iterable<ITmfStateInterval> query2D(Collection<Integer> quarks,
+            long t1, long t2) throws StateSystemDisposedException {
+        return query2D(quarks, t1, t2, 1);
+    }
+
+    @Override
+    public Iterable<ITmfStateInterval> query2D(Collection<Integer> quarks,
+            long t1, long t2, long resolution)
+            throws TimeRangeException, StateSystemDisposedException {
+        if (isDisposed) {
+            throw new StateSystemDisposedException();
+        }
+
+        if (t2 < t1 || resolution <= 0) {
+            throw new TimeRangeException(getSSID() + " Start:" + t1 + ", End:" + t2 + ", Resolution:" + resolution); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        }
+
+        /* Set the actual, valid end time of the range query */
+        long tEnd = Math.min(t2, getCurrentEndTime());
+        if (tEnd < t1) {
+            /* The history being built did not reach the range yet */
+            return Collections.emptyList();
+        }
+
+        if (!transState.isActive()) {
+            return backendQuery2D(quarks, t1, tEnd, resolution);
+        }
+
+        /*
+         * If we are currently building the history, also take the "ongoing"
+         * states for stuff that might not yet be written to the history. Those
+         * that get written while we query the backend are ignored there.
+         */
+        SampledTimeRange range = new SampledTimeRange(t1, tEnd, resolution);
+        List<ITmfStateInterval> ongoing = new ArrayList<>();
+        final Map<Integer, Long> ongoingStarts = new HashMap<>();
+        for (int quark : quarks) {
+            ITmfStateInterval interval = transState.getIntervalAt(tEnd, quark);
+            if (interval != null && range.intersects(interval.getStartTime(), interval.getEndTime())) {
+                ongoing.add(interval);
+                ongoingStarts.put(quark, interval.getStartTime());
+            }
+        }
+        if (ongoing.isEmpty()) {
+            return backendQuery2D(quarks, t1, tEnd, resolution);
+        }
+        Iterable<ITmfStateInterval> stored = Iterables.filter(backendQuery2D(quarks, t1, tEnd, resolution),
+                new Predicate<ITmfStateInterval>() {
+                    @Override
+                    public boolean apply(ITmfStateInterval interval) {
+                        Long ongoingStart = ongoingStarts.get(interval.getAttribute());
+                        return (ongoingStart == null || ongoingStart != interval.getStartTime());
+                    }
+                });
+        return Iterables.concat(ongoing, stored);
+    }
+
+    /**
+     * Run a range query on the backend, in one pass if it supports bulk
+     * queries, or else with single queries at the sample points that are not
+     * covered by the intervals already found.
+     */
+    private Iterable<ITmfStateInterval> backendQuery2D(Collection<Integer> quarks,
+            long t1, long t2, long resolution)
+            throws TimeRangeException, StateSystemDisposedException {
+        if (backend instanceof IStateHistoryQuery2DBackend) {
+            return ((IStateHistoryQuery2DBackend) backend).doQuery2D(quarks, t1, t2, resolution);
+        }
+
+        List<ITmfStateInterval> results = new ArrayList<>();
+        /* Ongoing states may not be in the backend yet */
+        long end = Math.min(t2, backend.getEndTime());
+        if (end < t1) {
+            return results;
+        }
+        for (int quark : quarks) {
+            long t = t1;
+            while (true) {
+                ITmfStateInterval interval;
+                try {
+                    interval = backend.doSingularQuery(t, quark);
+                } catch (AttributeNotFoundException e) {
+                    /* Same as the bulk queries, invalid quarks have no intervals */
+                    break;
+                }
+                if (interval == null) {
+                    break;
+                }
+                results.add(interval);
+                if (interval.getEndTime() >= end) {
+                    break;
+                }
+                /* Next sample point after this interval, or the end time */
+                long next = t1 + ((interval.getEndTime() - t1) / resolution + 1) * resolution;
+                t = (next > end || next <= interval.getEndTime()) ? end : next;
+            }
+        }
+        return results;
+    }
+
     //--------------------------------------------------------------------------
     //        Debug methods
     //--------------------------------------------------------------------------
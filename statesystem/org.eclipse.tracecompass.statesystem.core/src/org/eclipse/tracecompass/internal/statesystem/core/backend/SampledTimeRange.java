@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.statesystem.core.backend;
+
+/**
+ * Time range of a bulk (2D) query, sampled at a given resolution.
+ *
+ * The sample points are the start time, then every "resolution" time units
+ * after it, and the end time of the range. An interval is part of the query
+ * result if it contains at least one of these sample points. With a
+ * resolution of 1, this means every interval intersecting the range.
+ */
+public final class SampledTimeRange {
+
+    private final long fStart;
+    private final long fEnd;
+    private final long fResolution;
+
+    /**
+     * Constructor
+     *
+     * @param start
+     *            The start time of the range
+     * @param end
+     *            The end time of the range, inclusive
+     * @param resolution
+     *            The distance between two sample points
+     * @throws IllegalArgumentException
+     *             If end is smaller than start, or if the resolution is not
+     *             greater than zero
+     */
+    public SampledTimeRange(long start, long end, long resolution) {
+        if (end < start || resolution <= 0) {
+            throw new IllegalArgumentException("Invalid range, Start:" + start + ", End:" + end + ", Resolution:" + resolution); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        }
+        fStart = start;
+        fEnd = end;
+        fResolution = resolution;
+    }
+
+    /**
+     * Get the start time of the range
+     *
+     * @return The start time
+     */
+    public long getStart() {
+        return fStart;
+    }
+
+    /**
+     * Get the end time of the range
+     *
+     * @return The end time, inclusive
+     */
+    public long getEnd() {
+        return fEnd;
+    }
+
+    /**
+     * Get the distance between two sample points
+     *
+     * @return The resolution
+     */
+    public long getResolution() {
+        return fResolution;
+    }
+
+    /**
+     * Check if the time span [start, end] contains at least one sample point
+     * of this range.
+     *
+     * @param start
+     *            The start time of the span
+     * @param end
+     *            The end time of the span, inclusive
+     * @return If a sample point is in the span
+     */
+    public boolean intersects(long start, long end) {
+        if (end < fStart || start > fEnd) {
+            return false;
+        }
+        if (start <= fStart || end >= fEnd) {
+            /* The first or the last sample point is in the span */
+            return true;
+        }
+        /*
+         * The span is strictly inside the range, look for the first sample
+         * point after its start. Written this way to avoid overflows with very
+         * large resolutions.
+         */
+        long remainder = (start - fStart) % fResolution;
+        return (remainder == 0 || fResolution - remainder <= end - start);
+    }
+
+    @SuppressWarnings("nls")
+    @Override
+    public String toString() {
+        return "[" + fStart + ", " + fEnd + "] every " + fResolution;
+    }
+}
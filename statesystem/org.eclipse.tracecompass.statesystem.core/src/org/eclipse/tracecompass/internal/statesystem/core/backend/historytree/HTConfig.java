@@ -23,12 +23,15 @@ public final class HTConfig {
 
     private static final int DEFAULT_BLOCKSIZE = 64 * 1024;
     private static final int DEFAULT_MAXCHILDREN = 50;
+    private static final int DEFAULT_NODE_CACHE_SIZE = 256;
 
     private final File stateFile;
     private final int blockSize;
     private final int maxChildren;
     private final int providerVersion;
     private final long treeStart;
+    private final int nodeCacheSize;
+    private final boolean compactIntervals;
 
     /**
      * Full constructor.
@@ -47,14 +50,71 @@ public final class HTConfig {
      *            uselessly.
      * @param startTime
      *            The start time of the history
+     * @param nodeCacheSize
+     *            The maximum number of nodes read from disk to keep in memory
+     * @param compactIntervals
+     *            If the intervals are stored using the compact,
+     *            variable-length, format. If false, the original fixed-size
+     *            format is used.
      */
     public HTConfig(File newStateFile, int blockSize, int maxChildren,
-            int providerVersion, long startTime) {
+            int providerVersion, long startTime, int nodeCacheSize,
+            boolean compactIntervals) {
         this.stateFile = newStateFile;
         this.blockSize = blockSize;
         this.maxChildren = maxChildren;
         this.providerVersion = providerVersion;
         this.treeStart = startTime;
+        this.nodeCacheSize = nodeCacheSize;
+        this.compactIntervals = compactIntervals;
+    }
+
+    /**
+     * Version of the constructor using the compact interval format.
+     *
+     * @param newStateFile
+     *            The name of the history file
+     * @param blockSize
+     *            The size of each "block" on disk. One node will always fit in
+     *            one block.
+     * @param maxChildren
+     *            The maximum number of children allowed per core (non-leaf)
+     *            node.
+     * @param providerVersion
+     *            The version of the state provider. If a file already exists,
+     *            and their versions match, the history file will not be rebuilt
+     *            uselessly.
+     * @param startTime
+     *            The start time of the history
+     * @param nodeCacheSize
+     *            The maximum number of nodes read from disk to keep in memory
+     */
+    public HTConfig(File newStateFile, int blockSize, int maxChildren,
+            int providerVersion, long startTime, int nodeCacheSize) {
+        this(newStateFile, blockSize, maxChildren, providerVersion, startTime, nodeCacheSize, true);
+    }
+
+    /**
+     * Version of the constructor using the default node cache size.
+     *
+     * @param newStateFile
+     *            The name of the history file
+     * @param blockSize
+     *            The size of each "block" on disk. One node will always fit in
+     *            one block.
+     * @param maxChildren
+     *            The maximum number of children allowed per core (non-leaf)
+     *            node.
+     * @param providerVersion
+     *            The version of the state provider. If a file already exists,
+     *            and their versions match, the history file will not be rebuilt
+     *            uselessly.
+     * @param startTime
+     *            The start time of the history
+     */
+    public HTConfig(File newStateFile, int blockSize, int maxChildren,
+            int providerVersion, long startTime) {
+        this(newStateFile, blockSize, maxChildren, providerVersion, startTime, DEFAULT_NODE_CACHE_SIZE);
     }
 
     /**
@@ -122,4 +182,31 @@ public final class HTConfig {
     public long getTreeStart() {
         return treeStart;
     }
+
+    /**
+     * Get the maximum number of nodes to keep in the node cache
+     *
+     * @return The node cache size
+     */
+    public int getNodeCacheSize() {
+        return nodeCacheSize;
+    }
+
+    /**
+     * Get if the intervals are stored in the compact, variable-length, format
+     *
+     * @return True for the compact format, false for the fixed-size one
+     */
+    public boolean useCompactIntervals() {
+        return compactIntervals;
+    }
+
+    /**
+     * Get the default number of nodes to keep in the node cache
+     *
+     * @return The default node cache size
+     */
+    public static int getDefaultNodeCacheSize() {
+        return DEFAULT_NODE_CACHE_SIZE;
+    }
 }
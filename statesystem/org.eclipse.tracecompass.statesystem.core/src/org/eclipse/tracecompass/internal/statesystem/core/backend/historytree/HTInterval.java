@@ -46,6 +46,22 @@ public final class HTInterval implements ITmfStateInterval, Comparable<HTInterva
      */
     private static final int DATA_ENTRY_SIZE = 25;
 
+    /**
+     * Size of the fixed part of an entry in the compact format, which only
+     * contains the type byte. The rest of the entry is variable-length:
+     *
+     * <pre>
+     *   varlong  start time - node start time
+     *   varlong  end time - start time
+     *   varint   attribute
+     *   1        byte (type)
+     *   ...      inline value: nothing for null values, zigzag varint for
+     *            integers, zigzag varlong for longs, 8 bytes for doubles, and
+     *            varint length + bytes for strings
+     * </pre>
+     */
+    private static final int COMPACT_FIXED_SIZE = 1;
+
     /* 'Byte' equivalent for state values types */
     private static final byte TYPE_NULL = -1;
     private static final byte TYPE_INTEGER = 0;
@@ -228,6 +244,121 @@ public final class HTInterval implements ITmfStateInterval, Comparable<HTInterva
         return interval;
     }
 
+    /**
+     * Reader factory method for the compact interval format. The entry is
+     * read at the current position of the buffer, which is then moved to the
+     * start of the next entry.
+     *
+     * @param buffer
+     *            The ByteBuffer from which to read the information
+     * @param nodeStart
+     *            The start time of the node containing this interval, the
+     *            timestamps are stored relative to it
+     * @return The interval object
+     * @throws IOException
+     *             If there was an error reading from the buffer
+     */
+    public static final HTInterval readCompactFrom(ByteBuffer buffer, long nodeStart) throws IOException {
+        long intervalStart = nodeStart + getVarLong(buffer);
+        long intervalEnd = intervalStart + getVarLong(buffer);
+        int attribute = (int) getVarLong(buffer);
+        TmfStateValue value;
+        /*
+         * The values are inline, but keep the size they would use in the
+         * strings section, so that the sizes of the interval are the same as
+         * if it was built from its value.
+         */
+        int entrySize;
+
+        byte valueType = buffer.get();
+        switch (valueType) {
+        case TYPE_NULL:
+            value = TmfStateValue.nullValue();
+            entrySize = NO_ENTRY_SIZE;
+            break;
+
+        case TYPE_INTEGER:
+            value = TmfStateValue.newValueInt((int) decodeZigZag(getVarLong(buffer)));
+            entrySize = NO_ENTRY_SIZE;
+            break;
+
+        case TYPE_LONG:
+            value = TmfStateValue.newValueLong(decodeZigZag(getVarLong(buffer)));
+            entrySize = LONG_ENTRY_SIZE;
+            break;
+
+        case TYPE_DOUBLE:
+            value = TmfStateValue.newValueDouble(buffer.getDouble());
+            entrySize = DOUBLE_ENTRY_SIZE;
+            break;
+
+        case TYPE_STRING:
+            int length = (int) getVarLong(buffer);
+            if (length < 0 || length > buffer.remaining()) {
+                throw new IOException(errMsg);
+            }
+            byte array[] = new byte[length];
+            buffer.get(array);
+            value = TmfStateValue.newValueString(new String(array));
+            /* The size byte and the \0 at the end */
+            entrySize = length + 2;
+            break;
+
+        default:
+            /* Unknown data, better to not make anything up... */
+            throw new IOException(errMsg);
+        }
+
+        try {
+            return new HTInterval(intervalStart, intervalEnd, attribute, value, entrySize);
+        } catch (TimeRangeException e) {
+            throw new IOException(errMsg);
+        }
+    }
+
+    /**
+     * Write this interval in the compact format, at the current position of
+     * the buffer.
+     *
+     * @param buffer
+     *            The already-allocated ByteBuffer corresponding to a SHT Node
+     * @param nodeStart
+     *            The start time of the node containing this interval
+     */
+    public void writeCompactInterval(ByteBuffer buffer, long nodeStart) {
+        putVarLong(buffer, start - nodeStart);
+        putVarLong(buffer, end - start);
+        putVarLong(buffer, attribute);
+        byte type = getByteFromType(sv.getType());
+        buffer.put(type);
+
+        try {
+            switch (type) {
+            case TYPE_NULL:
+                break;
+            case TYPE_INTEGER:
+                putVarLong(buffer, encodeZigZag(sv.unboxInt()));
+                break;
+            case TYPE_LONG:
+                putVarLong(buffer, encodeZigZag(sv.unboxLong()));
+                break;
+            case TYPE_DOUBLE:
+                buffer.putDouble(sv.unboxDouble());
+                break;
+            case TYPE_STRING:
+                byte[] bytes = sv.unboxStr().getBytes();
+                putVarLong(buffer, bytes.length);
+                buffer.put(bytes);
+                break;
+            default:
+                break;
+            }
+        } catch (StateValueTypeException e) {
+            /* Should not happen, we switch on the value's own type */
+            throw new IllegalStateException(e);
+        }
+    }
+
     /**
      * Antagonist of the previous constructor, write the Data entry
      * corresponding to this interval in a ByteBuffer (mapped to a block in the
@@ -386,6 +517,91 @@ public final class HTInterval implements ITmfStateInterval, Comparable<HTInterva
         return stringsEntrySize + DATA_ENTRY_SIZE;
     }
 
+    /**
+     * Serialized size of this interval in the compact format
+     *
+     * @param nodeStart
+     *            The start time of the node that would contain this interval
+     * @return The interval size, in bytes
+     */
+    public int getCompactIntervalSize(long nodeStart) {
+        int size = COMPACT_FIXED_SIZE
+                + getVarLongSize(start - nodeStart)
+                + getVarLongSize(end - start)
+                + getVarLongSize(attribute);
+
+        try {
+            switch (sv.getType()) {
+            case NULL:
+                return size;
+            case INTEGER:
+                return size + getVarLongSize(encodeZigZag(sv.unboxInt()));
+            case LONG:
+                return size + getVarLongSize(encodeZigZag(sv.unboxLong()));
+            case DOUBLE:
+                return size + DOUBLE_ENTRY_SIZE;
+            case STRING:
+                /* The strings entry size includes the size and \0 bytes */
+                int length = stringsEntrySize - 2;
+                return size + getVarLongSize(length) + length;
+            default:
+                throw new IllegalStateException();
+            }
+        } catch (StateValueTypeException e) {
+            /* Should not happen, we switch on the value's own type */
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Variable-length encoding helpers
+    // ------------------------------------------------------------------------
+
+    /*
+     * Unsigned LEB128 encoding: 7 bits per byte, the high bit is set on every
+     * byte except the last one. Negative values take 10 bytes, they should be
+     * zigzag-encoded first.
+     */
+
+    private static void putVarLong(ByteBuffer buffer, long value) {
+        long v = value;
+        while ((v & ~0x7FL) != 0) {
+            buffer.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        buffer.put((byte) v);
+    }
+
+    private static long getVarLong(ByteBuffer buffer) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException(errMsg);
+    }
+
+    private static int getVarLongSize(long value) {
+        long v = value;
+        int size = 1;
+        while ((v & ~0x7FL) != 0) {
+            v >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static long encodeZigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long decodeZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
     private int computeStringsEntrySize() {
         switch(sv.getType()) {
         case NULL:
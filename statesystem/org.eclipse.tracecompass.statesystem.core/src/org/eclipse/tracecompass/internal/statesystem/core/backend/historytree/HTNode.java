@@ -20,10 +20,12 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import org.eclipse.tracecompass.internal.statesystem.core.backend.SampledTimeRange;
 import org.eclipse.tracecompass.statesystem.core.exceptions.TimeRangeException;
 import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
 import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
@@ -161,16 +163,66 @@ public abstract class HTNode {
      */
     public static final HTNode readNode(HTConfig config, FileChannel fc)
             throws IOException {
-        HTNode newNode = null;
-        int res, i;
-
         ByteBuffer buffer = ByteBuffer.allocate(config.getBlockSize());
         buffer.order(ByteOrder.LITTLE_ENDIAN);
         buffer.clear();
-        res = fc.read(buffer);
+        int res = fc.read(buffer);
         assert (res == config.getBlockSize());
         buffer.flip();
 
+        return readNode(config, buffer);
+    }
+
+    /**
+     * Reader factory method reading the node at a given position in the file.
+     * This does not modify the position of the file channel, so it can be
+     * called concurrently by many threads on the same channel.
+     *
+     * @param config
+     *            Configuration of the History Tree
+     * @param fc
+     *            FileChannel to the history file
+     * @param position
+     *            The position, in bytes, of the start of the node in the file
+     * @return The node object
+     * @throws IOException
+     *             If there was an error reading from the file channel
+     */
+    public static final HTNode readNode(HTConfig config, FileChannel fc, long position)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(config.getBlockSize());
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            int res = fc.read(buffer, position + buffer.position());
+            if (res < 0) {
+                throw new IOException("Unexpected end of file while reading node at position " + position); //$NON-NLS-1$
+            }
+        }
+        buffer.flip();
+
+        return readNode(config, buffer);
+    }
+
+    /**
+     * Build a Node object from a buffer containing the whole node block. The
+     * buffer can be a slice of a memory mapping of the file, the intervals are
+     * decoded directly from it.
+     *
+     * @param config
+     *            Configuration of the History Tree
+     * @param buffer
+     *            Little-endian buffer positioned at the start of the node. The
+     *            offsets stored in the node are relative to the start of this
+     *            buffer.
+     * @return The node object
+     * @throws IOException
+     *             If the contents of the buffer is not a valid node
+     */
+    public static final HTNode readNode(HTConfig config, ByteBuffer buffer) throws IOException {
+        HTNode newNode = null;
+        int i;
+
         /* Read the common header part */
         byte typeByte = buffer.get();
         NodeType type = NodeType.fromByte(typeByte);
@@ -205,8 +257,14 @@ public abstract class HTNode {
          * At this point, we should be done reading the header and 'buffer'
          * should only have the intervals left
          */
-        for (i = 0; i < intervalCount; i++) {
-            newNode.intervals.add(HTInterval.readFrom(buffer));
+        if (config.useCompactIntervals()) {
+            for (i = 0; i < intervalCount; i++) {
+                newNode.intervals.add(HTInterval.readCompactFrom(buffer, start));
+            }
+        } else {
+            for (i = 0; i < intervalCount; i++) {
+                newNode.intervals.add(HTInterval.readFrom(buffer));
+            }
         }
 
         /* Assign the node's other information we have read previously */
@@ -254,9 +312,16 @@ public abstract class HTNode {
             this.writeSpecificHeader(buffer);
 
             /* Back to us, we write the intervals */
-            for (HTInterval interval : intervals) {
-                int size = interval.writeInterval(buffer, curStringsEntryEndPos);
-                curStringsEntryEndPos -= size;
+            if (config.useCompactIntervals()) {
+                /* The values are inline, there is no Strings section */
+                for (HTInterval interval : intervals) {
+                    interval.writeCompactInterval(buffer, nodeStart);
+                }
+            } else {
+                for (HTInterval interval : intervals) {
+                    int size = interval.writeInterval(buffer, curStringsEntryEndPos);
+                    curStringsEntryEndPos -= size;
+                }
             }
 
             /*
@@ -371,7 +436,7 @@ public abstract class HTNode {
         rwl.writeLock().lock();
         try {
             /* Just in case, should be checked before even calling this function */
-            assert (newInterval.getIntervalSize() <= this.getNodeFreeSpace());
+            assert (getIntervalSize(newInterval) <= this.getNodeFreeSpace());
 
             /* Find the insert position to keep the list sorted */
             int index = intervals.size();
@@ -380,15 +445,36 @@ public abstract class HTNode {
             }
 
             intervals.add(index, newInterval);
-            sizeOfIntervalSection += newInterval.getIntervalSize();
-
-            /* Update the in-node offset "pointer" */
-            stringSectionOffset -= (newInterval.getStringsEntrySize());
+            if (config.useCompactIntervals()) {
+                /* Everything goes in the Data section */
+                sizeOfIntervalSection += newInterval.getCompactIntervalSize(nodeStart);
+            } else {
+                sizeOfIntervalSection += newInterval.getIntervalSize();
+
+                /* Update the in-node offset "pointer" */
+                stringSectionOffset -= (newInterval.getStringsEntrySize());
+            }
         } finally {
             rwl.writeLock().unlock();
         }
     }
 
+    /**
+     * Get the number of bytes the given interval would use in this node,
+     * which depends on the interval format of the tree and, for the compact
+     * format, on the start time of the node.
+     *
+     * @param interval
+     *            The interval
+     * @return The size of the interval in this node, in bytes
+     */
+    public int getIntervalSize(HTInterval interval) {
+        if (config.useCompactIntervals()) {
+            return interval.getCompactIntervalSize(nodeStart);
+        }
+        return interval.getIntervalSize();
+    }
+
     /**
      * We've received word from the containerTree that newest nodes now exist to
      * our right. (Puts isDone = true and sets the endtime)
@@ -487,6 +573,35 @@ public abstract class HTNode {
         }
     }
 
+    /**
+     * Get all the intervals of this node that belong to one of the given
+     * attributes and contain at least one sample point of the given range.
+     *
+     * @param matches
+     *            The list to which the matching intervals are added
+     * @param quarks
+     *            The attributes to look for, as a set of quarks
+     * @param range
+     *            The sampled time range of the query
+     * @throws TimeRangeException
+     *             If the start of the range is invalid
+     */
+    public void writeIntervalsFromNode(List<ITmfStateInterval> matches,
+            BitSet quarks, SampledTimeRange range) throws TimeRangeException {
+        rwl.readLock().lock();
+        try {
+            for (int i = getStartIndexFor(range.getStart()); i < intervals.size(); i++) {
+                HTInterval curInterval = intervals.get(i);
+                if (quarks.get(curInterval.getAttribute())
+                        && range.intersects(curInterval.getStartTime(), curInterval.getEndTime())) {
+                    matches.add(curInterval);
+                }
+            }
+        } finally {
+            rwl.readLock().unlock();
+        }
+    }
+
     private int getStartIndexFor(long t) throws TimeRangeException {
         /* Should only be called by methods with the readLock taken */
 
@@ -0,0 +1,301 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.statesystem.core.backend.historytree;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Cache of the history tree nodes that were read from disk.
+ *
+ * The cache is split in a number of segments, each one being a small LRU map
+ * protected by its own lock, so that concurrent queries reading different
+ * nodes do not contend on the same monitor. Some nodes (typically the root
+ * node and the latest branch of the tree) can be pinned, which means they are
+ * always returned by the cache and never evicted.
+ *
+ * The cache also keeps hit, miss and eviction counters, which can be used to
+ * tune its capacity.
+ */
+public final class HTNodeCache {
+
+    /* Maximum number of segments, must be a power of 2 */
+    private static final int MAX_SEGMENTS = 16;
+
+    /* Minimum number of entries per segment */
+    private static final int MIN_SEGMENT_SIZE = 8;
+
+    private final Segment[] fSegments;
+    private final int fSegmentMask;
+
+    private volatile int fCapacity;
+    private volatile Map<Integer, HTNode> fPinnedNodes = Collections.emptyMap();
+
+    private final AtomicLong fHits = new AtomicLong();
+    private final AtomicLong fMisses = new AtomicLong();
+    private final AtomicLong fEvictions = new AtomicLong();
+
+    /**
+     * Constructor
+     *
+     * @param capacity
+     *            The maximum number of (non-pinned) nodes to keep in the
+     *            cache. 0 disables the caching of non-pinned nodes.
+     */
+    public HTNodeCache(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Invalid cache capacity: " + capacity); //$NON-NLS-1$
+        }
+        int nbSegments = 1;
+        while (nbSegments < MAX_SEGMENTS && nbSegments * MIN_SEGMENT_SIZE * 2 <= capacity) {
+            nbSegments <<= 1;
+        }
+        fSegments = new Segment[nbSegments];
+        for (int i = 0; i < nbSegments; i++) {
+            fSegments[i] = new Segment();
+        }
+        fSegmentMask = nbSegments - 1;
+        setCapacity(capacity);
+    }
+
+    // ------------------------------------------------------------------------
+    // Cache operations
+    // ------------------------------------------------------------------------
+
+    /**
+     * Get a node from the cache.
+     *
+     * @param seqNumber
+     *            The sequence number of the node
+     * @return The cached node, or null if it is not in the cache
+     */
+    public @Nullable HTNode get(int seqNumber) {
+        HTNode node = fPinnedNodes.get(seqNumber);
+        if (node == null) {
+            node = segmentFor(seqNumber).get(seqNumber);
+        }
+        if (node == null) {
+            fMisses.incrementAndGet();
+        } else {
+            fHits.incrementAndGet();
+        }
+        return node;
+    }
+
+    /**
+     * Insert a node in the cache, possibly evicting the least recently used
+     * node of its segment. If the node is already in the cache, the existing
+     * entry is replaced.
+     *
+     * @param node
+     *            The node to insert
+     */
+    public void put(HTNode node) {
+        int seqNumber = node.getSequenceNumber();
+        if (fPinnedNodes.containsKey(seqNumber)) {
+            return;
+        }
+        int evicted = segmentFor(seqNumber).put(seqNumber, node);
+        if (evicted > 0) {
+            fEvictions.addAndGet(evicted);
+        }
+    }
+
+    /**
+     * Replace the set of pinned nodes. Pinned nodes are never evicted and do
+     * not count in the capacity of the cache.
+     *
+     * @param nodes
+     *            The nodes to pin, replacing any previously pinned node
+     */
+    public void setPinnedNodes(Collection<HTNode> nodes) {
+        Map<Integer, HTNode> pinned = new HashMap<>();
+        for (HTNode node : nodes) {
+            pinned.put(node.getSequenceNumber(), node);
+        }
+        fPinnedNodes = Collections.unmodifiableMap(pinned);
+    }
+
+    /**
+     * Remove all the nodes, including the pinned ones, from the cache. The
+     * statistics are kept.
+     */
+    public void clear() {
+        fPinnedNodes = Collections.emptyMap();
+        for (Segment segment : fSegments) {
+            segment.clear();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Configuration and statistics
+    // ------------------------------------------------------------------------
+
+    /**
+     * Get the maximum number of non-pinned nodes kept in this cache.
+     *
+     * @return The capacity of the cache
+     */
+    public int getCapacity() {
+        return fCapacity;
+    }
+
+    /**
+     * Change the capacity of the cache. If the cache is shrunk, the least
+     * recently used nodes are evicted right away.
+     *
+     * @param capacity
+     *            The new maximum number of non-pinned nodes
+     */
+    public void setCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Invalid cache capacity: " + capacity); //$NON-NLS-1$
+        }
+        fCapacity = capacity;
+        int base = capacity / fSegments.length;
+        int remainder = capacity % fSegments.length;
+        for (int i = 0; i < fSegments.length; i++) {
+            int evicted = fSegments[i].setMaxSize(i < remainder ? base + 1 : base);
+            if (evicted > 0) {
+                fEvictions.addAndGet(evicted);
+            }
+        }
+    }
+
+    /**
+     * Get the number of nodes currently in the cache, including the pinned
+     * ones.
+     *
+     * @return The number of cached nodes
+     */
+    public int size() {
+        int size = fPinnedNodes.size();
+        for (Segment segment : fSegments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Get the number of lookups that were answered by the cache.
+     *
+     * @return The number of cache hits
+     */
+    public long getHits() {
+        return fHits.get();
+    }
+
+    /**
+     * Get the number of lookups for nodes that were not in the cache.
+     *
+     * @return The number of cache misses
+     */
+    public long getMisses() {
+        return fMisses.get();
+    }
+
+    /**
+     * Get the number of nodes that were evicted from the cache to make room
+     * for other ones.
+     *
+     * @return The number of evictions
+     */
+    public long getEvictions() {
+        return fEvictions.get();
+    }
+
+    /**
+     * Get the ratio of lookups that were answered by the cache.
+     *
+     * @return The hit ratio, between 0 and 1. 0 if no lookup was done yet.
+     */
+    public double getHitRatio() {
+        long hits = fHits.get();
+        long total = hits + fMisses.get();
+        if (total == 0) {
+            return 0;
+        }
+        return (double) hits / total;
+    }
+
+    @SuppressWarnings("nls")
+    @Override
+    public String toString() {
+        /* Only used for debugging, shouldn't be externalized */
+        return "Node cache: capacity=" + fCapacity + ", size=" + size()
+                + ", hits=" + getHits() + ", misses=" + getMisses()
+                + ", evictions=" + getEvictions();
+    }
+
+    // ------------------------------------------------------------------------
+    // Inner classes
+    // ------------------------------------------------------------------------
+
+    private Segment segmentFor(int seqNumber) {
+        /* Spread the sequence numbers, consecutive nodes are often read together */
+        int hash = seqNumber ^ (seqNumber >>> 7) ^ (seqNumber >>> 4);
+        return fSegments[hash & fSegmentMask];
+    }
+
+    /**
+     * One LRU segment of the cache. All its methods synchronize on the
+     * segment.
+     */
+    private static final class Segment {
+
+        private final LinkedHashMap<Integer, HTNode> fMap = new LinkedHashMap<>(16, 0.75f, true);
+        private int fMaxSize;
+
+        public synchronized @Nullable HTNode get(int seqNumber) {
+            return fMap.get(seqNumber);
+        }
+
+        /* Returns the number of evicted entries */
+        public synchronized int put(int seqNumber, HTNode node) {
+            if (fMaxSize == 0) {
+                return 0;
+            }
+            fMap.put(seqNumber, node);
+            return trim();
+        }
+
+        /* Returns the number of evicted entries */
+        public synchronized int setMaxSize(int maxSize) {
+            fMaxSize = maxSize;
+            return trim();
+        }
+
+        public synchronized int size() {
+            return fMap.size();
+        }
+
+        public synchronized void clear() {
+            fMap.clear();
+        }
+
+        private int trim() {
+            int evicted = 0;
+            Iterator<Integer> it = fMap.keySet().iterator();
+            while (fMap.size() > fMaxSize && it.hasNext()) {
+                it.next();
+                it.remove();
+                evicted++;
+            }
+            return evicted;
+        }
+    }
+}
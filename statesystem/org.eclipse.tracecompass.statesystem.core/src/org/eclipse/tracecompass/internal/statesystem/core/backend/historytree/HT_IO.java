@@ -16,8 +16,14 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.eclipse.tracecompass.internal.statesystem.core.Activator;
 
@@ -43,9 +49,19 @@ class HT_IO {
     private final FileChannel fcIn;
     private final FileChannel fcOut;
 
-    // TODO test/benchmark optimal cache size
-    private static final int CACHE_SIZE = 256;
-    private final HTNode fNodeCache[] = new HTNode[CACHE_SIZE];
+    /* Cache of the nodes that were read from, or written to, the file */
+    private final HTNodeCache fNodeCache;
+
+    /*
+     * Maximum size of one mapped segment of the file. Mappings are limited to
+     * Integer.MAX_VALUE bytes, and smaller segments avoid reserving address
+     * space for the parts of the file that are never queried.
+     */
+    private static final long MAX_SEGMENT_SIZE = 256L * 1024 * 1024;
+
+    /* Read-only mappings of the node section, null if not memory-mapped */
+    private final AtomicReferenceArray<MappedByteBuffer> fMappedSegments;
+    private final int fNodesPerSegment;
 
     /**
      * Standard constructor
@@ -59,7 +75,31 @@ class HT_IO {
      *             An exception can be thrown when file cannot be accessed
      */
     public HT_IO(HTConfig config, boolean newFile) throws IOException {
+        this(config, newFile, false);
+    }
+
+    /**
+     * Constructor allowing to read the nodes of an existing file through
+     * memory mappings of the file, instead of through file channel reads.
+     *
+     * This should only be used for complete history files, which will not be
+     * written to anymore: the mapping is done on the file as it is when the
+     * nodes are first read.
+     *
+     * @param config
+     *            The configuration object for the StateHistoryTree
+     * @param newFile
+     *            Flag indicating that the file must be created from scratch
+     * @param memoryMapped
+     *            Flag indicating that the nodes should be read from memory
+     *            mappings of the file. Ignored if newFile is true.
+     *
+     * @throws IOException
+     *             An exception can be thrown when file cannot be accessed
+     */
+    public HT_IO(HTConfig config, boolean newFile, boolean memoryMapped) throws IOException {
         fConfig = config;
+        fNodeCache = new HTNodeCache(config.getNodeCacheSize());
 
         File historyTreeFile = config.getStateFile();
         if (newFile) {
@@ -86,11 +126,25 @@ class HT_IO {
         }
         this.fcIn = fis.getChannel();
         this.fcOut = fos.getChannel();
+
+        if (memoryMapped && !newFile) {
+            int blockSize = config.getBlockSize();
+            fNodesPerSegment = (int) Math.max(1, MAX_SEGMENT_SIZE / blockSize);
+            long nodeSectionSize = Math.max(0, fcIn.size() - HistoryTree.TREE_HEADER_SIZE);
+            long segmentSize = (long) fNodesPerSegment * blockSize;
+            fMappedSegments = new AtomicReferenceArray<>((int) ((nodeSectionSize + segmentSize - 1) / segmentSize));
+        } else {
+            fNodesPerSegment = 0;
+            fMappedSegments = null;
+        }
     }
 
     /**
      * Read a node from the file on disk.
      *
+     * This method is not synchronized: nodes are read with positional reads,
+     * so concurrent queries only contend on the node cache segments.
+     *
      * @param seqNumber
      *            The sequence number of the node to read.
      * @return The object representing the node
@@ -99,21 +153,23 @@ class HT_IO {
      *             reading. Instead of using a big reader-writer lock, we'll
      *             just catch this exception.
      */
-    public synchronized HTNode readNode(int seqNumber) throws ClosedChannelException {
+    public HTNode readNode(int seqNumber) throws ClosedChannelException {
         /* Do a cache lookup */
-        int offset = seqNumber & (CACHE_SIZE - 1);
-        HTNode readNode = fNodeCache[offset];
-        if (readNode != null && readNode.getSequenceNumber() == seqNumber) {
+        HTNode readNode = fNodeCache.get(seqNumber);
+        if (readNode != null) {
             return readNode;
         }
 
         /* Lookup on disk */
         try {
-            seekFCToNodePos(fcIn, seqNumber);
-            readNode = HTNode.readNode(fConfig, fcIn);
+            if (fMappedSegments != null) {
+                readNode = HTNode.readNode(fConfig, getMappedBlock(seqNumber));
+            } else {
+                readNode = HTNode.readNode(fConfig, fcIn, getNodePosition(seqNumber));
+            }
 
             /* Put the node in the cache. */
-            fNodeCache[offset] = readNode;
+            fNodeCache.put(readNode);
             return readNode;
         } catch (ClosedChannelException e) {
             throw e;
@@ -124,12 +180,48 @@ class HT_IO {
         }
     }
 
+    /**
+     * Get a buffer on the mapping of the block of the given node, mapping its
+     * segment of the file if needed.
+     *
+     * @param seqNumber
+     *            The sequence number of the node
+     * @return A little-endian buffer containing only the node's block
+     * @throws IOException
+     *             If the file could not be mapped
+     */
+    private ByteBuffer getMappedBlock(int seqNumber) throws IOException {
+        final AtomicReferenceArray<MappedByteBuffer> segments = fMappedSegments;
+        int segmentIndex = seqNumber / fNodesPerSegment;
+        if (segments == null || segmentIndex >= segments.length()) {
+            throw new IOException("Node " + seqNumber + " is outside of the mapped file"); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+
+        MappedByteBuffer segment = segments.get(segmentIndex);
+        if (segment == null) {
+            long segmentStart = getNodePosition(segmentIndex * fNodesPerSegment);
+            long size = Math.min((long) fNodesPerSegment * fConfig.getBlockSize(), fcIn.size() - segmentStart);
+            segment = fcIn.map(MapMode.READ_ONLY, segmentStart, size);
+            /* If another thread mapped it first, use its mapping instead */
+            if (!segments.compareAndSet(segmentIndex, null, segment)) {
+                segment = segments.get(segmentIndex);
+            }
+        }
+
+        int offset = (seqNumber % fNodesPerSegment) * fConfig.getBlockSize();
+        ByteBuffer block = segment.duplicate();
+        block.limit(offset + fConfig.getBlockSize());
+        block.position(offset);
+        block = block.slice();
+        block.order(ByteOrder.LITTLE_ENDIAN);
+        return block;
+    }
+
     public synchronized void writeNode(HTNode node) {
         try {
             /* Insert the node into the cache. */
             int seqNumber = node.getSequenceNumber();
-            int offset = seqNumber & (CACHE_SIZE - 1);
-            fNodeCache[offset] = node;
+            fNodeCache.put(node);
 
             /* Position ourselves at the start of the node and write it */
             seekFCToNodePos(fcOut, seqNumber);
@@ -140,6 +232,26 @@ class HT_IO {
         }
     }
 
+    /**
+     * Pin nodes in the cache, so that they are never evicted. This replaces
+     * the previously pinned nodes.
+     *
+     * @param nodes
+     *            The nodes to pin, usually the latest branch of the tree
+     */
+    public void pinNodes(Collection<HTNode> nodes) {
+        fNodeCache.setPinnedNodes(nodes);
+    }
+
+    /**
+     * Get the node cache used by this reader/writer.
+     *
+     * @return The node cache
+     */
+    public HTNodeCache getNodeCache() {
+        return fNodeCache;
+    }
+
     public FileChannel getFcOut() {
         return this.fcOut;
     }
@@ -158,6 +270,16 @@ class HT_IO {
     }
 
     public synchronized void closeFile() {
+        fNodeCache.clear();
+        if (fMappedSegments != null) {
+            /*
+             * There is no way to unmap explicitly, dropping the references lets
+             * the garbage collector release the mappings.
+             */
+            for (int i = 0; i < fMappedSegments.length(); i++) {
+                fMappedSegments.set(i, null);
+            }
+        }
         try {
             fis.close();
             fos.close();
@@ -189,12 +311,23 @@ class HT_IO {
      */
     private void seekFCToNodePos(FileChannel fc, int seqNumber)
             throws IOException {
+        fc.position(getNodePosition(seqNumber));
+    }
+
+    /**
+     * Get the position in the file of the node that has seqNumber
+     *
+     * @param seqNumber
+     *            the node sequence number
+     * @return the position of the start of the node, in bytes
+     */
+    private long getNodePosition(int seqNumber) {
         /*
          * Cast to (long) is needed to make sure the result is a long too and
          * doesn't get truncated
          */
-        fc.position(HistoryTree.TREE_HEADER_SIZE
-                + ((long) seqNumber) * fConfig.getBlockSize());
+        return HistoryTree.TREE_HEADER_SIZE
+                + ((long) seqNumber) * fConfig.getBlockSize();
     }
 
 }
@@ -48,7 +48,13 @@ public class HistoryTree {
     private static final int HISTORY_FILE_MAGIC_NUMBER = 0x05FFA900;
 
     /** File format version. Increment when breaking compatibility. */
-    private static final int FILE_VERSION = 5;
+    private static final int FILE_VERSION = 6;
+
+    /**
+     * Previous file format version, which uses fixed-size intervals. Files
+     * using it can still be read, and written if the config asks for it.
+     */
+    private static final int FIXED_INTERVALS_FILE_VERSION = 5;
 
     // ------------------------------------------------------------------------
     // Tree-specific configuration
@@ -121,11 +127,50 @@ public class HistoryTree {
      *             If an error happens reading the file
      */
     public HistoryTree(File existingStateFile, int expProviderVersion) throws IOException {
+        this(existingStateFile, expProviderVersion, HTConfig.getDefaultNodeCacheSize());
+    }
+
+    /**
+     * "Reader" constructor : instantiate a SHTree from an existing tree file on
+     * disk, specifying the size of the node cache.
+     *
+     * @param existingStateFile
+     *            Path/filename of the history-file we are to open
+     * @param expProviderVersion
+     *            The expected version of the state provider
+     * @param nodeCacheSize
+     *            The maximum number of nodes read from disk to keep in memory
+     * @throws IOException
+     *             If an error happens reading the file
+     */
+    public HistoryTree(File existingStateFile, int expProviderVersion, int nodeCacheSize) throws IOException {
+        this(existingStateFile, expProviderVersion, nodeCacheSize, false);
+    }
+
+    /**
+     * "Reader" constructor : instantiate a SHTree from an existing tree file on
+     * disk, specifying the size of the node cache and if the nodes should be
+     * read from memory mappings of the file.
+     *
+     * @param existingStateFile
+     *            Path/filename of the history-file we are to open
+     * @param expProviderVersion
+     *            The expected version of the state provider
+     * @param nodeCacheSize
+     *            The maximum number of nodes read from disk to keep in memory
+     * @param memoryMapped
+     *            If the nodes should be read from memory mappings of the file.
+     *            The file must not be appended to afterwards.
+     * @throws IOException
+     *             If an error happens reading the file
+     */
+    public HistoryTree(File existingStateFile, int expProviderVersion, int nodeCacheSize,
+            boolean memoryMapped) throws IOException {
         /*
          * Open the file ourselves, get the tree header information we need,
          * then pass on the descriptor to the TreeIO object.
          */
-        int rootNodeSeqNb, res;
+        int rootNodeSeqNb, res, fileVersion;
         int bs, maxc;
         long startTime;
 
@@ -156,8 +201,8 @@ public class HistoryTree {
                 throw new IOException("Wrong magic number"); //$NON-NLS-1$
             }
 
-            res = buffer.getInt(); /* File format version number */
-            if (res != FILE_VERSION) {
+            fileVersion = buffer.getInt(); /* File format version number */
+            if (fileVersion != FILE_VERSION && fileVersion != FIXED_INTERVALS_FILE_VERSION) {
                 throw new IOException("Mismatching History Tree file format versions"); //$NON-NLS-1$
             }
 
@@ -181,7 +226,8 @@ public class HistoryTree {
             rootNodeSeqNb = buffer.getInt();
             startTime = buffer.getLong();
 
-            this.config = new HTConfig(existingStateFile, bs, maxc, expProviderVersion, startTime);
+            this.config = new HTConfig(existingStateFile, bs, maxc, expProviderVersion,
+                    startTime, nodeCacheSize, fileVersion == FILE_VERSION);
         }
 
         /*
@@ -189,19 +235,28 @@ public class HistoryTree {
          * file, not extremely elegant. But how to pass the information here to
          * the SHT otherwise?
          */
-        this.treeIO = new HT_IO(config, false);
+        this.treeIO = new HT_IO(config, false, memoryMapped);
 
-        this.latestBranch = buildLatestBranch(rootNodeSeqNb);
-        this.treeEnd = getRootNode().getNodeEnd();
+        try {
+            this.latestBranch = buildLatestBranch(rootNodeSeqNb);
 
-        /*
-         * Make sure the history start time we read previously is consistent
-         * with was is actually in the root node.
-         */
-        if (startTime != getRootNode().getNodeStart()) {
-            throw new IOException("Inconsistent start times in the" + //$NON-NLS-1$
-                    "history file, it might be corrupted."); //$NON-NLS-1$
+            /*
+             * Make sure the history start time we read previously is
+             * consistent with was is actually in the root node.
+             */
+            if (startTime != latestBranch.get(0).getNodeStart()) {
+                throw new IOException("Inconsistent start times in the" + //$NON-NLS-1$
+                        "history file, it might be corrupted."); //$NON-NLS-1$
+            }
+        } catch (IOException | RuntimeException e) {
+            /* Release the file and its mappings, the tree will not be used */
+            treeIO.closeFile();
+            throw e;
         }
+        this.treeEnd = getRootNode().getNodeEnd();
+
+        /* The root node and latest branch are read by every query */
+        treeIO.pinNodes(latestBranch);
     }
 
     /**
@@ -256,6 +311,9 @@ public class HistoryTree {
                 treeIO.writeNode(latestBranch.get(i));
             }
 
+            /* The root node and latest branch are read by every query */
+            treeIO.pinNodes(latestBranch);
+
             try (FileChannel fc = treeIO.getFcOut();) {
                 ByteBuffer buffer = ByteBuffer.allocate(TREE_HEADER_SIZE);
                 buffer.order(ByteOrder.LITTLE_ENDIAN);
@@ -266,7 +324,7 @@ public class HistoryTree {
 
                 buffer.putInt(HISTORY_FILE_MAGIC_NUMBER);
 
-                buffer.putInt(FILE_VERSION);
+                buffer.putInt(config.useCompactIntervals() ? FILE_VERSION : FIXED_INTERVALS_FILE_VERSION);
                 buffer.putInt(config.getProviderVersion());
 
                 buffer.putInt(config.getBlockSize());
@@ -335,6 +393,16 @@ public class HistoryTree {
         return latestBranch.get(0);
     }
 
+    /**
+     * Get the cache of the nodes read from disk, for statistics or tuning
+     * purposes.
+     *
+     * @return The node cache
+     */
+    public HTNodeCache getNodeCache() {
+        return treeIO.getNodeCache();
+    }
+
     // ------------------------------------------------------------------------
     // HT_IO interface
     // ------------------------------------------------------------------------
@@ -449,7 +517,7 @@ public class HistoryTree {
         HTNode targetNode = latestBranch.get(indexOfNode);
 
         /* Verify if there is enough room in this node to store this interval */
-        if (interval.getIntervalSize() > targetNode.getNodeFreeSpace()) {
+        if (targetNode.getIntervalSize(interval) > targetNode.getNodeFreeSpace()) {
             /* Nope, not enough room. Insert in a new sibling instead. */
             addSiblingNode(indexOfNode);
             tryInsertAtNode(interval, latestBranch.size() - 1);
@@ -20,28 +20,38 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
 
 import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.tracecompass.internal.statesystem.core.backend.SampledTimeRange;
 import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.CoreNode;
 import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HTConfig;
 import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HTInterval;
 import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HTNode;
 import org.eclipse.tracecompass.internal.statesystem.core.backend.historytree.HistoryTree;
-import org.eclipse.tracecompass.statesystem.core.backend.IStateHistoryBackend;
+import org.eclipse.tracecompass.statesystem.core.backend.IStateHistoryQuery2DBackend;
 import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
 import org.eclipse.tracecompass.statesystem.core.exceptions.TimeRangeException;
 import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
 import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue;
 import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
 
+import com.google.common.collect.AbstractIterator;
+
 /**
  * History Tree backend for storing a state history. This is the basic version
  * that runs in the same thread as the class creating it.
  *
  * @author Alexandre Montplaisir
  */
-public class HistoryTreeBackend implements IStateHistoryBackend {
+public class HistoryTreeBackend implements IStateHistoryQuery2DBackend {
 
     private final @NonNull String ssid;
 
@@ -101,9 +111,23 @@ public class HistoryTreeBackend implements IStateHistoryBackend {
             long startTime,
             int blockSize,
             int maxChildren) throws IOException {
+        this(ssid, new HTConfig(newStateFile, blockSize, maxChildren,
+                providerVersion, startTime));
+    }
+
+    /**
+     * Constructor for new history files, using a complete configuration
+     * object. This allows specifying the size of the node cache, for example.
+     *
+     * @param ssid
+     *            The state system's ID
+     * @param conf
+     *            The configuration of the history tree
+     * @throws IOException
+     *             Thrown if we can't create the file for some reason
+     */
+    public HistoryTreeBackend(@NonNull String ssid, HTConfig conf) throws IOException {
         this.ssid = ssid;
-        final HTConfig conf = new HTConfig(newStateFile, blockSize, maxChildren,
-                providerVersion, startTime);
         sht = new HistoryTree(conf);
     }
 
@@ -148,8 +172,33 @@ public class HistoryTreeBackend implements IStateHistoryBackend {
      */
     public HistoryTreeBackend(@NonNull String ssid, File existingStateFile, int providerVersion)
             throws IOException {
+        this(ssid, existingStateFile, providerVersion, false);
+    }
+
+    /**
+     * Existing history constructor, which can read the history file through
+     * memory mappings instead of file reads. Since the file is complete, the
+     * queries then only decode the nodes from the page cache, without any
+     * system call or intermediate copy.
+     *
+     * @param ssid
+     *            The state system's id
+     * @param existingStateFile
+     *            Filename/location of the history we want to load
+     * @param providerVersion
+     *            Expected version of of the state provider plugin.
+     * @param memoryMapped
+     *            If the history file should be memory-mapped
+     * @throws IOException
+     *             If we can't read the file, if it doesn't exist, is not
+     *             recognized, or if the version of the file does not match the
+     *             expected providerVersion.
+     */
+    public HistoryTreeBackend(@NonNull String ssid, File existingStateFile, int providerVersion,
+            boolean memoryMapped) throws IOException {
         this.ssid = ssid;
-        sht = new HistoryTree(existingStateFile, providerVersion);
+        sht = new HistoryTree(existingStateFile, providerVersion,
+                HTConfig.getDefaultNodeCacheSize(), memoryMapped);
         fFinishedBuilding = true;
     }
 
@@ -259,6 +308,35 @@ public class HistoryTreeBackend implements IStateHistoryBackend {
         return getRelevantInterval(t, attributeQuark);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * The intervals are read lazily, one node at a time, while iterating. The
+     * tree is traversed only once, starting from the root, and only the
+     * children nodes containing at least one sample point of the range are
+     * visited. If the history file is closed during the iteration, the
+     * iteration ends early.
+     */
+    @Override
+    public Iterable<ITmfStateInterval> doQuery2D(Collection<Integer> quarks,
+            long t1, long t2, long resolution) throws TimeRangeException {
+        checkValidTime(t1);
+        if (t2 < t1 || resolution <= 0) {
+            throw new TimeRangeException(ssid + " Start:" + t1 + ", End:" + t2 + ", Resolution:" + resolution); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        }
+        final SampledTimeRange range = new SampledTimeRange(t1, Math.min(t2, sht.getTreeEnd()), resolution);
+        final BitSet quarkSet = new BitSet();
+        for (int quark : quarks) {
+            quarkSet.set(quark);
+        }
+        return new Iterable<ITmfStateInterval>() {
+            @Override
+            public Iterator<ITmfStateInterval> iterator() {
+                return new Query2DIterator(quarkSet, range);
+            }
+        };
+    }
+
     private void checkValidTime(long t) {
         long treeStart = sht.getTreeStart();
         long treeEnd = sht.getTreeEnd();
@@ -293,6 +371,62 @@ public class HistoryTreeBackend implements IStateHistoryBackend {
         return interval;
     }
 
+    /**
+     * Iterator doing a depth-first traversal of the tree for a 2D query,
+     * returning the matching intervals of each visited node in turn.
+     */
+    private class Query2DIterator extends AbstractIterator<ITmfStateInterval> {
+
+        private final BitSet fQuarks;
+        private final SampledTimeRange fRange;
+        private final Deque<HTNode> fNodesToVisit = new ArrayDeque<>();
+        private Iterator<ITmfStateInterval> fCurrentNodeIntervals = Collections.emptyIterator();
+
+        public Query2DIterator(BitSet quarks, SampledTimeRange range) {
+            fQuarks = quarks;
+            fRange = range;
+            fNodesToVisit.push(sht.getRootNode());
+        }
+
+        @Override
+        protected ITmfStateInterval computeNext() {
+            while (!fCurrentNodeIntervals.hasNext()) {
+                HTNode node = fNodesToVisit.poll();
+                if (node == null) {
+                    return endOfData();
+                }
+                List<ITmfStateInterval> matches = new ArrayList<>();
+                node.writeIntervalsFromNode(matches, fQuarks, fRange);
+                if (node.getNodeType() == HTNode.NodeType.CORE) {
+                    try {
+                        pushChildren((CoreNode) node);
+                    } catch (ClosedChannelException e) {
+                        /* The tree was closed under us, stop here */
+                        fNodesToVisit.clear();
+                    }
+                }
+                fCurrentNodeIntervals = matches.iterator();
+            }
+            return fCurrentNodeIntervals.next();
+        }
+
+        /*
+         * Children are pushed from the last to the first, so that they are
+         * visited in chronological order.
+         */
+        private void pushChildren(CoreNode node) throws ClosedChannelException {
+            int nbChildren = node.getNbChildren();
+            long childEnd = (node.isOnDisk() ? node.getNodeEnd() : Long.MAX_VALUE);
+            for (int i = nbChildren - 1; i >= 0; i--) {
+                long childStart = node.getChildStart(i);
+                if (fRange.intersects(childStart, childEnd)) {
+                    fNodesToVisit.push(sht.readNode(node.getChild(i)));
+                }
+                childEnd = childStart - 1;
+            }
+        }
+    }
+
     /**
      * Return the size of the tree history file
      *
@@ -302,6 +436,17 @@ public class HistoryTreeBackend implements IStateHistoryBackend {
         return sht.getFileSize();
     }
 
+    /**
+     * Get the cache of the history tree nodes, to retrieve its hit, miss and
+     * eviction statistics or to resize it (when opening an existing file, for
+     * example).
+     *
+     * @return The node cache
+     */
+    public HTNodeCache getNodeCache() {
+        return sht.getNodeCache();
+    }
+
     /**
      * Return the average node usage as a percentage (between 0 and 100)
      *
@@ -350,6 +495,7 @@ public class HistoryTreeBackend implements IStateHistoryBackend {
         writer.println(sht.toString());
         writer.println("Average node utilization: " //$NON-NLS-1$
                 + this.getAverageNodeUsage());
+        writer.println(sht.getNodeCache().toString());
         writer.println(""); //$NON-NLS-1$
 
         sht.debugPrintFullTree(writer, printIntervals);
@@ -16,17 +16,25 @@ package org.eclipse.tracecompass.internal.statesystem.core.backend.historytree;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.tracecompass.common.core.collect.BufferedBlockingQueue;
 import org.eclipse.tracecompass.internal.statesystem.core.Activator;
+import org.eclipse.tracecompass.internal.statesystem.core.backend.SampledTimeRange;
 import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
 import org.eclipse.tracecompass.statesystem.core.exceptions.TimeRangeException;
 import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
 import org.eclipse.tracecompass.statesystem.core.statevalue.ITmfStateValue;
 import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
 
+import com.google.common.base.Predicate;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.SetMultimap;
+
 /**
  * Variant of the HistoryTreeBackend which runs all the interval-insertion logic
  * in a separate thread.
@@ -273,4 +281,40 @@ public final class ThreadedHistoryTreeBackend extends HistoryTreeBackend
         return super.doSingularQuery(t, attributeQuark);
     }
 
+    @Override
+    public Iterable<ITmfStateInterval> doQuery2D(Collection<Integer> quarks,
+            long t1, long t2, long resolution) throws TimeRangeException {
+        /* The tree is only read once the returned iterable is iterated */
+        Iterable<ITmfStateInterval> inTree = super.doQuery2D(quarks, t1, t2, resolution);
+        if (isFinishedBuilding()) {
+            return inTree;
+        }
+
+        /*
+         * Some intervals might still be in the queue. Take them first, then
+         * ignore the ones that got inserted in the tree in the meantime, which
+         * are identified by their attribute and start time.
+         */
+        SampledTimeRange range = new SampledTimeRange(t1, t2, resolution);
+        List<ITmfStateInterval> queued = new ArrayList<>();
+        final SetMultimap<Integer, Long> queuedStarts = HashMultimap.create();
+        for (ITmfStateInterval interval : intervalQueue) {
+            if (quarks.contains(interval.getAttribute())
+                    && range.intersects(interval.getStartTime(), interval.getEndTime())) {
+                queued.add(interval);
+                queuedStarts.put(interval.getAttribute(), interval.getStartTime());
+            }
+        }
+        if (queued.isEmpty()) {
+            return inTree;
+        }
+        Iterable<ITmfStateInterval> notQueued = Iterables.filter(inTree, new Predicate<ITmfStateInterval>() {
+            @Override
+            public boolean apply(ITmfStateInterval interval) {
+                return !queuedStarts.containsEntry(interval.getAttribute(), interval.getStartTime());
+            }
+        });
+        return Iterables.concat(queued, notQueued);
+    }
+
 }
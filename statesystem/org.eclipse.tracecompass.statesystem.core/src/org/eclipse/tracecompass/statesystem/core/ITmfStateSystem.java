@@ -12,6 +12,7 @@
 
 package org.eclipse.tracecompass.statesystem.core;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.eclipse.jdt.annotation.NonNull;
@@ -354,4 +355,70 @@ public interface ITmfStateSystem {
      */
     @NonNull ITmfStateInterval querySingleState(long t, int attributeQuark)
             throws AttributeNotFoundException, StateSystemDisposedException;
-}
\ No newline at end of file
+
+    /**
+     * Bulk query method, returning the intervals of many attributes over a
+     * time range at once. This is much faster than calling
+     * querySingleState() or queryHistoryRange() for each attribute, since the
+     * history is only traversed once.
+     *
+     * The time range is sampled every 'resolution' time units, starting at
+     * t1, and the end of the range is always sampled. Only the intervals
+     * containing at least one of these sample points are returned, which
+     * gives the same intervals as
+     * {@link StateSystemUtils#queryHistoryRange(ITmfStateSystem, int, long, long, long, org.eclipse.core.runtime.IProgressMonitor)}
+     * would, for each attribute.
+     *
+     * @param quarks
+     *            The attributes for which we want the intervals
+     * @param t1
+     *            Start time of the range query. If t1 is after the current end
+     *            of the history, as when it is still being built, no intervals
+     *            are returned.
+     * @param t2
+     *            Target end time of the query. If t2 is greater than the end of
+     *            the history, we will return what we have up to the end of the
+     *            history.
+     * @param resolution
+     *            The "step" of this query, must be greater than zero
+     * @return The matching intervals, in no particular order. They may be
+     *         read lazily from the history while iterating.
+     * @throws TimeRangeException
+     *             If t1 is invalid, if t2 < t1, or if the resolution isn't
+     *             greater than zero.
+     * @throws StateSystemDisposedException
+     *             If the query is sent after the state system has been disposed
+     * @since 1.1
+     */
+    @NonNull Iterable<ITmfStateInterval> query2D(@NonNull Collection<Integer> quarks,
+            long t1, long t2, long resolution)
+            throws StateSystemDisposedException;
+
+    /**
+     * Bulk query method, returning every interval of the given attributes
+     * that intersects the time range [t1, t2].
+     *
+     * This is the same as {@link #query2D(Collection, long, long, long)} with
+     * a resolution of 1.
+     *
+     * @param quarks
+     *            The attributes for which we want the intervals
+     * @param t1
+     *            Start time of the range query. If t1 is after the current end
+     *            of the history, as when it is still being built, no intervals
+     *            are returned.
+     * @param t2
+     *            Target end time of the query. If t2 is greater than the end of
+     *            the history, we will return what we have up to the end of the
+     *            history.
+     * @return The matching intervals, in no particular order
+     * @throws TimeRangeException
+     *             If t1 is invalid, or if t2 < t1
+     * @throws StateSystemDisposedException
+     *             If the query is sent after the state system has been disposed
+     * @since 1.1
+     */
+    @NonNull Iterable<ITmfStateInterval> query2D(@NonNull Collection<Integer> quarks,
+            long t1, long t2)
+            throws StateSystemDisposedException;
+}
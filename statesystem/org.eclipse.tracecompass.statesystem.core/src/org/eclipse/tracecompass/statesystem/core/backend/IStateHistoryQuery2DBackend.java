@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.statesystem.core.backend;
+
+import java.util.Collection;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
+import org.eclipse.tracecompass.statesystem.core.exceptions.TimeRangeException;
+import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
+
+/**
+ * Optional extension of {@link IStateHistoryBackend} for the backends that can
+ * run bulk range (2D) queries in one pass over their storage.
+ *
+ * The state system checks if its backend implements this interface. If it does
+ * not, the range queries are done with a series of single queries.
+ *
+ * @since 1.1
+ */
+public interface IStateHistoryQuery2DBackend extends IStateHistoryBackend {
+
+    /**
+     * Bulk query method, returning the intervals of many attributes over a
+     * time range in one pass over the storage.
+     *
+     * The time range is sampled every 'resolution' time units, starting at
+     * t1, and t2 is always sampled. Only the intervals containing at least one
+     * of these sample points are returned, so a resolution of 1 returns every
+     * interval of the requested attributes intersecting [t1, t2].
+     *
+     * @param quarks
+     *            The attributes for which we want the intervals
+     * @param t1
+     *            The start time of the range
+     * @param t2
+     *            The end time of the range, inclusive
+     * @param resolution
+     *            The distance between two sample points, must be greater than
+     *            zero
+     * @return The matching intervals, in no particular order. Depending on
+     *         the backend, they may be read lazily while iterating.
+     * @throws TimeRangeException
+     *             If the time range or the resolution is invalid
+     * @throws StateSystemDisposedException
+     *             If the state system is disposed while a request is ongoing.
+     */
+    @NonNull Iterable<ITmfStateInterval> doQuery2D(@NonNull Collection<Integer> quarks,
+            long t1, long t2, long resolution)
+            throws TimeRangeException, StateSystemDisposedException;
+}
@@ -115,4 +115,31 @@ public final class StateHistoryBackendFactory {
             int providerVersion) throws IOException {
         return new HistoryTreeBackend(ssid, stateFile, providerVersion);
     }
+
+    /**
+     * Create a new History Tree backend, but attempt to open an existing file
+     * on disk, optionally reading it through memory mappings. Memory mappings
+     * make queries on large histories bound by the page cache rather than by
+     * file reads, but the file cannot be deleted on some platforms as long as
+     * the mappings are not garbage-collected.
+     *
+     * @param ssid
+     *            The state system's id
+     * @param stateFile
+     *            Filename/location of the history we want to load
+     * @param providerVersion
+     *            Expected version of of the state provider plugin.
+     * @param memoryMapped
+     *            If the history file should be read through memory mappings
+     * @return The state system backend
+     * @throws IOException
+     *             If we can't read the file, if it doesn't exist, is not
+     *             recognized, or if the version of the file does not match the
+     *             expected providerVersion.
+     * @since 1.1
+     */
+    public static IStateHistoryBackend createHistoryTreeBackendExistingFile(String ssid, File stateFile,
+            int providerVersion, boolean memoryMapped) throws IOException {
+        return new HistoryTreeBackend(ssid, stateFile, providerVersion, memoryMapped);
+    }
 }
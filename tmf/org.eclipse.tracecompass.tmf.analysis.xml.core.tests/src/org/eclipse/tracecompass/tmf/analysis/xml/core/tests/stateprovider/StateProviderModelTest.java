@@ -148,4 +148,51 @@ public class StateProviderModelTest {
 
     }
 
+    /**
+     * Test that the handlers for the name of an event, for other names and
+     * for all the events, are run in the order of the file, and that each
+     * one is run once per event
+     */
+    @Test
+    public void testHandlerOrder() {
+        ITmfTrace trace = initializeTrace(testTrace1);
+        XmlStateSystemModule module = initializeModule(TmfXmlTestFiles.HANDLER_ORDER_FILE);
+        try {
+
+            module.setTrace(trace);
+
+            module.schedule();
+            module.waitForCompletion();
+
+            ITmfStateSystem ss = module.getStateSystem();
+            assertNotNull(ss);
+
+            /* The last handler of each event sets the final value */
+            final int[] lastStarts = { 1, 3, 5, 7, 7 };
+            ITmfStateValue[] lastValues = { TmfStateValue.newValueString("test second"), TmfStateValue.newValueString("test1"),
+                    TmfStateValue.newValueString("test second"), TmfStateValue.newValueString("test1") };
+            verifyStateIntervals("last", ss, ss.getQuarkAbsolute("last"), lastStarts, lastValues);
+
+            /* Three handlers for the "test" events, two for the "test1" events */
+            final int[] runsStarts = { 1, 3, 5, 7, 7 };
+            ITmfStateValue[] runsValues = { TmfStateValue.newValueInt(3), TmfStateValue.newValueInt(5),
+                    TmfStateValue.newValueInt(8), TmfStateValue.newValueInt(10) };
+            verifyStateIntervals("runs", ss, ss.getQuarkAbsolute("runs"), runsStarts, runsValues);
+
+            /* The same constant attribute under different parents */
+            final int[] testStarts = { 1, 5, 7 };
+            ITmfStateValue[] testValues = { TmfStateValue.newValueInt(1), TmfStateValue.newValueInt(2) };
+            verifyStateIntervals("test", ss, ss.getQuarkAbsolute("test", "count"), testStarts, testValues);
+            final int[] test1Starts = { 1, 3, 7, 7 };
+            ITmfStateValue[] test1Values = { TmfStateValue.nullValue(), TmfStateValue.newValueInt(1), TmfStateValue.newValueInt(2) };
+            verifyStateIntervals("test1", ss, ss.getQuarkAbsolute("test1", "count"), test1Starts, test1Values);
+
+        } catch (TmfAnalysisException | AttributeNotFoundException | StateSystemDisposedException e) {
+            fail(e.getMessage());
+        } finally {
+            module.dispose();
+            trace.dispose();
+        }
+    }
+
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2014 Ecole Polytechnique de Montreal
+ * Copyright (c) 2014, 2015 Ecole Polytechnique de Montreal
  *
  * All rights reserved. This program and the accompanying materials are
  * made available under the terms of the Eclipse Public License v1.0 which
@@ -15,6 +15,7 @@ package org.eclipse.tracecompass.tmf.analysis.xml.core.model;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.internal.tmf.analysis.xml.core.Activator;
 import org.eclipse.tracecompass.statesystem.core.exceptions.AttributeNotFoundException;
 import org.eclipse.tracecompass.statesystem.core.exceptions.StateValueTypeException;
@@ -47,6 +48,8 @@ public class TmfXmlEventHandler {
     /* list of states changes */
     private final List<TmfXmlStateChange> fStateChangeList = new ArrayList<>();
     private final String fName;
+    /** Prefix of the event names if the name ends with a wildcard */
+    private final @Nullable String fPrefix;
     private final IXmlStateSystemContainer fParent;
 
     /**
@@ -66,6 +69,7 @@ public class TmfXmlEventHandler {
             throw new IllegalArgumentException();
         }
         fName = name;
+        fPrefix = (name.endsWith(TmfXmlStrings.WILDCARD) ? name.replace(TmfXmlStrings.WILDCARD, TmfXmlStrings.NULL) : null);
 
         List<Element> childElements = XmlUtils.getChildElements(node, TmfXmlStrings.STATE_CHANGE);
         /* load state changes */
@@ -78,19 +82,25 @@ public class TmfXmlEventHandler {
         }
     }
 
-    private boolean appliesToEvent(ITmfEvent event) {
-        String eventName = event.getName();
-
+    /**
+     * Get whether this event handler handles the events of a given name. The
+     * answer only depends on the name, so the state provider can compute it
+     * once per event name.
+     *
+     * @param eventName
+     *            The name of an event
+     * @return Whether the events of this name are handled
+     * @since 1.1
+     */
+    public boolean appliesToEvent(String eventName) {
         /* test for full name */
         if (eventName.equals(fName)) {
             return true;
         }
 
         /* test for the wildcard at the end */
-        if ((fName.endsWith(TmfXmlStrings.WILDCARD) && eventName.startsWith(fName.replace(TmfXmlStrings.WILDCARD, TmfXmlStrings.NULL)))) {
-            return true;
-        }
-        return false;
+        String prefix = fPrefix;
+        return (prefix != null && eventName.startsWith(prefix));
     }
 
     /**
@@ -101,7 +111,7 @@ public class TmfXmlEventHandler {
      *            The trace event to handle
      */
     public void handleEvent(ITmfEvent event) {
-        if (!appliesToEvent(event)) {
+        if (!appliesToEvent(event.getName())) {
             return;
         }
 
@@ -12,8 +12,10 @@
 
 package org.eclipse.tracecompass.tmf.analysis.xml.core.model;
 
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.internal.tmf.analysis.xml.core.Activator;
@@ -71,6 +73,14 @@ public abstract class TmfXmlStateAttribute implements ITmfXmlStateAttribute {
 
     private final IXmlStateSystemContainer fContainer;
 
+    /*
+     * Quarks of a constant attribute, for each quark it was resolved from. The
+     * path of a constant attribute never changes, so it is only resolved once
+     * in a given state system. Guarded by itself.
+     */
+    private final Map<Integer, Integer> fConstantQuarks = new HashMap<>();
+    private @Nullable ITmfStateSystem fConstantQuarksSs = null;
+
     /**
      * Constructor
      *
@@ -213,15 +223,8 @@ public abstract class TmfXmlStateAttribute implements ITmfXmlStateAttribute {
 
         try {
             switch (fType) {
-            case CONSTANT: {
-                int quark;
-                if (startQuark == IXmlStateSystemContainer.ROOT_QUARK) {
-                    quark = getQuarkAbsoluteAndAdd(fName);
-                } else {
-                    quark = getQuarkRelativeAndAdd(startQuark, fName);
-                }
-                return quark;
-            }
+            case CONSTANT:
+                return getConstantQuark(ss, startQuark);
             case EVENTFIELD: {
                 int quark = IXmlStateSystemContainer.ERROR_QUARK;
                 if (event == null) {
@@ -243,12 +246,13 @@ public abstract class TmfXmlStateAttribute implements ITmfXmlStateAttribute {
                     }
                 } else {
                     final ITmfEventField content = event.getContent();
+                    final ITmfEventField eventField = content.getField(name);
                     /* stop if the event field doesn't exist */
-                    if (content.getField(fName) == null) {
+                    if (eventField == null) {
                         return IXmlStateSystemContainer.ERROR_QUARK;
                     }
 
-                    Object field = content.getField(fName).getValue();
+                    Object field = eventField.getValue();
 
                     if (field instanceof String) {
                         String fieldString = (String) field;
@@ -351,6 +355,27 @@ public abstract class TmfXmlStateAttribute implements ITmfXmlStateAttribute {
         }
     }
 
+    private int getConstantQuark(ITmfStateSystem ss, int startQuark) throws AttributeNotFoundException {
+        synchronized (fConstantQuarks) {
+            if (ss != fConstantQuarksSs) {
+                fConstantQuarks.clear();
+                fConstantQuarksSs = ss;
+            }
+            Integer cachedQuark = fConstantQuarks.get(startQuark);
+            if (cachedQuark != null) {
+                return cachedQuark;
+            }
+            int quark;
+            if (startQuark == IXmlStateSystemContainer.ROOT_QUARK) {
+                quark = getQuarkAbsoluteAndAdd(fName);
+            } else {
+                quark = getQuarkRelativeAndAdd(startQuark, fName);
+            }
+            fConstantQuarks.put(startQuark, quark);
+            return quark;
+        }
+    }
+
     @Override
     public String toString() {
         return "TmfXmlStateAttribute " + fType + ": " + fName; //$NON-NLS-1$ //$NON-NLS-2$
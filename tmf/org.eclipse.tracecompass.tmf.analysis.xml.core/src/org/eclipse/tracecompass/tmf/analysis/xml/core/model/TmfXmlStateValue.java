@@ -273,11 +273,12 @@ public abstract class TmfXmlStateValue implements ITmfXmlStateValue {
         if (fieldName.equals(TmfXmlStrings.TIMESTAMP)) {
             return TmfStateValue.newValueLong(event.getTimestamp().getValue());
         }
-        if (content.getField(fieldName) == null) {
+        final ITmfEventField eventField = content.getField(fieldName);
+        if (eventField == null) {
             return value;
         }
 
-        Object field = content.getField(fieldName).getValue();
+        Object field = eventField.getValue();
 
         /*
          * Try to find the right type. The type can be forced by
@@ -12,6 +12,7 @@
 
 package org.eclipse.tracecompass.tmf.analysis.xml.core.stateprovider;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -45,8 +46,15 @@ public class XmlStateProvider extends AbstractTmfStateProvider implements IXmlSt
     private final IPath fFilePath;
     @NonNull private final String fStateId;
 
-    /** List of all Event Handlers */
-    private final Set<TmfXmlEventHandler> fEventHandlers = new HashSet<>();
+    /** List of all Event Handlers, in the order they are defined */
+    private final List<TmfXmlEventHandler> fEventHandlers = new ArrayList<>();
+
+    /**
+     * Event handlers of each event name seen so far. Handler names can end
+     * with a wildcard, so the handlers of an event name are found the first
+     * time it is seen, and only those are run for the following events.
+     */
+    private final Map<String, TmfXmlEventHandler[]> fHandlersByEventName = new HashMap<>();
 
     /** List of all Locations */
     private final Set<TmfXmlLocation> fLocations;
@@ -144,11 +152,26 @@ public class XmlStateProvider extends AbstractTmfStateProvider implements IXmlSt
 
     @Override
     protected void eventHandle(ITmfEvent event) {
-        for (TmfXmlEventHandler eventHandler : fEventHandlers) {
+        for (TmfXmlEventHandler eventHandler : getEventHandlers(event.getName())) {
             eventHandler.handleEvent(event);
         }
     }
 
+    private TmfXmlEventHandler[] getEventHandlers(String eventName) {
+        TmfXmlEventHandler[] handlers = fHandlersByEventName.get(eventName);
+        if (handlers == null) {
+            List<TmfXmlEventHandler> list = new ArrayList<>();
+            for (TmfXmlEventHandler eventHandler : fEventHandlers) {
+                if (eventHandler.appliesToEvent(eventName)) {
+                    list.add(eventHandler);
+                }
+            }
+            handlers = list.toArray(new TmfXmlEventHandler[list.size()]);
+            fHandlersByEventName.put(eventName, handlers);
+        }
+        return handlers;
+    }
+
     @Override
     public ITmfStateSystem getStateSystem() {
         return getStateSystemBuilder();
@@ -33,6 +33,7 @@ import org.junit.runner.RunWith;
     org.eclipse.tracecompass.tmf.core.tests.signal.AllTests.class,
     org.eclipse.tracecompass.tmf.core.tests.statesystem.AllTests.class,
     org.eclipse.tracecompass.tmf.core.tests.statesystem.mipmap.AllTests.class,
+    org.eclipse.tracecompass.tmf.core.tests.statistics.AllTests.class,
     org.eclipse.tracecompass.tmf.core.tests.synchronization.AllTests.class,
     org.eclipse.tracecompass.tmf.core.tests.trace.AllTests.class,
     org.eclipse.tracecompass.tmf.core.tests.trace.indexer.AllTests.class,
@@ -20,7 +20,8 @@ import org.junit.runners.Suite;
  */
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
-        FunctionNameMapperTest.class
+        FunctionNameMapperTest.class,
+        FunctionNameTableTest.class
 })
 public class AllTests {
 
@@ -17,12 +17,15 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Map;
+import java.util.Arrays;
 
 import org.eclipse.tracecompass.internal.tmf.core.callstack.FunctionNameMapper;
+import org.eclipse.tracecompass.internal.tmf.core.callstack.FunctionNameTable;
 import org.junit.Test;
 
 /**
@@ -40,39 +43,80 @@ public class FunctionNameMapperTest {
         Path nmOutput = Paths.get("..", "..", "tmf", "org.eclipse.tracecompass.tmf.core.tests",
                 "testfiles", "callstack" , "nm-output-example");
         assertTrue(Files.exists(nmOutput));
-        Map<String, String> results = FunctionNameMapper.mapFromNmTextFile(nmOutput.toFile());
+        FunctionNameTable results = FunctionNameMapper.mapFromNmTextFile(nmOutput.toFile());
 
         assertNotNull(results);
         assertEquals(28, results.size());
-        assertNull(results.get(""));
+        assertNull(results.getName(""));
 
-        assertEquals("completed.7259", results.get("601190"));
-        assertEquals("data_start", results.get("601048"));
-        assertEquals("deregister_tm_clones", results.get("400690"));
-        assertEquals("__do_global_dtors_aux", results.get("400710"));
-        assertEquals("__dso_handle", results.get("601050"));
-        assertEquals("_DYNAMIC", results.get("600e18"));
-        assertEquals("_end", results.get("601198"));
-        assertEquals("_fini", results.get("400874"));
-        assertEquals("frame_dummy", results.get("400730"));
-        assertEquals("__FRAME_END__", results.get("400a28"));
-        assertEquals("_GLOBAL_OFFSET_TABLE_", results.get("601000"));
-        assertEquals("_GLOBAL__sub_I_main", results.get("4007ad"));
-        assertEquals("_init", results.get("4005d0"));
-        assertEquals("__init_array_end", results.get("600e08"));
-        assertEquals("__init_array_start", results.get("600df8"));
-        assertEquals("_IO_stdin_used", results.get("400880"));
-        assertEquals("__JCR_LIST__", results.get("600e10"));
-        assertEquals("__libc_csu_fini", results.get("400870"));
-        assertEquals("__libc_csu_init", results.get("400800"));
-        assertEquals("main", results.get("400756"));
-        assertEquals("register_tm_clones", results.get("4006d0"));
-        assertEquals("_start", results.get("400660"));
-        assertEquals("__TMC_END__", results.get("601058"));
-        assertEquals("Bar<int, int>* foo<int, int>(int, int)", results.get("4007c2"));
-        assertEquals("__static_initialization_and_destruction_0(int, int)", results.get("400770"));
-        assertEquals("std::cout@@GLIBCXX_3.4", results.get("601080"));
-        assertEquals("std::piecewise_construct", results.get("400884"));
-        assertEquals("std::__ioinit", results.get("601191"));
+        assertEquals("completed.7259", results.getName("601190"));
+        assertEquals("data_start", results.getName("601048"));
+        assertEquals("deregister_tm_clones", results.getName("400690"));
+        assertEquals("__do_global_dtors_aux", results.getName("400710"));
+        assertEquals("__dso_handle", results.getName("601050"));
+        assertEquals("_DYNAMIC", results.getName("600e18"));
+        assertEquals("_end", results.getName("601198"));
+        assertEquals("_fini", results.getName("400874"));
+        assertEquals("frame_dummy", results.getName("400730"));
+        assertEquals("__FRAME_END__", results.getName("400a28"));
+        assertEquals("_GLOBAL_OFFSET_TABLE_", results.getName("601000"));
+        assertEquals("_GLOBAL__sub_I_main", results.getName("4007ad"));
+        assertEquals("_init", results.getName("4005d0"));
+        assertEquals("__init_array_end", results.getName("600e08"));
+        assertEquals("__init_array_start", results.getName("600df8"));
+        assertEquals("_IO_stdin_used", results.getName("400880"));
+        assertEquals("__JCR_LIST__", results.getName("600e10"));
+        assertEquals("__libc_csu_fini", results.getName("400870"));
+        assertEquals("__libc_csu_init", results.getName("400800"));
+        assertEquals("main", results.getName("400756"));
+        assertEquals("register_tm_clones", results.getName("4006d0"));
+        assertEquals("_start", results.getName("400660"));
+        assertEquals("__TMC_END__", results.getName("601058"));
+        assertEquals("Bar<int, int>* foo<int, int>(int, int)", results.getName("4007c2"));
+        assertEquals("__static_initialization_and_destruction_0(int, int)", results.getName("400770"));
+        assertEquals("std::cout@@GLIBCXX_3.4", results.getName("601080"));
+        assertEquals("std::piecewise_construct", results.getName("400884"));
+        assertEquals("std::__ioinit", results.getName("601191"));
+
+        /* Addresses inside the functions */
+        assertEquals("main", results.getName("0x400757"));
+        assertEquals("main", results.getName(0x40076fL));
+        assertEquals("__static_initialization_and_destruction_0(int, int)", results.getName(0x400770L));
+        assertEquals("Bar<int, int>* foo<int, int>(int, int)", results.getName("4007ff"));
+        assertNull(results.getName("4005cf"));
+        assertEquals("std::__ioinit", results.getName("601192"));
+        assertNull(results.getName("601199"));
+        assertNull(results.getName("main"));
+    }
+
+    /**
+     * Test the output of 'nm --print-size', where the sizes of the symbols
+     * are known.
+     *
+     * @throws IOException
+     *             If the file could not be written
+     */
+    @Test
+    public void testNmFileWithSizes() throws IOException {
+        Path nmOutput = Files.createTempFile("nm-output", ".txt");
+        try {
+            Files.write(nmOutput, Arrays.asList(
+                    "0000000000400756 0000000000000019 T main",
+                    "                 U __libc_start_main@@GLIBC_2.2.5",
+                    "00000000004007c2 000000000000003d W Bar<int, int>* foo<int, int>(int, int)",
+                    "0000000000601198 B _end"), StandardCharsets.UTF_8);
+            FunctionNameTable results = FunctionNameMapper.mapFromNmTextFile(nmOutput.toFile());
+
+            assertNotNull(results);
+            assertEquals(3, results.size());
+            assertEquals("main", results.getName("400756"));
+            assertEquals("main", results.getName("40076e"));
+            assertNull(results.getName("40076f"));
+            assertEquals("Bar<int, int>* foo<int, int>(int, int)", results.getName("4007fe"));
+            assertNull(results.getName("4007ff"));
+            assertEquals("_end", results.getName("601198"));
+        } finally {
+            Files.delete(nmOutput);
+        }
     }
 }
@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.core.tests.callstack;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.eclipse.tracecompass.internal.tmf.core.callstack.FunctionNameTable;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link FunctionNameTable} class.
+ */
+public class FunctionNameTableTest {
+
+    /**
+     * Test a table built from symbols that are not sorted by address
+     */
+    @Test
+    public void testUnsorted() {
+        FunctionNameTable.Builder builder = new FunctionNameTable.Builder();
+        builder.add(0x3000, 0, "c");
+        builder.add(0x1000, 0x10, "a");
+        builder.add(0x2000, 0, "b");
+        builder.add(0x1000, 0x20, "alias");
+        FunctionNameTable table = builder.build();
+
+        assertEquals(3, table.size());
+        assertNull(table.getName(0xfff));
+        assertEquals("alias", table.getName(0x1000));
+        assertEquals("alias", table.getName(0x101f));
+        assertNull(table.getName(0x1020));
+        assertEquals("b", table.getName(0x2000));
+        assertEquals("b", table.getName(0x2fff));
+        assertEquals("c", table.getName(0x3000));
+        assertNull(table.getName(0x3001));
+    }
+
+    /**
+     * Test the addresses that do not fit in a signed long
+     */
+    @Test
+    public void testUnsignedAddresses() {
+        FunctionNameTable.Builder builder = new FunctionNameTable.Builder();
+        builder.add(0xffffffff81000000L, 0x100, "kernel");
+        builder.add(0x7fffffffffff0000L, 0, "user");
+        builder.add(0xfffffffffffffff0L, 0x100, "top");
+        FunctionNameTable table = builder.build();
+
+        assertEquals("user", table.getName(0x7fffffffffffffffL));
+        assertEquals("user", table.getName("0x8000000000000000"));
+        assertEquals("kernel", table.getName("ffffffff810000ff"));
+        assertNull(table.getName("ffffffff81000100"));
+        assertEquals("top", table.getName("ffffffffffffffff"));
+        assertNull(table.getName("1ffffffffffffffff"));
+    }
+
+    /**
+     * Test that the cached results match the lookups
+     */
+    @Test
+    public void testCache() {
+        FunctionNameTable.Builder builder = new FunctionNameTable.Builder();
+        for (int i = 0; i < 10000; i++) {
+            builder.add(i * 0x100L, 0x80, "f" + i);
+        }
+        FunctionNameTable table = builder.build();
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < 10000; i++) {
+                assertEquals("f" + i, table.getName(i * 0x100L + 0x7f));
+                assertNull(table.getName(i * 0x100L + 0x80));
+            }
+        }
+    }
+}
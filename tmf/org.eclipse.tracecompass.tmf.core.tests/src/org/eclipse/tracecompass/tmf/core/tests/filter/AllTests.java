@@ -31,6 +31,8 @@ import org.junit.runners.Suite;
     TmfFilterRootNodeTest.class,
     TmfFilterTraceTypeNodeTest.class,
     TmfCollapseFilterTest.class,
+    TmfFilterCompilerTest.class,
+    TmfFilterRankIndexTest.class,
 })
 public class AllTests {
 
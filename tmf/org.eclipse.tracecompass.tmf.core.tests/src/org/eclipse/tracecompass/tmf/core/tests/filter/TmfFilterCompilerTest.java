@@ -0,0 +1,240 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.core.tests.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEventField;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEventType;
+import org.eclipse.tracecompass.tmf.core.event.TmfEvent;
+import org.eclipse.tracecompass.tmf.core.event.TmfEventField;
+import org.eclipse.tracecompass.tmf.core.event.TmfEventType;
+import org.eclipse.tracecompass.tmf.core.event.aspect.ITmfEventAspect;
+import org.eclipse.tracecompass.tmf.core.event.aspect.TmfContentFieldAspect;
+import org.eclipse.tracecompass.tmf.core.filter.ITmfFilter;
+import org.eclipse.tracecompass.tmf.core.filter.TmfFilterCompiler;
+import org.eclipse.tracecompass.tmf.core.filter.model.ITmfFilterTreeNode;
+import org.eclipse.tracecompass.tmf.core.filter.model.TmfFilterAndNode;
+import org.eclipse.tracecompass.tmf.core.filter.model.TmfFilterCompareNode;
+import org.eclipse.tracecompass.tmf.core.filter.model.TmfFilterCompareNode.Type;
+import org.eclipse.tracecompass.tmf.core.filter.model.TmfFilterContainsNode;
+import org.eclipse.tracecompass.tmf.core.filter.model.TmfFilterEqualsNode;
+import org.eclipse.tracecompass.tmf.core.filter.model.TmfFilterMatchesNode;
+import org.eclipse.tracecompass.tmf.core.filter.model.TmfFilterNode;
+import org.eclipse.tracecompass.tmf.core.filter.model.TmfFilterOrNode;
+import org.eclipse.tracecompass.tmf.core.filter.model.TmfFilterRootNode;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfNanoTimestamp;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+import org.eclipse.tracecompass.tmf.tests.stubs.trace.TmfTraceStub;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test suite for the {@link TmfFilterCompiler} class. The compiled filters
+ * must match exactly the same events as the filter trees.
+ */
+@SuppressWarnings("javadoc")
+public class TmfFilterCompilerTest {
+
+    // ------------------------------------------------------------------------
+    // Variables
+    // ------------------------------------------------------------------------
+
+    private static final @NonNull ITmfTrace TRACE = new TmfTraceStub();
+    private static final @NonNull String FIELD = "field";
+    private static final ITmfEventType EVENT_TYPE = new TmfEventType("Type", TmfEventField.makeRoot(new String[] { FIELD }));
+    private static final ITmfEventAspect ASPECT = new TmfContentFieldAspect(FIELD, FIELD);
+    private static final Object[] VALUES = new Object[] {
+            "abc", "ABC", "xAbCx", "a.c", "5", "0x10", "", 5L, 10L, -3L, 16, 2.5, 10.0, 'c', null
+    };
+
+    private List<ITmfEvent> fEvents;
+    private TmfFilterRootNode fRoot;
+
+    @AfterClass
+    public static void disposeTrace() {
+        TRACE.dispose();
+    }
+
+    @Before
+    public void createEvents() {
+        fEvents = new ArrayList<>();
+        for (int i = 0; i < VALUES.length; i++) {
+            ITmfEventField[] fields = (VALUES[i] == null) ? new ITmfEventField[0] :
+                    new ITmfEventField[] { new TmfEventField(FIELD, VALUES[i], null) };
+            ITmfEventField content = new TmfEventField(ITmfEventField.ROOT_FIELD_ID, null, fields);
+            fEvents.add(new TmfEvent(TRACE, i, new TmfNanoTimestamp(i), EVENT_TYPE, content));
+        }
+        fRoot = new TmfFilterRootNode();
+    }
+
+    // ------------------------------------------------------------------------
+    // Helpers
+    // ------------------------------------------------------------------------
+
+    private void assertSameMatches(ITmfFilterTreeNode node) {
+        ITmfFilter compiled = TmfFilterCompiler.compile(node);
+        /* Enough events for the children to be reordered a few times */
+        for (int i = 0; i < 5000; i++) {
+            ITmfEvent event = fEvents.get(i % fEvents.size());
+            assertEquals(node.toString() + " " + event.getContent(), node.matches(event), compiled.matches(event));
+        }
+    }
+
+    private static TmfFilterEqualsNode equalsNode(ITmfFilterTreeNode parent, String value, boolean ignoreCase, boolean not) {
+        TmfFilterEqualsNode node = new TmfFilterEqualsNode(parent);
+        node.setEventAspect(ASPECT);
+        node.setValue(value);
+        node.setIgnoreCase(ignoreCase);
+        node.setNot(not);
+        return node;
+    }
+
+    private static TmfFilterContainsNode containsNode(ITmfFilterTreeNode parent, String value, boolean ignoreCase, boolean not) {
+        TmfFilterContainsNode node = new TmfFilterContainsNode(parent);
+        node.setEventAspect(ASPECT);
+        node.setValue(value);
+        node.setIgnoreCase(ignoreCase);
+        node.setNot(not);
+        return node;
+    }
+
+    private static TmfFilterMatchesNode matchesNode(ITmfFilterTreeNode parent, String regex, boolean not) {
+        TmfFilterMatchesNode node = new TmfFilterMatchesNode(parent);
+        node.setEventAspect(ASPECT);
+        node.setRegex(regex);
+        node.setNot(not);
+        return node;
+    }
+
+    private static TmfFilterCompareNode compareNode(ITmfFilterTreeNode parent, Type type, String value, int result, boolean not) {
+        TmfFilterCompareNode node = new TmfFilterCompareNode(parent);
+        node.setEventAspect(ASPECT);
+        node.setType(type);
+        node.setValue(value);
+        node.setResult(result);
+        node.setNot(not);
+        return node;
+    }
+
+    // ------------------------------------------------------------------------
+    // Tests
+    // ------------------------------------------------------------------------
+
+    @Test
+    public void testNotCompiled() {
+        ITmfFilter filter = new TmfFilterNode(null) {
+            @Override
+            public boolean matches(ITmfEvent event) {
+                return true;
+            }
+        };
+        assertSame(filter, TmfFilterCompiler.compile(filter));
+    }
+
+    @Test
+    public void testEquals() {
+        for (String value : new String[] { "abc", "5", "10", "010", "2.5", "c" }) {
+            for (int i = 0; i < 4; i++) {
+                fRoot = new TmfFilterRootNode();
+                equalsNode(fRoot, value, (i & 1) != 0, (i & 2) != 0);
+                assertSameMatches(fRoot);
+            }
+        }
+    }
+
+    @Test
+    public void testContains() {
+        for (String value : new String[] { "abc", "b", "", "x0", ".", "\u01c6" }) {
+            for (int i = 0; i < 4; i++) {
+                fRoot = new TmfFilterRootNode();
+                containsNode(fRoot, value, (i & 1) != 0, (i & 2) != 0);
+                assertSameMatches(fRoot);
+            }
+        }
+    }
+
+    @Test
+    public void testMatches() {
+        for (String regex : new String[] { "abc", "b", "a.c", "^a", "[0-9]+", "(" }) {
+            for (int i = 0; i < 2; i++) {
+                fRoot = new TmfFilterRootNode();
+                matchesNode(fRoot, regex, i != 0);
+                assertSameMatches(fRoot);
+            }
+        }
+    }
+
+    @Test
+    public void testCompare() {
+        for (Type type : new Type[] { Type.NUM, Type.ALPHA }) {
+            for (String value : new String[] { "5", "0x10", "2.5", "-3", "abc" }) {
+                for (int result = -1; result <= 1; result++) {
+                    for (int i = 0; i < 2; i++) {
+                        fRoot = new TmfFilterRootNode();
+                        compareNode(fRoot, type, value, result, i != 0);
+                        assertSameMatches(fRoot);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testAndOr() {
+        for (int i = 0; i < 4; i++) {
+            fRoot = new TmfFilterRootNode();
+            TmfFilterAndNode and = new TmfFilterAndNode(fRoot);
+            and.setNot((i & 1) != 0);
+            TmfFilterOrNode or = new TmfFilterOrNode(and);
+            or.setNot((i & 2) != 0);
+            equalsNode(or, "5", false, false);
+            matchesNode(or, "^a", false);
+            containsNode(or, "x", true, false);
+            compareNode(and, Type.NUM, "0", 1, true);
+            assertSameMatches(fRoot);
+        }
+    }
+
+    @Test
+    public void testReorder() {
+        /* The cheap child rarely decides, the expensive one often does */
+        TmfFilterOrNode or = new TmfFilterOrNode(fRoot);
+        equalsNode(or, "abc", false, false);
+        matchesNode(or, "[a-z0-9.]+", false);
+        assertSameMatches(fRoot);
+
+        ITmfFilter compiled = TmfFilterCompiler.compile(fRoot);
+        assertTrue(compiled.matches(fEvents.get(0)));
+        assertFalse(compiled.matches(fEvents.get(VALUES.length - 1)));
+    }
+
+    @Test
+    public void testUncompiledChild() {
+        TmfFilterAndNode and = new TmfFilterAndNode(fRoot);
+        containsNode(and, "a", true, false);
+        and.addChild(new TmfFilterNode(null) {
+            @Override
+            public boolean matches(ITmfEvent event) {
+                return event.getRank() % 2 == 0;
+            }
+        });
+        assertSameMatches(fRoot);
+    }
+}
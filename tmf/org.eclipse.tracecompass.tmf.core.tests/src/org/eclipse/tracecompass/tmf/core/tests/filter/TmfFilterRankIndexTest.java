@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.core.tests.filter;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.tracecompass.internal.tmf.core.filter.TmfFilterRankIndex;
+import org.junit.Test;
+
+/**
+ * Test suite for the {@link TmfFilterRankIndex} class.
+ */
+@SuppressWarnings("javadoc")
+public class TmfFilterRankIndexTest {
+
+    private static void assertIndex(List<Long> ranks, TmfFilterRankIndex index) {
+        assertEquals(ranks.size(), index.getNbMatches());
+        for (int i = 0; i < ranks.size(); i++) {
+            long rank = ranks.get(i);
+            assertEquals(rank, index.getRank(i));
+            assertEquals(i, index.getIndex(rank));
+            assertEquals(i + 1, index.getIndex(rank + 1));
+        }
+        assertEquals(-1, index.getRank(ranks.size()));
+        assertEquals(-1, index.getRank(-1));
+    }
+
+    @Test
+    public void testEmpty() {
+        TmfFilterRankIndex index = new TmfFilterRankIndex();
+        assertEquals(0, index.getNbMatches());
+        assertEquals(0, index.getNbChecked());
+        assertEquals(-1, index.getRank(0));
+        assertEquals(0, index.getIndex(1000));
+    }
+
+    @Test
+    public void testSparseAndDense() {
+        /* Sparse, dense and full blocks, with gaps between them */
+        Random random = new Random(0);
+        TmfFilterRankIndex index = new TmfFilterRankIndex();
+        List<Long> ranks = new ArrayList<>();
+        long rank = 5;
+        for (int block = 0; block < 12; block++) {
+            int density = block % 4;
+            long end = rank + 70000;
+            for (; rank < end; rank++) {
+                boolean match = (density == 1 && random.nextInt(100) == 0) ||
+                        (density == 2 && random.nextInt(3) == 0) ||
+                        (density == 3);
+                if (match) {
+                    ranks.add(rank);
+                    index.add(rank);
+                }
+            }
+        }
+        index.setNbChecked(rank);
+        assertEquals(rank, index.getNbChecked());
+        assertIndex(ranks, index);
+        assertEquals(ranks.size(), index.getIndex(rank));
+    }
+
+    @Test
+    public void testLargeRanks() {
+        TmfFilterRankIndex index = new TmfFilterRankIndex();
+        List<Long> ranks = new ArrayList<>();
+        for (long rank = 3; rank < (1L << 40); rank = rank * 3 + 1) {
+            ranks.add(rank);
+            index.add(rank);
+        }
+        assertIndex(ranks, index);
+    }
+
+    @Test
+    public void testCheckedRanks() {
+        TmfFilterRankIndex index = new TmfFilterRankIndex();
+        index.add(10);
+        assertEquals(11, index.getNbChecked());
+        index.setNbChecked(100);
+        index.setNbChecked(50);
+        assertEquals(100, index.getNbChecked());
+        /* Already checked */
+        index.add(20);
+        index.add(100);
+        assertEquals(2, index.getNbMatches());
+        assertEquals(100, index.getRank(1));
+        assertEquals(1, index.getIndex(100));
+    }
+}
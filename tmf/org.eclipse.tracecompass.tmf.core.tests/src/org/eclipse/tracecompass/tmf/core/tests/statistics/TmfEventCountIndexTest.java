@@ -0,0 +1,257 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.core.tests.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.eclipse.tracecompass.tmf.core.statistics.TmfEventCountIndex;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link TmfEventCountIndex} class, comparing it to a simple
+ * count over the sorted time stamps
+ */
+public class TmfEventCountIndexTest {
+
+    private static final int NB_EVENTS = 200000;
+    private static final long GRANULARITY = 1000;
+
+    private long[] fTimestamps;
+    private TmfEventCountIndex fIndex;
+
+    /**
+     * Build an index with events spread unevenly, with gaps of many buckets
+     * and several events at the same time
+     */
+    @Before
+    public void setUp() {
+        Random random = new Random(42);
+        fTimestamps = new long[NB_EVENTS];
+        long ts = -5 * GRANULARITY;
+        for (int i = 0; i < NB_EVENTS; i++) {
+            switch (random.nextInt(4)) {
+            case 0:
+                /* Same time stamp as the previous event */
+                break;
+            case 1:
+                ts += random.nextInt(20 * (int) GRANULARITY);
+                break;
+            default:
+                ts += random.nextInt((int) GRANULARITY / 10);
+                break;
+            }
+            fTimestamps[i] = ts;
+        }
+        fIndex = new TmfEventCountIndex(GRANULARITY);
+        for (long timestamp : fTimestamps) {
+            fIndex.addEvent(timestamp);
+        }
+    }
+
+    /** Number of time stamps that are before or at the given time */
+    private long expectedCountAt(long timestamp) {
+        int low = 0;
+        int high = fTimestamps.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (fTimestamps[mid] <= timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** First time of the bucket containing the given time */
+    private static long bucketStart(long timestamp) {
+        long offset = ((timestamp % GRANULARITY) + GRANULARITY) % GRANULARITY;
+        return timestamp - offset;
+    }
+
+    /**
+     * Test that the number of events is exact at the bucket boundaries, and
+     * within the counts of the bucket boundaries inside a bucket
+     */
+    @Test
+    public void testGetCountAt() {
+        assertEquals(NB_EVENTS, fIndex.getCount());
+        for (long ts : fTimestamps) {
+            long start = bucketStart(ts);
+            long end = start + GRANULARITY - 1;
+            long before = expectedCountAt(start - 1);
+            long after = expectedCountAt(end);
+            assertEquals(before, fIndex.getCountAt(start - 1));
+            assertEquals(after, fIndex.getCountAt(end));
+            for (long t : new long[] { ts - 1, ts, ts + 1 }) {
+                if (t >= start && t <= end) {
+                    long count = fIndex.getCountAt(t);
+                    assertTrue(count >= before && count <= after);
+                }
+            }
+        }
+        assertEquals(0, fIndex.getCountAt(Long.MIN_VALUE));
+        assertEquals(0, fIndex.getCountAt(fTimestamps[0] - 1));
+        assertEquals(NB_EVENTS, fIndex.getCountAt(fTimestamps[NB_EVENTS - 1]));
+        assertEquals(NB_EVENTS, fIndex.getCountAt(Long.MAX_VALUE));
+    }
+
+    /**
+     * Test that the count is exact whenever the index says so
+     */
+    @Test
+    public void testIsExactAt() {
+        for (int i = 0; i < NB_EVENTS; i += 13) {
+            long ts = fTimestamps[i];
+            long end = bucketStart(ts) + GRANULARITY - 1;
+            assertTrue(fIndex.isExactAt(end));
+            assertTrue(fIndex.isExactAt(bucketStart(ts) - 1));
+            for (long t : new long[] { ts - 1, ts, ts + 1, end }) {
+                if (fIndex.isExactAt(t)) {
+                    assertEquals(expectedCountAt(t), fIndex.getCountAt(t));
+                }
+            }
+        }
+        assertTrue(fIndex.isExactAt(Long.MIN_VALUE));
+        assertTrue(fIndex.isExactAt(Long.MAX_VALUE));
+
+        TmfEventCountIndex index = new TmfEventCountIndex(GRANULARITY);
+        index.addEvent(10);
+        index.addEvent(20);
+        index.addEvent(5 * GRANULARITY);
+        assertFalse(index.isExactAt(15));
+        assertTrue(index.isExactAt(GRANULARITY - 1));
+        /* Bucket without events */
+        assertTrue(index.isExactAt(2 * GRANULARITY + 500));
+        assertEquals(2, index.getCountAt(2 * GRANULARITY + 500));
+    }
+
+    /**
+     * Test the interpolation inside a bucket whose events are evenly spread
+     */
+    @Test
+    public void testInterpolation() {
+        TmfEventCountIndex index = new TmfEventCountIndex(GRANULARITY);
+        for (long ts = 0; ts < 3 * GRANULARITY; ts += 10) {
+            index.addEvent(ts);
+        }
+        index.addEvent(3 * GRANULARITY);
+        assertEquals(100, index.getCountAt(GRANULARITY - 1));
+        assertEquals(150, index.getCountAt(GRANULARITY + GRANULARITY / 2 - 1));
+        assertEquals(125, index.getCountInRange(GRANULARITY / 2, 2 * GRANULARITY - GRANULARITY / 4 - 1));
+        assertEquals(301, index.getCountAt(3 * GRANULARITY));
+    }
+
+    /**
+     * Test the number of events in ranges, which is exact on the bucket
+     * boundaries, and off by at most the events of the edge buckets otherwise
+     */
+    @Test
+    public void testGetCountInRange() {
+        long start = fTimestamps[0];
+        long end = fTimestamps[NB_EVENTS - 1];
+        assertEquals(NB_EVENTS, fIndex.getCountInRange(start, end));
+        assertEquals(NB_EVENTS, fIndex.getCountInRange(Long.MIN_VALUE, Long.MAX_VALUE));
+        assertEquals(0, fIndex.getCountInRange(end, start));
+
+        Random random = new Random(7);
+        for (int i = 0; i < 1000; i++) {
+            long t1 = start + (long) (random.nextDouble() * (end - start));
+            long t2 = t1 + random.nextInt(100 * (int) GRANULARITY);
+
+            long alignedStart = bucketStart(t1);
+            long alignedEnd = bucketStart(t2) + GRANULARITY - 1;
+            assertEquals(expectedCountAt(alignedEnd) - expectedCountAt(alignedStart - 1),
+                    fIndex.getCountInRange(alignedStart, alignedEnd));
+
+            long count = fIndex.getCountInRange(t1, t2);
+            long expected = expectedCountAt(t2) - expectedCountAt(t1 - 1);
+            long edgeEvents = (expectedCountAt(alignedStart + GRANULARITY - 1) - expectedCountAt(alignedStart - 1))
+                    + (expectedCountAt(alignedEnd) - expectedCountAt(alignedEnd - GRANULARITY));
+            assertTrue(Math.abs(count - expected) <= edgeEvents);
+        }
+    }
+
+    /**
+     * Test that an event earlier than the previous one is counted at the time
+     * of the previous one
+     */
+    @Test
+    public void testOutOfOrder() {
+        TmfEventCountIndex index = new TmfEventCountIndex(GRANULARITY);
+        index.addEvent(5000);
+        index.addEvent(100);
+        assertEquals(0, index.getCountAt(4999));
+        assertEquals(2, index.getCountAt(5000));
+    }
+
+    /**
+     * Test an invalid granularity
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidGranularity() {
+        new TmfEventCountIndex(0);
+    }
+
+    /**
+     * Test that an index read back from a file gives the same counts
+     *
+     * @throws IOException
+     *             if the file could not be written or read
+     */
+    @Test
+    public void testSaveLoad() throws IOException {
+        File file = File.createTempFile("count", ".idx");
+        try {
+            fIndex.save(file);
+            TmfEventCountIndex loaded = TmfEventCountIndex.load(file);
+            assertEquals(GRANULARITY, loaded.getGranularity());
+            assertEquals(NB_EVENTS, loaded.getCount());
+            for (int i = 0; i < NB_EVENTS; i += 97) {
+                long ts = fTimestamps[i];
+                assertEquals(fIndex.getCountAt(ts), loaded.getCountAt(ts));
+                assertEquals(fIndex.getCountAt(ts - 1), loaded.getCountAt(ts - 1));
+            }
+
+            /* The loaded index can still grow */
+            loaded.addEvent(fTimestamps[NB_EVENTS - 1] + 1);
+            assertEquals(NB_EVENTS + 1, loaded.getCount());
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Test reading a file that is not an index
+     *
+     * @throws IOException
+     *             expected
+     */
+    @Test(expected = IOException.class)
+    public void testLoadInvalid() throws IOException {
+        File file = File.createTempFile("count", ".idx");
+        try {
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                out.write(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+            }
+            TmfEventCountIndex.load(file);
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2013, 2014 Ericsson
+ * Copyright (c) 2013, 2015 Ericsson
  *
  * All rights reserved. This program and the accompanying materials are
  * made available under the terms of the Eclipse Public License v1.0 which
@@ -13,6 +13,7 @@
 package org.eclipse.tracecompass.tmf.core.tests.trace.indexer;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 
@@ -115,4 +116,25 @@ public class BTreeTest extends AbstractCheckpointCollectionTest {
         assertEquals(expected, fBTree.size());
     }
 
+    /**
+     * Test that the number of nodes in memory stays within the cache budget
+     * and that the cache statistics add up
+     */
+    @Test
+    public void testCacheBudget() {
+        fBTree.dispose();
+        getFile().delete();
+        fCheckpointCollection = fBTree = new BTree(DEGREE, 0, getFile(), (ITmfPersistentlyIndexable) getTrace());
+        for (int i = 0; i < CHECKPOINTS_INSERT_NUM; i++) {
+            fBTree.insert(new TmfCheckpoint(new TmfTimestamp(12345 + i), new TmfLongLocation(123456L + i), i));
+        }
+        assertTrue(fBTree.getCachedNodeCount() <= fBTree.getMaxCachedNodes());
+        assertTrue(fBTree.getCacheEvictions() > 0);
+
+        long requests = fBTree.getCacheHits() + fBTree.getCacheMisses();
+        TmfCheckpoint checkpoint = new TmfCheckpoint(new TmfTimestamp(12345), new TmfLongLocation(123456L), 0);
+        fBTree.accept(new BTreeCheckpointVisitor(checkpoint));
+        assertTrue(fBTree.getCacheHits() + fBTree.getCacheMisses() > requests);
+    }
+
 }
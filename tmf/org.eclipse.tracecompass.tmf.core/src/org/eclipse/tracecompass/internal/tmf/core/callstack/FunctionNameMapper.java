@@ -21,10 +21,7 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.regex.Pattern;
 
 import org.eclipse.cdt.core.CCorePlugin;
 import org.eclipse.cdt.core.IBinaryParser;
@@ -39,8 +36,6 @@ import org.eclipse.core.runtime.SafeRunner;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.internal.tmf.core.Activator;
 
-import com.google.common.collect.ImmutableMap;
-
 /**
  * Class containing the different methods to import an address->name mapping.
  *
@@ -50,33 +45,27 @@ public final class FunctionNameMapper {
 
     private FunctionNameMapper() {}
 
-    private static final Pattern REMOVE_ZEROS_PATTERN = Pattern.compile("^0+(?!$)"); //$NON-NLS-1$
-
     /**
      * Get the function name mapping from a text file obtained by doing
      *
      * <pre>
-     * nm[--demangle][binary] &gt; file.txt
+     * nm[--demangle][--print-size][binary] &gt; file.txt
      * </pre>
      *
+     * The file is read line by line, only the symbol table is kept in memory.
+     *
      * @param mappingFile
      *            The file to import
-     * @return A map&lt;address, function name&gt; of the results
+     * @return The table of the function names, or null if the file has no
+     *         symbol
      */
-    public static @Nullable Map<String, String> mapFromNmTextFile(File mappingFile) {
-        Map<String, String> map = new HashMap<>();
+    public static @Nullable FunctionNameTable mapFromNmTextFile(File mappingFile) {
+        FunctionNameTable.Builder builder = new FunctionNameTable.Builder();
 
         try (FileReader fr = new FileReader(mappingFile);
                 BufferedReader reader = new BufferedReader(fr);) {
             for (String line = reader.readLine(); line != null; line = reader.readLine()) {
-                line = line.trim();
-                /* Only lines with 3 elements contain addresses */
-                String[] elems = line.split(" ", 3); //$NON-NLS-1$
-                if (elems.length == 3) {
-                    String address = stripLeadingZeros(elems[0]);
-                    String name = elems[elems.length - 1];
-                    map.put(address, name);
-                }
+                parseNmLine(line.trim(), builder);
             }
         } catch (FileNotFoundException e) {
             return null;
@@ -84,10 +73,41 @@ public final class FunctionNameMapper {
             /* Stop reading the file at this point */
         }
 
-        if (map.isEmpty()) {
+        if (builder.isEmpty()) {
             return null;
         }
-        return ImmutableMap.copyOf(map);
+        return builder.build();
+    }
+
+    /**
+     * Parse a line of nm output, "address [size] type name". The lines
+     * without address, like the undefined symbols, are ignored.
+     */
+    private static void parseNmLine(String line, FunctionNameTable.Builder builder) {
+        int addressEnd = line.indexOf(' ');
+        if (addressEnd <= 0 || !FunctionNameTable.isAddress(line, 0, addressEnd)) {
+            return;
+        }
+        long address = FunctionNameTable.parseAddress(line, 0, addressEnd);
+        long size = 0;
+        int typeStart = addressEnd + 1;
+        int typeEnd = line.indexOf(' ', typeStart);
+        if (typeEnd < 0) {
+            return;
+        }
+        /* The type is a single letter, a longer field is the size */
+        if (typeEnd - typeStart > 1) {
+            if (!FunctionNameTable.isAddress(line, typeStart, typeEnd)) {
+                return;
+            }
+            size = FunctionNameTable.parseAddress(line, typeStart, typeEnd);
+            typeStart = typeEnd + 1;
+            typeEnd = line.indexOf(' ', typeStart);
+            if (typeEnd < 0) {
+                return;
+            }
+        }
+        builder.add(address, size, line.substring(typeEnd + 1));
     }
 
     /**
@@ -95,32 +115,20 @@ public final class FunctionNameMapper {
      *
      * @param file
      *            The file to import
-     * @return A map&lt;address, function name&gt; of the results
+     * @return The table of the function names
      */
-    public static @Nullable Map<String, String> mapFromBinaryFile(File file) {
-        Map<String, String> map = new HashMap<>();
+    public static @Nullable FunctionNameTable mapFromBinaryFile(File file) {
+        FunctionNameTable.Builder builder = new FunctionNameTable.Builder();
         IBinaryParser.IBinaryObject binaryObject = getBinaryObject(file);
         if (binaryObject != null) {
             ISymbol[] symbols = binaryObject.getSymbols();
             for (ISymbol symbol : symbols) {
-                String address = symbol.getAddress().toHexAddressString();
-                /* Remove "0x" */
-                address = address.substring(2);
-                /* Strip the leading zeroes from the address */
-                address = stripLeadingZeros(address);
-                map.put(address, symbol.getName());
+                long address = symbol.getAddress().getValue().longValue();
+                builder.add(address, symbol.getSize(), symbol.getName());
             }
         }
 
-        return ImmutableMap.copyOf(map);
-    }
-
-
-    /**
-     * Strip the leading zeroes from the address
-     * */
-    private static String stripLeadingZeros(String address) {
-        return REMOVE_ZEROS_PATTERN.matcher(address).replaceFirst(""); //$NON-NLS-1$
+        return builder.build();
     }
 
     private static @Nullable IBinaryParser.IBinaryObject getBinaryObject(File file) {
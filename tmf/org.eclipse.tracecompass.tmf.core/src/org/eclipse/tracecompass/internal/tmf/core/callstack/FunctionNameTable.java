@@ -0,0 +1,286 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.tmf.core.callstack;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Table of the function symbols of a binary, used to get the name of the
+ * function that contains an address.
+ *
+ * The start and end addresses of the symbols are kept sorted in arrays, so an
+ * address is resolved by a binary search. A symbol whose size is unknown ends
+ * where the next symbol starts. The addresses are unsigned.
+ */
+public final class FunctionNameTable {
+
+    private static final int CACHE_SIZE = 4096;
+
+    /* The first and last addresses, with their sign bit flipped to sort them as unsigned values */
+    private final long[] fStarts;
+    private final long[] fEnds;
+    private final String[] fNames;
+
+    /* The last resolved addresses, each one at an index given by its hash */
+    private final CacheEntry[] fCache = new CacheEntry[CACHE_SIZE];
+
+    private FunctionNameTable(long[] starts, long[] ends, String[] names) {
+        fStarts = starts;
+        fEnds = ends;
+        fNames = names;
+    }
+
+    /**
+     * Get the number of symbols in the table
+     *
+     * @return The number of symbols
+     */
+    public int size() {
+        return fNames.length;
+    }
+
+    /**
+     * Get the name of the function that contains an address
+     *
+     * @param address
+     *            The address
+     * @return The name of the function, or null if no symbol contains the
+     *         address
+     */
+    public @Nullable String getName(long address) {
+        int hash = (int) (address ^ (address >>> 32));
+        int slot = (hash ^ (hash >>> 16)) & (CACHE_SIZE - 1);
+        CacheEntry entry = fCache[slot];
+        if (entry != null && entry.fAddress == address) {
+            return entry.fName;
+        }
+        String name = lookup(address ^ Long.MIN_VALUE);
+        fCache[slot] = new CacheEntry(address, name);
+        return name;
+    }
+
+    /**
+     * Get the name of the function that contains an address
+     *
+     * @param address
+     *            The address, as an hexadecimal string with or without the
+     *            "0x" prefix
+     * @return The name of the function, or null if the address is not valid or
+     *         if no symbol contains it
+     */
+    public @Nullable String getName(String address) {
+        int start = (address.startsWith("0x") || address.startsWith("0X")) ? 2 : 0; //$NON-NLS-1$ //$NON-NLS-2$
+        if (!isAddress(address, start, address.length())) {
+            return null;
+        }
+        return getName(parseAddress(address, start, address.length()));
+    }
+
+    private @Nullable String lookup(long key) {
+        /* Find the last symbol that starts at or before the address */
+        int lo = 0;
+        int hi = fStarts.length - 1;
+        int index = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (fStarts[mid] <= key) {
+                index = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        if (index >= 0 && key <= fEnds[index]) {
+            return fNames[index];
+        }
+        return null;
+    }
+
+    /**
+     * Check if some text is an hexadecimal address of at most 64 bits
+     *
+     * @param text
+     *            The text that contains the address
+     * @param from
+     *            The index of the first digit, inclusive
+     * @param to
+     *            The index of the end of the address, exclusive
+     * @return If the text is a valid address
+     */
+    static boolean isAddress(CharSequence text, int from, int to) {
+        if (from >= to || to - from > Long.SIZE / 4) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            if (Character.digit(text.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parse an hexadecimal address, that must be valid
+     *
+     * @param text
+     *            The text that contains the address
+     * @param from
+     *            The index of the first digit, inclusive
+     * @param to
+     *            The index of the end of the address, exclusive
+     * @return The unsigned address
+     */
+    static long parseAddress(CharSequence text, int from, int to) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            value = (value << 4) | Character.digit(text.charAt(i), 16);
+        }
+        return value;
+    }
+
+    private static final class CacheEntry {
+        private final long fAddress;
+        private final @Nullable String fName;
+
+        public CacheEntry(long address, @Nullable String name) {
+            fAddress = address;
+            fName = name;
+        }
+    }
+
+    /**
+     * Builder of a function name table. The symbols can be added in any order.
+     * If two symbols start at the same address, the last one added is kept.
+     */
+    public static final class Builder {
+
+        private static final int INITIAL_CAPACITY = 1024;
+
+        private long[] fAddresses = new long[INITIAL_CAPACITY];
+        private long[] fSizes = new long[INITIAL_CAPACITY];
+        private String[] fSymbolNames = new String[INITIAL_CAPACITY];
+        private int fSize = 0;
+        private boolean fSorted = true;
+        private final Map<String, String> fInternedNames = new HashMap<>();
+
+        /**
+         * Add a symbol
+         *
+         * @param address
+         *            The unsigned start address of the symbol
+         * @param size
+         *            The size of the symbol, or 0 if it is unknown
+         * @param name
+         *            The name of the symbol
+         */
+        public void add(long address, long size, String name) {
+            if (fSize == fAddresses.length) {
+                fAddresses = Arrays.copyOf(fAddresses, fSize * 2);
+                fSizes = Arrays.copyOf(fSizes, fSize * 2);
+                fSymbolNames = Arrays.copyOf(fSymbolNames, fSize * 2);
+            }
+            String interned = fInternedNames.get(name);
+            if (interned == null) {
+                fInternedNames.put(name, name);
+                interned = name;
+            }
+            long key = address ^ Long.MIN_VALUE;
+            if (fSize > 0 && key < fAddresses[fSize - 1]) {
+                fSorted = false;
+            }
+            fAddresses[fSize] = key;
+            fSizes[fSize] = size;
+            fSymbolNames[fSize] = interned;
+            fSize++;
+        }
+
+        /**
+         * Check if no symbol was added
+         *
+         * @return If the builder has no symbol
+         */
+        public boolean isEmpty() {
+            return fSize == 0;
+        }
+
+        /**
+         * Build the table from the symbols added so far
+         *
+         * @return The function name table
+         */
+        public FunctionNameTable build() {
+            int[] order = new int[fSize];
+            for (int i = 0; i < fSize; i++) {
+                order[i] = i;
+            }
+            if (!fSorted) {
+                sort(order, new int[fSize], 0, fSize);
+            }
+
+            /* Keep the last symbol added at each address */
+            int count = 0;
+            for (int i = 0; i < fSize; i++) {
+                if (i + 1 < fSize && fAddresses[order[i]] == fAddresses[order[i + 1]]) {
+                    continue;
+                }
+                order[count++] = order[i];
+            }
+
+            long[] starts = new long[count];
+            long[] ends = new long[count];
+            String[] names = new String[count];
+            for (int i = 0; i < count; i++) {
+                int symbol = order[i];
+                starts[i] = fAddresses[symbol];
+                names[i] = fSymbolNames[symbol];
+                if (fSizes[symbol] > 0) {
+                    ends[i] = starts[i] + fSizes[symbol] - 1;
+                } else if (i + 1 < count) {
+                    ends[i] = fAddresses[order[i + 1]] - 1;
+                } else {
+                    /* Only the address of the last symbol is known */
+                    ends[i] = starts[i];
+                }
+                if (ends[i] < starts[i]) {
+                    /* The symbol ends at the top of the address space */
+                    ends[i] = Long.MAX_VALUE;
+                }
+            }
+            return new FunctionNameTable(starts, ends, names);
+        }
+
+        /* Stable merge sort of the symbol indexes by address */
+        private void sort(int[] order, int[] buffer, int from, int to) {
+            if (to - from < 2) {
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            sort(order, buffer, from, mid);
+            sort(order, buffer, mid, to);
+            if (fAddresses[order[mid - 1]] <= fAddresses[order[mid]]) {
+                return;
+            }
+            System.arraycopy(order, from, buffer, from, to - from);
+            int i = from;
+            int j = mid;
+            for (int k = from; k < to; k++) {
+                if (j >= to || (i < mid && fAddresses[buffer[i]] <= fAddresses[buffer[j]])) {
+                    order[k] = buffer[i++];
+                } else {
+                    order[k] = buffer[j++];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,257 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.tmf.core.filter;
+
+import java.util.Arrays;
+
+/**
+ * Index of the ranks of the events of a trace that match a filter.
+ *
+ * The ranks are stored in a compressed bitmap: the ranks are split in blocks
+ * of 2^16 ranks, and each block that has matching events stores their low
+ * bits either in a sorted array, when they are few, or in a bitmap. The index
+ * can then find the rank of the Nth matching event, or the number of matching
+ * events before a rank, in logarithmic time.
+ *
+ * The ranks are added in increasing order, while the trace is read. This class
+ * is not thread-safe.
+ */
+public class TmfFilterRankIndex {
+
+    private static final int BLOCK_BITS = 16;
+    private static final int BLOCK_MASK = (1 << BLOCK_BITS) - 1;
+    /* A bitmap block takes as much memory as an array block of this size */
+    private static final int MAX_ARRAY_SIZE = 4096;
+    private static final int INITIAL_CAPACITY = 16;
+
+    /* The high bits of the ranks of each block */
+    private long[] fKeys = new long[INITIAL_CAPACITY];
+    /* The number of matching events before each block */
+    private long[] fCounts = new long[INITIAL_CAPACITY];
+    private Block[] fBlocks = new Block[INITIAL_CAPACITY];
+    private int fNbBlocks = 0;
+
+    private long fNbMatches = 0;
+    private long fNbChecked = 0;
+
+    /**
+     * Add the rank of a matching event. All the events before it must have
+     * been checked, a rank that was already checked is ignored.
+     *
+     * @param rank
+     *            The rank of the matching event
+     */
+    public void add(long rank) {
+        if (rank < fNbChecked) {
+            return;
+        }
+        long key = rank >>> BLOCK_BITS;
+        int low = (int) (rank & BLOCK_MASK);
+        if (fNbBlocks == 0 || fKeys[fNbBlocks - 1] != key) {
+            if (fNbBlocks == fKeys.length) {
+                fKeys = Arrays.copyOf(fKeys, fNbBlocks * 2);
+                fCounts = Arrays.copyOf(fCounts, fNbBlocks * 2);
+                fBlocks = Arrays.copyOf(fBlocks, fNbBlocks * 2);
+            }
+            fKeys[fNbBlocks] = key;
+            fCounts[fNbBlocks] = fNbMatches;
+            fBlocks[fNbBlocks] = new ArrayBlock();
+            fNbBlocks++;
+        }
+        Block block = fBlocks[fNbBlocks - 1];
+        if (block instanceof ArrayBlock && block.fSize == MAX_ARRAY_SIZE) {
+            block = new BitmapBlock((ArrayBlock) block);
+            fBlocks[fNbBlocks - 1] = block;
+        }
+        block.add(low);
+        fNbMatches++;
+        fNbChecked = rank + 1;
+    }
+
+    /**
+     * Set the number of events that were checked against the filter. All the
+     * matching events among them must have been added.
+     *
+     * @param nbChecked
+     *            The number of checked events, it is ignored if it is lower
+     *            than the current number of checked events
+     */
+    public void setNbChecked(long nbChecked) {
+        fNbChecked = Math.max(fNbChecked, nbChecked);
+    }
+
+    /**
+     * Get the number of events that were checked against the filter, the
+     * events of lower rank are all in the index.
+     *
+     * @return The number of checked events
+     */
+    public long getNbChecked() {
+        return fNbChecked;
+    }
+
+    /**
+     * Get the number of matching events
+     *
+     * @return The number of matching events
+     */
+    public long getNbMatches() {
+        return fNbMatches;
+    }
+
+    /**
+     * Get the rank of a matching event
+     *
+     * @param index
+     *            The index of the event among the matching events
+     * @return The rank of the event, or -1 if there are not that many matching
+     *         events
+     */
+    public long getRank(long index) {
+        if (index < 0 || index >= fNbMatches) {
+            return -1;
+        }
+        /* Find the last block with less matching events before it than the index */
+        int lo = 0;
+        int hi = fNbBlocks - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (fCounts[mid] <= index) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return (fKeys[lo] << BLOCK_BITS) | fBlocks[lo].select((int) (index - fCounts[lo]));
+    }
+
+    /**
+     * Get the number of matching events before a rank. It is only known for
+     * the ranks that are not greater than the number of checked events.
+     *
+     * @param rank
+     *            The rank
+     * @return The number of matching events of lower rank
+     */
+    public long getIndex(long rank) {
+        long key = rank >>> BLOCK_BITS;
+        /* Find the last block whose ranks are not greater than the rank */
+        int lo = -1;
+        int hi = fNbBlocks - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (fKeys[mid] <= key) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        if (lo < 0) {
+            return 0;
+        }
+        if (fKeys[lo] < key) {
+            return fCounts[lo] + fBlocks[lo].fSize;
+        }
+        return fCounts[lo] + fBlocks[lo].countBelow((int) (rank & BLOCK_MASK));
+    }
+
+    // ------------------------------------------------------------------------
+    // Blocks
+    // ------------------------------------------------------------------------
+
+    private abstract static class Block {
+        protected int fSize = 0;
+
+        /* The values are added in increasing order */
+        public abstract void add(int value);
+
+        public abstract int select(int index);
+
+        public abstract int countBelow(int value);
+    }
+
+    private static final class ArrayBlock extends Block {
+        private char[] fValues = new char[INITIAL_CAPACITY];
+
+        @Override
+        public void add(int value) {
+            if (fSize == fValues.length) {
+                fValues = Arrays.copyOf(fValues, Math.min(fSize * 2, MAX_ARRAY_SIZE));
+            }
+            fValues[fSize++] = (char) value;
+        }
+
+        @Override
+        public int select(int index) {
+            return fValues[index];
+        }
+
+        @Override
+        public int countBelow(int value) {
+            int lo = 0;
+            int hi = fSize;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (fValues[mid] < value) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+
+    private static final class BitmapBlock extends Block {
+        private final long[] fWords = new long[(BLOCK_MASK + 1) / Long.SIZE];
+
+        public BitmapBlock(ArrayBlock block) {
+            for (int i = 0; i < block.fSize; i++) {
+                add(block.fValues[i]);
+            }
+        }
+
+        @Override
+        public void add(int value) {
+            fWords[value >>> 6] |= 1L << value;
+            fSize++;
+        }
+
+        @Override
+        public int select(int index) {
+            int remaining = index;
+            for (int i = 0; i < fWords.length; i++) {
+                int count = Long.bitCount(fWords[i]);
+                if (remaining < count) {
+                    long word = fWords[i];
+                    for (int j = 0; j < remaining; j++) {
+                        word &= word - 1;
+                    }
+                    return (i << 6) + Long.numberOfTrailingZeros(word);
+                }
+                remaining -= count;
+            }
+            return -1;
+        }
+
+        @Override
+        public int countBelow(int value) {
+            int count = 0;
+            int word = value >>> 6;
+            for (int i = 0; i < word; i++) {
+                count += Long.bitCount(fWords[i]);
+            }
+            if (word < fWords.length) {
+                count += Long.bitCount(fWords[word] & ((1L << value) - 1));
+            }
+            return count;
+        }
+    }
+}
@@ -19,6 +19,7 @@ import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.text.MessageFormat;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.tracecompass.internal.tmf.core.Activator;
 import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
@@ -111,8 +112,10 @@ public abstract class AbstractFileCheckpointCollection implements ICheckpointCol
         protected final int fVersion;
         /**
          * The size of the collection expressed in a number of checkpoints.
+         * It is only increased once a checkpoint is completely written, so
+         * readers can use any checkpoint below it.
          */
-        protected int fSize = 0;
+        protected volatile int fSize = 0;
         /**
          * Offset in bytes where the time range is store
          */
@@ -142,7 +145,7 @@ public abstract class AbstractFileCheckpointCollection implements ICheckpointCol
      */
     private ITmfPersistentlyIndexable fTrace;
 
-    private long fCacheMisses = 0;
+    private final AtomicLong fCacheMisses = new AtomicLong();
     private boolean fCreatedFromScratch;
 
     /**
@@ -343,14 +346,14 @@ public abstract class AbstractFileCheckpointCollection implements ICheckpointCol
      * @return the number of cache misses.
      */
     public long getCacheMisses() {
-        return fCacheMisses;
+        return fCacheMisses.get();
     }
 
     /**
      * Increment the number of cache misses.
      */
     protected void incCacheMisses() {
-        ++fCacheMisses;
+        fCacheMisses.incrementAndGet();
     }
 
     /**
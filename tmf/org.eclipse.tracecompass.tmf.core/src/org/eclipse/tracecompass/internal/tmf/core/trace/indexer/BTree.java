@@ -116,6 +116,23 @@ public class BTree extends AbstractFileCheckpointCollection {
      *            the trace
      */
     public BTree(int degree, File file, ITmfPersistentlyIndexable trace) {
+        this(degree, BTreeNodeCache.DEFAULT_CACHE_BUDGET, file, trace);
+    }
+
+    /**
+     * Constructs a BTree for a given trace from scratch or from an existing
+     * file, with a given memory budget for the nodes kept in memory.
+     *
+     * @param degree
+     *            the degree to use in the tree
+     * @param cacheBudget
+     *            the memory budget of the node cache, in bytes
+     * @param file
+     *            the file to use as the persistent storage
+     * @param trace
+     *            the trace
+     */
+    public BTree(int degree, long cacheBudget, File file, ITmfPersistentlyIndexable trace) {
         super(file, trace);
 
         fMaxNumEntries = 2 * degree - 1;
@@ -124,7 +141,7 @@ public class BTree extends AbstractFileCheckpointCollection {
 
         fNodeByteBuffer = ByteBuffer.allocate(getNodeSize());
         fNodeByteBuffer.clear();
-        fNodeCache = new BTreeNodeCache(this);
+        fNodeCache = new BTreeNodeCache(this, cacheBudget);
         BTreeNode rootNode = isCreatedFromScratch() ? allocateNode() : fNodeCache.getNode(fBTreeHeader.fRoot);
         setRootNode(rootNode);
     }
@@ -269,6 +286,10 @@ public class BTree extends AbstractFileCheckpointCollection {
         return null;
     }
 
+    /**
+     * Search for a checkpoint. Many threads can search at the same time, but
+     * not while checkpoints are being inserted.
+     */
     @Override
     public long binarySearch(ITmfCheckpoint checkpoint) {
         BTreeCheckpointVisitor v = new BTreeCheckpointVisitor(checkpoint);
@@ -349,6 +370,48 @@ public class BTree extends AbstractFileCheckpointCollection {
         fNodeCache.serialize();
     }
 
+    @Override
+    public long getCacheMisses() {
+        return fNodeCache.getCacheMisses();
+    }
+
+    /**
+     * Get the number of times a node was found in memory
+     *
+     * @return the number of cache hits
+     */
+    public long getCacheHits() {
+        return fNodeCache.getCacheHits();
+    }
+
+    /**
+     * Get the number of nodes removed from memory to make room for others
+     *
+     * @return the number of evictions
+     */
+    public long getCacheEvictions() {
+        return fNodeCache.getEvictions();
+    }
+
+    /**
+     * Get the number of nodes currently kept in memory
+     *
+     * @return the number of cached nodes
+     */
+    public int getCachedNodeCount() {
+        return fNodeCache.getCachedNodeCount();
+    }
+
+    /**
+     * Get the maximum number of nodes kept in memory, computed from the memory
+     * budget of the cache
+     *
+     * @return the maximum number of cached nodes
+     */
+    public int getMaxCachedNodes() {
+        return fNodeCache.getMaxCachedNodes();
+    }
+
     /**
      * Get the maximum number of entries in a node
      *
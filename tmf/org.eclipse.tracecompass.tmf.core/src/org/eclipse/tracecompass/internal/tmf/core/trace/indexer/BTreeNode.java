@@ -14,6 +14,7 @@ package org.eclipse.tracecompass.internal.tmf.core.trace.indexer;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.text.MessageFormat;
 import java.util.Arrays;
 
@@ -87,16 +88,18 @@ class BTreeNode {
     }
 
     /**
-     * Read the node data from disk
+     * Read the node data from disk. This can be called by many threads at the
+     * same time.
      */
     void serializeIn() {
         try {
-            fTree.getRandomAccessFile().seek(fFileOffset);
-
-            ByteBuffer bb;
-            bb = fTree.getNodeByteBuffer();
-            bb.clear();
-            fTree.getRandomAccessFile().read(bb.array());
+            /* Use a positional read, the file position is used by writes */
+            ByteBuffer bb = ByteBuffer.allocate(fTree.getNodeSize());
+            FileChannel fileChannel = fTree.getFileChannel();
+            while (bb.hasRemaining() && fileChannel.read(bb, fFileOffset + bb.position()) >= 0) {
+                // Keep reading until the node is complete
+            }
+            bb.flip();
 
             for (int i = 0; i < fTree.getMaxNumChildren(); ++i) {
                 fChildrenFileOffsets[i] = bb.getLong();
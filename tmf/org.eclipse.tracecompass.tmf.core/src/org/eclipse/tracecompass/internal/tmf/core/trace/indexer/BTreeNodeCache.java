@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2013, 2014 Ericsson
+ * Copyright (c) 2013, 2015 Ericsson
  *
  * All rights reserved. This program and the accompanying materials are
  * made available under the terms of the Eclipse Public License v1.0 which
@@ -12,48 +12,69 @@
 
 package org.eclipse.tracecompass.internal.tmf.core.trace.indexer;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A simple LRU node cache. The BTree request a node from the cache and the
  * cache load it from disk if it's not already in memory.
  *
- * This cache could be improved considerably by allowing bigger caches.
+ * The number of nodes kept in memory is bounded by a memory budget, in bytes.
+ * The size of a node is estimated from its size on disk.
+ *
+ * The cache can be used by many threads at the same time. Nodes are loaded
+ * from disk outside of the cache lock, so a thread reading a node from disk
+ * does not block the others.
  *
  * @author Marc-Andre Laperle
  */
 public class BTreeNodeCache {
 
     /**
-     * Cache size obtained by experimentation. An improved cache could set this
-     * dynamically or using a user preference.
+     * Default memory budget of the cache, in bytes
+     */
+    static final long DEFAULT_CACHE_BUDGET = 4 * 1024 * 1024;
+
+    /**
+     * Minimum number of nodes kept in memory, whatever the budget. A node and
+     * its parents must be in memory during an insertion.
      */
-    private static final int CACHE_SIZE = 15;
+    private static final int MIN_CACHE_SIZE = 15;
 
     private final BTree fTree;
+
+    /** The maximum number of nodes in memory, computed from the budget */
+    private final int fMaxNodes;
+
     /**
      * The root node is always kept in memory when {@link
      * BTree#ALWAYS_CACHE_ROOT} is set to true
      */
-    private BTreeNode fRootNode = null;
+    private volatile BTreeNode fRootNode = null;
+
     /**
-     * The collection keeping the nodes in memory. The most recently used is
-     * kept at the front of the double-ended queue and the least recently used
-     * node is kept at the back.
+     * The nodes kept in memory, by offset, in access order. The least recently
+     * used node comes first. Guarded by itself.
      */
-    private final Deque<BTreeNode> fCachedNodes = new ArrayDeque<>(CACHE_SIZE);
+    private final LinkedHashMap<Long, BTreeNode> fCachedNodes = new LinkedHashMap<>(MIN_CACHE_SIZE, 0.75f, true);
 
-    private int fCcheMisses = 0;
+    private final AtomicLong fCacheHits = new AtomicLong();
+    private final AtomicLong fCacheMisses = new AtomicLong();
+    private final AtomicLong fEvictions = new AtomicLong();
 
     /**
      * Construct a new node cache for the given BTree
      *
      * @param tree
      *            the BTree that will use the cache
+     * @param budget
+     *            the memory budget of the cache, in bytes
      */
-    BTreeNodeCache(BTree tree) {
+    BTreeNodeCache(BTree tree, long budget) {
         fTree = tree;
+        long nodeSize = Math.max(1, tree.getNodeSize());
+        fMaxNodes = (int) Math.min(Integer.MAX_VALUE, Math.max(MIN_CACHE_SIZE, budget / nodeSize));
     }
 
     /**
@@ -61,29 +82,38 @@ public class BTreeNodeCache {
      * memory, it is loaded from disk.
      *
      * @param offset
-     * @return
+     *            the file offset of the node
+     * @return the node
      */
     BTreeNode getNode(long offset) {
-        if (fRootNode != null && fRootNode.getOffset() == offset) {
-            return fRootNode;
+        BTreeNode rootNode = fRootNode;
+        if (rootNode != null && rootNode.getOffset() == offset) {
+            fCacheHits.incrementAndGet();
+            return rootNode;
         }
 
-        for (BTreeNode nodeSearch : fCachedNodes) {
-            if (nodeSearch.getOffset() == offset) {
+        Long key = offset;
+        synchronized (fCachedNodes) {
+            BTreeNode node = fCachedNodes.get(key);
+            if (node != null) {
                 // This node is now the most recently used
-                fCachedNodes.remove(nodeSearch);
-                fCachedNodes.push(nodeSearch);
-
-                return nodeSearch;
+                fCacheHits.incrementAndGet();
+                return node;
             }
         }
-
-        ++fCcheMisses;
+        fCacheMisses.incrementAndGet();
 
         BTreeNode node = new BTreeNode(fTree, offset);
         node.serializeIn();
-        addNode(node);
 
+        synchronized (fCachedNodes) {
+            /* Another thread may have loaded it in the meantime */
+            BTreeNode other = fCachedNodes.get(key);
+            if (other != null) {
+                return other;
+            }
+            addNode(node);
+        }
         return node;
     }
 
@@ -91,31 +121,39 @@ public class BTreeNodeCache {
      * Write all in-memory nodes to disk if they are dirty
      */
     void serialize() {
-        if (fRootNode != null && fRootNode.isDirty()) {
-            fRootNode.serializeOut();
+        BTreeNode rootNode = fRootNode;
+        if (rootNode != null && rootNode.isDirty()) {
+            rootNode.serializeOut();
         }
-        for (BTreeNode nodeSearch : fCachedNodes) {
-            if (nodeSearch.isDirty()) {
-                nodeSearch.serializeOut();
+        synchronized (fCachedNodes) {
+            for (BTreeNode nodeSearch : fCachedNodes.values()) {
+                if (nodeSearch.isDirty()) {
+                    nodeSearch.serializeOut();
+                }
             }
         }
     }
 
     /**
-     * Add a node to the cache. If the cache has reached the size specified with
-     * {@link #CACHE_SIZE}, the least recently used node is removed from memory.
+     * Add a node to the cache. If the cache has reached its maximum size, the
+     * least recently used node is removed from memory.
      *
      * @param node
      *            the node to add to the cache
      */
     void addNode(BTreeNode node) {
-        if (fCachedNodes.size() >= CACHE_SIZE) {
-            BTreeNode removed = fCachedNodes.removeLast();
-            if (removed.isDirty()) {
-                removed.serializeOut();
+        synchronized (fCachedNodes) {
+            if (fCachedNodes.size() >= fMaxNodes) {
+                Iterator<BTreeNode> iter = fCachedNodes.values().iterator();
+                BTreeNode removed = iter.next();
+                iter.remove();
+                fEvictions.incrementAndGet();
+                if (removed.isDirty()) {
+                    removed.serializeOut();
+                }
             }
+            fCachedNodes.put(node.getOffset(), node);
         }
-        fCachedNodes.push(node);
     }
 
     /**
@@ -140,7 +178,46 @@ public class BTreeNodeCache {
      *
      * @return the number of cache misses.
      */
-    int getCacheMisses() {
-        return fCcheMisses;
+    long getCacheMisses() {
+        return fCacheMisses.get();
+    }
+
+    /**
+     * Get the number of times a requested node was found in memory
+     *
+     * @return the number of cache hits
+     */
+    long getCacheHits() {
+        return fCacheHits.get();
+    }
+
+    /**
+     * Get the number of nodes removed from memory to make room for others
+     *
+     * @return the number of evictions
+     */
+    long getEvictions() {
+        return fEvictions.get();
+    }
+
+    /**
+     * Get the number of nodes currently in memory, not counting the root node
+     *
+     * @return the number of cached nodes
+     */
+    int getCachedNodeCount() {
+        synchronized (fCachedNodes) {
+            return fCachedNodes.size();
+        }
+    }
+
+    /**
+     * Get the maximum number of nodes kept in memory, not counting the root
+     * node
+     *
+     * @return the maximum number of cached nodes
+     */
+    int getMaxCachedNodes() {
+        return fMaxNodes;
     }
 }
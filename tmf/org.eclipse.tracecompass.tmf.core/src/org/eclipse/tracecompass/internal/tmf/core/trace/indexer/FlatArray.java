@@ -15,6 +15,7 @@ package org.eclipse.tracecompass.internal.tmf.core.trace.indexer;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.text.MessageFormat;
 
 import org.eclipse.tracecompass.internal.tmf.core.Activator;
@@ -29,6 +30,10 @@ import org.eclipse.tracecompass.tmf.core.trace.location.ITmfLocation;
  * An array of checkpoints stored on disk. It is very efficient for searching
  * checkpoints by rank (O(1))
  *
+ * Checkpoints can be read and searched by many threads at the same time, even
+ * while another thread is inserting checkpoints. The reads only use the
+ * checkpoints that were completely written.
+ *
  * @author Marc-Andre Laperle
  */
 public class FlatArray extends AbstractFileCheckpointCollection {
@@ -39,6 +44,7 @@ public class FlatArray extends AbstractFileCheckpointCollection {
 
     // Cached values
     private int fCheckpointSize = 0;
+    /** Buffer used by the inserting thread */
     private ByteBuffer fByteBuffer;
 
     /**
@@ -69,11 +75,16 @@ public class FlatArray extends AbstractFileCheckpointCollection {
     public void insert(ITmfCheckpoint checkpoint) {
         try {
             CheckpointCollectionFileHeader header = getHeader();
-            ++header.fSize;
-            getRandomAccessFile().seek(getRandomAccessFile().length());
+            long pos = header.getSize() + (long) fCheckpointSize * header.fSize;
             fByteBuffer.clear();
             checkpoint.serialize(fByteBuffer);
-            getRandomAccessFile().write(fByteBuffer.array());
+            fByteBuffer.clear();
+            FileChannel fileChannel = getFileChannel();
+            while (fByteBuffer.hasRemaining()) {
+                fileChannel.write(fByteBuffer, pos + fByteBuffer.position());
+            }
+            /* Publish the checkpoint to the readers */
+            ++header.fSize;
         } catch (IOException e) {
             Activator.logError(MessageFormat.format(Messages.FlatArray_IOErrorWriting, getFile()), e);
         }
@@ -89,13 +100,17 @@ public class FlatArray extends AbstractFileCheckpointCollection {
     public ITmfCheckpoint get(long rank) {
         ITmfCheckpoint checkpoint = null;
         try {
-            long pos = getHeader().getSize() + fCheckpointSize * rank;
-            getRandomAccessFile().seek(pos);
-            fByteBuffer.clear();
-            getRandomAccessFile().read(fByteBuffer.array());
-            ITmfLocation location = getTrace().restoreLocation(fByteBuffer);
-            ITmfTimestamp timeStamp = new TmfTimestamp(fByteBuffer);
-            checkpoint = new TmfCheckpoint(timeStamp, location, fByteBuffer);
+            long pos = getHeader().getSize() + (long) fCheckpointSize * rank;
+            /* Use a positional read and our own buffer, for concurrent reads */
+            ByteBuffer byteBuffer = ByteBuffer.allocate(fCheckpointSize);
+            FileChannel fileChannel = getFileChannel();
+            while (byteBuffer.hasRemaining() && fileChannel.read(byteBuffer, pos + byteBuffer.position()) >= 0) {
+                // Keep reading until the checkpoint is complete
+            }
+            byteBuffer.clear();
+            ITmfLocation location = getTrace().restoreLocation(byteBuffer);
+            ITmfTimestamp timeStamp = new TmfTimestamp(byteBuffer);
+            checkpoint = new TmfCheckpoint(timeStamp, location, byteBuffer);
         } catch (IOException e) {
             Activator.logError(MessageFormat.format(Messages.FlatArray_IOErrorReading, getFile()), e);
         }
@@ -112,12 +127,14 @@ public class FlatArray extends AbstractFileCheckpointCollection {
      */
     @Override
     public long binarySearch(ITmfCheckpoint checkpoint) {
-        if (getHeader().fSize == 1) {
+        /* Read the size once, checkpoints may be inserted meanwhile */
+        int size = getHeader().fSize;
+        if (size == 1) {
             return 0;
         }
 
         long lower = 0;
-        long upper = getHeader().fSize - 1;
+        long upper = size - 1;
         long lastMiddle = -1;
         long middle = 0;
         while (lower <= upper && lastMiddle != middle) {
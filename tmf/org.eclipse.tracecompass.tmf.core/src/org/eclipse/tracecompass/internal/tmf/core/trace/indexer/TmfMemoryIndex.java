@@ -12,9 +12,7 @@
 
 package org.eclipse.tracecompass.internal.tmf.core.trace.indexer;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.Arrays;
 
 import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
@@ -24,11 +22,22 @@ import org.eclipse.tracecompass.tmf.core.trace.indexer.checkpoint.ITmfCheckpoint
 /**
  * A checkpoint index that store all checkpoints in memory.
  *
+ * The checkpoints can be read by many threads without locking, even while
+ * another thread inserts checkpoints. The array is only replaced by a bigger
+ * copy, and the size is only increased once the checkpoint is in the array.
+ *
  * @author Marc-Andre Laperle
  */
 public class TmfMemoryIndex implements ITmfCheckpointIndex, ICheckpointCollection {
 
-    private final List<ITmfCheckpoint> fCheckpoints;
+    private static final int INITIAL_CAPACITY = 16;
+
+    /*
+     * The array is written before the size, and read after it, so a reader
+     * always gets an array containing the checkpoints below the size.
+     */
+    private volatile ITmfCheckpoint[] fCheckpoints = new ITmfCheckpoint[INITIAL_CAPACITY];
+    private volatile int fSize = 0;
 
     /**
      * Creates an index for the given trace
@@ -36,37 +45,49 @@ public class TmfMemoryIndex implements ITmfCheckpointIndex, ICheckpointCollectio
      * @param trace the trace
      */
     public TmfMemoryIndex(ITmfTrace trace) {
-        fCheckpoints = new ArrayList<>();
     }
 
     @Override
-    public void dispose() {
-        fCheckpoints.clear();
+    public synchronized void dispose() {
+        fSize = 0;
+        fCheckpoints = new ITmfCheckpoint[INITIAL_CAPACITY];
     }
 
     @Override
-    public void insert(ITmfCheckpoint checkpoint) {
-        fCheckpoints.add(checkpoint);
+    public synchronized void insert(ITmfCheckpoint checkpoint) {
+        int size = fSize;
+        ITmfCheckpoint[] checkpoints = fCheckpoints;
+        if (size == checkpoints.length) {
+            checkpoints = Arrays.copyOf(checkpoints, size * 2);
+            fCheckpoints = checkpoints;
+        }
+        checkpoints[size] = checkpoint;
+        fSize = size + 1;
     }
 
     @Override
     public ITmfCheckpoint get(long checkpoint) {
-        return fCheckpoints.get((int)checkpoint);
+        int size = fSize;
+        if (checkpoint < 0 || checkpoint >= size) {
+            throw new IndexOutOfBoundsException("Index: " + checkpoint + ", Size: " + size); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        return fCheckpoints[(int) checkpoint];
     }
 
     @Override
     public long binarySearch(ITmfCheckpoint checkpoint) {
-        return Collections.binarySearch(fCheckpoints, checkpoint);
+        int size = fSize;
+        return Arrays.binarySearch(fCheckpoints, 0, size, checkpoint);
     }
 
     @Override
     public boolean isEmpty() {
-        return fCheckpoints.isEmpty();
+        return fSize == 0;
     }
 
     @Override
     public int size() {
-        return fCheckpoints.size();
+        return fSize;
     }
 
     @Override
@@ -0,0 +1,607 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.core.filter;
+
+import java.text.NumberFormat;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.event.aspect.ITmfEventAspect;
+import org.eclipse.tracecompass.tmf.core.filter.model.ITmfFilterTreeNode;
+import org.eclipse.tracecompass.tmf.core.filter.model.TmfFilterAndNode;
+import org.eclipse.tracecompass.tmf.core.filter.model.TmfFilterCompareNode;
+import org.eclipse.tracecompass.tmf.core.filter.model.TmfFilterContainsNode;
+import org.eclipse.tracecompass.tmf.core.filter.model.TmfFilterEqualsNode;
+import org.eclipse.tracecompass.tmf.core.filter.model.TmfFilterMatchesNode;
+import org.eclipse.tracecompass.tmf.core.filter.model.TmfFilterNode;
+import org.eclipse.tracecompass.tmf.core.filter.model.TmfFilterOrNode;
+import org.eclipse.tracecompass.tmf.core.filter.model.TmfFilterRootNode;
+import org.eclipse.tracecompass.tmf.core.filter.model.TmfFilterTraceTypeNode;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+
+/**
+ * Compiler of filter trees into filters that are faster to evaluate, but match
+ * exactly the same events as the tree.
+ *
+ * The nodes of the tree do their comparisons on the string representation of
+ * the values of the events. The compiled filter compares numbers as numbers,
+ * and strings without creating new ones, whenever the result is known to be
+ * the same. It falls back to the node itself otherwise. Regular expressions
+ * without any special character are searched as plain strings, and the other
+ * ones reuse their matcher.
+ *
+ * The children of the and/or nodes are evaluated in the order that is most
+ * likely to short-circuit the evaluation early for the least cost, according
+ * to the results of the previous events. The trace type of a trace is checked
+ * only once.
+ *
+ * The compiled filter is a snapshot of the tree: the tree must be compiled
+ * again if it is modified. Nodes of other classes than the ones of the
+ * filter model, including subclasses, are used as they are, and the children
+ * of a node containing such a node are always evaluated in order.
+ *
+ * @since 1.1
+ */
+public final class TmfFilterCompiler {
+
+    /* Estimated costs of the evaluation of a node */
+    private static final int TRACE_TYPE_COST = 1;
+    private static final int COMPARE_COST = 2;
+    private static final int CONTAINS_COST = 3;
+    private static final int REGEX_COST = 8;
+    private static final int UNKNOWN_COST = 8;
+
+    private TmfFilterCompiler() {
+    }
+
+    /**
+     * Compile a filter
+     *
+     * @param filter
+     *            The filter, typically the root node of a filter tree
+     * @return The compiled filter, or the filter itself if it cannot be
+     *         compiled
+     */
+    public static ITmfFilter compile(ITmfFilter filter) {
+        if (filter instanceof ITmfFilterTreeNode) {
+            CompiledFilter compiled = compileNode((ITmfFilterTreeNode) filter);
+            if (!(compiled instanceof NodeFilter)) {
+                return compiled;
+            }
+        }
+        return filter;
+    }
+
+    private static CompiledFilter compileNode(ITmfFilterTreeNode node) {
+        /* Exact classes only, subclasses may match differently */
+        Class<?> nodeClass = node.getClass();
+        if (nodeClass == TmfFilterRootNode.class) {
+            return new Junction(compileChildren(node), true, false, true);
+        } else if (nodeClass == TmfFilterNode.class) {
+            return new Junction(compileChildren(node), false, true, false);
+        } else if (nodeClass == TmfFilterAndNode.class) {
+            boolean not = ((TmfFilterAndNode) node).isNot();
+            return new Junction(compileChildren(node), true, false ^ not, true ^ not);
+        } else if (nodeClass == TmfFilterOrNode.class) {
+            /* An or node never matches when none of its children match */
+            boolean not = ((TmfFilterOrNode) node).isNot();
+            return new Junction(compileChildren(node), false, true ^ not, false);
+        } else if (nodeClass == TmfFilterTraceTypeNode.class) {
+            return new TraceTypeFilter((TmfFilterTraceTypeNode) node, new Junction(compileChildren(node), true, false, true));
+        } else if (nodeClass == TmfFilterEqualsNode.class && ((TmfFilterEqualsNode) node).getEventAspect() != null) {
+            return new EqualsFilter((TmfFilterEqualsNode) node);
+        } else if (nodeClass == TmfFilterContainsNode.class && ((TmfFilterContainsNode) node).getEventAspect() != null) {
+            return new ContainsFilter((TmfFilterContainsNode) node);
+        } else if (nodeClass == TmfFilterMatchesNode.class && ((TmfFilterMatchesNode) node).getEventAspect() != null) {
+            return new MatchesFilter((TmfFilterMatchesNode) node);
+        } else if (nodeClass == TmfFilterCompareNode.class && ((TmfFilterCompareNode) node).getEventAspect() != null) {
+            return new CompareFilter((TmfFilterCompareNode) node);
+        }
+        return new NodeFilter(node);
+    }
+
+    private static CompiledFilter[] compileChildren(ITmfFilterTreeNode node) {
+        ITmfFilterTreeNode[] children = node.getChildren();
+        CompiledFilter[] filters = new CompiledFilter[children.length];
+        for (int i = 0; i < children.length; i++) {
+            filters[i] = compileNode(children[i]);
+        }
+        return filters;
+    }
+
+    // ------------------------------------------------------------------------
+    // Compiled filters
+    // ------------------------------------------------------------------------
+
+    private abstract static class CompiledFilter implements ITmfFilter {
+        /**
+         * @return the estimated cost of the evaluation of this filter
+         */
+        public abstract int getCost();
+
+        /**
+         * @return true if this filter only depends on the event it evaluates,
+         *         so it can be evaluated in any order, or not at all
+         */
+        public boolean isReorderable() {
+            return true;
+        }
+    }
+
+    /**
+     * A node that is not compiled, used as it is
+     */
+    private static final class NodeFilter extends CompiledFilter {
+        private final ITmfFilterTreeNode fNode;
+
+        public NodeFilter(ITmfFilterTreeNode node) {
+            fNode = node;
+        }
+
+        @Override
+        public boolean matches(ITmfEvent event) {
+            return fNode.matches(event);
+        }
+
+        @Override
+        public int getCost() {
+            return UNKNOWN_COST;
+        }
+
+        @Override
+        public boolean isReorderable() {
+            return false;
+        }
+    }
+
+    /**
+     * The and/or of some filters. The filters are reordered after every
+     * {@link #REORDER_INTERVAL} evaluations, by decreasing probability of
+     * deciding the result per cost. The statistics are not synchronized, they
+     * only need to be approximate.
+     */
+    private static final class Junction extends CompiledFilter {
+        private static final int REORDER_INTERVAL = 1024;
+
+        private final boolean fAll;
+        private final boolean fDecidedResult;
+        private final boolean fUndecidedResult;
+        private final boolean fReorderable;
+        private final int fCost;
+        private volatile Child[] fChildren;
+        private int fNbEvaluations = 0;
+
+        private static final class Child {
+            private final CompiledFilter fFilter;
+            private int fNbEvaluations = 0;
+            private int fNbDecisions = 0;
+
+            public Child(CompiledFilter filter) {
+                fFilter = filter;
+            }
+
+            public double getScore() {
+                /* Laplace smoothing, so that unused children are not starved */
+                return (fNbDecisions + 1.0) / (fNbEvaluations + 2.0) / fFilter.getCost();
+            }
+        }
+
+        private static final Comparator<Child> BY_SCORE = new Comparator<Child>() {
+            @Override
+            public int compare(Child c1, Child c2) {
+                return Double.compare(c2.getScore(), c1.getScore());
+            }
+        };
+
+        /**
+         * @param filters
+         *            the filters
+         * @param all
+         *            true if all the filters must match (and), false if any
+         *            filter must match (or)
+         * @param decidedResult
+         *            the result when a filter decides it: when a filter does
+         *            not match (and), or when a filter matches (or)
+         * @param undecidedResult
+         *            the result when no filter decides it
+         */
+        public Junction(CompiledFilter[] filters, boolean all, boolean decidedResult, boolean undecidedResult) {
+            fAll = all;
+            fDecidedResult = decidedResult;
+            fUndecidedResult = undecidedResult;
+            boolean reorderable = true;
+            int cost = 0;
+            Child[] children = new Child[filters.length];
+            for (int i = 0; i < filters.length; i++) {
+                children[i] = new Child(filters[i]);
+                reorderable &= filters[i].isReorderable();
+                cost += filters[i].getCost();
+            }
+            fReorderable = reorderable;
+            fCost = Math.max(1, cost);
+            if (reorderable) {
+                Arrays.sort(children, BY_SCORE);
+            }
+            fChildren = children;
+        }
+
+        @Override
+        public boolean matches(ITmfEvent event) {
+            Child[] children = fChildren;
+            boolean result = fUndecidedResult;
+            for (Child child : children) {
+                child.fNbEvaluations++;
+                if (child.fFilter.matches(event) != fAll) {
+                    child.fNbDecisions++;
+                    result = fDecidedResult;
+                    break;
+                }
+            }
+            if (fReorderable && ++fNbEvaluations % REORDER_INTERVAL == 0) {
+                reorder(children);
+            }
+            return result;
+        }
+
+        private void reorder(Child[] children) {
+            Child[] sorted = Arrays.copyOf(children, children.length);
+            Arrays.sort(sorted, BY_SCORE);
+            for (Child child : sorted) {
+                /* Forget the old events progressively */
+                child.fNbEvaluations /= 2;
+                child.fNbDecisions /= 2;
+            }
+            fChildren = sorted;
+        }
+
+        @Override
+        public int getCost() {
+            return fCost;
+        }
+
+        @Override
+        public boolean isReorderable() {
+            return fReorderable;
+        }
+    }
+
+    /**
+     * A trace type node, which checks the trace type only once per trace
+     */
+    private static final class TraceTypeFilter extends CompiledFilter {
+        private final TmfFilterTraceTypeNode fNode;
+        private final CompiledFilter fChildren;
+        private volatile TraceMatch fLastMatch = null;
+
+        private static final class TraceMatch {
+            private final ITmfTrace fTrace;
+            private final boolean fMatch;
+
+            public TraceMatch(ITmfTrace trace, boolean match) {
+                fTrace = trace;
+                fMatch = match;
+            }
+        }
+
+        public TraceTypeFilter(TmfFilterTraceTypeNode node, CompiledFilter children) {
+            fNode = node;
+            fChildren = children;
+        }
+
+        @Override
+        public boolean matches(ITmfEvent event) {
+            ITmfTrace trace = event.getTrace();
+            TraceMatch lastMatch = fLastMatch;
+            if (lastMatch == null || lastMatch.fTrace != trace) {
+                boolean match = trace.getClass().equals(fNode.getTraceClass()) &&
+                        (fNode.getTraceTypeId() == null || fNode.getTraceTypeId().equals(trace.getTraceTypeId()));
+                lastMatch = new TraceMatch(trace, match);
+                fLastMatch = lastMatch;
+            }
+            return lastMatch.fMatch && fChildren.matches(event);
+        }
+
+        @Override
+        public int getCost() {
+            return TRACE_TYPE_COST + fChildren.getCost();
+        }
+
+        @Override
+        public boolean isReorderable() {
+            return fChildren.isReorderable();
+        }
+    }
+
+    /**
+     * An equals node. Integer values are compared to the value of the node as
+     * numbers, which gives the same result as comparing their string, since
+     * the string of an integer has only one possible form.
+     */
+    private static final class EqualsFilter extends CompiledFilter {
+        private final TmfFilterEqualsNode fNode;
+        private final ITmfEventAspect fAspect;
+        private final String fValue;
+        private final boolean fNot;
+        private final boolean fIgnoreCase;
+        private final boolean fIsInteger;
+        private final long fLongValue;
+
+        public EqualsFilter(TmfFilterEqualsNode node) {
+            fNode = node;
+            fAspect = node.getEventAspect();
+            fValue = node.getValue();
+            fNot = node.isNot();
+            fIgnoreCase = node.isIgnoreCase();
+            Long longValue = toCanonicalLong(fValue);
+            fIsInteger = (longValue != null);
+            fLongValue = (longValue == null ? 0 : longValue);
+        }
+
+        @Override
+        public boolean matches(ITmfEvent event) {
+            if (event == null) {
+                return fNode.matches(event);
+            }
+            Object value = fAspect.resolve(event);
+            if (value == null) {
+                return false ^ fNot;
+            }
+            if (value instanceof String) {
+                String valueString = (String) value;
+                return (fIgnoreCase ? valueString.equalsIgnoreCase(fValue) : valueString.equals(fValue)) ^ fNot;
+            }
+            if (isInteger(value)) {
+                return (fIsInteger && ((Number) value).longValue() == fLongValue) ^ fNot;
+            }
+            String valueString = value.toString();
+            return (fIgnoreCase ? valueString.equalsIgnoreCase(fValue) : valueString.equals(fValue)) ^ fNot;
+        }
+
+        @Override
+        public int getCost() {
+            return COMPARE_COST;
+        }
+    }
+
+    /**
+     * A contains node. Strings are searched without creating their upper case
+     * copy when they and the value of the node are in ASCII, and the default
+     * locale changes the case of ASCII letters like the root locale.
+     */
+    private static final class ContainsFilter extends CompiledFilter {
+        private final TmfFilterContainsNode fNode;
+        private final ITmfEventAspect fAspect;
+        private final String fValue;
+        private final boolean fNot;
+        private final boolean fIgnoreCase;
+        private final boolean fIsAscii;
+
+        public ContainsFilter(TmfFilterContainsNode node) {
+            fNode = node;
+            fAspect = node.getEventAspect();
+            fValue = node.getValue();
+            fNot = node.isNot();
+            fIgnoreCase = node.isIgnoreCase();
+            fIsAscii = (fValue != null && isAscii(fValue) && "i".toUpperCase().equals("I")); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+
+        @Override
+        public boolean matches(ITmfEvent event) {
+            if (event == null || fValue == null) {
+                return fNode.matches(event);
+            }
+            Object value = fAspect.resolve(event);
+            if (value == null) {
+                return false ^ fNot;
+            }
+            String valueString = value.toString();
+            if (!fIgnoreCase) {
+                return valueString.contains(fValue) ^ fNot;
+            }
+            if (fIsAscii && isAscii(valueString)) {
+                return containsIgnoreCase(valueString, fValue) ^ fNot;
+            }
+            return fNode.matches(event);
+        }
+
+        @Override
+        public int getCost() {
+            return CONTAINS_COST;
+        }
+    }
+
+    /**
+     * A matches node. A regular expression without special characters is
+     * searched as a string, the other ones reuse a matcher per thread.
+     */
+    private static final class MatchesFilter extends CompiledFilter {
+        private static final String SPECIAL_CHARACTERS = "\\^$.|?*+()[]{}"; //$NON-NLS-1$
+
+        private final ITmfEventAspect fAspect;
+        private final boolean fNot;
+        private final String fLiteral;
+        private final Pattern fPattern;
+        private final ThreadLocal<Matcher> fMatcher;
+
+        public MatchesFilter(TmfFilterMatchesNode node) {
+            fAspect = node.getEventAspect();
+            fNot = node.isNot();
+            String regex = node.getRegex();
+            fLiteral = (regex != null && isLiteral(regex)) ? regex : null;
+            Pattern pattern = null;
+            if (regex != null) {
+                try {
+                    pattern = Pattern.compile(regex, Pattern.DOTALL);
+                } catch (PatternSyntaxException e) {
+                }
+            }
+            fPattern = pattern;
+            final Pattern matcherPattern = pattern;
+            fMatcher = new ThreadLocal<Matcher>() {
+                @Override
+                protected Matcher initialValue() {
+                    return (matcherPattern == null ? null : matcherPattern.matcher("")); //$NON-NLS-1$
+                }
+            };
+        }
+
+        private static boolean isLiteral(String regex) {
+            for (int i = 0; i < regex.length(); i++) {
+                if (SPECIAL_CHARACTERS.indexOf(regex.charAt(i)) >= 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean matches(ITmfEvent event) {
+            if (fPattern == null || event == null) {
+                return false ^ fNot;
+            }
+            Object value = fAspect.resolve(event);
+            if (value == null) {
+                return false ^ fNot;
+            }
+            String valueString = value.toString();
+            if (fLiteral != null) {
+                return valueString.contains(fLiteral) ^ fNot;
+            }
+            return fMatcher.get().reset(valueString).find() ^ fNot;
+        }
+
+        @Override
+        public int getCost() {
+            return (fLiteral != null ? CONTAINS_COST : REGEX_COST);
+        }
+    }
+
+    /**
+     * A compare node. Numbers are compared without parsing their string, and
+     * strings without copying them. The other values are compared by the node.
+     */
+    private static final class CompareFilter extends CompiledFilter {
+        private final TmfFilterCompareNode fNode;
+        private final ITmfEventAspect fAspect;
+        private final TmfFilterCompareNode.Type fType;
+        private final String fValue;
+        private final Number fValueNumber;
+        private final int fResult;
+        private final boolean fNot;
+
+        public CompareFilter(TmfFilterCompareNode node) {
+            fNode = node;
+            fAspect = node.getEventAspect();
+            fType = node.getType();
+            fValue = node.getValue();
+            fValueNumber = (fType == TmfFilterCompareNode.Type.NUM && fValue != null) ? toNumber(fValue) : null;
+            fResult = node.getResult();
+            fNot = node.isNot();
+        }
+
+        @Override
+        public boolean matches(ITmfEvent event) {
+            if (event == null) {
+                return fNode.matches(event);
+            }
+            Object value = fAspect.resolve(event);
+            if (value == null) {
+                return false;
+            }
+            if (fType == TmfFilterCompareNode.Type.NUM && (isInteger(value) || value instanceof Double || value instanceof Float)) {
+                Number valueNumber = (Number) value;
+                if (fValueNumber instanceof Double || (fValueNumber != null && !isInteger(valueNumber))) {
+                    return (Double.compare(valueNumber.doubleValue(), fValueNumber.doubleValue()) == fResult) ^ fNot;
+                } else if (fValueNumber != null) {
+                    return (Long.compare(valueNumber.longValue(), fValueNumber.longValue()) == fResult) ^ fNot;
+                }
+                return false;
+            } else if (fType == TmfFilterCompareNode.Type.ALPHA && value instanceof String) {
+                int comp = (int) Math.signum(((String) value).compareTo(fValue));
+                return (comp == fResult) ^ fNot;
+            }
+            return fNode.matches(event);
+        }
+
+        @Override
+        public int getCost() {
+            return COMPARE_COST;
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private static boolean isInteger(Object value) {
+        return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+    }
+
+    /**
+     * Parse a string that is the canonical representation of a long
+     *
+     * @return the long, or null if the string is not the string of a long
+     */
+    private static Long toCanonicalLong(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            long longValue = Long.parseLong(value);
+            return Long.toString(longValue).equals(value) ? longValue : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Same conversion as the one of {@link TmfFilterCompareNode}
+     */
+    private static Number toNumber(String value) {
+        try {
+            return Long.decode(value);
+        } catch (NumberFormatException e) {
+        }
+        try {
+            return NumberFormat.getInstance().parse(value);
+        } catch (ParseException e) {
+        }
+        return null;
+    }
+
+    private static boolean isAscii(String string) {
+        for (int i = 0; i < string.length(); i++) {
+            if (string.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Search a string in another, ignoring the case. Both strings must be in
+     * ASCII, in which case the result is the same as comparing their upper
+     * case copies.
+     */
+    private static boolean containsIgnoreCase(String string, String searched) {
+        int last = string.length() - searched.length();
+        for (int i = 0; i <= last; i++) {
+            if (string.regionMatches(true, i, searched, 0, searched.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
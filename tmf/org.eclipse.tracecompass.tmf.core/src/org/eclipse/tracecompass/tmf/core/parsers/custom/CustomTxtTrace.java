@@ -17,14 +17,22 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.jdt.annotation.NonNull;
@@ -40,6 +48,7 @@ import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
 import org.eclipse.tracecompass.tmf.core.trace.TmfContext;
 import org.eclipse.tracecompass.tmf.core.trace.TmfTrace;
 import org.eclipse.tracecompass.tmf.core.trace.TraceValidationStatus;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.ITmfCheckpointScanner;
 import org.eclipse.tracecompass.tmf.core.trace.indexer.ITmfPersistentlyIndexable;
 import org.eclipse.tracecompass.tmf.core.trace.indexer.ITmfTraceIndexer;
 import org.eclipse.tracecompass.tmf.core.trace.indexer.TmfBTreeTraceIndexer;
@@ -53,13 +62,21 @@ import org.eclipse.tracecompass.tmf.core.trace.location.TmfLongLocation;
  *
  * @author Patrick Tassé
  */
-public class CustomTxtTrace extends TmfTrace implements ITmfPersistentlyIndexable {
+public class CustomTxtTrace extends TmfTrace implements ITmfPersistentlyIndexable, ITmfCheckpointScanner {
 
     private static final TmfLongLocation NULL_LOCATION = new TmfLongLocation(-1L);
     private static final int DEFAULT_CACHE_SIZE = 100;
     private static final int MAX_LINES = 100;
     private static final int MAX_CONFIDENCE = 100;
 
+    /* Parameters of the parallel scan of the checkpoints */
+    private static final long SCAN_CHUNK_SIZE = 4 * 1024 * 1024;
+    private static final int SCAN_BUFFER_SIZE = 1024 * 1024;
+    private static final int MAX_CHUNKS = 1024;
+    private static final int SYNC_EVENTS = 64;
+    private static final int MARK_INTERVAL = 16;
+    private static final int CANCEL_CHECK_INTERVAL = 1024;
+
     private final CustomTxtTraceDefinition fDefinition;
     private final CustomTxtEventType fEventType;
     private BufferedRandomAccessFile fFile;
@@ -254,13 +271,8 @@ public class CustomTxtTrace extends TmfTrace implements ITmfPersistentlyIndexabl
         }
 
         CustomTxtEvent event = parseFirstLine(context);
-
-        final HashMap<InputLine, Integer> countMap = new HashMap<>();
-        InputLine currentInput = null;
-        if (context.inputLine.childrenInputs != null && context.inputLine.childrenInputs.size() > 0) {
-            currentInput = context.inputLine.childrenInputs.get(0);
-            countMap.put(currentInput, 0);
-        }
+        final EventParser parser = new EventParser(getFirstLines());
+        parser.startEvent(context.inputLine);
 
         try {
             if (fFile.getFilePointer() != context.nextLineLocation) {
@@ -269,105 +281,13 @@ public class CustomTxtTrace extends TmfTrace implements ITmfPersistentlyIndexabl
             long rawPos = fFile.getFilePointer();
             String line = fFile.getNextLine();
             while (line != null) {
-                boolean processed = false;
-                if (currentInput == null) {
-                    for (final InputLine input : getFirstLines()) {
-                        final Matcher matcher = input.getPattern().matcher(line);
-                        if (matcher.matches()) {
-                            context.setLocation(new TmfLongLocation(rawPos));
-                            context.firstLineMatcher = matcher;
-                            context.firstLine = line;
-                            context.nextLineLocation = fFile.getFilePointer();
-                            context.inputLine = input;
-                            return event;
-                        }
-                    }
-                } else {
-                    if (countMap.get(currentInput) >= currentInput.getMinCount()) {
-                        final List<InputLine> nextInputs = currentInput.getNextInputs(countMap);
-                        if (nextInputs.size() == 0 || nextInputs.get(nextInputs.size() - 1).getMinCount() == 0) {
-                            for (final InputLine input : getFirstLines()) {
-                                final Matcher matcher = input.getPattern().matcher(line);
-                                if (matcher.matches()) {
-                                    context.setLocation(new TmfLongLocation(rawPos));
-                                    context.firstLineMatcher = matcher;
-                                    context.firstLine = line;
-                                    context.nextLineLocation = fFile.getFilePointer();
-                                    context.inputLine = input;
-                                    return event;
-                                }
-                            }
-                        }
-                        for (final InputLine input : nextInputs) {
-                            final Matcher matcher = input.getPattern().matcher(line);
-                            if (matcher.matches()) {
-                                event.processGroups(input, matcher);
-                                currentInput = input;
-                                if (countMap.get(currentInput) == null) {
-                                    countMap.put(currentInput, 1);
-                                } else {
-                                    countMap.put(currentInput, countMap.get(currentInput) + 1);
-                                }
-                                Iterator<InputLine> iter = countMap.keySet().iterator();
-                                while (iter.hasNext()) {
-                                    final InputLine inputLine = iter.next();
-                                    if (inputLine.level > currentInput.level) {
-                                        iter.remove();
-                                    }
-                                }
-                                if (currentInput.childrenInputs != null && currentInput.childrenInputs.size() > 0) {
-                                    currentInput = currentInput.childrenInputs.get(0);
-                                    countMap.put(currentInput, 0);
-                                } else if (countMap.get(currentInput) >= currentInput.getMaxCount()) {
-                                    if (currentInput.getNextInputs(countMap).size() > 0) {
-                                        currentInput = currentInput.getNextInputs(countMap).get(0);
-                                        if (countMap.get(currentInput) == null) {
-                                            countMap.put(currentInput, 0);
-                                        }
-                                        iter = countMap.keySet().iterator();
-                                        while (iter.hasNext()) {
-                                            final InputLine inputLine = iter.next();
-                                            if (inputLine.level > currentInput.level) {
-                                                iter.remove();
-                                            }
-                                        }
-                                    } else {
-                                        currentInput = null;
-                                    }
-                                }
-                                processed = true;
-                                break;
-                            }
-                        }
-                    }
-                    if (!processed && currentInput != null) {
-                        final Matcher matcher = currentInput.getPattern().matcher(line);
-                        if (matcher.matches()) {
-                            event.processGroups(currentInput, matcher);
-                            countMap.put(currentInput, countMap.get(currentInput) + 1);
-                            if (currentInput.childrenInputs != null && currentInput.childrenInputs.size() > 0) {
-                                currentInput = currentInput.childrenInputs.get(0);
-                                countMap.put(currentInput, 0);
-                            } else if (countMap.get(currentInput) >= currentInput.getMaxCount()) {
-                                if (currentInput.getNextInputs(countMap).size() > 0) {
-                                    currentInput = currentInput.getNextInputs(countMap).get(0);
-                                    if (countMap.get(currentInput) == null) {
-                                        countMap.put(currentInput, 0);
-                                    }
-                                    final Iterator<InputLine> iter = countMap.keySet().iterator();
-                                    while (iter.hasNext()) {
-                                        final InputLine inputLine = iter.next();
-                                        if (inputLine.level > currentInput.level) {
-                                            iter.remove();
-                                        }
-                                    }
-                                } else {
-                                    currentInput = null;
-                                }
-                            }
-                        }
-                        ((StringBuffer) event.getContent().getValue()).append("\n").append(line); //$NON-NLS-1$
-                    }
+                if (parser.parseLine(line, event)) {
+                    context.setLocation(new TmfLongLocation(rawPos));
+                    context.firstLineMatcher = parser.getNextMatcher();
+                    context.firstLine = line;
+                    context.nextLineLocation = fFile.getFilePointer();
+                    context.inputLine = parser.getNextInput();
+                    return event;
                 }
                 rawPos = fFile.getFilePointer();
                 line = fFile.getNextLine();
@@ -375,10 +295,8 @@ public class CustomTxtTrace extends TmfTrace implements ITmfPersistentlyIndexabl
         } catch (final IOException e) {
             Activator.logError("Error seeking event. File: " + getPath(), e); //$NON-NLS-1$
         }
-        for (final Entry<InputLine, Integer> entry : countMap.entrySet()) {
-            if (entry.getValue() < entry.getKey().getMinCount()) {
-                event = null;
-            }
+        if (!parser.isComplete()) {
+            event = null;
         }
         context.setLocation(NULL_LOCATION);
         return event;
@@ -475,6 +393,193 @@ public class CustomTxtTrace extends TmfTrace implements ITmfPersistentlyIndexabl
         return new TmfBTreeTraceIndexer(this, interval);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The file is split in chunks at line boundaries, and the first lines of
+     * the events of each chunk are found in parallel. The scanner of a chunk
+     * cannot know if its first lines are in an event of the previous chunk,
+     * so the scanner of the previous chunk reads a few events past its end,
+     * and the chunks are joined at the first event that they both found. Only
+     * the events of the checkpoints are then parsed, to get their timestamp.
+     *
+     * @since 1.1
+     */
+    @Override
+    public List<ITmfCheckpoint> scanCheckpoints(int interval, IProgressMonitor monitor) {
+        if (fFile == null) {
+            return null;
+        }
+        /* The patterns are compiled when first used, compile them before the scanners share them */
+        for (InputLine input : getFirstLines()) {
+            compilePatterns(input);
+        }
+        long fileSize = new File(getPath()).length();
+        long chunkSize = Math.max(getScanChunkSize(), fileSize / MAX_CHUNKS);
+        int nbChunks = (int) Math.max(1, fileSize / chunkSize);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(nbChunks, Runtime.getRuntime().availableProcessors()));
+        try (BufferedRandomAccessFile file = new BufferedRandomAccessFile(getPath(), "r")) { //$NON-NLS-1$
+            long[] bounds = new long[nbChunks + 1];
+            bounds[nbChunks] = fileSize;
+            for (int i = 1; i < nbChunks; i++) {
+                bounds[i] = findLineStart(file, Math.max(bounds[i - 1], i * (fileSize / nbChunks)));
+            }
+            List<ChunkScanner> scanners = new ArrayList<>();
+            for (int i = 0; i < nbChunks; i++) {
+                scanners.add(new ChunkScanner(bounds[i], bounds[i + 1], monitor));
+            }
+            List<ChunkScanner> scanned = new ArrayList<>();
+            for (Future<ChunkScanner> future : executor.invokeAll(scanners)) {
+                scanned.add(future.get());
+            }
+            if (monitor.isCanceled()) {
+                return null;
+            }
+
+            /*
+             * Join the chunks, and find for each checkpoint an event from
+             * which to parse the few events up to the checkpoint
+             */
+            List<Long> positions = new ArrayList<>();
+            List<Integer> skips = new ArrayList<>();
+            long rank = 0;
+            int first = 0;
+            for (int i = 0; i < scanned.size(); i++) {
+                ChunkScanner chunk = scanned.get(i);
+                boolean lastChunk = chunk.fEndOfFile || i == scanned.size() - 1;
+                int nextFirst = -1;
+                int last = chunk.fNbEvents + chunk.fOverrun.size();
+                if (!lastChunk) {
+                    List<Long> nextStarts = scanned.get(i + 1).fStarts;
+                    for (int j = 0; j < chunk.fOverrun.size() && nextFirst < 0; j++) {
+                        nextFirst = nextStarts.indexOf(chunk.fOverrun.get(j));
+                        last = chunk.fNbEvents + j;
+                    }
+                    if (nextFirst < 0) {
+                        return null;
+                    }
+                }
+                if (last < first) {
+                    return null;
+                }
+                for (long r = (rank + interval - 1) / interval * interval; r < rank + last - first; r += interval) {
+                    int index = (int) (first + r - rank);
+                    if (index >= chunk.fNbEvents) {
+                        positions.add(chunk.fOverrun.get(index - chunk.fNbEvents));
+                        skips.add(0);
+                    } else if (index / MARK_INTERVAL * MARK_INTERVAL >= first) {
+                        positions.add(chunk.fMarks[index / MARK_INTERVAL]);
+                        skips.add(index % MARK_INTERVAL);
+                    } else {
+                        positions.add(chunk.fStarts.get(first));
+                        skips.add(index - first);
+                    }
+                }
+                rank += last - first;
+                if (lastChunk) {
+                    break;
+                }
+                first = nextFirst;
+            }
+
+            List<ITmfCheckpoint> checkpoints = new ArrayList<>();
+            for (int i = 0; i < positions.size() && !monitor.isCanceled(); i++) {
+                ITmfCheckpoint checkpoint = readCheckpoint(positions.get(i), skips.get(i), i);
+                if (checkpoint == null) {
+                    /* The last event can be incomplete */
+                    break;
+                }
+                checkpoints.add(checkpoint);
+            }
+            return checkpoints;
+        } catch (IOException e) {
+            Activator.logError("Error scanning file: " + getPath(), e); //$NON-NLS-1$
+            return null;
+        } catch (ExecutionException e) {
+            Activator.logError("Error scanning file: " + getPath(), e.getCause()); //$NON-NLS-1$
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Get the size of the chunks of the file that are scanned in parallel by
+     * {@link #scanCheckpoints}. There are more chunks than threads, so that a
+     * thread that scans its chunk faster than the others continues with the
+     * next chunk. The chunks are larger than this size for very large files.
+     *
+     * @return The size of the chunks, in bytes
+     * @since 1.1
+     */
+    protected long getScanChunkSize() {
+        return SCAN_CHUNK_SIZE;
+    }
+
+    /**
+     * Get the size of the read buffer of each scanner of
+     * {@link #scanCheckpoints}. The scanners read every line of the file, so
+     * their buffer is much larger than the one of the trace reader.
+     *
+     * @return The size of the read buffer, in bytes
+     * @since 1.1
+     */
+    protected int getScanBufferSize() {
+        return SCAN_BUFFER_SIZE;
+    }
+
+    private static void compilePatterns(InputLine input) {
+        input.getPattern();
+        if (input.childrenInputs != null) {
+            for (InputLine child : input.childrenInputs) {
+                compilePatterns(child);
+            }
+        }
+    }
+
+    /**
+     * Find the start of the first line that starts at or after a position
+     */
+    private static long findLineStart(BufferedRandomAccessFile file, long position) throws IOException {
+        if (position <= 0) {
+            return 0;
+        }
+        file.seek(position - 1);
+        int c = file.read();
+        while (c != -1 && c != '\n') {
+            c = file.read();
+        }
+        return file.getFilePointer();
+    }
+
+    /**
+     * Read the checkpoint of an event, by parsing the events from the event
+     * at a position
+     *
+     * @param position
+     *            The position of the first line of an event
+     * @param skip
+     *            The number of events to skip to get to the checkpoint event
+     * @param rank
+     *            The rank of the checkpoint
+     * @return The checkpoint, or null if there is no such event
+     */
+    private synchronized ITmfCheckpoint readCheckpoint(long position, int skip, long rank) {
+        ITmfContext context = seekEvent(new TmfLongLocation(position));
+        for (int i = 0; i < skip && parse(context) != null; i++) {
+            // Skip the event
+        }
+        ITmfLocation location = context.getLocation();
+        CustomTxtEvent event = parse(context);
+        if (event == null) {
+            return null;
+        }
+        return new TmfCheckpoint(event.getTimestamp(), location, rank);
+    }
+
     @Override
     public String getTraceTypeId() {
         return fTraceTypeId;
@@ -539,4 +644,241 @@ public class CustomTxtTrace extends TmfTrace implements ITmfPersistentlyIndexabl
         }
         return traceTypeId;
     }
+
+    /**
+     * Parser of the lines of an event that follow its first line. Depending on
+     * the input lines that the event matched so far, a line is either part of
+     * the event or the first line of the next event.
+     */
+    private static final class EventParser {
+
+        private final List<InputLine> fFirstLines;
+        private final HashMap<InputLine, Integer> fCountMap = new HashMap<>();
+        private InputLine fCurrentInput;
+        private InputLine fNextInput;
+        private Matcher fNextMatcher;
+
+        public EventParser(List<InputLine> firstLines) {
+            fFirstLines = firstLines;
+        }
+
+        /**
+         * Start a new event
+         *
+         * @param input
+         *            The input line matched by the first line of the event
+         */
+        public void startEvent(InputLine input) {
+            fCountMap.clear();
+            fCurrentInput = null;
+            if (input.childrenInputs != null && input.childrenInputs.size() > 0) {
+                fCurrentInput = input.childrenInputs.get(0);
+                fCountMap.put(fCurrentInput, 0);
+            }
+        }
+
+        /**
+         * Match a line with the first lines of the events
+         *
+         * @param line
+         *            The line
+         * @return true if the line is the first line of an event, its input
+         *         line and matcher are then the next ones
+         */
+        public boolean matchFirstLine(String line) {
+            for (final InputLine input : fFirstLines) {
+                final Matcher matcher = input.getPattern().matcher(line);
+                if (matcher.matches()) {
+                    fNextInput = input;
+                    fNextMatcher = matcher;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Parse a line of the current event
+         *
+         * @param line
+         *            The line
+         * @param event
+         *            The event to which the line is added, or null if the
+         *            events are only delimited
+         * @return true if the line is the first line of the next event instead,
+         *         its input line and matcher are then the next ones
+         */
+        public boolean parseLine(String line, CustomTxtEvent event) {
+            if (fCurrentInput == null) {
+                return matchFirstLine(line);
+            }
+            boolean processed = false;
+            if (fCountMap.get(fCurrentInput) >= fCurrentInput.getMinCount()) {
+                final List<InputLine> nextInputs = fCurrentInput.getNextInputs(fCountMap);
+                if (nextInputs.size() == 0 || nextInputs.get(nextInputs.size() - 1).getMinCount() == 0) {
+                    if (matchFirstLine(line)) {
+                        return true;
+                    }
+                }
+                for (final InputLine input : nextInputs) {
+                    final Matcher matcher = input.getPattern().matcher(line);
+                    if (matcher.matches()) {
+                        if (event != null) {
+                            event.processGroups(input, matcher);
+                        }
+                        fCurrentInput = input;
+                        if (fCountMap.get(fCurrentInput) == null) {
+                            fCountMap.put(fCurrentInput, 1);
+                        } else {
+                            fCountMap.put(fCurrentInput, fCountMap.get(fCurrentInput) + 1);
+                        }
+                        removeDeeperInputs();
+                        if (fCurrentInput.childrenInputs != null && fCurrentInput.childrenInputs.size() > 0) {
+                            fCurrentInput = fCurrentInput.childrenInputs.get(0);
+                            fCountMap.put(fCurrentInput, 0);
+                        } else if (fCountMap.get(fCurrentInput) >= fCurrentInput.getMaxCount()) {
+                            moveToNextInput();
+                        }
+                        processed = true;
+                        break;
+                    }
+                }
+            }
+            if (!processed && fCurrentInput != null) {
+                final Matcher matcher = fCurrentInput.getPattern().matcher(line);
+                if (matcher.matches()) {
+                    if (event != null) {
+                        event.processGroups(fCurrentInput, matcher);
+                    }
+                    fCountMap.put(fCurrentInput, fCountMap.get(fCurrentInput) + 1);
+                    if (fCurrentInput.childrenInputs != null && fCurrentInput.childrenInputs.size() > 0) {
+                        fCurrentInput = fCurrentInput.childrenInputs.get(0);
+                        fCountMap.put(fCurrentInput, 0);
+                    } else if (fCountMap.get(fCurrentInput) >= fCurrentInput.getMaxCount()) {
+                        moveToNextInput();
+                    }
+                }
+                if (event != null) {
+                    ((StringBuffer) event.getContent().getValue()).append("\n").append(line); //$NON-NLS-1$
+                }
+            }
+            return false;
+        }
+
+        private void moveToNextInput() {
+            if (fCurrentInput.getNextInputs(fCountMap).size() > 0) {
+                fCurrentInput = fCurrentInput.getNextInputs(fCountMap).get(0);
+                if (fCountMap.get(fCurrentInput) == null) {
+                    fCountMap.put(fCurrentInput, 0);
+                }
+                removeDeeperInputs();
+            } else {
+                fCurrentInput = null;
+            }
+        }
+
+        private void removeDeeperInputs() {
+            final Iterator<InputLine> iter = fCountMap.keySet().iterator();
+            while (iter.hasNext()) {
+                final InputLine inputLine = iter.next();
+                if (inputLine.level > fCurrentInput.level) {
+                    iter.remove();
+                }
+            }
+        }
+
+        /**
+         * @return true if the current event has all its mandatory lines
+         */
+        public boolean isComplete() {
+            for (final Entry<InputLine, Integer> entry : fCountMap.entrySet()) {
+                if (entry.getValue() < entry.getKey().getMinCount()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public InputLine getNextInput() {
+            return fNextInput;
+        }
+
+        public Matcher getNextMatcher() {
+            return fNextMatcher;
+        }
+    }
+
+    /**
+     * Scanner of a chunk of the file, which finds the first lines of its
+     * events with its own reader. It reads the events that start in the chunk,
+     * and the first few events that start after it, to join the next chunk.
+     */
+    private final class ChunkScanner implements Callable<ChunkScanner> {
+
+        private final long fStart;
+        private final long fEnd;
+        private final IProgressMonitor fMonitor;
+
+        /* The first events found, some can be lines of an event of the previous chunk */
+        private final List<Long> fStarts = new ArrayList<>();
+        /* The events found after the end of the chunk */
+        private final List<Long> fOverrun = new ArrayList<>();
+        /* The events of index 0, MARK_INTERVAL, 2 * MARK_INTERVAL, etc. in the chunk */
+        private long[] fMarks = new long[16];
+        private int fNbEvents = 0;
+        private boolean fEndOfFile = false;
+
+        public ChunkScanner(long start, long end, IProgressMonitor monitor) {
+            fStart = start;
+            fEnd = end;
+            fMonitor = monitor;
+        }
+
+        @Override
+        public ChunkScanner call() throws IOException {
+            try (BufferedRandomAccessFile file = new BufferedRandomAccessFile(getPath(), "r", getScanBufferSize())) { //$NON-NLS-1$
+                file.seek(fStart);
+                final EventParser parser = new EventParser(getFirstLines());
+                boolean inEvent = false;
+                int nbLines = 0;
+                long rawPos = file.getFilePointer();
+                String line = file.getNextLine();
+                while (line != null) {
+                    if (inEvent ? parser.parseLine(line, null) : parser.matchFirstLine(line)) {
+                        if (fStarts.size() < SYNC_EVENTS) {
+                            fStarts.add(rawPos);
+                        }
+                        if (rawPos < fEnd) {
+                            if (fNbEvents % MARK_INTERVAL == 0) {
+                                addMark(rawPos);
+                            }
+                            fNbEvents++;
+                        } else {
+                            fOverrun.add(rawPos);
+                            if (fOverrun.size() == SYNC_EVENTS) {
+                                return this;
+                            }
+                        }
+                        parser.startEvent(parser.getNextInput());
+                        inEvent = true;
+                    }
+                    if (++nbLines % CANCEL_CHECK_INTERVAL == 0 && fMonitor.isCanceled()) {
+                        return this;
+                    }
+                    rawPos = file.getFilePointer();
+                    line = file.getNextLine();
+                }
+                fEndOfFile = true;
+            }
+            return this;
+        }
+
+        private void addMark(long rawPos) {
+            int index = fNbEvents / MARK_INTERVAL;
+            if (index == fMarks.length) {
+                fMarks = Arrays.copyOf(fMarks, index * 2);
+            }
+            fMarks[index] = rawPos;
+        }
+    }
 }
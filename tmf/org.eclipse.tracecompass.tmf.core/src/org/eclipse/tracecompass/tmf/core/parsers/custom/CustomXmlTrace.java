@@ -17,11 +17,20 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.io.StringReader;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
@@ -67,12 +76,14 @@ public class CustomXmlTrace extends TmfTrace implements ITmfPersistentlyIndexabl
     private static final int DEFAULT_CACHE_SIZE = 100;
     private static final int MAX_LINES = 100;
     private static final int CONFIDENCE = 100;
+    private static final String REPORT_CDATA_EVENT = "http://java.sun.com/xml/stream/properties/report-cdata-event"; //$NON-NLS-1$
 
     private final CustomXmlTraceDefinition fDefinition;
     private final CustomXmlEventType fEventType;
     private final CustomXmlInputElement fRecordInputElement;
     private BufferedRandomAccessFile fFile;
     private final String fTraceTypeId;
+    private final XMLInputFactory fXmlInputFactory;
 
     private static final char SEPARATOR = ':';
     private static final String CUSTOM_XML_TRACE_TYPE_PREFIX = "custom.xml.trace" + SEPARATOR; //$NON-NLS-1$
@@ -89,6 +100,7 @@ public class CustomXmlTrace extends TmfTrace implements ITmfPersistentlyIndexabl
         fDefinition = definition;
         fEventType = new CustomXmlEventType(fDefinition);
         fRecordInputElement = getRecordInputElement(fDefinition.rootInputElement);
+        fXmlInputFactory = createXmlInputFactory();
         fTraceTypeId = buildTraceTypeId(definition.categoryName, definition.definitionName);
         setCacheSize(DEFAULT_CACHE_SIZE);
     }
@@ -115,6 +127,18 @@ public class CustomXmlTrace extends TmfTrace implements ITmfPersistentlyIndexabl
         initTrace(resource, path, CustomXmlEvent.class);
     }
 
+    private static XMLInputFactory createXmlInputFactory() {
+        final XMLInputFactory factory = XMLInputFactory.newInstance();
+        /* Same document as the one parsed by the DOM parser, names with their prefix */
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        if (factory.isPropertySupported(REPORT_CDATA_EVENT)) {
+            factory.setProperty(REPORT_CDATA_EVENT, Boolean.TRUE);
+        }
+        return factory;
+    }
+
     @Override
     public void initTrace(final IResource resource, final String path, final Class<? extends ITmfEvent> eventType) throws TmfTraceException {
         super.initTrace(resource, path, eventType);
@@ -262,9 +286,8 @@ public class CustomXmlTrace extends TmfTrace implements ITmfPersistentlyIndexabl
             }
             final StringBuffer elementBuffer = new StringBuffer("<"); //$NON-NLS-1$
             readElement(elementBuffer, fFile);
-            final Element element = parseElementBuffer(elementBuffer);
 
-            event = extractEvent(element, fRecordInputElement);
+            event = streamEvent(elementBuffer);
             ((StringBuffer) event.getContent().getValue()).append(elementBuffer);
 
             long rawPos = fFile.getFilePointer();
@@ -330,6 +353,202 @@ public class CustomXmlTrace extends TmfTrace implements ITmfPersistentlyIndexabl
         return null;
     }
 
+    /**
+     * Extract a trace event from the text of a record element, while reading
+     * it with a stream reader. The event gets the same fields as with
+     * {@link #extractEvent(Element, CustomXmlInputElement)}, but no DOM is
+     * built: only the text of the inputs of the elements being read is kept.
+     *
+     * @param elementBuffer
+     *            The text of the record element
+     * @return The extracted event
+     */
+    private CustomXmlEvent streamEvent(final StringBuffer elementBuffer) {
+        final CustomXmlEvent event = new CustomXmlEvent(fDefinition, this, TmfTimestamp.ZERO, fEventType);
+        event.setContent(new CustomEventContent(event, new StringBuffer()));
+
+        /*
+         * The value of an element input is only known at the end of the
+         * element, but it is parsed before the inputs of its attributes and
+         * children, so the inputs are parsed once the record is read.
+         */
+        final List<PendingInput> inputs = new ArrayList<>();
+        final Deque<ElementFrame> frames = new ArrayDeque<>();
+        XMLStreamReader reader = null;
+        try {
+            reader = fXmlInputFactory.createXMLStreamReader(new StringReader(elementBuffer.toString()));
+            while (reader.hasNext()) {
+                final int eventType = reader.next();
+                final ElementFrame parent = frames.peek();
+                if (eventType == XMLStreamConstants.START_ELEMENT) {
+                    final String name = reader.getLocalName();
+                    CustomXmlInputElement inputElement = null;
+                    if (parent == null) {
+                        inputElement = fRecordInputElement;
+                    } else if (parent.fInputElement != null && parent.fInputElement.getChildElements() != null) {
+                        for (final CustomXmlInputElement child : parent.fInputElement.getChildElements()) {
+                            if (name.equals(child.getElementName())) {
+                                inputElement = child;
+                                break;
+                            }
+                        }
+                    }
+                    final ElementFrame frame = new ElementFrame(name, inputElement, parent);
+                    if (inputElement != null) {
+                        if (frame.fHasInput) {
+                            frame.fInput = new PendingInput("", inputElement.getInputName(), inputElement.getInputAction(), inputElement.getInputFormat()); //$NON-NLS-1$
+                            inputs.add(frame.fInput);
+                        }
+                        if (inputElement.getAttributes() != null) {
+                            for (final CustomXmlInputAttribute attribute : inputElement.getAttributes()) {
+                                inputs.add(new PendingInput(getAttributeValue(reader, attribute.getAttributeName()), attribute.getInputName(), attribute.getInputAction(), attribute.getInputFormat()));
+                            }
+                        }
+                    }
+                    frames.push(frame);
+                } else if (eventType == XMLStreamConstants.END_ELEMENT) {
+                    final ElementFrame frame = frames.pop();
+                    frame.endText();
+                    if (frame.fInput != null) {
+                        frame.fInput.fValue = frame.fText.toString();
+                    }
+                    if (frame.fParent != null) {
+                        frame.fParent.addElement(frame);
+                    }
+                } else if (parent != null) {
+                    if (eventType == XMLStreamConstants.CHARACTERS || eventType == XMLStreamConstants.SPACE) {
+                        parent.addText(reader.getText());
+                    } else if (eventType == XMLStreamConstants.CDATA || eventType == XMLStreamConstants.COMMENT ||
+                            eventType == XMLStreamConstants.PROCESSING_INSTRUCTION || eventType == XMLStreamConstants.ENTITY_REFERENCE) {
+                        parent.addNode();
+                    }
+                }
+            }
+        } catch (final XMLStreamException e) {
+            Activator.logError("Error parsing element buffer. File:" + getPath(), e); //$NON-NLS-1$
+            return event;
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (final XMLStreamException e) {
+                    /* The reader only reads a string, so there is no resource to release */
+                }
+            }
+        }
+        for (final PendingInput input : inputs) {
+            event.parseInput(input.fValue, input.fName, input.fAction, input.fFormat);
+        }
+        return event;
+    }
+
+    private static String getAttributeValue(final XMLStreamReader reader, final String attributeName) {
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            final String prefix = reader.getAttributePrefix(i);
+            final String localName = reader.getAttributeLocalName(i);
+            final String name = (prefix == null || prefix.isEmpty()) ? localName : prefix + ':' + localName;
+            if (name.equals(attributeName)) {
+                return reader.getAttributeValue(i);
+            }
+        }
+        return ""; //$NON-NLS-1$
+    }
+
+    /**
+     * An input to parse in an event, once its value is known
+     */
+    private static final class PendingInput {
+        private String fValue;
+        private final String fName;
+        private final int fAction;
+        private final String fFormat;
+
+        public PendingInput(String value, String name, int action, String format) {
+            fValue = value;
+            fName = name;
+            fAction = action;
+            fFormat = format;
+        }
+    }
+
+    /**
+     * An element being read. If its text is needed, it is built like
+     * {@link CustomXmlTrace#parseElement(Element, StringBuffer)} does, from
+     * the text of its child nodes.
+     */
+    private static final class ElementFrame {
+        private final String fName;
+        private final CustomXmlInputElement fInputElement;
+        private final ElementFrame fParent;
+        private final boolean fHasInput;
+        /* The text of the element, or null if it is not needed */
+        private final StringBuilder fText;
+        private PendingInput fInput = null;
+        private StringBuilder fPendingText = null;
+        private int fNbNodes = 0;
+        private String fFirstText = null;
+        private boolean fHasElement = false;
+
+        public ElementFrame(String name, CustomXmlInputElement inputElement, ElementFrame parent) {
+            fName = name;
+            fInputElement = inputElement;
+            fParent = parent;
+            fHasInput = (inputElement != null && inputElement.getInputName() != null && !inputElement.getInputName().equals(CustomXmlTraceDefinition.TAG_IGNORE));
+            fText = (fHasInput || (parent != null && parent.fText != null)) ? new StringBuilder() : null;
+        }
+
+        public void addText(String text) {
+            if (fText == null) {
+                return;
+            }
+            /* Adjacent text is a single text node */
+            if (fPendingText == null) {
+                fPendingText = new StringBuilder();
+            }
+            fPendingText.append(text);
+        }
+
+        public void addNode() {
+            endText();
+            fNbNodes++;
+        }
+
+        public void addElement(ElementFrame child) {
+            endText();
+            fNbNodes++;
+            if (fText == null) {
+                return;
+            }
+            if (fHasElement) {
+                fText.append(" | "); //$NON-NLS-1$
+            }
+            fHasElement = true;
+            if (child.fNbNodes == 0) {
+                fText.append(child.fName);
+            } else if (child.fNbNodes == 1 && child.fFirstText != null) {
+                fText.append(child.fName).append(':').append(child.fFirstText.trim());
+            } else {
+                fText.append(child.fName).append(" [ ").append(child.fText).append(" ]"); //$NON-NLS-1$ //$NON-NLS-2$
+            }
+        }
+
+        public void endText() {
+            if (fPendingText == null) {
+                return;
+            }
+            final String text = fPendingText.toString();
+            fPendingText = null;
+            if (fNbNodes == 0) {
+                fFirstText = text;
+            }
+            fNbNodes++;
+            final String trimmed = text.trim();
+            if (!trimmed.isEmpty()) {
+                fText.append(trimmed);
+            }
+        }
+    }
+
     private static int indexOfElement(String elementName, String line, int fromIndex) {
         final String recordElementStart = '<' + elementName;
         int index = line.indexOf(recordElementStart, fromIndex);
@@ -61,6 +61,13 @@ public abstract class TmfStateSystemAnalysisModule extends TmfAbstractAnalysisMo
 
     private static final String EXTENSION = ".ht"; //$NON-NLS-1$
 
+    /**
+     * Maximum size of an existing history file for it to be read from memory
+     * mappings. Larger files are read with the file channel, so that they do
+     * not use too much of the address space.
+     */
+    private static final long MAX_MAPPED_FILE_SIZE = 1L << 30;
+
     private final CountDownLatch fInitialized = new CountDownLatch(1);
     private final Object fRequestSyncObj = new Object();
 
@@ -253,8 +260,10 @@ public abstract class TmfStateSystemAnalysisModule extends TmfAbstractAnalysisMo
            /* Load an existing history */
             final int version = provider.getVersion();
             try {
+                /* The existing file is complete, it can be read from memory mappings */
+                boolean memoryMapped = (htFile.length() <= MAX_MAPPED_FILE_SIZE);
                 IStateHistoryBackend backend = StateHistoryBackendFactory.createHistoryTreeBackendExistingFile(
-                        id, htFile, version);
+                        id, htFile, version, memoryMapped);
                 fHtBackend = backend;
                 fStateSystem = StateSystemFactory.newStateSystem(backend, false);
                 fInitialized.countDown();
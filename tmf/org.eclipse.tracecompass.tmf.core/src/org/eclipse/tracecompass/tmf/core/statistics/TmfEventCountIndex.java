@@ -0,0 +1,281 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.core.statistics;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Compact index of the number of events over time, used for the "totals"
+ * statistics.
+ *
+ * The time is cut in buckets of a fixed duration, the granularity. For each
+ * bucket containing events, the index only keeps the number of events up to
+ * the end of that bucket, so its size depends on the duration of the trace,
+ * not on its number of events. The number of events up to a given time is
+ * found with a binary search in the buckets. Within a bucket, it is
+ * interpolated, assuming the events of the bucket are evenly spread over its
+ * duration. The counts are exact at the bucket boundaries, and before the
+ * first and after the last event.
+ *
+ * Events have to be added in time order. The index can be queried by other
+ * threads while it is being filled.
+ *
+ * @since 1.1
+ */
+public final class TmfEventCountIndex {
+
+    /** Default duration of a bucket, in nanoseconds (1 ms) */
+    public static final long DEFAULT_GRANULARITY = 1000000L;
+
+    private static final int MAGIC_NUMBER = 0x45564E43;
+    private static final int FILE_VERSION = 2;
+
+    private static final int INITIAL_SIZE = 16;
+
+    private final long fGranularity;
+
+    /* All the fields below are guarded by 'this' */
+
+    /** Number of each non-empty bucket, in increasing order */
+    private long[] fBuckets = new long[INITIAL_SIZE];
+    /** Number of events up to the end of each non-empty bucket */
+    private long[] fCounts = new long[INITIAL_SIZE];
+    private int fNbBuckets = 0;
+    private long fCount = 0;
+    private long fFirstTimestamp = Long.MIN_VALUE;
+    private long fLastTimestamp = Long.MIN_VALUE;
+
+    /**
+     * Constructor, using the default granularity
+     */
+    public TmfEventCountIndex() {
+        this(DEFAULT_GRANULARITY);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param granularity
+     *            The duration of a bucket, in nanoseconds. It must be
+     *            positive.
+     */
+    public TmfEventCountIndex(long granularity) {
+        if (granularity <= 0) {
+            throw new IllegalArgumentException("Invalid granularity: " + granularity); //$NON-NLS-1$
+        }
+        fGranularity = granularity;
+    }
+
+    /**
+     * Get the duration of a bucket of this index
+     *
+     * @return The granularity, in nanoseconds
+     */
+    public long getGranularity() {
+        return fGranularity;
+    }
+
+    /**
+     * Add an event to the index. An event that is earlier than the previous
+     * one is counted at the time of the previous one.
+     *
+     * @param timestamp
+     *            The time stamp of the event, in nanoseconds
+     */
+    public synchronized void addEvent(long timestamp) {
+        long ts = Math.max(timestamp, fLastTimestamp);
+        long bucket = getBucket(ts);
+        if (fNbBuckets == 0 || fBuckets[fNbBuckets - 1] != bucket) {
+            if (fNbBuckets == fBuckets.length) {
+                fBuckets = Arrays.copyOf(fBuckets, fNbBuckets * 2);
+                fCounts = Arrays.copyOf(fCounts, fNbBuckets * 2);
+            }
+            fBuckets[fNbBuckets] = bucket;
+            fNbBuckets++;
+        }
+        if (fCount == 0) {
+            fFirstTimestamp = ts;
+        }
+        fCount++;
+        fCounts[fNbBuckets - 1] = fCount;
+        fLastTimestamp = ts;
+    }
+
+    /**
+     * Get the number of events in the index
+     *
+     * @return The number of events
+     */
+    public synchronized long getCount() {
+        return fCount;
+    }
+
+    /**
+     * Get the number of events whose time stamp is before or at the given
+     * time. It is interpolated if the time is inside a bucket.
+     *
+     * @param timestamp
+     *            The time stamp, in nanoseconds
+     * @return The number of events up to that time, inclusively
+     */
+    public synchronized long getCountAt(long timestamp) {
+        if (fCount == 0 || timestamp < fFirstTimestamp) {
+            return 0;
+        }
+        if (timestamp >= fLastTimestamp) {
+            return fCount;
+        }
+        long bucket = getBucket(timestamp);
+        int index = Arrays.binarySearch(fBuckets, 0, fNbBuckets, bucket);
+        if (index < 0) {
+            /* No event in that bucket, count all the buckets before it */
+            int next = -index - 1;
+            return (next == 0 ? 0 : fCounts[next - 1]);
+        }
+
+        /* Take the part of the bucket that is not after the time stamp */
+        long before = (index == 0 ? 0 : fCounts[index - 1]);
+        long inBucket = fCounts[index] - before;
+        double ratio = (double) (timestamp - bucket * fGranularity + 1) / fGranularity;
+        return before + (long) (inBucket * ratio);
+    }
+
+    /**
+     * Check if the number of events up to a given time is exact, rather than
+     * interpolated. It is at the last nanosecond of a bucket, in a bucket
+     * without events, and before the first and after the last event.
+     *
+     * @param timestamp
+     *            The time stamp, in nanoseconds
+     * @return True if {@link #getCountAt} is exact at that time
+     */
+    public synchronized boolean isExactAt(long timestamp) {
+        if (fCount == 0 || timestamp < fFirstTimestamp || timestamp >= fLastTimestamp) {
+            return true;
+        }
+        long bucket = getBucket(timestamp);
+        if (timestamp - bucket * fGranularity == fGranularity - 1) {
+            return true;
+        }
+        return Arrays.binarySearch(fBuckets, 0, fNbBuckets, bucket) < 0;
+    }
+
+    /**
+     * Get the number of events in a time range. It is interpolated in the
+     * buckets of the start and end times.
+     *
+     * @param start
+     *            The start of the range, inclusive, in nanoseconds
+     * @param end
+     *            The end of the range, inclusive, in nanoseconds
+     * @return The number of events in the range
+     */
+    public synchronized long getCountInRange(long start, long end) {
+        if (end < start) {
+            return 0;
+        }
+        long before = (start == Long.MIN_VALUE ? 0 : getCountAt(start - 1));
+        return getCountAt(end) - before;
+    }
+
+    // ------------------------------------------------------------------------
+    // Persistence
+    // ------------------------------------------------------------------------
+
+    /**
+     * Write the index to a file
+     *
+     * @param file
+     *            The file to write, it is overwritten if it exists
+     * @throws IOException
+     *             If the file could not be written
+     */
+    public synchronized void save(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC_NUMBER);
+            out.writeInt(FILE_VERSION);
+            out.writeLong(fGranularity);
+            out.writeLong(fCount);
+            out.writeLong(fFirstTimestamp);
+            out.writeLong(fLastTimestamp);
+            out.writeInt(fNbBuckets);
+            for (int i = 0; i < fNbBuckets; i++) {
+                out.writeLong(fBuckets[i]);
+                out.writeLong(fCounts[i]);
+            }
+        }
+    }
+
+    /**
+     * Read an index from a file written by {@link #save}
+     *
+     * @param file
+     *            The file to read
+     * @return The index
+     * @throws IOException
+     *             If the file could not be read, or is not a valid index
+     */
+    public static TmfEventCountIndex load(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC_NUMBER || in.readInt() != FILE_VERSION) {
+                throw new IOException("Not a valid event count index: " + file); //$NON-NLS-1$
+            }
+            long granularity = in.readLong();
+            long count = in.readLong();
+            long firstTimestamp = in.readLong();
+            long lastTimestamp = in.readLong();
+            int nbBuckets = in.readInt();
+            if (granularity <= 0 || count < 0 || nbBuckets < 0 || nbBuckets > count
+                    || (nbBuckets == 0) != (count == 0)) {
+                throw new IOException("Corrupted event count index: " + file); //$NON-NLS-1$
+            }
+
+            TmfEventCountIndex index = new TmfEventCountIndex(granularity);
+            synchronized (index) {
+                int capacity = Math.max(INITIAL_SIZE, nbBuckets);
+                index.fBuckets = new long[capacity];
+                index.fCounts = new long[capacity];
+                for (int i = 0; i < nbBuckets; i++) {
+                    index.fBuckets[i] = in.readLong();
+                    index.fCounts[i] = in.readLong();
+                }
+                if (nbBuckets > 0 && index.fCounts[nbBuckets - 1] != count) {
+                    throw new IOException("Corrupted event count index: " + file); //$NON-NLS-1$
+                }
+                index.fNbBuckets = nbBuckets;
+                index.fCount = count;
+                index.fFirstTimestamp = firstTimestamp;
+                index.fLastTimestamp = lastTimestamp;
+            }
+            return index;
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private long getBucket(long timestamp) {
+        long bucket = timestamp / fGranularity;
+        if (timestamp % fGranularity < 0) {
+            /* Round towards negative infinity */
+            bucket--;
+        }
+        return bucket;
+    }
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2012, 2014 Ericsson
+ * Copyright (c) 2012, 2015 Ericsson
  *
  * All rights reserved. This program and the accompanying materials are
  * made available under the terms of the Eclipse Public License v1.0 which
@@ -14,15 +14,20 @@
 package org.eclipse.tracecompass.tmf.core.statistics;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
 import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
 import org.eclipse.tracecompass.statesystem.core.exceptions.AttributeNotFoundException;
 import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
 import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.tracecompass.tmf.core.timestamp.ITmfTimestamp;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimestamp;
 
 /**
  * Implementation of ITmfStatistics which uses a state history for storing its
@@ -35,6 +40,11 @@ import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
  * Queries are O(log n) wrt the size of the trace, and O(1) wrt to the size of
  * the time interval selected.
  *
+ * If a {@link TmfEventCountIndex} is available, the event totals at the
+ * boundaries of its buckets are read from it, in memory, instead of from the
+ * "totals" state system. Inside a bucket, where the index would interpolate,
+ * the exact count is read from the state systems.
+ *
  * @author Alexandre Montplaisir
  */
 public class TmfStateStatistics implements ITmfStatistics {
@@ -49,6 +59,12 @@ public class TmfStateStatistics implements ITmfStatistics {
     /** The state system for event types */
     private final ITmfStateSystem typesStats;
 
+    /** The index of the event totals, if any */
+    private final @Nullable TmfEventCountIndex totalsIndex;
+
+    /** The duration of the buckets of the totals, once read */
+    private volatile long totalsGranularity = 0;
+
     // ------------------------------------------------------------------------
     // Constructors
     // ------------------------------------------------------------------------
@@ -62,8 +78,26 @@ public class TmfStateStatistics implements ITmfStatistics {
      *            The state system containing the "event types" information
      */
     public TmfStateStatistics(@NonNull ITmfStateSystem totals, @NonNull ITmfStateSystem eventTypes) {
+        this(totals, eventTypes, null);
+    }
+
+    /**
+     * Constructor using an index for the event totals
+     *
+     * @param totals
+     *            The state system containing the "totals" information
+     * @param eventTypes
+     *            The state system containing the "event types" information
+     * @param totalsIndex
+     *            The index of the event totals, built along with the "totals"
+     *            state system, or null to query the state system instead
+     * @since 1.1
+     */
+    public TmfStateStatistics(@NonNull ITmfStateSystem totals, @NonNull ITmfStateSystem eventTypes,
+            @Nullable TmfEventCountIndex totalsIndex) {
         this.totalsStats = totals;
         this.typesStats = eventTypes;
+        this.totalsIndex = totalsIndex;
     }
 
     /**
@@ -133,12 +167,17 @@ public class TmfStateStatistics implements ITmfStatistics {
 
     @Override
     public long getEventsTotal() {
+        TmfEventCountIndex index = totalsIndex;
+        if (index != null) {
+            return index.getCount();
+        }
+
         long endTime = totalsStats.getCurrentEndTime();
-        int count = 0;
+        long count = 0;
 
         try {
             final int quark = totalsStats.getQuarkAbsolute(Attributes.TOTAL);
-            count= totalsStats.querySingleState(endTime, quark).getStateValue().unboxInt();
+            count = getCount(totalsStats.querySingleState(endTime, quark));
 
         } catch (StateSystemDisposedException e) {
             /* Assume there is no events for that range */
@@ -266,19 +305,99 @@ public class TmfStateStatistics implements ITmfStatistics {
         return map;
     }
 
+    /**
+     * Get the lost events whose range starts in a time range. The range in
+     * which they were lost may end after the end of the query.
+     *
+     * @param start
+     *            Start time of the query, inclusive
+     * @param end
+     *            End time of the query, inclusive
+     * @return The number of lost events, by range in which they were lost, in
+     *         time order
+     * @since 1.1
+     */
+    public Map<TmfTimeRange, Long> getLostEventsInRange(long start, long end) {
+        final Map<TmfTimeRange, Long> map = new LinkedHashMap<>();
+        long startTime = checkStartTime(start, totalsStats);
+        long endTime = checkEndTime(end, totalsStats);
+        if (endTime < startTime) {
+            return map;
+        }
+
+        try {
+            int quark = totalsStats.getQuarkAbsolute(Attributes.LOST_EVENTS);
+            int endQuark = totalsStats.getQuarkAbsolute(Attributes.LOST_EVENTS_END);
+            /* One interval per lost event, so there are few of them */
+            ITmfStateInterval interval = totalsStats.querySingleState(startTime, quark);
+            long previous = 0;
+            if (interval.getStartTime() < startTime) {
+                /* These events were lost before the range */
+                previous = getLostEvents(interval);
+            } else if (interval.getStartTime() > totalsStats.getStartTime()) {
+                previous = getLostEvents(totalsStats.querySingleState(interval.getStartTime() - 1, quark));
+            }
+            while (true) {
+                long lostEvents = getLostEvents(interval);
+                if (lostEvents != previous) {
+                    long rangeStart = interval.getStartTime();
+                    long rangeEnd = getLostEvents(totalsStats.querySingleState(rangeStart, endQuark));
+                    TmfTimeRange range = new TmfTimeRange(new TmfTimestamp(rangeStart, ITmfTimestamp.NANOSECOND_SCALE),
+                            new TmfTimestamp(Math.max(rangeStart, rangeEnd), ITmfTimestamp.NANOSECOND_SCALE));
+                    map.put(range, lostEvents - previous);
+                }
+                previous = lostEvents;
+                long next = interval.getEndTime() + 1;
+                if (next > endTime || next <= interval.getEndTime()) {
+                    break;
+                }
+                interval = totalsStats.querySingleState(next, quark);
+            }
+        } catch (AttributeNotFoundException e) {
+            /* There are no lost events in this trace */
+        } catch (StateSystemDisposedException e) {
+            /* Assume there are no (more) lost events */
+        }
+        return map;
+    }
+
     // ------------------------------------------------------------------------
     // Helper methods
     // ------------------------------------------------------------------------
 
+    private static long getLostEvents(ITmfStateInterval interval) {
+        return interval.getStateValue().isNull() ? 0 : interval.getStateValue().unboxLong();
+    }
+
+    private static long getCount(ITmfStateInterval interval) {
+        return interval.getStateValue().isNull() ? 0 : interval.getStateValue().unboxLong();
+    }
+
     private long getEventCountAt(long timestamp) {
+        TmfEventCountIndex index = totalsIndex;
+        if (index != null && index.isExactAt(timestamp)) {
+            return index.getCountAt(timestamp);
+        }
+
         /* Make sure the target time is within the range of the history */
         long ts = checkStartTime(timestamp, totalsStats);
         ts = checkEndTime(ts, totalsStats);
 
         try {
             final int quark = totalsStats.getQuarkAbsolute(Attributes.TOTAL);
-            long count = totalsStats.querySingleState(ts, quark).getStateValue().unboxInt();
-            return count;
+            ITmfStateInterval interval = totalsStats.querySingleState(ts, quark);
+            /*
+             * The interval contains the total up to the end of the bucket in
+             * which it starts, the next buckets of the interval are empty.
+             */
+            long granularity = (index != null ? index.getGranularity() : getTotalsGranularity());
+            long start = interval.getStartTime();
+            long bucketEnd = start - ((start % granularity) + granularity) % granularity + granularity - 1;
+            if (ts >= bucketEnd || ts == interval.getEndTime() || interval.getStateValue().isNull()) {
+                return getCount(interval);
+            }
+            /* Inside a bucket, count the events of each type instead */
+            return getEventTypesCountAt(ts);
 
         } catch (StateSystemDisposedException e) {
             /* Assume there is no (more) events, nothing will be put in the map. */
@@ -289,6 +408,61 @@ public class TmfStateStatistics implements ITmfStatistics {
         return 0;
     }
 
+    /**
+     * Get the duration of the buckets with which the totals were written.
+     * Histories written before it was saved use the default one.
+     */
+    private long getTotalsGranularity() throws StateSystemDisposedException {
+        long granularity = totalsGranularity;
+        if (granularity > 0) {
+            return granularity;
+        }
+        try {
+            int quark = totalsStats.getQuarkAbsolute(Attributes.GRANULARITY);
+            ITmfStateInterval interval = totalsStats.querySingleState(totalsStats.getCurrentEndTime(), quark);
+            if (interval.getStateValue().isNull()) {
+                return TmfEventCountIndex.DEFAULT_GRANULARITY;
+            }
+            granularity = interval.getStateValue().unboxLong();
+        } catch (AttributeNotFoundException e) {
+            /* No events were counted yet */
+            return TmfEventCountIndex.DEFAULT_GRANULARITY;
+        }
+        totalsGranularity = granularity;
+        return granularity;
+    }
+
+    /**
+     * Get the number of real events up to a time from the event types state
+     * system, which has the count of every type at every event, minus the
+     * lost events that it also counts.
+     */
+    private long getEventTypesCountAt(long timestamp) throws StateSystemDisposedException {
+        long ts = checkEndTime(checkStartTime(timestamp, typesStats), typesStats);
+        long count = 0;
+        try {
+            int quark = typesStats.getQuarkAbsolute(Attributes.EVENT_TYPES);
+            List<Integer> quarks = typesStats.getSubAttributes(quark, false);
+            List<ITmfStateInterval> state = typesStats.queryFullState(ts);
+            for (int typeQuark : quarks) {
+                long eventCount = state.get(typeQuark).getStateValue().unboxInt();
+                if (eventCount > 0) {
+                    count += eventCount;
+                }
+            }
+        } catch (AttributeNotFoundException e) {
+            /* No events were counted yet */
+            return 0;
+        }
+        try {
+            int lostQuark = totalsStats.getQuarkAbsolute(Attributes.LOST_EVENTS);
+            count -= getLostEvents(totalsStats.querySingleState(ts, lostQuark));
+        } catch (AttributeNotFoundException e) {
+            /* There are no lost events in this trace */
+        }
+        return count;
+    }
+
     private static long checkStartTime(long initialStart, ITmfStateSystem ss) {
         long start = initialStart;
         if (start < ss.getStartTime()) {
@@ -315,5 +489,26 @@ public class TmfStateStatistics implements ITmfStatistics {
 
         /** event_types */
         public static final String EVENT_TYPES = "event_types"; //$NON-NLS-1$<
+
+        /**
+         * Nb of lost events so far
+         *
+         * @since 1.1
+         */
+        public static final String LOST_EVENTS = "lost_events"; //$NON-NLS-1$
+
+        /**
+         * End time of the range of the last lost events
+         *
+         * @since 1.1
+         */
+        public static final String LOST_EVENTS_END = "lost_events_end"; //$NON-NLS-1$
+
+        /**
+         * Duration of the buckets in which the events are counted
+         *
+         * @since 1.1
+         */
+        public static final String GRANULARITY = "granularity"; //$NON-NLS-1$
     }
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2013, 2014 Ericsson
+ * Copyright (c) 2013, 2015 Ericsson
  *
  * All rights reserved. This program and the accompanying materials are
  * made available under the terms of the Eclipse Public License v1.0 which
@@ -41,7 +41,7 @@ public class TmfStatisticsModule extends TmfAbstractAnalysisModule
     /** The trace's statistics */
     private ITmfStatistics fStatistics = null;
 
-    private final TmfStateSystemAnalysisModule totalsModule = new TmfStatisticsTotalsModule();
+    private final TmfStatisticsTotalsModule totalsModule = new TmfStatisticsTotalsModule();
     private final TmfStateSystemAnalysisModule eventTypesModule = new TmfStatisticsEventTypesModule();
 
     private final CountDownLatch fInitialized = new CountDownLatch(1);
@@ -137,7 +137,7 @@ public class TmfStatisticsModule extends TmfAbstractAnalysisModule
             return false;
         }
 
-        fStatistics = new TmfStateStatistics(totalsSS, eventTypesSS);
+        fStatistics = new TmfStateStatistics(totalsSS, eventTypesSS, totalsModule.getEventCountIndex());
 
         /* fStatistics is now set, consider this module initialized */
         fInitialized.countDown();
@@ -14,11 +14,17 @@ package org.eclipse.tracecompass.tmf.core.statistics;
 
 import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
 
+import java.io.File;
+import java.io.IOException;
+
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
 import org.eclipse.tracecompass.statesystem.core.exceptions.AttributeNotFoundException;
 import org.eclipse.tracecompass.statesystem.core.exceptions.StateValueTypeException;
 import org.eclipse.tracecompass.statesystem.core.exceptions.TimeRangeException;
+import org.eclipse.tracecompass.statesystem.core.statevalue.TmfStateValue;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
 import org.eclipse.tracecompass.tmf.core.event.ITmfLostEvent;
 import org.eclipse.tracecompass.tmf.core.statesystem.AbstractTmfStateProvider;
@@ -27,6 +33,7 @@ import org.eclipse.tracecompass.tmf.core.statesystem.TmfStateSystemAnalysisModul
 import org.eclipse.tracecompass.tmf.core.statistics.TmfStateStatistics.Attributes;
 import org.eclipse.tracecompass.tmf.core.timestamp.ITmfTimestamp;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+import org.eclipse.tracecompass.tmf.core.trace.TmfTraceManager;
 
 /**
  * The analysis module building the "totals" statistics state system.
@@ -34,6 +41,11 @@ import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
  * It is not in the extension point (and as such, not registered in the
  * TmfAnalysisManager), as it is being handled by the TmfStatisticsModule.
  *
+ * The events are counted in a {@link TmfEventCountIndex}, which is saved next
+ * to the state history. The state system itself only receives the total at the
+ * start of each bucket of the index, so its size does not grow with the number
+ * of events.
+ *
  * @author Alexandre Montplaisir
  */
 public class TmfStatisticsTotalsModule extends TmfStateSystemAnalysisModule {
@@ -45,6 +57,10 @@ public class TmfStatisticsTotalsModule extends TmfStateSystemAnalysisModule {
 
     private static final @NonNull String NAME = "TMF Statistics, event totals"; //$NON-NLS-1$
 
+    private static final String INDEX_FILE_NAME = "statistics-totals.idx"; //$NON-NLS-1$
+
+    private volatile @Nullable TmfEventCountIndex fIndex = null;
+
     /**
      * Constructor
      */
@@ -54,9 +70,50 @@ public class TmfStatisticsTotalsModule extends TmfStateSystemAnalysisModule {
         setName(NAME);
     }
 
+    /**
+     * Get the index of the event counts built by this analysis, or null if it
+     * is not yet created. It is available once the state system is.
+     *
+     * @return The event count index
+     * @since 1.1
+     */
+    public @Nullable TmfEventCountIndex getEventCountIndex() {
+        return fIndex;
+    }
+
+    @Override
+    protected boolean executeAnalysis(@Nullable IProgressMonitor monitor) {
+        fIndex = null;
+        ITmfTrace trace = getTrace();
+        if (trace != null) {
+            String directory = TmfTraceManager.getSupplementaryFileDir(trace);
+            File htFile = new File(directory + getSsFileName());
+            File indexFile = new File(directory + INDEX_FILE_NAME);
+            if (htFile.exists()) {
+                /*
+                 * The history may not be rebuilt, so the index has to be read
+                 * back. If it cannot be, rebuild both. If the history is
+                 * rebuilt anyway, the new provider replaces this index.
+                 */
+                try {
+                    fIndex = TmfEventCountIndex.load(indexFile);
+                } catch (IOException e) {
+                    htFile.delete();
+                }
+            }
+            if (!htFile.exists()) {
+                /* An index without its history is stale */
+                indexFile.delete();
+            }
+        }
+        return super.executeAnalysis(monitor);
+    }
+
     @Override
     protected ITmfStateProvider createStateProvider() {
-        return new StatsProviderTotals(checkNotNull(getTrace()));
+        ITmfTrace trace = checkNotNull(getTrace());
+        File indexFile = new File(TmfTraceManager.getSupplementaryFileDir(trace) + INDEX_FILE_NAME);
+        return new StatsProviderTotals(trace, new TmfEventCountIndex(), indexFile);
     }
 
     @Override
@@ -69,12 +126,22 @@ public class TmfStatisticsTotalsModule extends TmfStateSystemAnalysisModule {
      * The state provider for traces statistics that use TmfStateStatistics. It
      * should work with any trace type for which we can use the state system.
      *
-     * Only one attribute will be stored, containing the total of events seen so
-     * far. The resulting attribute tree will look like this:
+     * The events are counted in a {@link TmfEventCountIndex}, which is written
+     * to disk when the provider is disposed. The "total" attribute of the state
+     * system has one interval per bucket of the index containing events. Its
+     * value is the total number of events up to the end of that bucket. The
+     * lost events are not counted in the total, but in their own attribute,
+     * which contains the number of events lost so far. Another attribute
+     * contains the end time of the range of the last lost events, and another
+     * one the granularity of the index, set at the first event. The
+     * resulting attribute tree will look like this:
      *
      * <pre>
      * (root)
-     *   \-- total
+     *   |-- total
+     *   |-- lost_events
+     *   |-- lost_events_end
+     *   \-- granularity
      * </pre>
      *
      * @author Alexandre Montplaisir
@@ -86,16 +153,30 @@ public class TmfStatisticsTotalsModule extends TmfStateSystemAnalysisModule {
          * Version number of this input handler. Please bump this if you modify the
          * contents of the generated state history in some way.
          */
-        private static final int VERSION = 2;
+        private static final int VERSION = 6;
+
+        private final TmfEventCountIndex fCountIndex;
+        private final @Nullable File fIndexFile;
+        private long fCurrentBucket = Long.MIN_VALUE;
+        private long fCurrentBucketStart = Long.MIN_VALUE;
+        private long fLostEvents = 0;
 
         /**
          * Constructor
-        *
+         *
          * @param trace
          *            The trace for which we build this state system
+         * @param index
+         *            The index in which to count the events
+         * @param indexFile
+         *            The file where to save the index once done, or null to
+         *            not save it. The module uses the index of the provider
+         *            that has such a file once it starts building.
          */
-        public StatsProviderTotals(@NonNull ITmfTrace trace) {
+        public StatsProviderTotals(@NonNull ITmfTrace trace, TmfEventCountIndex index, @Nullable File indexFile) {
             super(trace, NAME);
+            fCountIndex = index;
+            fIndexFile = indexFile;
         }
 
         @Override
@@ -105,26 +186,83 @@ public class TmfStatisticsTotalsModule extends TmfStateSystemAnalysisModule {
 
         @Override
         public StatsProviderTotals getNewInstance() {
-            return new StatsProviderTotals(this.getTrace());
+            return new StatsProviderTotals(this.getTrace(), new TmfEventCountIndex(fCountIndex.getGranularity()), null);
         }
 
         @Override
-        protected void eventHandle(ITmfEvent event) {
-            /* Do not count lost events in the total */
-            if (event instanceof ITmfLostEvent) {
-                return;
+        public void assignTargetStateSystem(ITmfStateSystemBuilder ssb) {
+            super.assignTargetStateSystem(ssb);
+            File indexFile = fIndexFile;
+            if (indexFile != null) {
+                /* The history is being rebuilt, so is its index */
+                indexFile.delete();
+                fIndex = fCountIndex;
             }
+        }
 
+        @Override
+        public void dispose() {
+            /* Wait for the queued events to be handled first */
+            super.dispose();
+            File indexFile = fIndexFile;
+            if (indexFile != null) {
+                try {
+                    fCountIndex.save(indexFile);
+                } catch (IOException e) {
+                    /* The index will be rebuilt next time */
+                    indexFile.delete();
+                }
+            }
+        }
+
+        @Override
+        protected void eventHandle(ITmfEvent event) {
             ITmfStateSystemBuilder ss = checkNotNull(getStateSystemBuilder());
 
             /* Since this can be used for any trace types, normalize all the
              * timestamp values to nanoseconds. */
             final long ts = event.getTimestamp().normalize(0, ITmfTimestamp.NANOSECOND_SCALE).getValue();
 
+            /* Do not count lost events in the total */
+            if (event instanceof ITmfLostEvent) {
+                ITmfLostEvent lostEvent = (ITmfLostEvent) event;
+                fLostEvents += lostEvent.getNbLostEvents();
+                try {
+                    long start = Math.max(ts, ss.getCurrentEndTime());
+                    long end = lostEvent.getTimeRange().getEndTime().normalize(0, ITmfTimestamp.NANOSECOND_SCALE).getValue();
+                    int quark = ss.getQuarkAbsoluteAndAdd(Attributes.LOST_EVENTS_END);
+                    ss.modifyAttribute(start, TmfStateValue.newValueLong(Math.max(start, end)), quark);
+                    quark = ss.getQuarkAbsoluteAndAdd(Attributes.LOST_EVENTS);
+                    ss.modifyAttribute(start, TmfStateValue.newValueLong(fLostEvents), quark);
+                } catch (StateValueTypeException | TimeRangeException | AttributeNotFoundException e) {
+                    e.printStackTrace();
+                }
+                return;
+            }
+
+            fCountIndex.addEvent(ts);
+
+            long granularity = fCountIndex.getGranularity();
+            long bucketStart = ts - ((ts % granularity) + granularity) % granularity;
+            boolean first = (fCurrentBucket == Long.MIN_VALUE);
+            if (bucketStart != fCurrentBucket) {
+                fCurrentBucket = bucketStart;
+                fCurrentBucketStart = Math.max(bucketStart, ss.getCurrentEndTime());
+            }
+
             try {
-                /* Total number of events */
+                if (first) {
+                    int quark = ss.getQuarkAbsoluteAndAdd(Attributes.GRANULARITY);
+                    ss.modifyAttribute(fCurrentBucketStart, TmfStateValue.newValueLong(granularity), quark);
+                }
+
+                /*
+                 * Total number of events up to the end of this bucket. The
+                 * value of the interval of the bucket is replaced, so no new
+                 * interval is created until the next bucket.
+                 */
                 int quark = ss.getQuarkAbsoluteAndAdd(Attributes.TOTAL);
-                ss.incrementAttribute(ts, quark);
+                ss.modifyAttribute(fCurrentBucketStart, TmfStateValue.newValueLong(fCountIndex.getCount()), quark);
 
             } catch (StateValueTypeException | TimeRangeException | AttributeNotFoundException e) {
                 e.printStackTrace();
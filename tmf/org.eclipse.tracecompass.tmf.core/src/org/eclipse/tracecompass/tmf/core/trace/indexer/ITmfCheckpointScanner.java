@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.core.trace.indexer;
+
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.checkpoint.ITmfCheckpoint;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.checkpoint.TmfCheckpointIndexer;
+
+/**
+ * A trace implementing this interface can compute the checkpoints of its index
+ * by itself, for example by scanning chunks of its file in parallel, instead
+ * of having all its events parsed and read by the indexing request.
+ *
+ * The {@link TmfCheckpointIndexer} then only reads the first event and the
+ * events after the last checkpoint, to update the time range and the number of
+ * events of the trace.
+ *
+ * @since 1.1
+ */
+public interface ITmfCheckpointScanner {
+
+    /**
+     * Compute the checkpoints of the whole trace
+     *
+     * @param interval
+     *            The interval between checkpoints, in events
+     * @param monitor
+     *            The progress monitor, to check for cancellation
+     * @return The checkpoints of the events of rank 0, interval, 2 * interval,
+     *         etc. in this order, with their checkpoint rank set accordingly.
+     *         The list is empty if the trace has no event, and null if the
+     *         trace could not be scanned, in which case it is indexed by
+     *         reading all its events.
+     */
+    List<ITmfCheckpoint> scanCheckpoints(int interval, IProgressMonitor monitor);
+}
@@ -13,6 +13,8 @@
 package org.eclipse.tracecompass.tmf.core.trace.indexer;
 
 import java.io.File;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.eclipse.tracecompass.internal.tmf.core.trace.indexer.BTree;
 import org.eclipse.tracecompass.internal.tmf.core.trace.indexer.FlatArray;
@@ -28,6 +30,10 @@ import org.eclipse.tracecompass.tmf.core.trace.indexer.checkpoint.ITmfCheckpoint
  * Because of that, we use a separate structure FlatArray that is better suited for searching
  * by checkpoint rank (O(1)).
  *
+ * While the trace is being indexed, the searches by time stamp are done in the
+ * FlatArray as long as the checkpoints are inserted in order, so they never
+ * wait for the insertions in the BTree.
+ *
  * @author Marc-Andre Laperle
  */
 public class TmfBTreeTraceIndex implements ITmfCheckpointIndex {
@@ -35,6 +41,23 @@ public class TmfBTreeTraceIndex implements ITmfCheckpointIndex {
     private final BTree fCheckpoints;
     private final FlatArray fCheckpointRanks;
 
+    /**
+     * If the index is complete. Until then, the BTree is modified by the
+     * insertions.
+     */
+    private volatile boolean fIndexComplete;
+
+    /**
+     * If the checkpoints were inserted in increasing order. The flat array is
+     * then sorted like the BTree, and can be searched without locking while
+     * checkpoints are inserted.
+     */
+    private volatile boolean fInsertedInOrder = true;
+    private ITmfCheckpoint fLastInserted = null;
+
+    /** Lock for searching the BTree, which is modified by the insertions */
+    private final ReadWriteLock fBTreeLock = new ReentrantReadWriteLock();
+
     private static final int BTREE_DEGREE = 15;
 
     /**
@@ -56,6 +79,7 @@ public class TmfBTreeTraceIndex implements ITmfCheckpointIndex {
 
         fCheckpoints = bTree;
         fCheckpointRanks = flatArray;
+        fIndexComplete = !bTree.isCreatedFromScratch();
     }
 
     private static FlatArray createFlatArray(ITmfTrace trace) {
@@ -79,7 +103,18 @@ public class TmfBTreeTraceIndex implements ITmfCheckpointIndex {
 
     @Override
     public void insert(ITmfCheckpoint checkpoint) {
-        fCheckpoints.insert(checkpoint);
+        ITmfCheckpoint lastInserted = fLastInserted;
+        if (lastInserted != null && checkpoint.compareTo(lastInserted) <= 0) {
+            fInsertedInOrder = false;
+        }
+        fLastInserted = checkpoint;
+
+        fBTreeLock.writeLock().lock();
+        try {
+            fCheckpoints.insert(checkpoint);
+        } finally {
+            fBTreeLock.writeLock().unlock();
+        }
         fCheckpointRanks.insert(checkpoint);
         fCheckpoints.setSize(fCheckpoints.size() + 1);
     }
@@ -91,7 +126,21 @@ public class TmfBTreeTraceIndex implements ITmfCheckpointIndex {
 
     @Override
     public long binarySearch(ITmfCheckpoint checkpoint) {
-        return fCheckpoints.binarySearch(checkpoint);
+        if (!fIndexComplete && fInsertedInOrder) {
+            /*
+             * While indexing, search the checkpoints inserted so far in the
+             * flat array. This gives the same result as the BTree, without
+             * waiting for the insertions.
+             */
+            return fCheckpointRanks.binarySearch(checkpoint);
+        }
+        /* The searches only wait for each other if a checkpoint is inserted */
+        fBTreeLock.readLock().lock();
+        try {
+            return fCheckpoints.binarySearch(checkpoint);
+        } finally {
+            fBTreeLock.readLock().unlock();
+        }
     }
 
     @Override
@@ -131,8 +180,44 @@ public class TmfBTreeTraceIndex implements ITmfCheckpointIndex {
 
     @Override
     public void setIndexComplete() {
-        fCheckpoints.setIndexComplete();
+        fBTreeLock.writeLock().lock();
+        try {
+            fCheckpoints.setIndexComplete();
+        } finally {
+            fBTreeLock.writeLock().unlock();
+        }
         fCheckpointRanks.setIndexComplete();
+        fIndexComplete = true;
+    }
+
+    /**
+     * Get the number of times a node of the BTree was found in memory
+     *
+     * @return the number of cache hits
+     * @since 1.1
+     */
+    public long getCacheHits() {
+        return fCheckpoints.getCacheHits();
+    }
+
+    /**
+     * Get the number of times a node of the BTree had to be read from disk
+     *
+     * @return the number of cache misses
+     * @since 1.1
+     */
+    public long getCacheMisses() {
+        return fCheckpoints.getCacheMisses();
+    }
+
+    /**
+     * Get the number of nodes of the BTree currently kept in memory
+     *
+     * @return the number of cached nodes
+     * @since 1.1
+     */
+    public int getCachedNodeCount() {
+        return fCheckpoints.getCachedNodeCount();
     }
 
 }
@@ -21,6 +21,10 @@ import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
  * its operations. Implementors can store checkpoints in various ways and
  * optionally restore them later, see ({@link #isCreatedFromScratch})
  *
+ * The indexer does not lock the index when reading it. Implementors must
+ * allow {@link #get}, {@link #binarySearch} and {@link #size} to be called by
+ * many threads, while another thread inserts checkpoints.
+ *
  * @author Marc-Andre Laperle
  */
 public interface ITmfCheckpointIndex {
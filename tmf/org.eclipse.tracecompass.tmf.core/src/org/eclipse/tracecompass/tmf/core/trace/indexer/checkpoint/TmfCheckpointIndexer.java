@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2012, 2014 Ericsson
+ * Copyright (c) 2012, 2015 Ericsson
  *
  * All rights reserved. This program and the accompanying materials are
  * made available under the terms of the Eclipse Public License v1.0 which
@@ -13,6 +13,8 @@
 
 package org.eclipse.tracecompass.tmf.core.trace.indexer.checkpoint;
 
+import java.util.List;
+
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
@@ -30,6 +32,7 @@ import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfTraceCompleteness;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.ITmfCheckpointScanner;
 import org.eclipse.tracecompass.tmf.core.trace.indexer.ITmfTraceIndexer;
 import org.eclipse.tracecompass.tmf.core.trace.location.ITmfLocation;
 
@@ -77,6 +80,11 @@ public class TmfCheckpointIndexer implements ITmfTraceIndexer {
      */
     private ITmfEventRequest fIndexingRequest = null;
 
+    /**
+     * The job scanning the checkpoints, for traces that compute them
+     */
+    private Job fScanningJob = null;
+
     // ------------------------------------------------------------------------
     // Construction
     // ------------------------------------------------------------------------
@@ -120,6 +128,9 @@ public class TmfCheckpointIndexer implements ITmfTraceIndexer {
         if ((fIndexingRequest != null) && !fIndexingRequest.isCompleted()) {
             fIndexingRequest.cancel();
         }
+        if (fScanningJob != null) {
+            fScanningJob.cancel();
+        }
 
         fTraceIndex.dispose();
     }
@@ -161,6 +172,20 @@ public class TmfCheckpointIndexer implements ITmfTraceIndexer {
             return;
         }
 
+        // The trace computes its own checkpoints, no need to read all its events
+        if (fTrace instanceof ITmfCheckpointScanner && offset == 0 && range.equals(TmfTimeRange.ETERNITY)) {
+            scanIndex((ITmfCheckpointScanner) fTrace, range, waitForCompletion);
+            return;
+        }
+
+        requestIndex(offset, range, waitForCompletion);
+    }
+
+    /**
+     * Build the index by reading all the events of the trace with a
+     * background request
+     */
+    private void requestIndex(final long offset, final TmfTimeRange range, final boolean waitForCompletion) {
         // The monitoring job
         final Job job = new Job("Indexing " + fTrace.getName() + "...") { //$NON-NLS-1$ //$NON-NLS-2$
             @Override
@@ -234,6 +259,66 @@ public class TmfCheckpointIndexer implements ITmfTraceIndexer {
         }
     }
 
+    /**
+     * Build the index from the checkpoints computed by the trace. Only the
+     * first event and the events after the last checkpoint are read, to
+     * update the time range and the number of events of the trace.
+     */
+    private void scanIndex(final ITmfCheckpointScanner scanner, final TmfTimeRange range, final boolean waitForCompletion) {
+        final Job job = new Job(Messages.TmfCheckpointIndexer_Indexing + ' ' + fTrace.getName()) {
+            @Override
+            protected IStatus run(final IProgressMonitor monitor) {
+                List<ITmfCheckpoint> checkpoints = scanner.scanCheckpoints(fCheckpointInterval, monitor);
+                if (monitor.isCanceled()) {
+                    fIsIndexing = false;
+                    return Status.CANCEL_STATUS;
+                }
+                if (checkpoints == null) {
+                    requestIndex(0, range, waitForCompletion);
+                    return Status.OK_STATUS;
+                }
+
+                for (ITmfCheckpoint checkpoint : checkpoints) {
+                    fTraceIndex.insert(checkpoint);
+                }
+                if (!checkpoints.isEmpty()) {
+                    ITmfContext context = fTrace.seekEvent(checkpoints.get(0).getLocation());
+                    context.setRank(0);
+                    fTrace.getNext(context);
+                    context.dispose();
+
+                    int last = checkpoints.size() - 1;
+                    context = fTrace.seekEvent(checkpoints.get(last).getLocation());
+                    context.setRank((long) last * fCheckpointInterval);
+                    while (!monitor.isCanceled() && fTrace.getNext(context) != null) {
+                        // getNext() updates the trace attributes
+                    }
+                    context.dispose();
+                }
+
+                fTraceIndex.setTimeRange(fTrace.getTimeRange());
+                fTraceIndex.setNbEvents(fTrace.getNbEvents());
+                if (isCompleteTrace(fTrace) && !monitor.isCanceled()) {
+                    fTraceIndex.setIndexComplete();
+                }
+                if (fTrace.getNbEvents() > 0) {
+                    signalNewTimeRange(fTrace.getStartTime(), fTrace.getEndTime());
+                }
+                fIsIndexing = false;
+                return Status.OK_STATUS;
+            }
+        };
+        job.setSystem(!isCompleteTrace(fTrace));
+        fScanningJob = job;
+        job.schedule();
+        if (waitForCompletion) {
+            try {
+                job.join();
+            } catch (final InterruptedException e) {
+            }
+        }
+    }
+
     /**
      * Notify the interested parties that the trace time range has changed
      *
@@ -265,7 +350,7 @@ public class TmfCheckpointIndexer implements ITmfTraceIndexer {
     // ------------------------------------------------------------------------
 
     @Override
-    public synchronized ITmfContext seekIndex(final ITmfTimestamp timestamp) {
+    public ITmfContext seekIndex(final ITmfTimestamp timestamp) {
 
         // A null timestamp indicates to seek the first event
         if (timestamp == null) {
@@ -313,14 +398,11 @@ public class TmfCheckpointIndexer implements ITmfTraceIndexer {
     private ITmfContext restoreCheckpoint(final long checkpoint) {
         ITmfLocation location = null;
         long index = 0;
-        synchronized (fTraceIndex) {
-            if (!fTraceIndex.isEmpty()) {
-                index = checkpoint;
-                if (index >= fTraceIndex.size()) {
-                    index = fTraceIndex.size() - 1;
-                }
-                location = fTraceIndex.get(index).getLocation();
-            }
+        /* Read the size once, checkpoints can be inserted meanwhile */
+        int size = fTraceIndex.size();
+        if (size > 0) {
+            index = Math.min(checkpoint, size - 1);
+            location = fTraceIndex.get(index).getLocation();
         }
         final ITmfContext context = fTrace.seekEvent(location);
         context.setRank(index * fCheckpointInterval);
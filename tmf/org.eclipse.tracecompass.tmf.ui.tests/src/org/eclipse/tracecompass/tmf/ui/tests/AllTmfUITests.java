@@ -28,7 +28,9 @@ import org.junit.runner.RunWith;
         org.eclipse.tracecompass.tmf.ui.tests.statistics.AllTests.class,
         org.eclipse.tracecompass.tmf.ui.tests.views.uml2sd.dialogs.AllTests.class,
         org.eclipse.tracecompass.tmf.ui.tests.views.uml2sd.load.AllTests.class,
-        org.eclipse.tracecompass.tmf.ui.tests.views.uml2sd.loader.AllTests.class
+        org.eclipse.tracecompass.tmf.ui.tests.views.timegraph.AllTests.class,
+        org.eclipse.tracecompass.tmf.ui.tests.views.uml2sd.loader.AllTests.class,
+        org.eclipse.tracecompass.tmf.ui.tests.widgets.timegraph.model.AllTests.class
 })
 public class AllTmfUITests {
 
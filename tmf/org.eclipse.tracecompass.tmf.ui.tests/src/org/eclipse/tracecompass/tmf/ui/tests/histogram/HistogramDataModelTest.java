@@ -249,6 +249,28 @@ public class HistogramDataModelTest {
         testModelConsistency(model, nbBuckets, nbBuckets, interval, 0L, 0L, interval, nbBuckets * interval);
     }
 
+    /**
+     * Test methods for
+     * {@link HistogramDataModel#countEvents(long,int,ITmfTrace)} and
+     * {@link HistogramDataModel#scaleTo(int,int,int)}.
+     */
+    @Test
+    public void testCountEvents() {
+        final int nbBuckets = 10;
+        final int maxHeight = 10;
+
+        HistogramDataModel model = new HistogramDataModel(nbBuckets);
+        for (int i = 0; i < nbBuckets; i++) {
+            model.countEvents(i, 3, null);
+        }
+
+        HistogramScaledData result = model.scaleTo(nbBuckets, maxHeight, 1);
+
+        assertArrayEqualsInt(3, result.fData);
+
+        testModelConsistency(model, nbBuckets, 3 * nbBuckets, 1, 0, 0, nbBuckets - 1, nbBuckets);
+    }
+
     /**
      * Test method for {@link HistogramDataModel#scaleTo(int,int,int)}.
      */
@@ -26,7 +26,9 @@ import org.junit.runners.Suite;
         CustomXmlTraceBadlyFormedTest.class,
         CustomXmlTraceValidTest.class,
         CustomXmlIndexTest.class,
-        CustomTxtIndexTest.class
+        CustomTxtIndexTest.class,
+        CustomTxtCheckpointScanTest.class,
+        CustomXmlStreamParsingTest.class
 })
 public class AllTests {
 }
@@ -0,0 +1,266 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.ui.tests.trace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.tracecompass.tmf.core.exceptions.TmfTraceException;
+import org.eclipse.tracecompass.tmf.core.parsers.custom.CustomTraceDefinition;
+import org.eclipse.tracecompass.tmf.core.parsers.custom.CustomTraceDefinition.OutputColumn;
+import org.eclipse.tracecompass.tmf.core.parsers.custom.CustomTxtEvent;
+import org.eclipse.tracecompass.tmf.core.parsers.custom.CustomTxtTrace;
+import org.eclipse.tracecompass.tmf.core.parsers.custom.CustomTxtTraceDefinition;
+import org.eclipse.tracecompass.tmf.core.parsers.custom.CustomTxtTraceDefinition.Cardinality;
+import org.eclipse.tracecompass.tmf.core.parsers.custom.CustomTxtTraceDefinition.InputData;
+import org.eclipse.tracecompass.tmf.core.parsers.custom.CustomTxtTraceDefinition.InputLine;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimestamp;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+import org.eclipse.tracecompass.tmf.core.trace.TmfTraceManager;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.ITmfTraceIndexer;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.checkpoint.ITmfCheckpoint;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.checkpoint.ITmfCheckpointIndex;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.checkpoint.TmfCheckpointIndexer;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Compare the checkpoints scanned in parallel by a custom text trace with the
+ * ones of the indexer reading all the events with a request. The events have
+ * several lines, so the chunks of the scan start in the middle of events.
+ */
+public class CustomTxtCheckpointScanTest {
+
+    private static final String TRACE_PATH = TmfTraceManager.getTemporaryDirPath() + File.separator + "multiLineTxtTrace.txt";
+    private static final String TIMESTAMP_FORMAT = "dd/MM/yyyy HH:mm:ss:SSS";
+    private static final int NB_EVENTS = 5000;
+    private static final int INTERVAL = 100;
+
+    private static CustomTxtTraceDefinition fDefinition;
+    private static ScanTxtTrace fRequestTrace;
+
+    /**
+     * Write the trace, and index it by reading all its events
+     *
+     * @throws IOException
+     *             If the trace could not be written
+     * @throws TmfTraceException
+     *             If the trace could not be opened
+     */
+    @BeforeClass
+    public static void init() throws IOException, TmfTraceException {
+        fDefinition = createDefinition();
+        SimpleDateFormat format = new SimpleDateFormat(TIMESTAMP_FORMAT);
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(TRACE_PATH))) {
+            for (int i = 0; i < NB_EVENTS; i++) {
+                writer.write(format.format(new Date(i)) + " event " + i + "\n");
+                if (i % 7 == 0) {
+                    /* The mandatory second line, which looks like a first line */
+                    writer.write(format.format(new Date(i)) + " event " + (i + 1) + "\n");
+                } else {
+                    writer.write("  data " + i + "\n");
+                }
+                for (int j = 0; j < i % 5; j++) {
+                    writer.write("  detail " + j + "\n");
+                }
+            }
+        }
+        fRequestTrace = new ScanTxtTrace(fDefinition, false, 0);
+    }
+
+    /**
+     * Delete the trace
+     */
+    @AfterClass
+    public static void cleanup() {
+        fRequestTrace.dispose();
+        new File(TRACE_PATH).delete();
+    }
+
+    /**
+     * Definition of events made of a first line, a mandatory second line
+     * matching any line, and optional detail lines
+     */
+    private static CustomTxtTraceDefinition createDefinition() {
+        InputLine first = new InputLine(Cardinality.ZERO_OR_MORE, "(\\S*\\s\\S*) event (\\d+)", Arrays.asList(
+                new InputData(CustomTraceDefinition.TAG_TIMESTAMP, CustomTraceDefinition.ACTION_SET, TIMESTAMP_FORMAT),
+                new InputData(CustomTraceDefinition.TAG_MESSAGE, CustomTraceDefinition.ACTION_SET)));
+        first.addChild(new InputLine(Cardinality.ONE, "(.*)", Arrays.asList(
+                new InputData("Data", CustomTraceDefinition.ACTION_SET))));
+        first.addChild(new InputLine(Cardinality.ZERO_OR_MORE, "  detail (\\d+)", Arrays.asList(
+                new InputData("Detail", CustomTraceDefinition.ACTION_APPEND_WITH_SEPARATOR))));
+        List<OutputColumn> outputs = Arrays.asList(
+                new OutputColumn(CustomTraceDefinition.TAG_TIMESTAMP),
+                new OutputColumn(CustomTraceDefinition.TAG_MESSAGE),
+                new OutputColumn("Data"),
+                new OutputColumn("Detail"));
+        return new CustomTxtTraceDefinition(CustomTxtTraceDefinition.CUSTOM_TXT_CATEGORY, "multiline",
+                new ArrayList<>(Arrays.asList(first)), new ArrayList<>(outputs), TIMESTAMP_FORMAT);
+    }
+
+    /**
+     * Test chunks much smaller than the events read past the end of each
+     * chunk to join the next one
+     *
+     * @throws TmfTraceException
+     *             If the trace could not be opened
+     */
+    @Test
+    public void testTinyChunks() throws TmfTraceException {
+        testScanCheckpoints(100);
+    }
+
+    /**
+     * Test chunks of a few tens of events
+     *
+     * @throws TmfTraceException
+     *             If the trace could not be opened
+     */
+    @Test
+    public void testSmallChunks() throws TmfTraceException {
+        testScanCheckpoints(4096);
+    }
+
+    /**
+     * Test the default chunk size, so a single chunk for this trace
+     *
+     * @throws TmfTraceException
+     *             If the trace could not be opened
+     */
+    @Test
+    public void testDefaultChunks() throws TmfTraceException {
+        testScanCheckpoints(0);
+    }
+
+    private static void testScanCheckpoints(long chunkSize) throws TmfTraceException {
+        ScanTxtTrace trace = new ScanTxtTrace(fDefinition, true, chunkSize);
+        try {
+            List<ITmfCheckpoint> scanned = trace.scanCheckpoints(INTERVAL, new NullProgressMonitor());
+            assertNotNull(scanned);
+            assertCheckpoints(fRequestTrace.getCheckpoints(), scanned);
+        } finally {
+            trace.dispose();
+        }
+    }
+
+    /**
+     * Test the index built from the scanned checkpoints, and the attributes
+     * of the trace once indexed
+     *
+     * @throws TmfTraceException
+     *             If the trace could not be opened
+     */
+    @Test
+    public void testScanIndex() throws TmfTraceException {
+        ScanTxtTrace trace = new ScanTxtTrace(fDefinition, true, 1000);
+        try {
+            trace.indexTrace(true);
+            List<ITmfCheckpoint> expected = fRequestTrace.getCheckpoints();
+            assertEquals(NB_EVENTS / INTERVAL, expected.size());
+            assertCheckpoints(expected, trace.getCheckpoints());
+
+            assertEquals(NB_EVENTS, trace.getNbEvents());
+            assertEquals(fRequestTrace.getNbEvents(), trace.getNbEvents());
+            assertEquals(fRequestTrace.getStartTime(), trace.getStartTime());
+            assertEquals(fRequestTrace.getEndTime(), trace.getEndTime());
+        } finally {
+            trace.dispose();
+        }
+    }
+
+    private static void assertCheckpoints(List<ITmfCheckpoint> expected, List<ITmfCheckpoint> actual) {
+        assertTrue(expected.size() > 1);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getTimestamp(), actual.get(i).getTimestamp());
+            assertEquals(expected.get(i).getLocation(), actual.get(i).getLocation());
+            assertEquals(i, actual.get(i).getCheckpointRank());
+        }
+    }
+
+    /**
+     * Custom text trace with an in-memory index, built either from the
+     * scanned checkpoints or by reading all the events with a request, and
+     * with a smaller chunk size for the scan.
+     */
+    private static class ScanTxtTrace extends CustomTxtTrace {
+
+        private final boolean fScan;
+        private final long fChunkSize;
+
+        public ScanTxtTrace(CustomTxtTraceDefinition definition, boolean scan, long chunkSize) throws TmfTraceException {
+            super(definition);
+            fScan = scan;
+            fChunkSize = chunkSize;
+            /* Initialized here so that the indexer knows how to build the index */
+            initTrace(null, TRACE_PATH, CustomTxtEvent.class);
+            if (!scan) {
+                indexTrace(true);
+            }
+        }
+
+        @Override
+        protected long getScanChunkSize() {
+            return (fChunkSize > 0) ? fChunkSize : super.getScanChunkSize();
+        }
+
+        @Override
+        protected ITmfTraceIndexer createIndexer(int interval) {
+            return new TestIndexer(this, fScan);
+        }
+
+        public List<ITmfCheckpoint> getCheckpoints() {
+            return ((TestIndexer) getIndexer()).getCheckpoints();
+        }
+    }
+
+    private static class TestIndexer extends TmfCheckpointIndexer {
+
+        private final boolean fScan;
+
+        public TestIndexer(ITmfTrace trace, boolean scan) {
+            super(trace, INTERVAL);
+            fScan = scan;
+        }
+
+        @Override
+        public void buildIndex(long offset, TmfTimeRange range, boolean waitForCompletion) {
+            if (fScan) {
+                super.buildIndex(offset, range, waitForCompletion);
+            } else {
+                /* The trace is only scanned for the eternity range */
+                super.buildIndex(offset, new TmfTimeRange(TmfTimestamp.ZERO, TmfTimestamp.BIG_CRUNCH), waitForCompletion);
+            }
+        }
+
+        public List<ITmfCheckpoint> getCheckpoints() {
+            ITmfCheckpointIndex index = getTraceIndex();
+            List<ITmfCheckpoint> checkpoints = new ArrayList<>();
+            for (int i = 0; i < index.size(); i++) {
+                checkpoints.add(index.get(i));
+            }
+            return checkpoints;
+        }
+    }
+}
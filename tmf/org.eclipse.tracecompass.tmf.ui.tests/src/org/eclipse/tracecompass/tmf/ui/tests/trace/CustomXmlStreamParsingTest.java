@@ -0,0 +1,209 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.ui.tests.trace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.eclipse.tracecompass.tmf.core.exceptions.TmfTraceException;
+import org.eclipse.tracecompass.tmf.core.parsers.custom.CustomTraceDefinition;
+import org.eclipse.tracecompass.tmf.core.parsers.custom.CustomTraceDefinition.OutputColumn;
+import org.eclipse.tracecompass.tmf.core.parsers.custom.CustomXmlEvent;
+import org.eclipse.tracecompass.tmf.core.parsers.custom.CustomXmlInputAttribute;
+import org.eclipse.tracecompass.tmf.core.parsers.custom.CustomXmlInputElement;
+import org.eclipse.tracecompass.tmf.core.parsers.custom.CustomXmlTrace;
+import org.eclipse.tracecompass.tmf.core.parsers.custom.CustomXmlTraceDefinition;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
+import org.eclipse.tracecompass.tmf.core.trace.TmfTraceManager;
+import org.eclipse.tracecompass.tmf.core.trace.location.ITmfLocation;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Element;
+import org.xml.sax.SAXException;
+
+/**
+ * Compare the events of a custom XML trace, which are read with a stream
+ * reader, with the ones extracted from the DOM of their record element.
+ */
+public class CustomXmlStreamParsingTest {
+
+    private static final String TRACE_PATH = TmfTraceManager.getTemporaryDirPath() + File.separator + "streamXmlTrace.xml";
+    private static final String TIMESTAMP_FORMAT = "dd/MM/yyyy HH:mm:ss:SSS";
+
+    private static final String[] RECORDS = {
+            /* Entities, CDATA, comments, nested ignored elements and prefixes */
+            "<record ns:time=\"01/01/1970 00:00:00:001\" level=\"INFO\">\n" +
+            "  <message>text &amp; more</message>\n" +
+            "  <data><![CDATA[<raw> data]]> after</data>\n" +
+            "  <ignored><value>5</value><!-- c --><deep><value>6</value></deep><value>7</value></ignored>\n" +
+            "  <ns:extra ns:id=\"x1\">A &#66; <b>bold</b> tail</ns:extra>\n" +
+            "</record>\n",
+            /* Empty elements, whitespace only text, missing attribute */
+            "<record ns:time=\"01/01/1970 00:00:00:002\" level=\"WARN\"><message/><data>   </data><ignored/><ns:extra>only text</ns:extra></record>\n",
+            /* Text split by a comment, processing instruction, entities in an attribute */
+            "<record ns:time=\"01/01/1970 00:00:00:003\" level=\"&lt;ERR&gt;\"><message>a<!-- split -->b</message>" +
+            "<data><?pi x?>c</data><ns:extra ns:id=\"x3\"><b/><i>i</i></ns:extra></record>\n",
+            /* Multi-line text, and an element without input with a matching child name */
+            "<record ns:time=\"01/01/1970 00:00:00:004\" level=\"DEBUG\">\n" +
+            "  <message>\n    multi-line\n    message\n  </message>\n" +
+            "  <unknown><message>not a message</message></unknown>\n" +
+            "</record>\n"
+    };
+
+    private CustomXmlTraceDefinition fDefinition;
+    private CustomXmlTrace fTrace;
+
+    /**
+     * Write the trace and open it
+     *
+     * @throws IOException
+     *             If the trace could not be written
+     * @throws TmfTraceException
+     *             If the trace could not be opened
+     */
+    @Before
+    public void setUp() throws IOException, TmfTraceException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(TRACE_PATH))) {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            writer.write("<log xmlns:ns=\"urn:test\">\n");
+            for (String record : RECORDS) {
+                writer.write("<!-- comment between the records -->\n");
+                writer.write(record);
+            }
+            writer.write("</log>\n");
+        }
+        fDefinition = createDefinition();
+        fTrace = new CustomXmlTrace(null, fDefinition, TRACE_PATH, 100);
+    }
+
+    /**
+     * Dispose the trace and delete it
+     */
+    @After
+    public void tearDown() {
+        fTrace.dispose();
+        new File(TRACE_PATH).delete();
+    }
+
+    private static CustomXmlTraceDefinition createDefinition() {
+        CustomXmlInputElement record = new CustomXmlInputElement("record", true, "Record", CustomTraceDefinition.ACTION_SET, "",
+                new ArrayList<>(Arrays.asList(
+                        new CustomXmlInputAttribute("ns:time", CustomTraceDefinition.TAG_TIMESTAMP, CustomTraceDefinition.ACTION_SET, TIMESTAMP_FORMAT),
+                        new CustomXmlInputAttribute("level", "Level", CustomTraceDefinition.ACTION_SET, ""))));
+        record.addChild(new CustomXmlInputElement("message", false, CustomTraceDefinition.TAG_MESSAGE, CustomTraceDefinition.ACTION_SET, "", null));
+        record.addChild(new CustomXmlInputElement("data", false, "Data", CustomTraceDefinition.ACTION_SET, "", null));
+        CustomXmlInputElement ignored = new CustomXmlInputElement("ignored", false, CustomXmlTraceDefinition.TAG_IGNORE, 0, "", null);
+        ignored.addChild(new CustomXmlInputElement("value", false, "Value", CustomTraceDefinition.ACTION_APPEND_WITH_SEPARATOR, "", null));
+        record.addChild(ignored);
+        record.addChild(new CustomXmlInputElement("unknown", false, null, 0, "", null));
+        record.addChild(new CustomXmlInputElement("ns:extra", false, "Extra", CustomTraceDefinition.ACTION_SET, "",
+                new ArrayList<>(Arrays.asList(
+                        new CustomXmlInputAttribute("ns:id", "Id", CustomTraceDefinition.ACTION_SET, "")))));
+
+        CustomXmlInputElement root = new CustomXmlInputElement("log", false, CustomXmlTraceDefinition.TAG_IGNORE, 0, "", null);
+        root.addChild(record);
+
+        List<OutputColumn> outputs = new ArrayList<>();
+        for (String name : new String[] { CustomTraceDefinition.TAG_TIMESTAMP, "Level", CustomTraceDefinition.TAG_MESSAGE,
+                "Data", "Value", "Extra", "Id", "Record" }) {
+            outputs.add(new OutputColumn(name));
+        }
+        return new CustomXmlTraceDefinition(CustomXmlTraceDefinition.CUSTOM_XML_CATEGORY, "stream", root, outputs, TIMESTAMP_FORMAT);
+    }
+
+    /**
+     * Test that every field of the streamed events is the one extracted from
+     * the DOM of the record
+     *
+     * @throws Exception
+     *             If the record of an event could not be parsed
+     */
+    @Test
+    public void testStreamedEvents() throws Exception {
+        List<CustomXmlEvent> events = readEvents();
+        assertEquals(RECORDS.length, events.size());
+        CustomXmlInputElement recordInput = fTrace.getRecordInputElement(fDefinition.rootInputElement);
+        for (CustomXmlEvent event : events) {
+            /* The content of a read event is the text of its record */
+            Element element = parseRecord(event.getContent().getValue().toString());
+            CustomXmlEvent expected = fTrace.extractEvent(element, recordInput);
+            assertEquals(expected.getTimestamp(), event.getTimestamp());
+            for (int i = 0; i < fDefinition.outputs.size(); i++) {
+                assertEquals(fDefinition.outputs.get(i).name, expected.getEventString(i), event.getEventString(i));
+            }
+        }
+    }
+
+    /**
+     * Test the values of some fields, to check that both ways do not agree
+     * on wrong values
+     */
+    @Test
+    public void testFieldValues() {
+        List<CustomXmlEvent> events = readEvents();
+        assertEquals(RECORDS.length, events.size());
+
+        CustomXmlEvent event = events.get(0);
+        assertEquals("INFO", event.getEventString(1));
+        assertEquals("text & more", event.getEventString(2));
+        assertEquals("after", event.getEventString(3));
+        assertEquals("5 | 7", event.getEventString(4));
+        assertEquals("A Bb:boldtail", event.getEventString(5));
+        assertEquals("x1", event.getEventString(6));
+
+        event = events.get(1);
+        assertEquals("", event.getEventString(2));
+        assertEquals("", event.getEventString(3));
+        assertEquals("only text", event.getEventString(5));
+        assertEquals("", event.getEventString(6));
+
+        event = events.get(2);
+        assertEquals("<ERR>", event.getEventString(1));
+        assertEquals("ab", event.getEventString(2));
+        assertEquals("c", event.getEventString(3));
+        assertEquals("b | i:i", event.getEventString(5));
+
+        event = events.get(3);
+        assertEquals("multi-line\n    message", event.getEventString(2));
+    }
+
+    private List<CustomXmlEvent> readEvents() {
+        List<CustomXmlEvent> events = new ArrayList<>();
+        ITmfContext context = fTrace.seekEvent((ITmfLocation) null);
+        CustomXmlEvent event = fTrace.getNext(context);
+        while (event != null) {
+            events.add(event);
+            event = fTrace.getNext(context);
+        }
+        context.dispose();
+        return events;
+    }
+
+    private static Element parseRecord(String text) throws ParserConfigurationException, SAXException, IOException {
+        DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+        Element element = builder.parse(new ByteArrayInputStream(text.getBytes("UTF-8"))).getDocumentElement();
+        assertNotNull(element);
+        return element;
+    }
+}
@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.ui.tests.views.timegraph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.tracecompass.internal.tmf.ui.views.timegraph.ZoomCache;
+import org.eclipse.tracecompass.internal.tmf.ui.views.timegraph.ZoomKey;
+import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model.ITimeEvent;
+import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model.TimeEvent;
+import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model.TimeGraphEntry;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link ZoomCache} of the time graph views: the number of
+ * cached events, the removal of the least recently used lists, and the event
+ * list built when panning from a cached list.
+ */
+public class ZoomCacheTest {
+
+    private static final long RESOLUTION = 10;
+
+    private final TimeGraphEntry fEntry = new TimeGraphEntry("entry", 0, 10000);
+    private final TimeGraphEntry fOtherEntry = new TimeGraphEntry("other", 0, 10000);
+
+    /**
+     * Test the number of events, when lists are added and replaced
+     */
+    @Test
+    public void testNbEvents() {
+        ZoomCache cache = new ZoomCache(100);
+        ZoomKey key1 = new ZoomKey(fEntry, 0, 1000, RESOLUTION);
+        ZoomKey key2 = new ZoomKey(fOtherEntry, 0, 1000, RESOLUTION);
+        cache.put(key1, createEvents(fEntry, 0, 1000, 100));
+        cache.put(key2, createEvents(fOtherEntry, 0, 1000, 50));
+        assertEquals(30, cache.getNbEvents());
+
+        /* Replacing a list only counts the new one */
+        cache.put(new ZoomKey(fEntry, 0, 1000, RESOLUTION), createEvents(fEntry, 0, 1000, 250));
+        assertEquals(24, cache.getNbEvents());
+        assertEquals(4, cache.get(key1).size());
+
+        cache.clear();
+        assertEquals(0, cache.getNbEvents());
+        assertNull(cache.get(key1));
+        assertNull(cache.getLastKey(fEntry));
+    }
+
+    /**
+     * Test that the least recently used lists are removed first, and that the
+     * number of events stays under the maximum
+     */
+    @Test
+    public void testLeastRecentlyUsed() {
+        ZoomCache cache = new ZoomCache(25);
+        ZoomKey key1 = new ZoomKey(fEntry, 0, 1000, RESOLUTION);
+        ZoomKey key2 = new ZoomKey(fEntry, 1000, 2000, RESOLUTION);
+        ZoomKey key3 = new ZoomKey(fOtherEntry, 0, 1000, RESOLUTION);
+        cache.put(key1, createEvents(fEntry, 0, 1000, 100));
+        cache.put(key2, createEvents(fEntry, 1000, 2000, 100));
+        /* Reading the first list makes the second one the eldest */
+        assertNotNull(cache.get(key1));
+        cache.put(key3, createEvents(fOtherEntry, 0, 1000, 100));
+
+        assertEquals(20, cache.getNbEvents());
+        assertNotNull(cache.get(key1));
+        assertNull(cache.get(key2));
+        assertNotNull(cache.get(key3));
+        /* The last key of the entry was removed with its list */
+        assertNull(cache.getLastKey(fEntry));
+        assertSame(key3, cache.getLastKey(fOtherEntry));
+    }
+
+    /**
+     * Test that a list with more events than the maximum is still cached, and
+     * that the last key of an entry is kept when an older list is removed
+     */
+    @Test
+    public void testLargeList() {
+        ZoomCache cache = new ZoomCache(30);
+        ZoomKey key1 = new ZoomKey(fEntry, 0, 1000, RESOLUTION);
+        ZoomKey key2 = new ZoomKey(fEntry, 0, 5000, RESOLUTION);
+        cache.put(key1, createEvents(fEntry, 0, 1000, 100));
+        cache.put(key2, createEvents(fEntry, 0, 5000, 100));
+
+        assertEquals(50, cache.getNbEvents());
+        assertNull(cache.get(key1));
+        assertNotNull(cache.get(key2));
+        assertSame(key2, cache.getLastKey(fEntry));
+    }
+
+    /**
+     * Test the keys that overlap
+     */
+    @Test
+    public void testOverlaps() {
+        ZoomKey key = new ZoomKey(fEntry, 1000, 2000, RESOLUTION);
+        assertTrue(key.overlaps(new ZoomKey(fEntry, 1500, 2500, RESOLUTION)));
+        assertTrue(key.overlaps(new ZoomKey(fEntry, 500, 1500, RESOLUTION)));
+        assertFalse(key.overlaps(new ZoomKey(fEntry, 2000, 3000, RESOLUTION)));
+        assertFalse(key.overlaps(new ZoomKey(fEntry, 1500, 2500, RESOLUTION * 2)));
+        assertFalse(key.overlaps(new ZoomKey(fOtherEntry, 1500, 2500, RESOLUTION)));
+    }
+
+    /**
+     * Test panning to the right: the cached events before the new range are
+     * dropped, and the events read after the cached range are added after
+     * the last cached event
+     */
+    @Test
+    public void testPanRight() {
+        List<ITimeEvent> cached = createEvents(fEntry, 1000, 2000, 100);
+        /* The read events overlap the last cached event */
+        List<ITimeEvent> after = createEvents(fEntry, 1950, 2500, 100);
+        List<ITimeEvent> merged = ZoomCache.mergePannedEventList(1500, 2500, null, cached, after);
+        assertTimes(merged, 1500, 1600, 1700, 1800, 1900, 2050, 2150, 2250, 2350, 2450);
+    }
+
+    /**
+     * Test panning to the left: the events read before the cached range are
+     * kept only if they end before the first cached event
+     */
+    @Test
+    public void testPanLeft() {
+        List<ITimeEvent> cached = createEvents(fEntry, 1000, 2000, 100);
+        List<ITimeEvent> before = createEvents(fEntry, 450, 1050, 100);
+        List<ITimeEvent> merged = ZoomCache.mergePannedEventList(500, 1500, before, cached, null);
+        assertTimes(merged, 450, 550, 650, 750, 850, 1000, 1100, 1200, 1300, 1400, 1500);
+    }
+
+    /**
+     * Test zooming out around a cached range, with events read on both sides
+     */
+    @Test
+    public void testPanBothSides() {
+        List<ITimeEvent> cached = createEvents(fEntry, 1000, 1300, 100);
+        List<ITimeEvent> before = createEvents(fEntry, 800, 1000, 100);
+        List<ITimeEvent> after = createEvents(fEntry, 1300, 1500, 100);
+        List<ITimeEvent> merged = ZoomCache.mergePannedEventList(800, 1500, before, cached, after);
+        assertTimes(merged, 800, 900, 1000, 1100, 1200, 1300, 1400);
+
+        /* An empty cached list keeps all the events read */
+        merged = ZoomCache.mergePannedEventList(800, 1500, before, new ArrayList<ITimeEvent>(), after);
+        assertTimes(merged, 800, 900, 1300, 1400);
+    }
+
+    private static List<ITimeEvent> createEvents(TimeGraphEntry entry, long start, long end, long duration) {
+        List<ITimeEvent> events = new ArrayList<>();
+        for (long time = start; time < end; time += duration) {
+            events.add(new TimeEvent(entry, time, duration));
+        }
+        return events;
+    }
+
+    private static void assertTimes(List<ITimeEvent> events, long... times) {
+        long[] actual = new long[events.size()];
+        for (int i = 0; i < actual.length; i++) {
+            actual[i] = events.get(i).getTime();
+        }
+        assertEquals(Arrays.toString(times), Arrays.toString(actual));
+    }
+}
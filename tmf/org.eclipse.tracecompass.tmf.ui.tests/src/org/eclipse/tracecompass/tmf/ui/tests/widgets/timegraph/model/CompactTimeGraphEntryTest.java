@@ -0,0 +1,242 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.ui.tests.widgets.timegraph.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model.CompactTimeGraphEntry;
+import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model.ITimeEvent;
+import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model.ITimeGraphEntry;
+import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model.NullTimeEvent;
+import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model.TimeEvent;
+import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model.TimeGraphEntry;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Compare the events iterated in a compact time graph entry with the ones of
+ * a time graph entry that has the same events.
+ */
+public class CompactTimeGraphEntryTest {
+
+    private static final long END_TIME = 100000;
+    private static final long[][] RANGES = {
+            { Long.MIN_VALUE, Long.MAX_VALUE }, { 0, END_TIME }, { 5000, 5000 }, { 1234, 5678 },
+            { -100, 50 }, { END_TIME - 10, END_TIME + 1000 }, { END_TIME + 1, END_TIME + 100 } };
+
+    private TimeGraphEntry fEntry;
+    private CompactTimeGraphEntry fCompactEntry;
+
+    /**
+     * Create the entries
+     */
+    @Before
+    public void setUp() {
+        fEntry = new TimeGraphEntry("entry", 0, END_TIME);
+        fCompactEntry = new CompactTimeGraphEntry("entry", 0, END_TIME);
+    }
+
+    /**
+     * Test events in order, which are found by a binary search in the
+     * compact entry
+     */
+    @Test
+    public void testSortedEvents() {
+        Random random = new Random(5);
+        long time = 0;
+        while (time < END_TIME) {
+            long duration = random.nextInt(4) == 0 ? 0 : random.nextInt(100);
+            addEvent(random.nextInt(4), time, duration, random.nextInt(10));
+            time += duration + random.nextInt(3);
+        }
+        assertIterators();
+    }
+
+    /**
+     * Test events in order with zoomed events hiding some of them
+     */
+    @Test
+    public void testZoomedEvents() {
+        for (long time = 0; time < END_TIME; time += 100) {
+            addEvent(0, time, 100, (int) (time / 100) % 5);
+        }
+        List<ITimeEvent> zoomed = new ArrayList<>();
+        List<ITimeEvent> compactZoomed = new ArrayList<>();
+        for (long time = 1050; time < 2000; time += 10) {
+            zoomed.add(new TimeEvent(fEntry, time, 10, 7));
+            compactZoomed.add(new TimeEvent(fCompactEntry, time, 10, 7));
+        }
+        fEntry.setZoomedEventList(zoomed);
+        fCompactEntry.setZoomedEventList(compactZoomed);
+        assertIterators();
+    }
+
+    /**
+     * Test events that replace the last event because they start at the same
+     * time
+     */
+    @Test
+    public void testReplaceLastEvent() {
+        for (long time = 0; time < END_TIME; time += 10) {
+            addEvent(0, time, 5, 1);
+            addEvent(1, time, 10, 2);
+            if (time % 30 == 0) {
+                addEvent(2, time, 10, 3);
+            }
+        }
+        assertIterators();
+    }
+
+    /**
+     * Test that the iterated events are not changed by the events added
+     * afterwards, even when they replace an iterated event
+     */
+    @Test
+    public void testReplaceIteratedEvent() {
+        addEvent(0, 0, 10, 1);
+        addEvent(0, 10, 10, 2);
+        Iterator<ITimeEvent> iterator = fCompactEntry.getTimeEventsIterator(0, 100, 100);
+        fCompactEntry.addEvent(new NullTimeEvent(fCompactEntry, 10, 20));
+        fCompactEntry.addEvent(new TimeEvent(fCompactEntry, 30, 10, 3));
+
+        assertEquals("TimeEvent 0 10 1", toString(iterator.next()));
+        assertEquals("TimeEvent 10 10 2", toString(iterator.next()));
+        assertFalse(iterator.hasNext());
+
+        List<String> events = toStrings(fCompactEntry.getTimeEventsIterator(0, 100, 100), fCompactEntry);
+        assertEquals(3, events.size());
+        assertEquals(toString(new NullTimeEvent(fCompactEntry, 10, 20)), events.get(1));
+        assertEquals("TimeEvent 30 10 3", events.get(2));
+    }
+
+    /**
+     * Test events that are not in order, which are all iterated in the
+     * compact entry
+     */
+    @Test
+    public void testUnsortedEvents() {
+        Random random = new Random(9);
+        for (int i = 0; i < 2000; i++) {
+            long time = random.nextInt((int) END_TIME);
+            addEvent(random.nextInt(4), time, random.nextInt(1000), random.nextInt(10));
+        }
+        assertIterators();
+    }
+
+    /**
+     * Test an event that ends before the previous one, although it starts
+     * after it
+     */
+    @Test
+    public void testNestedEvent() {
+        for (long time = 0; time < END_TIME; time += 100) {
+            addEvent(0, time, 100, 1);
+        }
+        addEvent(0, 50000, 10000, 2);
+        addEvent(1, 50010, 10, 3);
+        for (long time = 60000; time < END_TIME; time += 100) {
+            addEvent(0, time, 100, 4);
+        }
+        assertIterators();
+    }
+
+    /**
+     * Test the event lists that are set rather than built by adding events
+     */
+    @Test
+    public void testSetEventList() {
+        List<ITimeEvent> events = new ArrayList<>();
+        List<ITimeEvent> compactEvents = new ArrayList<>();
+        for (long time = 0; time < END_TIME; time += 50) {
+            events.add(new TimeEvent(fEntry, time, 50, 1));
+            compactEvents.add(new TimeEvent(fCompactEntry, time, 50, 1));
+            /* The last event is not replaced when the list is set */
+            events.add(new NullTimeEvent(fEntry, time, 0));
+            compactEvents.add(new NullTimeEvent(fCompactEntry, time, 0));
+        }
+        fEntry.setEventList(events);
+        fCompactEntry.setEventList(compactEvents);
+        assertIterators();
+    }
+
+    /**
+     * Add an event to both entries
+     *
+     * @param kind
+     *            0 for a time event, 1 for a null time event, 2 for an event
+     *            of a subclass of time event, 3 for a time event of another
+     *            entry
+     */
+    private void addEvent(int kind, long time, long duration, int value) {
+        fEntry.addEvent(createEvent(kind, fEntry, time, duration, value));
+        fCompactEntry.addEvent(createEvent(kind, fCompactEntry, time, duration, value));
+    }
+
+    private static ITimeEvent createEvent(int kind, ITimeGraphEntry entry, long time, long duration, int value) {
+        switch (kind) {
+        case 1:
+            return new NullTimeEvent(entry, time, duration);
+        case 2:
+            return new OtherTimeEvent(entry, time, duration, value);
+        case 3:
+            return new TimeEvent(null, time, duration, value);
+        default:
+            return new TimeEvent(entry, time, duration, value);
+        }
+    }
+
+    private void assertIterators() {
+        assertEquals(toStrings(fEntry.getTimeEventsIterator(), fEntry),
+                toStrings(fCompactEntry.getTimeEventsIterator(), fCompactEntry));
+        for (long[] range : RANGES) {
+            assertEquals(toStrings(fEntry.getTimeEventsIterator(range[0], range[1], range[1] - range[0]), fEntry),
+                    toStrings(fCompactEntry.getTimeEventsIterator(range[0], range[1], range[1] - range[0]), fCompactEntry));
+        }
+    }
+
+    private static List<String> toStrings(Iterator<ITimeEvent> iterator, ITimeGraphEntry entry) {
+        List<String> strings = new ArrayList<>();
+        while (iterator.hasNext()) {
+            ITimeEvent event = iterator.next();
+            if (event.getEntry() != null) {
+                assertSame(entry, event.getEntry());
+            }
+            strings.add(toString(event));
+        }
+        return strings;
+    }
+
+    private static String toString(ITimeEvent event) {
+        String string = event.getClass().getSimpleName() + ' ' + event.getTime() + ' ' + event.getDuration();
+        if (event instanceof TimeEvent) {
+            string += " " + ((TimeEvent) event).getValue();
+        }
+        if (event.getEntry() == null) {
+            string += " (no entry)";
+        }
+        return string;
+    }
+
+    /**
+     * A time event of a subclass, which is not stored as primitive values
+     */
+    private static class OtherTimeEvent extends TimeEvent {
+        public OtherTimeEvent(ITimeGraphEntry entry, long time, long duration, int value) {
+            super(entry, time, duration, value);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.tmf.ui.views.timegraph;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model.ITimeEvent;
+import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model.TimeGraphEntry;
+
+/**
+ * Cache of the zoomed event lists of a time graph view. The least recently
+ * used lists are removed when the cache holds too many events. It can be used
+ * by several threads.
+ */
+public final class ZoomCache {
+
+    private final long fMaxEvents;
+    private final Map<ZoomKey, List<ITimeEvent>> fEventLists = new LinkedHashMap<>(16, 0.75f, true);
+    /* The key of the last event list cached for each entry */
+    private final Map<TimeGraphEntry, ZoomKey> fLastKeys = new IdentityHashMap<>();
+    private long fNbEvents = 0;
+
+    /**
+     * Constructor
+     *
+     * @param maxEvents
+     *            The number of events above which the least recently used
+     *            lists are removed. The last list added is always kept.
+     */
+    public ZoomCache(long maxEvents) {
+        fMaxEvents = maxEvents;
+    }
+
+    /**
+     * Get the event list of a key
+     *
+     * @param key
+     *            The key
+     * @return The cached event list, or null if it is not cached
+     */
+    public synchronized @Nullable List<ITimeEvent> get(ZoomKey key) {
+        return fEventLists.get(key);
+    }
+
+    /**
+     * Get the key of the last event list added for an entry, if it is still
+     * cached
+     *
+     * @param entry
+     *            The entry
+     * @return The key, or null if no list of this entry is cached
+     */
+    public synchronized @Nullable ZoomKey getLastKey(TimeGraphEntry entry) {
+        return fLastKeys.get(entry);
+    }
+
+    /**
+     * Get the total number of events of the cached lists
+     *
+     * @return The number of events
+     */
+    public synchronized long getNbEvents() {
+        return fNbEvents;
+    }
+
+    /**
+     * Add an event list to the cache, replacing the list of the same key
+     *
+     * @param key
+     *            The key
+     * @param eventList
+     *            The event list, which must not be modified afterwards
+     */
+    public synchronized void put(ZoomKey key, List<ITimeEvent> eventList) {
+        List<ITimeEvent> previous = fEventLists.put(key, eventList);
+        if (previous != null) {
+            fNbEvents -= previous.size();
+        }
+        fNbEvents += eventList.size();
+        fLastKeys.put(key.getEntry(), key);
+        Iterator<Entry<ZoomKey, List<ITimeEvent>>> iterator = fEventLists.entrySet().iterator();
+        while (fNbEvents > fMaxEvents && fEventLists.size() > 1) {
+            Entry<ZoomKey, List<ITimeEvent>> eldest = iterator.next();
+            iterator.remove();
+            fNbEvents -= eldest.getValue().size();
+            if (fLastKeys.get(eldest.getKey().getEntry()) == eldest.getKey()) {
+                fLastKeys.remove(eldest.getKey().getEntry());
+            }
+        }
+    }
+
+    /**
+     * Remove all the event lists
+     */
+    public synchronized void clear() {
+        fEventLists.clear();
+        fLastKeys.clear();
+        fNbEvents = 0;
+    }
+
+    /**
+     * Build the event list of a range from the cached list of an overlapping
+     * range at the same resolution, and the events read for the parts of the
+     * range that it does not cover. The events read before the cached list
+     * are kept if they end before its first event, and the events read after
+     * it if they start after the end of its last kept event.
+     *
+     * @param startTime
+     *            The start of the range
+     * @param endTime
+     *            The end of the range
+     * @param before
+     *            The events read from the start of the range to the start of
+     *            the cached range, or null if the range starts inside it
+     * @param cached
+     *            The cached event list
+     * @param after
+     *            The events read from the end of the cached range to the end
+     *            of the range, or null if the range ends inside it
+     * @return The event list of the range
+     */
+    public static List<ITimeEvent> mergePannedEventList(long startTime, long endTime,
+            @Nullable List<ITimeEvent> before, List<ITimeEvent> cached, @Nullable List<ITimeEvent> after) {
+        List<ITimeEvent> eventList = new ArrayList<>();
+        if (before != null) {
+            long firstTime = cached.isEmpty() ? Long.MAX_VALUE : cached.get(0).getTime();
+            for (ITimeEvent event : before) {
+                if (event.getTime() + event.getDuration() <= firstTime) {
+                    eventList.add(event);
+                }
+            }
+        }
+        long lastEndTime = Long.MIN_VALUE;
+        for (ITimeEvent event : cached) {
+            if (event.getTime() + event.getDuration() > startTime && event.getTime() <= endTime) {
+                eventList.add(event);
+                lastEndTime = Math.max(lastEndTime, event.getTime() + event.getDuration());
+            }
+        }
+        if (after != null) {
+            for (ITimeEvent event : after) {
+                if (event.getTime() >= lastEndTime) {
+                    eventList.add(event);
+                }
+            }
+        }
+        return eventList;
+    }
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.internal.tmf.ui.views.timegraph;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model.TimeGraphEntry;
+
+/**
+ * The key of a zoomed event list: the entry, with its own time range, and the
+ * zoomed time range and resolution
+ */
+public final class ZoomKey {
+    private final @NonNull TimeGraphEntry fEntry;
+    private final long fEntryStartTime;
+    private final long fEntryEndTime;
+    private final long fStartTime;
+    private final long fEndTime;
+    private final long fResolution;
+
+    /**
+     * Constructor
+     *
+     * @param entry
+     *            The entry, whose current time range is part of the key
+     * @param startTime
+     *            The start of the zoomed range
+     * @param endTime
+     *            The end of the zoomed range
+     * @param resolution
+     *            The resolution of the zoomed events
+     */
+    public ZoomKey(@NonNull TimeGraphEntry entry, long startTime, long endTime, long resolution) {
+        fEntry = entry;
+        fEntryStartTime = entry.getStartTime();
+        fEntryEndTime = entry.getEndTime();
+        fStartTime = startTime;
+        fEndTime = endTime;
+        fResolution = resolution;
+    }
+
+    /**
+     * Get the entry of this key
+     *
+     * @return The entry
+     */
+    public @NonNull TimeGraphEntry getEntry() {
+        return fEntry;
+    }
+
+    /**
+     * Get the start of the zoomed range
+     *
+     * @return The start time
+     */
+    public long getStartTime() {
+        return fStartTime;
+    }
+
+    /**
+     * Get the end of the zoomed range
+     *
+     * @return The end time
+     */
+    public long getEndTime() {
+        return fEndTime;
+    }
+
+    /**
+     * Check if the event list of this key can be reused for another key: it
+     * is for the same entry, at the same resolution, and the ranges overlap
+     *
+     * @param other
+     *            The other key
+     * @return True if the zoomed ranges of the keys overlap
+     */
+    public boolean overlaps(ZoomKey other) {
+        return fEntry == other.fEntry && fEntryStartTime == other.fEntryStartTime && fEntryEndTime == other.fEntryEndTime &&
+                fResolution == other.fResolution && fStartTime < other.fEndTime && fEndTime > other.fStartTime;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = System.identityHashCode(fEntry);
+        result = 31 * result + (int) (fStartTime ^ (fStartTime >>> 32));
+        result = 31 * result + (int) (fEndTime ^ (fEndTime >>> 32));
+        result = 31 * result + (int) (fResolution ^ (fResolution >>> 32));
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof ZoomKey)) {
+            return false;
+        }
+        ZoomKey other = (ZoomKey) obj;
+        return fEntry == other.fEntry && fEntryStartTime == other.fEntryStartTime && fEntryEndTime == other.fEntryEndTime &&
+                fStartTime == other.fStartTime && fEndTime == other.fEndTime && fResolution == other.fResolution;
+    }
+}
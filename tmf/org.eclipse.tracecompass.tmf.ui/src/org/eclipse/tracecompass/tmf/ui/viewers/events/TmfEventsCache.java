@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2011, 2014 Ericsson
+ * Copyright (c) 2011, 2015 Ericsson
  *
  * All rights reserved. This program and the accompanying materials are
  * made available under the terms of the Eclipse Public License v1.0 which
@@ -13,21 +13,25 @@
 
 package org.eclipse.tracecompass.tmf.ui.viewers.events;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.tracecompass.internal.tmf.core.filter.TmfCollapseFilter;
+import org.eclipse.tracecompass.internal.tmf.core.filter.TmfFilterRankIndex;
 import org.eclipse.tracecompass.internal.tmf.ui.Activator;
 import org.eclipse.tracecompass.tmf.core.component.ITmfEventProvider;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEventField;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEventType;
 import org.eclipse.tracecompass.tmf.core.filter.ITmfFilter;
+import org.eclipse.tracecompass.tmf.core.filter.TmfFilterCompiler;
+import org.eclipse.tracecompass.tmf.core.filter.model.ITmfFilterTreeNode;
 import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest;
 import org.eclipse.tracecompass.tmf.core.request.TmfEventRequest;
 import org.eclipse.tracecompass.tmf.core.timestamp.ITmfTimestamp;
@@ -121,6 +125,9 @@ public class TmfEventsCache {
         }
     }
 
+    /* The number of filters whose filter index is kept for the trace */
+    private static final int MAX_FILTER_INDEXES = 8;
+
     private final CachedEvent[] fCache;
     private final int fCacheSize;
     private int fCacheStartIndex = 0;
@@ -129,7 +136,9 @@ public class TmfEventsCache {
     private ITmfTrace fTrace;
     private final TmfEventsTable fTable;
     private ITmfFilter fFilter;
-    private final List<Integer> fFilterIndex = new ArrayList<>(); // contains the event rank at each 'cache size' filtered events
+    private String fFilterKey;
+    private TmfFilterRankIndex fFilterIndex; // contains the rank of each filtered event
+    private final Map<String, TmfFilterRankIndex> fFilterIndexes = new LinkedHashMap<>(MAX_FILTER_INDEXES, 0.75f, true);
 
     /**
      * Constructor for the event cache
@@ -152,8 +161,12 @@ public class TmfEventsCache {
      * @param trace
      *            The trace to assign.
      */
-    public void setTrace(ITmfTrace trace) {
+    public synchronized void setTrace(ITmfTrace trace) {
         fTrace = trace;
+        fFilterIndexes.clear();
+        if (fFilter != null) {
+            fFilterIndex = getFilterIndex(fFilterKey);
+        }
         clear();
     }
 
@@ -167,18 +180,20 @@ public class TmfEventsCache {
         Arrays.fill(fCache, null);
         fCacheStartIndex = 0;
         fCacheEndIndex = 0;
-        fFilterIndex.clear();
     }
 
     /**
      * Apply a filter on this event cache. This clears the current cache
-     * contents.
+     * contents. The events that were already filtered with an equal filter
+     * on the same trace do not need to be filtered again.
      *
      * @param filter
      *            The ITmfFilter to apply.
      */
-    public void applyFilter(ITmfFilter filter) {
-        fFilter = filter;
+    public synchronized void applyFilter(ITmfFilter filter) {
+        fFilter = TmfFilterCompiler.compile(filter);
+        fFilterKey = getFilterKey(filter);
+        fFilterIndex = getFilterIndex(fFilterKey);
         clear();
     }
 
@@ -186,11 +201,75 @@ public class TmfEventsCache {
      * Clear the current filter on this cache. This also clears the current
      * cache contents.
      */
-    public void clearFilter() {
+    public synchronized void clearFilter() {
         fFilter = null;
+        fFilterKey = null;
+        fFilterIndex = null;
         clear();
     }
 
+    /**
+     * Get the number of events of the trace that were already checked against
+     * the current filter.
+     *
+     * @return The number of checked events
+     * @since 2.0
+     */
+    public synchronized long getFilterCheckCount() {
+        return (fFilterIndex == null) ? 0 : fFilterIndex.getNbChecked();
+    }
+
+    /**
+     * Set the number of events of the trace that were checked against the
+     * current filter. The matching events among them must have been stored
+     * with {@link #storeEvent(ITmfEvent, long, int)}.
+     *
+     * @param count
+     *            The number of checked events
+     * @since 2.0
+     */
+    public synchronized void setFilterCheckCount(long count) {
+        if (fFilterIndex != null) {
+            fFilterIndex.setNbChecked(count);
+        }
+    }
+
+    /**
+     * Get the number of events of the trace that match the current filter,
+     * among the events that were already checked.
+     *
+     * @return The number of matching events
+     * @since 2.0
+     */
+    public synchronized long getFilterMatchCount() {
+        return (fFilterIndex == null) ? 0 : fFilterIndex.getNbMatches();
+    }
+
+    private static String getFilterKey(ITmfFilter filter) {
+        /* The collapse filter depends on the previous events, it is not shared */
+        if (filter instanceof ITmfFilterTreeNode && !(filter instanceof TmfCollapseFilter)) {
+            return ((ITmfFilterTreeNode) filter).toString(true);
+        }
+        return null;
+    }
+
+    private TmfFilterRankIndex getFilterIndex(String key) {
+        TmfFilterRankIndex filterIndex = (key == null) ? null : fFilterIndexes.get(key);
+        if (filterIndex == null) {
+            filterIndex = new TmfFilterRankIndex();
+            if (key != null) {
+                fFilterIndexes.put(key, filterIndex);
+                if (fFilterIndexes.size() > MAX_FILTER_INDEXES) {
+                    /* Remove the least recently used filter index */
+                    Iterator<TmfFilterRankIndex> iterator = fFilterIndexes.values().iterator();
+                    iterator.next();
+                    iterator.remove();
+                }
+            }
+        }
+        return filterIndex;
+    }
+
     /**
      * Get an event from the cache. If the cache does not contain the event,
      * a cache population request is triggered.
@@ -241,9 +320,8 @@ public class TmfEventsCache {
                 fCacheEndIndex++;
             }
         }
-        if ((fFilter != null) && ((index % fCacheSize) == 0)) {
-            int i = index / fCacheSize;
-            fFilterIndex.add(i, Integer.valueOf((int) rank));
+        if (fFilterIndex != null) {
+            fFilterIndex.add(rank);
         }
     }
 
@@ -269,50 +347,31 @@ public class TmfEventsCache {
      * @return The position (index) this event should use once cached
      */
     public int getFilteredEventIndex(final long rank) {
-        int current;
-        int startRank;
+        final long startRank;
+        final long index;
         TmfEventRequest request;
-        final ITmfFilter filter = fFilter;
+        final ITmfFilter filter;
         synchronized (this) {
-            int start = 0;
-            int end = fFilterIndex.size();
-
-            if ((fCacheEndIndex - fCacheStartIndex) > 1) {
-                if (rank < fCache[0].rank) {
-                    end = (fCacheStartIndex / fCacheSize) + 1;
-                } else if (rank > fCache[fCacheEndIndex - fCacheStartIndex - 1].rank) {
-                    start = fCacheEndIndex / fCacheSize;
-                } else {
-                    for (int i = 0; i < (fCacheEndIndex - fCacheStartIndex); i++) {
-                        if (fCache[i].rank >= rank) {
-                            return fCacheStartIndex + i;
-                        }
-                    }
-                    return fCacheEndIndex;
-                }
+            TmfFilterRankIndex filterIndex = fFilterIndex;
+            filter = fFilter;
+            if (filterIndex == null || filter == null) {
+                /* The filter was cleared, the index is the rank */
+                return (int) rank;
             }
-
-            current = (start + end) / 2;
-            while (current != start) {
-                if (rank < fFilterIndex.get(current)) {
-                    end = current;
-                    current = (start + end) / 2;
-                } else {
-                    start = current;
-                    current = (start + end) / 2;
-                }
+            if (rank <= filterIndex.getNbChecked()) {
+                return (int) filterIndex.getIndex(rank);
             }
-            startRank = fFilterIndex.size() > 0 ? fFilterIndex.get(current) : 0;
+            /* Filter the events that were not checked yet */
+            startRank = filterIndex.getNbChecked();
+            index = filterIndex.getNbMatches();
         }
 
-        final int index = current * fCacheSize;
-
         class DataRequest extends TmfEventRequest {
             ITmfFilter requestFilter;
-            int requestRank;
-            int requestIndex;
+            long requestRank;
+            long requestIndex;
 
-            DataRequest(Class<? extends ITmfEvent> dataType, ITmfFilter reqFilter, int start, int nbRequested) {
+            DataRequest(Class<? extends ITmfEvent> dataType, ITmfFilter reqFilter, long start, int nbRequested) {
                 super(dataType, TmfTimeRange.ETERNITY, start, nbRequested,
                         TmfEventRequest.ExecutionType.FOREGROUND);
                 requestFilter = reqFilter;
@@ -337,7 +396,7 @@ public class TmfEventsCache {
             }
 
             public int getFilteredIndex() {
-                return requestIndex;
+                return (int) requestIndex;
             }
         }
 
@@ -388,7 +447,8 @@ public class TmfEventsCache {
 
         job = new Job("Fetching Events") { //$NON-NLS-1$
             private int startIndex = fCacheStartIndex;
-            private int skipCount = 0;
+            private long startRank = startIndex;
+            private long skipCount = 0;
             @Override
             protected IStatus run(final IProgressMonitor monitor) {
 
@@ -397,20 +457,27 @@ public class TmfEventsCache {
                     nbRequested = fCache.length;
                 } else {
                     nbRequested = ITmfEventRequest.ALL_DATA;
-                    int i = startIndex / fCacheSize;
-                    if (i < fFilterIndex.size()) {
-                        skipCount = startIndex - (i * fCacheSize);
-                        startIndex = fFilterIndex.get(i);
+                    synchronized (TmfEventsCache.this) {
+                        if (fFilterIndex != null) {
+                            long rank = fFilterIndex.getRank(startIndex);
+                            if (rank >= 0) {
+                                startRank = rank;
+                            } else {
+                                /* Skip the matching events that are not in the filter index yet */
+                                skipCount = startIndex - fFilterIndex.getNbMatches();
+                                startRank = fFilterIndex.getNbChecked();
+                            }
+                        }
                     }
                 }
 
                 TmfEventRequest request = new TmfEventRequest(ITmfEvent.class,
                         TmfTimeRange.ETERNITY,
-                        startIndex,
+                        startRank,
                         nbRequested,
                         TmfEventRequest.ExecutionType.FOREGROUND) {
                     private int count = 0;
-                    private long rank = startIndex;
+                    private long rank = startRank;
                     @Override
                     public void handleData(ITmfEvent event) {
                         // If the job is canceled, cancel the request so waitForCompletion() will unlock
@@ -132,6 +132,7 @@ import org.eclipse.tracecompass.tmf.core.event.lookup.ITmfCallsite;
 import org.eclipse.tracecompass.tmf.core.event.lookup.ITmfModelLookup;
 import org.eclipse.tracecompass.tmf.core.event.lookup.ITmfSourceLookup;
 import org.eclipse.tracecompass.tmf.core.filter.ITmfFilter;
+import org.eclipse.tracecompass.tmf.core.filter.TmfFilterCompiler;
 import org.eclipse.tracecompass.tmf.core.filter.model.ITmfFilterTreeNode;
 import org.eclipse.tracecompass.tmf.core.filter.model.TmfFilterAndNode;
 import org.eclipse.tracecompass.tmf.core.filter.model.TmfFilterMatchesNode;
@@ -1893,13 +1894,14 @@ public class TmfEventsTable extends TmfComponent implements IGotoMarker, IColorS
     protected void applyFilter(ITmfFilter filter) {
         stopFilterThread();
         stopSearchThread();
-        fFilterMatchCount = 0;
-        fFilterCheckCount = 0;
         fCache.applyFilter(filter);
+        /* The events already filtered with this filter are not filtered again */
+        fFilterMatchCount = fCache.getFilterMatchCount();
+        fFilterCheckCount = fCache.getFilterCheckCount();
         fTable.clearAll();
         fTable.setData(Key.FILTER_OBJ, filter);
         /* +1 for header row, +2 for top and bottom filter status rows */
-        fTable.setItemCount(3);
+        fTable.setItemCount((int) fFilterMatchCount + 3);
         startFilterThread();
         fireFilterApplied(filter);
     }
@@ -1948,6 +1950,7 @@ public class TmfEventsTable extends TmfComponent implements IGotoMarker, IColorS
      */
     protected class FilterThread extends Thread {
         private final ITmfFilterTreeNode filter;
+        private final ITmfFilter compiledFilter;
         private TmfEventRequest request;
         private boolean refreshBusy = false;
         private boolean refreshPending = false;
@@ -1962,6 +1965,7 @@ public class TmfEventsTable extends TmfComponent implements IGotoMarker, IColorS
         public FilterThread(final ITmfFilterTreeNode filter) {
             super("Filter Thread"); //$NON-NLS-1$
             this.filter = filter;
+            this.compiledFilter = TmfFilterCompiler.compile(filter);
         }
 
         @Override
@@ -1971,33 +1975,39 @@ public class TmfEventsTable extends TmfComponent implements IGotoMarker, IColorS
             }
             final int nbRequested = (int) (fTrace.getNbEvents() - fFilterCheckCount);
             if (nbRequested <= 0) {
+                /* All the events were already filtered */
+                done();
                 return;
             }
             request = new TmfEventRequest(ITmfEvent.class, TmfTimeRange.ETERNITY,
-                    (int) fFilterCheckCount, nbRequested, ExecutionType.BACKGROUND) {
+                    fFilterCheckCount, nbRequested, ExecutionType.BACKGROUND) {
                 @Override
                 public void handleData(final ITmfEvent event) {
                     super.handleData(event);
-                    if (request.isCancelled()) {
-                        return;
-                    }
-                    boolean refresh = false;
-                    if (filter.matches(event)) {
-                        final long rank = fFilterCheckCount;
-                        final int index = (int) fFilterMatchCount;
-                        fFilterMatchCount++;
-                        fCache.storeEvent(event, rank, index);
-                        refresh = true;
-                    } else {
-                        if (filter instanceof TmfCollapseFilter) {
-                            fCache.updateCollapsedEvent((int) fFilterMatchCount - 1);
+                    /* A cancelled filter thread must not store its results in the cache */
+                    synchronized (fFilterSyncObj) {
+                        if (request.isCancelled()) {
+                            return;
+                        }
+                        boolean refresh = false;
+                        if (compiledFilter.matches(event)) {
+                            final long rank = fFilterCheckCount;
+                            final int index = (int) fFilterMatchCount;
+                            fFilterMatchCount++;
+                            fCache.storeEvent(event, rank, index);
+                            refresh = true;
+                        } else {
+                            if (filter instanceof TmfCollapseFilter) {
+                                fCache.updateCollapsedEvent((int) fFilterMatchCount - 1);
+                            }
                         }
-                    }
 
-                    if (refresh || (fFilterCheckCount % 100) == 0) {
-                        refreshTable();
+                        if (refresh || (fFilterCheckCount % 100) == 0) {
+                            refreshTable();
+                        }
+                        fFilterCheckCount++;
+                        fCache.setFilterCheckCount(fFilterCheckCount);
                     }
-                    fFilterCheckCount++;
                 }
             };
             ((ITmfEventProvider) fTrace).sendRequest(request);
@@ -2006,6 +2016,10 @@ public class TmfEventsTable extends TmfComponent implements IGotoMarker, IColorS
             } catch (final InterruptedException e) {
             }
             refreshTable();
+            done();
+        }
+
+        private void done() {
             synchronized (fFilterSyncObj) {
                 fFilterThread = null;
                 if (fFilterThreadResume) {
@@ -2149,8 +2163,8 @@ public class TmfEventsTable extends TmfComponent implements IGotoMarker, IColorS
      */
     protected class SearchThread extends Job {
 
-        private ITmfFilterTreeNode searchFilter;
-        private ITmfFilterTreeNode eventFilter;
+        private ITmfFilter searchFilter;
+        private ITmfFilter eventFilter;
         private int startIndex;
         private int direction;
         private long rank;
@@ -2176,8 +2190,8 @@ public class TmfEventsTable extends TmfComponent implements IGotoMarker, IColorS
                 final ITmfFilterTreeNode eventFilter, final int startIndex,
                 final long currentRank, final int direction) {
             super(Messages.TmfEventsTable_SearchingJobName);
-            this.searchFilter = searchFilter;
-            this.eventFilter = eventFilter;
+            this.searchFilter = TmfFilterCompiler.compile(searchFilter);
+            this.eventFilter = TmfFilterCompiler.compile(eventFilter);
             this.startIndex = startIndex;
             this.rank = currentRank;
             this.direction = direction;
@@ -61,6 +61,7 @@ import org.eclipse.swt.widgets.FileDialog;
 import org.eclipse.swt.widgets.Menu;
 import org.eclipse.swt.widgets.Tree;
 import org.eclipse.tracecompass.internal.tmf.core.callstack.FunctionNameMapper;
+import org.eclipse.tracecompass.internal.tmf.core.callstack.FunctionNameTable;
 import org.eclipse.tracecompass.internal.tmf.ui.Activator;
 import org.eclipse.tracecompass.internal.tmf.ui.ITmfImageConstants;
 import org.eclipse.tracecompass.internal.tmf.ui.Messages;
@@ -199,8 +200,8 @@ public class CallStackView extends TmfView implements ITmfTimeAligned {
     // The trace to build thread hash map
     private final Map<ITmfTrace, BuildThread> fBuildThreadMap = new HashMap<>();
 
-    /** The map to map function addresses to function names */
-    private Map<String, String> fNameMapping;
+    /** The table to map function addresses to function names */
+    private FunctionNameTable fNameMapping;
 
     // The start time
     private long fStartTime;
@@ -1337,7 +1338,7 @@ public class CallStackView extends TmfView implements ITmfTimeAligned {
             job.schedule();
         }
 
-        abstract Map<String, String> doMapping(File file);
+        abstract FunctionNameTable doMapping(File file);
     }
 
     /**
@@ -1349,7 +1350,7 @@ public class CallStackView extends TmfView implements ITmfTimeAligned {
         }
         fImportMappingAction = new AbstractImportFileMappingAction(Messages.CallStackView_ImportMappingDialogTitle) {
             @Override
-            Map<String, String> doMapping(File file) {
+            FunctionNameTable doMapping(File file) {
                 return FunctionNameMapper.mapFromNmTextFile(file);
             }
         };
@@ -1491,7 +1492,7 @@ public class CallStackView extends TmfView implements ITmfTimeAligned {
 
         fImportBinaryFileMappingAction = new AbstractImportFileMappingAction(Messages.CallStackView_ImportBinaryFileDialogTitle) {
             @Override
-            Map<String, String> doMapping(File file) {
+            FunctionNameTable doMapping(File file) {
                 return FunctionNameMapper.mapFromBinaryFile(file);
             }
         };
@@ -1504,11 +1505,12 @@ public class CallStackView extends TmfView implements ITmfTimeAligned {
     }
 
     String getFunctionName(String address) {
-        if (fNameMapping == null) {
+        FunctionNameTable nameMapping = fNameMapping;
+        if (nameMapping == null) {
             /* No mapping available, just print the addresses */
             return address;
         }
-        String ret = fNameMapping.get(address);
+        String ret = nameMapping.getName(address);
         if (ret == null) {
             /*
              * We didn't find this address in the mapping file, just use the
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2014 Kalray
+ * Copyright (c) 2014, 2015 Kalray and others
  *
  * All rights reserved. This program and the accompanying materials are
  * made available under the terms of the Eclipse Public License v1.0 which
@@ -72,9 +72,19 @@ public class HistogramBucket {
      * @param traceIndex a trace index - see {@link HistogramDataModel#setTrace}.
      */
     public synchronized void addEvent(int traceIndex) {
+        addEvents(traceIndex, 1);
+    }
+
+    /**
+     * Add several events in this bucket
+     * @param traceIndex a trace index - see {@link HistogramDataModel#setTrace}.
+     * @param nbEvents the number of events to add
+     * @since 2.0
+     */
+    public synchronized void addEvents(int traceIndex, int nbEvents) {
         ensureCapacity(traceIndex + 1);
-        fEvents[traceIndex]++;
-        fNbEvents++;
+        fEvents[traceIndex] += nbEvents;
+        fNbEvents += nbEvents;
     }
 
     private void ensureCapacity(int len) {
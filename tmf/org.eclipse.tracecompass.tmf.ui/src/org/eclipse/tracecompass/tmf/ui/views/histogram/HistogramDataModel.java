@@ -479,10 +479,33 @@ public class HistogramDataModel implements IHistogramDataModel {
      */
     @Override
     public synchronized void countEvent(long eventCount, long timestamp, ITmfTrace trace) {
+        if (addEvents(timestamp, 1, trace)) {
+            fireModelUpdateNotification(eventCount);
+        }
+    }
+
+    /**
+     * Add several events at the same time to the correct bucket, compacting
+     * if needed. This is used to fill the model from pre-computed counts, the
+     * listeners are not notified.
+     *
+     * @param timestamp
+     *            The timestamp of the events to count
+     * @param nbEvents
+     *            The number of events
+     * @param trace
+     *            The events trace
+     * @since 2.0
+     */
+    public synchronized void countEvents(long timestamp, int nbEvents, ITmfTrace trace) {
+        addEvents(timestamp, nbEvents, trace);
+    }
+
+    private boolean addEvents(long timestamp, int nbEvents, ITmfTrace trace) {
 
         // Validate
         if (timestamp < 0) {
-            return;
+            return false;
         }
 
         // Set the start/end time if not already done
@@ -537,13 +560,12 @@ public class HistogramDataModel implements IHistogramDataModel {
         if (traceIndex == null) {
             traceIndex = 0;
         }
-        fBuckets[index].addEvent(traceIndex);
-        fNbEvents++;
+        fBuckets[index].addEvents(traceIndex, nbEvents);
+        fNbEvents += nbEvents;
         if (fLastBucket < index) {
             fLastBucket = index;
         }
-
-        fireModelUpdateNotification(eventCount);
+        return true;
     }
 
     /**
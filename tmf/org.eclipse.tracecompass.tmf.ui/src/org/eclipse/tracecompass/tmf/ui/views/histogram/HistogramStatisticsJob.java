@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.ui.views.histogram;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.tracecompass.tmf.core.statistics.ITmfStatistics;
+import org.eclipse.tracecompass.tmf.core.statistics.TmfStateStatistics;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+
+/**
+ * Job filling a HistogramDataModel from the statistics of the traces, instead
+ * of reading their events with a {@link HistogramRequest}.
+ *
+ * The statistics are queried for as many buckets as the model has, and the
+ * count of each bucket is added to the model at the start time of the bucket.
+ * The lost events are spread over the range in which they were lost, if the
+ * statistics know about them.
+ */
+final class HistogramStatisticsJob extends Job {
+
+    private final HistogramDataModel fModel;
+    private final Map<ITmfTrace, ITmfStatistics> fStatistics;
+    private final long fStartTime;
+    private final long fEndTime;
+    private final boolean fFullRange;
+
+    /**
+     * Constructor
+     *
+     * @param model
+     *            The histogram data model to fill
+     * @param statistics
+     *            The statistics of each trace of the trace set
+     * @param startTime
+     *            The start time of the range, in nanoseconds
+     * @param endTime
+     *            The end time of the range, in nanoseconds
+     * @param fullRange
+     *            Full range or time range histogram. The full range model is
+     *            cleared before being filled.
+     */
+    public HistogramStatisticsJob(HistogramDataModel model, Map<ITmfTrace, ITmfStatistics> statistics,
+            long startTime, long endTime, boolean fullRange) {
+        super("Histogram statistics"); //$NON-NLS-1$
+        setSystem(true);
+        fModel = model;
+        fStatistics = statistics;
+        fStartTime = startTime;
+        fEndTime = endTime;
+        fFullRange = fullRange;
+    }
+
+    @Override
+    protected IStatus run(IProgressMonitor monitor) {
+        int nb = (int) Math.max(1, Math.min(fModel.getNbBuckets(), fEndTime - fStartTime));
+        long increment = (fEndTime - fStartTime) / nb;
+
+        /* Query everything first, the model is locked only to fill it */
+        Map<ITmfTrace, List<Long>> counts = new LinkedHashMap<>();
+        Map<ITmfTrace, Map<TmfTimeRange, Long>> lostEvents = new LinkedHashMap<>();
+        for (Entry<ITmfTrace, ITmfStatistics> entry : fStatistics.entrySet()) {
+            if (monitor.isCanceled()) {
+                return Status.CANCEL_STATUS;
+            }
+            ITmfStatistics stats = entry.getValue();
+            counts.put(entry.getKey(), stats.histogramQuery(fStartTime, fEndTime, nb));
+            if (stats instanceof TmfStateStatistics) {
+                lostEvents.put(entry.getKey(), ((TmfStateStatistics) stats).getLostEventsInRange(fStartTime, fEndTime));
+            }
+        }
+
+        synchronized (fModel) {
+            /* Checked with the lock held, the view cancels before clearing */
+            if (monitor.isCanceled()) {
+                return Status.CANCEL_STATUS;
+            }
+            if (fFullRange) {
+                long selectionBegin = fModel.getSelectionBegin();
+                long selectionEnd = fModel.getSelectionEnd();
+                fModel.clear();
+                fModel.setSelection(selectionBegin, selectionEnd);
+            }
+            for (Entry<ITmfTrace, List<Long>> entry : counts.entrySet()) {
+                List<Long> traceCounts = entry.getValue();
+                for (int i = 0; i < traceCounts.size(); i++) {
+                    long count = traceCounts.get(i);
+                    if (count > 0) {
+                        fModel.countEvents(fStartTime + i * increment, (int) Math.min(count, Integer.MAX_VALUE), entry.getKey());
+                    }
+                }
+            }
+            for (Map<TmfTimeRange, Long> traceLostEvents : lostEvents.values()) {
+                for (Entry<TmfTimeRange, Long> entry : traceLostEvents.entrySet()) {
+                    fModel.countLostEvent(entry.getKey(), entry.getValue(), fFullRange);
+                }
+            }
+        }
+        fModel.complete();
+        return Status.OK_STATUS;
+    }
+}
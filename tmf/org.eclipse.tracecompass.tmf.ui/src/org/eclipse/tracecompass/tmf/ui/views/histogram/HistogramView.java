@@ -20,6 +20,8 @@
 package org.eclipse.tracecompass.tmf.ui.views.histogram;
 
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jface.action.Action;
@@ -50,6 +52,7 @@ import org.eclipse.swt.widgets.Listener;
 import org.eclipse.swt.widgets.Sash;
 import org.eclipse.tracecompass.internal.tmf.ui.Activator;
 import org.eclipse.tracecompass.internal.tmf.ui.ITmfImageConstants;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
 import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest;
 import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest.ExecutionType;
 import org.eclipse.tracecompass.tmf.core.signal.TmfSelectionRangeUpdatedSignal;
@@ -62,12 +65,16 @@ import org.eclipse.tracecompass.tmf.core.signal.TmfTraceRangeUpdatedSignal;
 import org.eclipse.tracecompass.tmf.core.signal.TmfTraceSelectedSignal;
 import org.eclipse.tracecompass.tmf.core.signal.TmfTraceUpdatedSignal;
 import org.eclipse.tracecompass.tmf.core.signal.TmfWindowRangeUpdatedSignal;
+import org.eclipse.tracecompass.tmf.core.statistics.ITmfStatistics;
+import org.eclipse.tracecompass.tmf.core.statistics.TmfStatisticsModule;
+import org.eclipse.tracecompass.tmf.core.statistics.TmfStatisticsTotalsModule;
 import org.eclipse.tracecompass.tmf.core.timestamp.ITmfTimestamp;
 import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
 import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimestamp;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
 import org.eclipse.tracecompass.tmf.core.trace.TmfTraceContext;
 import org.eclipse.tracecompass.tmf.core.trace.TmfTraceManager;
+import org.eclipse.tracecompass.tmf.core.trace.TmfTraceUtils;
 import org.eclipse.tracecompass.tmf.ui.signal.TmfTimeViewAlignmentInfo;
 import org.eclipse.tracecompass.tmf.ui.signal.TmfTimeViewAlignmentSignal;
 import org.eclipse.tracecompass.tmf.ui.views.ITmfTimeAligned;
@@ -85,6 +92,10 @@ import org.eclipse.ui.IActionBars;
  * <li>the window span (size of the time window of the smaller histogram).
  * </ul>
  * The histograms x-axis show their respective time range.
+ * <p>
+ * When the statistics of all the traces are built, the histograms are computed
+ * from them, so zooming does not read the trace again. Otherwise, the events
+ * are read and counted with a {@link HistogramRequest}.
  *
  * @version 2.0
  * @author Francois Chouinard
@@ -139,10 +150,12 @@ public class HistogramView extends TmfView implements ITmfTimeAligned {
     // Histogram/request for the full trace range
     private static FullTraceHistogram fFullTraceHistogram;
     private HistogramRequest fFullTraceRequest;
+    private HistogramStatisticsJob fFullTraceJob;
 
     // Histogram/request for the selected time range
     private static TimeRangeHistogram fTimeRangeHistogram;
     private HistogramRequest fTimeRangeRequest;
+    private HistogramStatisticsJob fTimeRangeJob;
 
     // Legend area
     private Composite fLegendArea;
@@ -172,12 +185,8 @@ public class HistogramView extends TmfView implements ITmfTimeAligned {
 
     @Override
     public void dispose() {
-        if ((fTimeRangeRequest != null) && !fTimeRangeRequest.isCompleted()) {
-            fTimeRangeRequest.cancel();
-        }
-        if ((fFullTraceRequest != null) && !fFullTraceRequest.isCompleted()) {
-            fFullTraceRequest.cancel();
-        }
+        cancelTimeRangeRequest();
+        cancelFullTraceRequest();
         fFullTraceHistogram.dispose();
         fTimeRangeHistogram.dispose();
         fSelectionStartControl.dispose();
@@ -667,12 +676,8 @@ public class HistogramView extends TmfView implements ITmfTimeAligned {
         }
 
         // Kill any running request
-        if ((fTimeRangeRequest != null) && !fTimeRangeRequest.isCompleted()) {
-            fTimeRangeRequest.cancel();
-        }
-        if ((fFullTraceRequest != null) && !fFullTraceRequest.isCompleted()) {
-            fFullTraceRequest.cancel();
-        }
+        cancelTimeRangeRequest();
+        cancelFullTraceRequest();
 
         // Initialize the internal data
         fTrace = null;
@@ -743,6 +748,8 @@ public class HistogramView extends TmfView implements ITmfTimeAligned {
 
         if ((fFullTraceRequest != null) && fFullTraceRequest.getRange().getEndTime().compareTo(signal.getRange().getEndTime()) < 0) {
             sendFullRangeRequest(fullRange);
+        } else if (fFullTraceJob != null) {
+            sendFullRangeRequest(fullRange);
         }
 }
 
@@ -831,18 +838,14 @@ public class HistogramView extends TmfView implements ITmfTimeAligned {
         long startTime = ctx.getWindowRange().getStartTime().normalize(0, ITmfTimestamp.NANOSECOND_SCALE).getValue();
         long duration = ctx.getWindowRange().getEndTime().normalize(0, ITmfTimestamp.NANOSECOND_SCALE).getValue() - startTime;
 
-        if ((fTimeRangeRequest != null) && !fTimeRangeRequest.isCompleted()) {
-            fTimeRangeRequest.cancel();
-        }
+        cancelTimeRangeRequest();
         fTimeRangeHistogram.clear();
         fTimeRangeHistogram.setFullRange(fTraceStartTime, fTraceEndTime);
         fTimeRangeHistogram.setTimeRange(startTime, duration);
         fTimeRangeHistogram.setSelection(selectionBeginTime, selectionEndTime);
         fTimeRangeHistogram.fDataModel.setTrace(fTrace);
 
-        if ((fFullTraceRequest != null) && !fFullTraceRequest.isCompleted()) {
-            fFullTraceRequest.cancel();
-        }
+        cancelFullTraceRequest();
         fFullTraceHistogram.clear();
         fFullTraceHistogram.setFullRange(fTraceStartTime, fTraceEndTime);
         fFullTraceHistogram.setTimeRange(startTime, duration);
@@ -932,9 +935,7 @@ public class HistogramView extends TmfView implements ITmfTimeAligned {
     }
 
     private void sendTimeRangeRequest(long startTime, long endTime) {
-        if ((fTimeRangeRequest != null) && !fTimeRangeRequest.isCompleted()) {
-            fTimeRangeRequest.cancel();
-        }
+        cancelTimeRangeRequest();
         TmfTimestamp startTS = new TmfTimestamp(startTime, ITmfTimestamp.NANOSECOND_SCALE);
         TmfTimestamp endTS = new TmfTimestamp(endTime, ITmfTimestamp.NANOSECOND_SCALE);
         TmfTimeRange timeRange = new TmfTimeRange(startTS, endTS);
@@ -943,6 +944,14 @@ public class HistogramView extends TmfView implements ITmfTimeAligned {
         fTimeRangeHistogram.setFullRange(fTraceStartTime, fTraceEndTime);
         fTimeRangeHistogram.setTimeRange(startTime, endTime - startTime);
 
+        Map<ITmfTrace, ITmfStatistics> statistics = getBuiltStatistics();
+        if (statistics != null) {
+            fTimeRangeJob = new HistogramStatisticsJob(fTimeRangeHistogram.getDataModel(),
+                    statistics, startTime, endTime, false);
+            fTimeRangeJob.schedule();
+            return;
+        }
+
         int cacheSize = fTrace.getCacheSize();
         fTimeRangeRequest = new HistogramRequest(fTimeRangeHistogram.getDataModel(),
                 timeRange, 0, ITmfEventRequest.ALL_DATA, cacheSize, ExecutionType.FOREGROUND, false);
@@ -950,8 +959,28 @@ public class HistogramView extends TmfView implements ITmfTimeAligned {
     }
 
     private void sendFullRangeRequest(TmfTimeRange fullRange) {
-        if ((fFullTraceRequest != null) && !fFullTraceRequest.isCompleted()) {
-            fFullTraceRequest.cancel();
+        boolean fromStatistics = (fFullTraceJob != null);
+        cancelFullTraceRequest();
+
+        Map<ITmfTrace, ITmfStatistics> statistics = getBuiltStatistics();
+        if (statistics != null) {
+            fFullTraceJob = new HistogramStatisticsJob(fFullTraceHistogram.getDataModel(), statistics,
+                    fullRange.getStartTime().normalize(0, ITmfTimestamp.NANOSECOND_SCALE).getValue(),
+                    fullRange.getEndTime().normalize(0, ITmfTimestamp.NANOSECOND_SCALE).getValue(),
+                    true);
+            fFullTraceJob.schedule();
+            return;
+        }
+
+        if (fromStatistics) {
+            /* The request continues from the last event counted, start over */
+            HistogramDataModel model = fFullTraceHistogram.getDataModel();
+            synchronized (model) {
+                long selectionBegin = model.getSelectionBegin();
+                long selectionEnd = model.getSelectionEnd();
+                model.clear();
+                model.setSelection(selectionBegin, selectionEnd);
+            }
         }
         int cacheSize = fTrace.getCacheSize();
         fFullTraceRequest = new HistogramRequest(fFullTraceHistogram.getDataModel(),
@@ -963,6 +992,47 @@ public class HistogramView extends TmfView implements ITmfTimeAligned {
         fTrace.sendRequest(fFullTraceRequest);
     }
 
+    private void cancelTimeRangeRequest() {
+        if ((fTimeRangeRequest != null) && !fTimeRangeRequest.isCompleted()) {
+            fTimeRangeRequest.cancel();
+        }
+        if (fTimeRangeJob != null) {
+            fTimeRangeJob.cancel();
+            fTimeRangeJob = null;
+        }
+    }
+
+    private void cancelFullTraceRequest() {
+        if ((fFullTraceRequest != null) && !fFullTraceRequest.isCompleted()) {
+            fFullTraceRequest.cancel();
+        }
+        if (fFullTraceJob != null) {
+            fFullTraceJob.cancel();
+            fFullTraceJob = null;
+        }
+    }
+
+    /*
+     * Get the statistics of every trace of the trace set, or null if one of
+     * them has no statistics, or they are not completely built yet.
+     */
+    private Map<ITmfTrace, ITmfStatistics> getBuiltStatistics() {
+        Map<ITmfTrace, ITmfStatistics> map = new LinkedHashMap<>();
+        for (ITmfTrace trace : TmfTraceManager.getTraceSet(fTrace)) {
+            TmfStatisticsModule module = TmfTraceUtils.getAnalysisModuleOfClass(trace, TmfStatisticsModule.class, TmfStatisticsModule.ID);
+            if (module == null) {
+                return null;
+            }
+            ITmfStatistics stats = module.getStatistics();
+            ITmfStateSystem ss = module.getStateSystem(TmfStatisticsTotalsModule.ID);
+            if (stats == null || ss == null || !ss.waitUntilBuilt(0)) {
+                return null;
+            }
+            map.put(trace, stats);
+        }
+        return (map.isEmpty() ? null : map);
+    }
+
     private void contributeToActionBars() {
         IActionBars bars = getViewSite().getActionBars();
         bars.getToolBarManager().add(getShowLostEventsAction());
@@ -17,12 +17,22 @@
 package org.eclipse.tracecompass.tmf.ui.views.timegraph;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
@@ -44,6 +54,9 @@ import org.eclipse.swt.graphics.Image;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.TreeColumn;
+import org.eclipse.tracecompass.internal.tmf.ui.Activator;
+import org.eclipse.tracecompass.internal.tmf.ui.views.timegraph.ZoomCache;
+import org.eclipse.tracecompass.internal.tmf.ui.views.timegraph.ZoomKey;
 import org.eclipse.tracecompass.tmf.core.signal.TmfSelectionRangeUpdatedSignal;
 import org.eclipse.tracecompass.tmf.core.signal.TmfSignalHandler;
 import org.eclipse.tracecompass.tmf.core.signal.TmfTimestampFormatUpdateSignal;
@@ -90,6 +103,27 @@ public abstract class AbstractTimeGraphView extends TmfView implements ITmfTimeA
     /** Constant indicating that all levels of the time graph should be expanded */
     protected static final int ALL_LEVELS = AbstractTreeViewer.ALL_LEVELS;
 
+    /** The maximum number of zoomed events kept in the zoom cache of a view */
+    private static final int MAX_CACHED_EVENTS = 1000000;
+
+    /** The thread pool that reads the zoomed events of the time graph views */
+    private static final ExecutorService ZOOM_EXECUTOR;
+
+    static {
+        int nbThreads = Runtime.getRuntime().availableProcessors();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(nbThreads, nbThreads, 10, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "Time graph zoom"); //$NON-NLS-1$
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+        ZOOM_EXECUTOR = executor;
+    }
+
     /**
      * Redraw state enum
      */
@@ -128,6 +162,9 @@ public abstract class AbstractTimeGraphView extends TmfView implements ITmfTimeA
     /** The zoom thread */
     private ZoomThread fZoomThread;
 
+    /** The zoomed event lists that were already read */
+    private final ZoomCache fZoomCache = new ZoomCache(MAX_CACHED_EVENTS);
+
     /** The next resource action */
     private Action fNextResourceAction;
 
@@ -462,14 +499,16 @@ public abstract class AbstractTimeGraphView extends TmfView implements ITmfTimeA
 
     private class ZoomThread extends Thread {
         private final @NonNull List<TimeGraphEntry> fZoomEntryList;
+        private final @NonNull List<ITimeGraphEntry> fVisibleEntries;
         private final long fZoomStartTime;
         private final long fZoomEndTime;
         private final long fResolution;
         private final @NonNull  IProgressMonitor fMonitor;
 
-        public ZoomThread(@NonNull List<TimeGraphEntry> entryList, long startTime, long endTime, String name) {
+        public ZoomThread(@NonNull List<TimeGraphEntry> entryList, @NonNull List<ITimeGraphEntry> visibleEntries, long startTime, long endTime, String name) {
             super(name + " zoom"); //$NON-NLS-1$
             fZoomEntryList = entryList;
+            fVisibleEntries = visibleEntries;
             fZoomStartTime = startTime;
             fZoomEndTime = endTime;
             fResolution = Math.max(1, (fZoomEndTime - fZoomStartTime) / fDisplayWidth);
@@ -478,14 +517,32 @@ public abstract class AbstractTimeGraphView extends TmfView implements ITmfTimeA
 
         @Override
         public void run() {
-            for (TimeGraphEntry entry : fZoomEntryList) {
+            /* The entries are zoomed in parallel, the visible ones first */
+            List<Future<?>> futures = new ArrayList<>();
+            for (final TimeGraphEntry entry : getZoomOrder()) {
+                futures.add(ZOOM_EXECUTOR.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!fMonitor.isCanceled()) {
+                            zoom(entry);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
                 if (fMonitor.isCanceled()) {
                     return;
                 }
-                if (entry == null) {
-                    break;
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    return;
+                } catch (ExecutionException e) {
+                    Activator.getDefault().logError("Error zooming in " + getName(), e.getCause()); //$NON-NLS-1$
                 }
-                zoom(entry, fMonitor);
+            }
+            if (fMonitor.isCanceled()) {
+                return;
             }
             /* Refresh the arrows when zooming */
             List<ILinkEvent> events = getLinkList(fZoomStartTime, fZoomEndTime, fResolution, fMonitor);
@@ -495,24 +552,81 @@ public abstract class AbstractTimeGraphView extends TmfView implements ITmfTimeA
             }
         }
 
-        private void zoom(@NonNull TimeGraphEntry entry, @NonNull IProgressMonitor monitor) {
+        private List<TimeGraphEntry> getZoomOrder() {
+            Set<ITimeGraphEntry> added = Collections.newSetFromMap(new IdentityHashMap<ITimeGraphEntry, Boolean>());
+            List<TimeGraphEntry> entries = new ArrayList<>();
+            for (ITimeGraphEntry entry : fVisibleEntries) {
+                if (entry instanceof TimeGraphEntry && added.add(entry)) {
+                    entries.add((TimeGraphEntry) entry);
+                }
+            }
+            addEntries(fZoomEntryList, added, entries);
+            return entries;
+        }
+
+        private void addEntries(List<? extends ITimeGraphEntry> list, Set<ITimeGraphEntry> added, List<TimeGraphEntry> entries) {
+            for (ITimeGraphEntry entry : list) {
+                if (entry instanceof TimeGraphEntry) {
+                    if (added.add(entry)) {
+                        entries.add((TimeGraphEntry) entry);
+                    }
+                    addEntries(entry.getChildren(), added, entries);
+                }
+            }
+        }
+
+        private void zoom(@NonNull TimeGraphEntry entry) {
             if (fZoomStartTime <= fStartTime && fZoomEndTime >= fEndTime) {
                 entry.setZoomedEventList(null);
             } else {
-                List<ITimeEvent> zoomedEventList = getEventList(entry, fZoomStartTime, fZoomEndTime, fResolution, monitor);
+                List<ITimeEvent> zoomedEventList = getZoomedEventList(entry);
+                if (fMonitor.isCanceled()) {
+                    /* A newer zoom may already have set its own events */
+                    return;
+                }
                 if (zoomedEventList != null) {
                     entry.setZoomedEventList(zoomedEventList);
                 }
             }
             redraw();
-            for (ITimeGraphEntry child : entry.getChildren()) {
-                if (fMonitor.isCanceled()) {
-                    return;
-                }
-                if (child instanceof TimeGraphEntry) {
-                    zoom((TimeGraphEntry) child, monitor);
-                }
+        }
+
+        private @Nullable List<ITimeEvent> getZoomedEventList(@NonNull TimeGraphEntry entry) {
+            ZoomKey key = new ZoomKey(entry, fZoomStartTime, fZoomEndTime, fResolution);
+            List<ITimeEvent> eventList = fZoomCache.get(key);
+            if (eventList != null) {
+                return eventList;
+            }
+            ZoomKey lastKey = fZoomCache.getLastKey(entry);
+            List<ITimeEvent> lastEventList = (lastKey != null && lastKey.overlaps(key)) ? fZoomCache.get(lastKey) : null;
+            if (lastKey != null && lastEventList != null) {
+                eventList = getPannedEventList(entry, lastKey, lastEventList);
+            } else {
+                eventList = getEventList(entry, fZoomStartTime, fZoomEndTime, fResolution, fMonitor);
+            }
+            if (eventList != null && !fMonitor.isCanceled()) {
+                fZoomCache.put(key, eventList);
             }
+            return eventList;
+        }
+
+        /*
+         * Reuse the events of an overlapping range at the same resolution, only
+         * the events of the parts of the range that are not covered are read.
+         */
+        private @Nullable List<ITimeEvent> getPannedEventList(@NonNull TimeGraphEntry entry, ZoomKey lastKey, List<ITimeEvent> lastEventList) {
+            List<ITimeEvent> before = null;
+            List<ITimeEvent> after = null;
+            if (fZoomStartTime < lastKey.getStartTime()) {
+                before = getEventList(entry, fZoomStartTime, lastKey.getStartTime(), fResolution, fMonitor);
+            }
+            if (fZoomEndTime > lastKey.getEndTime()) {
+                after = getEventList(entry, lastKey.getEndTime(), fZoomEndTime, fResolution, fMonitor);
+            }
+            if (fMonitor.isCanceled()) {
+                return null;
+            }
+            return ZoomCache.mergePannedEventList(fZoomStartTime, fZoomEndTime, before, lastEventList, after);
         }
 
         public void cancel() {
@@ -969,6 +1083,7 @@ public abstract class AbstractTimeGraphView extends TmfView implements ITmfTimeA
             if (fZoomThread != null) {
                 fZoomThread.cancel();
             }
+            fZoomCache.clear();
             refresh();
         }
     }
@@ -1127,6 +1242,12 @@ public abstract class AbstractTimeGraphView extends TmfView implements ITmfTimeA
     /**
      * Gets the list of event for an entry in a given timerange
      *
+     * When zooming, this method is called concurrently for different entries
+     * of the view, from a thread pool shared by all the time graph views. The
+     * implementations must therefore be thread-safe, and not rely on the
+     * state of the view or on the order in which the entries are zoomed. They
+     * should return early when the monitor is canceled.
+     *
      * @param entry
      *            The entry to get events for
      * @param startTime
@@ -1257,7 +1378,13 @@ public abstract class AbstractTimeGraphView extends TmfView implements ITmfTimeA
         if (entryList == null) {
             return;
         }
-        fZoomThread = new ZoomThread(entryList, startTime, endTime, getName());
+        /* The rows that are shown are zoomed first */
+        TimeGraphViewer viewer = fTimeGraphWrapper.getTimeGraphViewer();
+        ITimeGraphEntry[] expandedElements = viewer.getExpandedElements();
+        int topIndex = Math.min(viewer.getTopIndex(), expandedElements.length);
+        int bottomIndex = Math.min(topIndex + viewer.getTimeGraphControl().countPerPage() + 1, expandedElements.length);
+        List<ITimeGraphEntry> visibleEntries = new ArrayList<>(Arrays.asList(expandedElements).subList(topIndex, bottomIndex));
+        fZoomThread = new ZoomThread(entryList, visibleEntries, startTime, endTime, getName());
         fZoomThread.start();
     }
 
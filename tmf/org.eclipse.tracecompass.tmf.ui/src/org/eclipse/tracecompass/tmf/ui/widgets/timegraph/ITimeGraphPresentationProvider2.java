@@ -12,6 +12,9 @@
 
 package org.eclipse.tracecompass.tmf.ui.widgets.timegraph;
 
+import java.util.List;
+
+import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model.ITimeEvent;
 import org.eclipse.tracecompass.tmf.ui.widgets.timegraph.widgets.ITmfTimeGraphDrawingHelper;
 
 /**
@@ -56,4 +59,20 @@ public interface ITimeGraphPresentationProvider2 extends ITimeGraphPresentationP
      */
     public void removeColorListener(ITimeGraphColorListener listener);
 
+    /**
+     * Returns the event that represents the events of an entry that are all
+     * drawn within the same pixel column. Only the returned event is drawn in
+     * that column, and {@link #postDrawEvent} is only called for it. If no
+     * event is returned, the column is drawn with a marker showing that it
+     * contains multiple states.
+     *
+     * @param events
+     *            The time events of the pixel column, at least two, in time
+     *            order
+     * @return The event to draw in the column, or null to draw the multiple
+     *         states marker
+     * @since 2.0
+     */
+    ITimeEvent getRepresentativeEvent(List<ITimeEvent> events);
+
 }
\ No newline at end of file
@@ -140,6 +140,32 @@ public class TimeGraphPresentationProvider implements ITimeGraphPresentationProv
         return true;
     }
 
+    /**
+     * The default implementation returns the first event that is drawn with a
+     * state color, if all such events of the column have the same state, or
+     * null if they have different states.
+     *
+     * @since 2.0
+     */
+    @Override
+    public ITimeEvent getRepresentativeEvent(List<ITimeEvent> events) {
+        ITimeEvent representative = null;
+        int representativeIndex = INVISIBLE;
+        for (ITimeEvent event : events) {
+            int index = getStateTableIndex(event);
+            if (index < 0) {
+                continue;
+            }
+            if (representative == null) {
+                representative = event;
+                representativeIndex = index;
+            } else if (index != representativeIndex) {
+                return null;
+            }
+        }
+        return (representative != null) ? representative : events.get(0);
+    }
+
     @Override
     public void addColorListener(ITimeGraphColorListener listener) {
         if (!fListeners.contains(listener)) {
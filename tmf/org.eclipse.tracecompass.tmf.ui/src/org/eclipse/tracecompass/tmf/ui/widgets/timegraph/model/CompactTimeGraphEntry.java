@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A time graph entry that stores its time events in arrays of primitive
+ * values rather than as one object per event. The {@link TimeEvent} and
+ * {@link NullTimeEvent} objects are only created for the events that are
+ * iterated, and the iteration over a time range only goes through the events
+ * of that range.
+ *
+ * The events returned by the iterators are new objects at each iteration, so
+ * they should not be compared by identity.
+ *
+ * @since 2.0
+ */
+public class CompactTimeGraphEntry extends TimeGraphEntry {
+
+    private volatile TimeEventArray fEventArray = new TimeEventArray(this);
+    private volatile TimeEventArray fZoomedEventArray = new TimeEventArray(this);
+
+    /**
+     * Constructor
+     *
+     * @param name
+     *            The name of this entry
+     * @param startTime
+     *            The start time of this entry
+     * @param endTime
+     *            The end time of this entry
+     */
+    public CompactTimeGraphEntry(String name, long startTime, long endTime) {
+        super(name, startTime, endTime);
+    }
+
+    @Override
+    public Iterator<ITimeEvent> getTimeEventsIterator() {
+        if (!hasTimeEvents()) {
+            return null;
+        }
+        return new EventIterator(fEventArray.getEvents(Long.MIN_VALUE, Long.MAX_VALUE),
+                fZoomedEventArray.getEvents(Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+
+    @Override
+    public Iterator<ITimeEvent> getTimeEventsIterator(long startTime, long stopTime, long visibleDuration) {
+        if (!hasTimeEvents()) {
+            return null;
+        }
+        /*
+         * The zoomed events are all kept since the iterator hides the events
+         * of the full list that are within their time range.
+         */
+        return new EventIterator(fEventArray.getEvents(startTime, stopTime),
+                fZoomedEventArray.getEvents(Long.MIN_VALUE, Long.MAX_VALUE), startTime, stopTime);
+    }
+
+    @Override
+    public void addEvent(ITimeEvent event) {
+        TimeEventArray eventArray = fEventArray;
+        synchronized (eventArray) {
+            eventArray.add(event, true);
+            updateTimeRange(event.getTime(), event.getTime() + event.getDuration());
+        }
+    }
+
+    @Override
+    public void setEventList(List<ITimeEvent> eventList) {
+        fEventArray = createEventArray(eventList);
+    }
+
+    @Override
+    public void setZoomedEventList(List<ITimeEvent> eventList) {
+        fZoomedEventArray = createEventArray(eventList);
+    }
+
+    private TimeEventArray createEventArray(List<ITimeEvent> eventList) {
+        TimeEventArray eventArray = new TimeEventArray(this);
+        if (eventList != null) {
+            for (ITimeEvent event : eventList) {
+                eventArray.add(event, false);
+            }
+        }
+        return eventArray;
+    }
+}
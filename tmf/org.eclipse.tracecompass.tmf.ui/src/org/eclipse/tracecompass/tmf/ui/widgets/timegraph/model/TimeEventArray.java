@@ -0,0 +1,202 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License v1.0 which
+ * accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.tmf.ui.widgets.timegraph.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A list of the time events of an entry, stored in parallel arrays of start
+ * times, durations and values. The events of class {@link TimeEvent} and
+ * {@link NullTimeEvent} that belong to the entry are created again when they
+ * are read, the other events are kept as they are.
+ *
+ * The events are added by one thread while other threads read them through
+ * the lists returned by {@link #getEvents(long, long)}. These lists share the
+ * arrays of the event list, so the arrays are copied before an event that a
+ * list can read is replaced.
+ */
+final class TimeEventArray {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private static final byte TIME_EVENT = 0;
+    private static final byte NULL_TIME_EVENT = 1;
+    private static final byte OTHER_EVENT = 2;
+
+    private final ITimeGraphEntry fEntry;
+    private long[] fTimes = new long[0];
+    private long[] fDurations = new long[0];
+    private int[] fValues = new int[0];
+    private byte[] fKinds = new byte[0];
+    /* The events that are not stored as primitive values, or null if there are none */
+    private ITimeEvent[] fEvents = null;
+    private int fSize = 0;
+    /* If the start times and the end times of the events are in increasing order */
+    private boolean fSorted = true;
+    /* If the arrays are read by lists returned by getEvents() */
+    private boolean fShared = false;
+
+    /**
+     * Constructor
+     *
+     * @param entry
+     *            The entry of the events
+     */
+    public TimeEventArray(ITimeGraphEntry entry) {
+        fEntry = entry;
+    }
+
+    /**
+     * Add an event at the end of the list
+     *
+     * @param event
+     *            The time event to add
+     * @param replace
+     *            If the last event should be replaced by the new event when
+     *            they start at the same time
+     */
+    public synchronized void add(ITimeEvent event, boolean replace) {
+        long time = event.getTime();
+        long duration = event.getDuration();
+        int index = fSize;
+        if (replace && index > 0 && fTimes[index - 1] == time) {
+            index--;
+            if (fShared) {
+                copyArrays(fTimes.length);
+            }
+        } else if (index == fTimes.length) {
+            copyArrays(Math.max(INITIAL_CAPACITY, index * 2));
+        }
+        if (index > 0 && (time < fTimes[index - 1] || time + duration < fTimes[index - 1] + fDurations[index - 1])) {
+            fSorted = false;
+        }
+        fTimes[index] = time;
+        fDurations[index] = duration;
+        if (event.getClass() == TimeEvent.class && event.getEntry() == fEntry) {
+            fValues[index] = ((TimeEvent) event).getValue();
+            fKinds[index] = TIME_EVENT;
+        } else if (event.getClass() == NullTimeEvent.class && event.getEntry() == fEntry) {
+            fKinds[index] = NULL_TIME_EVENT;
+        } else {
+            if (fEvents == null) {
+                fEvents = new ITimeEvent[fTimes.length];
+            }
+            fEvents[index] = event;
+            fKinds[index] = OTHER_EVENT;
+        }
+        if (fEvents != null && fKinds[index] != OTHER_EVENT) {
+            fEvents[index] = null;
+        }
+        fSize = Math.max(fSize, index + 1);
+    }
+
+    private void copyArrays(int capacity) {
+        fTimes = Arrays.copyOf(fTimes, capacity);
+        fDurations = Arrays.copyOf(fDurations, capacity);
+        fValues = Arrays.copyOf(fValues, capacity);
+        fKinds = Arrays.copyOf(fKinds, capacity);
+        if (fEvents != null) {
+            fEvents = Arrays.copyOf(fEvents, capacity);
+        }
+        fShared = false;
+    }
+
+    /**
+     * Get the events that are visible in a time range, that is the events that
+     * end at or after the start time and start at or before the end time. If
+     * the events are not in order, all of them are returned.
+     *
+     * @param startTime
+     *            The start time of the range
+     * @param endTime
+     *            The end time of the range
+     * @return The list of events, that is not modified by the events added
+     *         afterwards
+     */
+    public synchronized List<ITimeEvent> getEvents(long startTime, long endTime) {
+        fShared = true;
+        if (!fSorted) {
+            return new EventList(this, 0, fSize);
+        }
+        /* Find the first event that ends at or after the start time */
+        int lo = 0;
+        int hi = fSize;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (fTimes[mid] + fDurations[mid] < startTime) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        int from = lo;
+        /* Find the first event that starts after the end time */
+        hi = fSize;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (fTimes[mid] <= endTime) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return new EventList(this, from, lo);
+    }
+
+    /**
+     * A view of a range of the events, that creates the events when they are
+     * read. It keeps the arrays of the event list at the time it was created.
+     */
+    private static final class EventList extends AbstractList<ITimeEvent> implements RandomAccess {
+        private final ITimeGraphEntry fEntry;
+        private final long[] fTimes;
+        private final long[] fDurations;
+        private final int[] fValues;
+        private final byte[] fKinds;
+        private final ITimeEvent[] fEvents;
+        private final int fFrom;
+        private final int fSize;
+
+        public EventList(TimeEventArray array, int from, int to) {
+            fEntry = array.fEntry;
+            fTimes = array.fTimes;
+            fDurations = array.fDurations;
+            fValues = array.fValues;
+            fKinds = array.fKinds;
+            fEvents = array.fEvents;
+            fFrom = from;
+            fSize = to - from;
+        }
+
+        @Override
+        public ITimeEvent get(int index) {
+            if (index < 0 || index >= fSize) {
+                throw new IndexOutOfBoundsException(Integer.toString(index));
+            }
+            int i = fFrom + index;
+            switch (fKinds[i]) {
+            case NULL_TIME_EVENT:
+                return new NullTimeEvent(fEntry, fTimes[i], fDurations[i]);
+            case OTHER_EVENT:
+                return fEvents[i];
+            default:
+                return new TimeEvent(fEntry, fTimes[i], fDurations[i], fValues[i]);
+            }
+        }
+
+        @Override
+        public int size() {
+            return fSize;
+        }
+    }
+}
@@ -174,12 +174,26 @@ public class TimeGraphEntry implements ITimeGraphEntry {
             } else {
                 fEventList.add(event);
             }
-            if (fStartTime == SWT.DEFAULT || start < fStartTime) {
-                fStartTime = start;
-            }
-            if (fEndTime == SWT.DEFAULT || end > fEndTime) {
-                fEndTime = end;
-            }
+            updateTimeRange(start, end);
+        }
+    }
+
+    /**
+     * Update the start and end time of this entry so that they include a time
+     * range.
+     *
+     * @param startTime
+     *            the start time of the range
+     * @param endTime
+     *            the end time of the range
+     * @since 2.0
+     */
+    protected void updateTimeRange(long startTime, long endTime) {
+        if (fStartTime == SWT.DEFAULT || startTime < fStartTime) {
+            fStartTime = startTime;
+        }
+        if (fEndTime == SWT.DEFAULT || endTime > fEndTime) {
+            fEndTime = endTime;
         }
     }
 
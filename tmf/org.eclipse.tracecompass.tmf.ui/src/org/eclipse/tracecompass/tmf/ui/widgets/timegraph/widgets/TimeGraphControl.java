@@ -64,6 +64,7 @@ import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Event;
 import org.eclipse.swt.widgets.Listener;
+import org.eclipse.tracecompass.internal.tmf.ui.TmfUiTracer;
 import org.eclipse.tracecompass.tmf.core.signal.TmfSignalManager;
 import org.eclipse.tracecompass.tmf.ui.signal.TmfTimeViewAlignmentInfo;
 import org.eclipse.tracecompass.tmf.ui.signal.TmfTimeViewAlignmentSignal;
@@ -128,6 +129,7 @@ public class TimeGraphControl extends TimeGraphBaseControl
     private boolean fMouseOverSplitLine = false;
     private int fGlobalItemHeight = CUSTOM_ITEM_HEIGHT;
     private boolean fBlendSubPixelEvents = false;
+    private final List<ITimeEvent> fColumnEvents = new ArrayList<>();
     private int fMinimumItemWidth = 0;
     private int fTopIndex = 0;
     private int fDragState = DRAG_NONE;
@@ -1426,6 +1428,7 @@ public class TimeGraphControl extends TimeGraphBaseControl
         long time0 = timeProvider.getTime0();
         long time1 = timeProvider.getTime1();
         long selectedTime = fTimeProvider.getSelectionEnd();
+        long paintStartTime = TmfUiTracer.isDisplayTraced() ? System.nanoTime() : 0;
 
         Rectangle nameRect = getNameRect(bounds, i, nameSpace);
         if (nameRect.y >= bounds.y + bounds.height) {
@@ -1467,7 +1470,17 @@ public class TimeGraphControl extends TimeGraphBaseControl
             long maxDuration = (timeProvider.getTimeSpace() == 0) ? Long.MAX_VALUE : 1 * (time1 - time0) / timeProvider.getTimeSpace();
             Iterator<ITimeEvent> iterator = entry.getTimeEventsIterator(time0, time1, maxDuration);
 
+            /*
+             * The consecutive events that are within a single pixel column
+             * are gathered and drawn once, by their representative event
+             */
+            ITimeGraphPresentationProvider2 columnProvider = (fTimeGraphProvider instanceof ITimeGraphPresentationProvider2) ?
+                    (ITimeGraphPresentationProvider2) fTimeGraphProvider : null;
+            List<ITimeEvent> columnEvents = fColumnEvents;
+            columnEvents.clear();
+            int columnX = -1;
             int lastX = -1;
+            int nbEvents = 0;
             while (iterator.hasNext()) {
                 ITimeEvent event = iterator.next();
                 int x = rect.x + (int) ((event.getTime() - time0) * pixelsPerNanoSec);
@@ -1476,27 +1489,96 @@ public class TimeGraphControl extends TimeGraphBaseControl
                     // event is out of bounds
                     continue;
                 }
+                nbEvents++;
                 xEnd = Math.min(rect.x + rect.width, xEnd);
-                stateRect.x = Math.max(rect.x, x);
-                stateRect.width = Math.max(0, xEnd - stateRect.x + 1);
-                if (stateRect.x == lastX) {
-                    stateRect.width -= 1;
-                    if (stateRect.width > 0) {
-                        gc.setForeground(Display.getDefault().getSystemColor(SWT.COLOR_BLACK));
-                        gc.drawPoint(stateRect.x, stateRect.y - 2);
-                        stateRect.x += 1;
-                    }
+                x = Math.max(rect.x, x);
+                if (!columnEvents.isEmpty() && (x != xEnd || x != columnX)) {
+                    lastX = drawColumn(columnProvider, columnEvents, columnX, lastX, stateRect, selectedTime, gc, selected);
+                    columnEvents.clear();
                 }
-                boolean timeSelected = selectedTime >= event.getTime() && selectedTime < event.getTime() + event.getDuration();
-                if (drawState(getColorScheme(), event, stateRect, gc, selected, timeSelected)) {
-                    lastX = stateRect.x;
+                if (x == xEnd && columnProvider != null) {
+                    columnX = x;
+                    columnEvents.add(event);
+                } else {
+                    lastX = drawEvent(event, x, xEnd, lastX, stateRect, selectedTime, gc, selected);
                 }
             }
+            if (!columnEvents.isEmpty()) {
+                drawColumn(columnProvider, columnEvents, columnX, lastX, stateRect, selectedTime, gc, selected);
+                columnEvents.clear();
+            }
             gc.setClipping((Rectangle) null);
+            if (TmfUiTracer.isDisplayTraced()) {
+                TmfUiTracer.traceDisplay("[TimeGraphControl] drawItem " + entry.getName() + //$NON-NLS-1$
+                        " events=" + nbEvents + //$NON-NLS-1$
+                        " width=" + rect.width + //$NON-NLS-1$
+                        " time=" + (System.nanoTime() - paintStartTime) / 1000 + "us"); //$NON-NLS-1$ //$NON-NLS-2$
+            }
         }
         fTimeGraphProvider.postDrawEntry(entry, rect, gc);
     }
 
+    /*
+     * Draw an event between two pixel columns, and return the x position of
+     * the last drawn state
+     */
+    private int drawEvent(ITimeEvent event, int x, int xEnd, int lastX, Rectangle stateRect, long selectedTime, GC gc, boolean selected) {
+        stateRect.x = x;
+        stateRect.width = Math.max(0, xEnd - x + 1);
+        if (stateRect.x == lastX) {
+            stateRect.width -= 1;
+            if (stateRect.width > 0) {
+                gc.setForeground(Display.getDefault().getSystemColor(SWT.COLOR_BLACK));
+                gc.drawPoint(stateRect.x, stateRect.y - 2);
+                stateRect.x += 1;
+            }
+        }
+        boolean timeSelected = selectedTime >= event.getTime() && selectedTime < event.getTime() + event.getDuration();
+        if (drawState(getColorScheme(), event, stateRect, gc, selected, timeSelected)) {
+            return stateRect.x;
+        }
+        return lastX;
+    }
+
+    /*
+     * Draw the events that are within a single pixel column, and return the x
+     * position of the last drawn state
+     */
+    private int drawColumn(ITimeGraphPresentationProvider2 provider, List<ITimeEvent> events, int x, int lastX, Rectangle stateRect, long selectedTime, GC gc, boolean selected) {
+        if (events.size() == 1) {
+            return drawEvent(events.get(0), x, x, lastX, stateRect, selectedTime, gc, selected);
+        }
+        ITimeEvent event = provider.getRepresentativeEvent(events);
+        int newLastX = lastX;
+        if (event != null) {
+            newLastX = drawEvent(event, x, x, lastX, stateRect, selectedTime, gc, selected);
+        } else if (x != lastX) {
+            drawMultipleStates(x, stateRect, gc);
+            newLastX = x;
+        }
+        // mark the column as containing several events
+        gc.setForeground(Display.getDefault().getSystemColor(SWT.COLOR_BLACK));
+        gc.drawPoint(x, stateRect.y - 2);
+        return newLastX;
+    }
+
+    /**
+     * Draw the marker of a pixel column that contains events of different
+     * states
+     *
+     * @param x
+     *            The x position of the pixel column
+     * @param rect
+     *            The rectangle of the states of the entry
+     * @param gc
+     *            Graphics context
+     * @since 2.0
+     */
+    protected void drawMultipleStates(int x, Rectangle rect, GC gc) {
+        gc.setForeground(Display.getDefault().getSystemColor(SWT.COLOR_BLACK));
+        gc.drawLine(x, rect.y, x, rect.y + rect.height - 1);
+    }
+
     /**
      * Draw the links
      *